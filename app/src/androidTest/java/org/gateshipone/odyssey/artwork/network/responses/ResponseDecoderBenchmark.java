@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.responses;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.gateshipone.odyssey.artwork.network.requests.OdysseyJsonStreamRequest;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the time needed to decode the provider responses with the streaming decoders and with the
+ * {@link JSONObject} based parsing that was used before. The results are written to the log with the tag of this class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ResponseDecoderBenchmark {
+
+    private static final String TAG = ResponseDecoderBenchmark.class.getSimpleName();
+
+    private static final int WARMUP_ITERATIONS = 200;
+
+    private static final int ITERATIONS = 1000;
+
+    private interface JSONObjectParser<T> {
+        T parse(JSONObject response) throws JSONException;
+    }
+
+    private static <T> void compare(final String fixture, final ResponseDecoder<?> decoder, final JSONObjectParser<T> parser,
+                                    final T expected) throws IOException, JSONException {
+        final String response = ResponseDecoderTest.readFixture(fixture);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            OdysseyJsonStreamRequest.decode(decoder, new StringReader(response));
+            parser.parse(new JSONObject(response));
+        }
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            OdysseyJsonStreamRequest.decode(decoder, new StringReader(response));
+        }
+        final long streamTime = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(expected, parser.parse(new JSONObject(response)));
+        }
+        final long jsonObjectTime = System.nanoTime() - startTime;
+
+        Log.i(TAG, fixture + " (" + response.length() + " chars)"
+                + ", JsonReader: " + (streamTime / 1000 / ITERATIONS) + " us"
+                + ", JSONObject: " + (jsonObjectTime / 1000 / ITERATIONS) + " us");
+    }
+
+    @Test
+    public void musicBrainzReleases() throws IOException, JSONException {
+        compare("musicbrainz_release_search.json", MusicBrainzRelease::decodeReleases, response -> {
+            final JSONArray releases = response.getJSONArray("releases");
+            String id = null;
+            for (int i = 0; i < releases.length(); i++) {
+                final JSONObject release = releases.getJSONObject(i);
+                release.getString("title");
+                final JSONArray credits = release.getJSONArray("artist-credit");
+                if (credits.length() > 0) {
+                    credits.getJSONObject(0).getString("name");
+                    if (id == null) {
+                        id = release.getString("id");
+                    }
+                }
+            }
+            return id;
+        }, "b84ee12a-09ef-421b-82de-0441a926375b");
+    }
+
+    @Test
+    public void musicBrainzArtists() throws IOException, JSONException {
+        compare("musicbrainz_artist_search.json", MusicBrainzArtist::decodeArtists, response -> {
+            final JSONObject artist = response.getJSONArray("artists").getJSONObject(0);
+            artist.getString("name");
+            return artist.getString("id");
+        }, "b10bbbfc-cf9e-42e0-be17-e2c3e1d2600d");
+    }
+
+    @Test
+    public void lastFMAlbumInfo() throws IOException, JSONException {
+        compare("lastfm_album_getinfo.json", LastFMAlbumInfo::decodeAlbumInfo, response -> {
+            final JSONObject album = response.getJSONObject("album");
+            album.getString("name");
+            album.getString("artist");
+            album.optString("mbid");
+
+            String url = null;
+            final JSONArray images = album.getJSONArray("image");
+            for (int i = 0; i < images.length(); i++) {
+                final JSONObject image = images.getJSONObject(i);
+                if (image.getString("size").equals("extralarge")) {
+                    url = image.getString("#text");
+                }
+            }
+            return url;
+        }, "https://lastfm.freetls.fastly.net/i/u/300x300/3dd1b0bc.png");
+    }
+
+    @Test
+    public void fanartTVArtistImages() throws IOException, JSONException {
+        compare("fanarttv_artist.json", FanartTVArtistImages::decodeArtistImages,
+                response -> response.getJSONArray("artistthumb").getJSONObject(0).getString("url"),
+                "https://assets.fanart.tv/fanart/music/b10bbbfc-cf9e-42e0-be17-e2c3e1d2600d/artistthumb/the-beatles-4001.jpg");
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.responses;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.gateshipone.odyssey.artwork.network.requests.OdysseyJsonStreamRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decodes the provider responses in the assets of the test application.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ResponseDecoderTest {
+
+    static String readFixture(final String name) throws IOException {
+        try (InputStream inputStream = InstrumentationRegistry.getInstrumentation().getContext().getAssets().open("responses/" + name)) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, read);
+            }
+            return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static <T> T decodeFixture(final ResponseDecoder<T> decoder, final String name) throws IOException {
+        return OdysseyJsonStreamRequest.decode(decoder, new StringReader(readFixture(name)));
+    }
+
+    @Test
+    public void decodesMusicBrainzReleases() throws IOException {
+        final List<MusicBrainzRelease> releases = decodeFixture(MusicBrainzRelease::decodeReleases, "musicbrainz_release_search.json");
+
+        // the release without an artist credit is skipped
+        assertEquals(3, releases.size());
+
+        assertEquals("b84ee12a-09ef-421b-82de-0441a926375b", releases.get(0).getId());
+        assertEquals("Abbey Road", releases.get(0).getTitle());
+        assertEquals("The Beatles", releases.get(0).getArtist());
+
+        // only the first artist credit is used
+        assertEquals("1c5e3a4f-2a4e-4f1a-9a1e-6a3c2bb3f0a1", releases.get(1).getId());
+        assertEquals("The Beatles", releases.get(1).getArtist());
+
+        assertEquals("Abbey Road (Super Deluxe Edition)", releases.get(2).getTitle());
+    }
+
+    @Test
+    public void decodesMusicBrainzArtists() throws IOException {
+        final List<MusicBrainzArtist> artists = decodeFixture(MusicBrainzArtist::decodeArtists, "musicbrainz_artist_search.json");
+
+        // the artist without a name is skipped
+        assertEquals(2, artists.size());
+        assertEquals("b10bbbfc-cf9e-42e0-be17-e2c3e1d2600d", artists.get(0).getId());
+        assertEquals("The Beatles", artists.get(0).getName());
+        assertEquals("The Beatles Revival Band", artists.get(1).getName());
+    }
+
+    @Test
+    public void decodesLastFMAlbumInfo() throws IOException {
+        final LastFMAlbumInfo albumInfo = decodeFixture(LastFMAlbumInfo::decodeAlbumInfo, "lastfm_album_getinfo.json");
+
+        assertTrue(albumInfo.isValid());
+        assertEquals("Abbey Road", albumInfo.getName());
+        assertEquals("The Beatles", albumInfo.getArtist());
+        assertEquals("b84ee12a-09ef-421b-82de-0441a926375b", albumInfo.getMBID());
+        assertEquals("https://lastfm.freetls.fastly.net/i/u/300x300/3dd1b0bc.png", albumInfo.getImageUrl("extralarge"));
+        assertEquals("https://lastfm.freetls.fastly.net/i/u/34s/3dd1b0bc.png", albumInfo.getImageUrl("small"));
+        assertNull(albumInfo.getImageUrl("huge"));
+    }
+
+    @Test
+    public void decodesLastFMError() throws IOException {
+        final LastFMAlbumInfo albumInfo = decodeFixture(LastFMAlbumInfo::decodeAlbumInfo, "lastfm_album_not_found.json");
+
+        assertFalse(albumInfo.isValid());
+        assertNull(albumInfo.getImageUrl("extralarge"));
+    }
+
+    @Test
+    public void decodesFanartTVArtistThumbnails() throws IOException {
+        final FanartTVArtistImages images = decodeFixture(FanartTVArtistImages::decodeArtistImages, "fanarttv_artist.json");
+
+        // backgrounds, logos and album images are skipped as well as thumbnails without a url
+        assertEquals(2, images.getThumbnailUrls().size());
+        assertEquals("https://assets.fanart.tv/fanart/music/b10bbbfc-cf9e-42e0-be17-e2c3e1d2600d/artistthumb/the-beatles-4001.jpg",
+                images.getThumbnailUrls().get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedResponseFails() throws IOException {
+        decodeFixture(MusicBrainzRelease::decodeReleases, "musicbrainz_release_search_truncated.json");
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import android.Manifest;
+import android.content.Context;
+import android.database.Cursor;
+import android.media.MediaMetadataRetriever;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Compares the time needed by the {@link TagReader} and the {@link MediaMetadataRetriever} to read the tags of the
+ * tracks on the device. The results are written to the log with the tag of this class.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TagReaderBenchmark {
+
+    private static final String TAG = TagReaderBenchmark.class.getSimpleName();
+
+    private static final int MAXIMUM_TRACK_COUNT = 200;
+
+    @Rule
+    public GrantPermissionRule mPermissionRule = GrantPermissionRule.grant(Manifest.permission.READ_EXTERNAL_STORAGE);
+
+    @Test
+    public void compareWithMediaMetadataRetriever() throws Exception {
+        final List<File> tracks = getTracks();
+        assumeFalse("no tracks on the device", tracks.isEmpty());
+
+        // read all files once so both readers start with a warm page cache
+        readWithTagReader(tracks);
+
+        final long tagReaderTime = readWithTagReader(tracks);
+        final long retrieverTime = readWithRetriever(tracks);
+
+        int mismatches = 0;
+        for (File track : tracks) {
+            final TrackTags tags = TagReader.readTags(track);
+            final String title = extractTitle(track);
+
+            if (tags != null && title != null && !title.equals(tags.getTitle())) {
+                mismatches++;
+                Log.w(TAG, "Title mismatch for " + track + ": " + tags.getTitle() + " <> " + title);
+            }
+        }
+
+        Log.i(TAG, "Tracks: " + tracks.size()
+                + ", TagReader: " + (tagReaderTime / 1000 / tracks.size()) + " us/track"
+                + ", MediaMetadataRetriever: " + (retrieverTime / 1000 / tracks.size()) + " us/track"
+                + ", title mismatches: " + mismatches);
+    }
+
+    private static List<File> getTracks() {
+        final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        final List<File> tracks = new ArrayList<>();
+
+        try (Cursor cursor = context.getContentResolver().query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                new String[]{MediaStore.Audio.Media.DATA}, null, null, null)) {
+            if (cursor != null) {
+                while (cursor.moveToNext() && tracks.size() < MAXIMUM_TRACK_COUNT) {
+                    final File track = new File(cursor.getString(0));
+                    if (track.canRead()) {
+                        tracks.add(track);
+                    }
+                }
+            }
+        }
+
+        return tracks;
+    }
+
+    private static long readWithTagReader(final List<File> tracks) throws Exception {
+        final long startTime = System.nanoTime();
+
+        for (File track : tracks) {
+            TagReader.readTags(track);
+        }
+
+        return System.nanoTime() - startTime;
+    }
+
+    private static long readWithRetriever(final List<File> tracks) {
+        final long startTime = System.nanoTime();
+
+        for (File track : tracks) {
+            extractTitle(track);
+        }
+
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * Extracts the same fields as the fallback path of the MetaDataLoader and returns the title.
+     */
+    private static String extractTitle(final File track) {
+        final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+
+        try (FileInputStream inputStream = new FileInputStream(track)) {
+            retriever.setDataSource(inputStream.getFD());
+
+            retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_CD_TRACK_NUMBER);
+            retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_ARTIST);
+            retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_ALBUM);
+            return retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_TITLE);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            retriever.release();
+        }
+    }
+}
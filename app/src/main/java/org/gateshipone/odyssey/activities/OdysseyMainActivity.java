@@ -73,6 +73,7 @@ import org.gateshipone.odyssey.listener.OnStartSleepTimerListener;
 import org.gateshipone.odyssey.listener.ToolbarAndFABCallback;
 import org.gateshipone.odyssey.models.AlbumModel;
 import org.gateshipone.odyssey.models.ArtistModel;
+import org.gateshipone.odyssey.utils.AlbumResolutionCache;
 import org.gateshipone.odyssey.utils.FileExplorerHelper;
 import org.gateshipone.odyssey.utils.FileUtils;
 import org.gateshipone.odyssey.utils.MusicLibraryHelper;
@@ -458,7 +459,7 @@ public class OdysseyMainActivity extends GenericActivity
 
             // check if track has a valid album key
             String albumKey = currentPlaylistView.getAlbumKey(info.position);
-            AlbumModel tmpAlbum = MusicLibraryHelper.createAlbumModelFromKey(albumKey, getApplicationContext());
+            AlbumModel tmpAlbum = AlbumResolutionCache.getInstance(getApplicationContext()).getAlbum(albumKey);
 
             menu.findItem(R.id.view_current_playlist_action_showalbum).setVisible(tmpAlbum != null);
 
@@ -498,7 +499,7 @@ public class OdysseyMainActivity extends GenericActivity
                         return true;
                     case R.id.view_current_playlist_action_showalbum: {
                         String albumKey = currentPlaylistView.getAlbumKey(info.position);
-                        AlbumModel tmpAlbum = MusicLibraryHelper.createAlbumModelFromKey(albumKey, getApplicationContext());
+                        AlbumModel tmpAlbum = AlbumResolutionCache.getInstance(getApplicationContext()).getAlbum(albumKey);
 
                         View coordinatorLayout = findViewById(R.id.main_coordinator_layout);
                         coordinatorLayout.setVisibility(View.VISIBLE);
@@ -32,12 +32,13 @@ import android.widget.GridView;
 import org.gateshipone.odyssey.R;
 import org.gateshipone.odyssey.artwork.ArtworkManager;
 import org.gateshipone.odyssey.models.AlbumModel;
+import org.gateshipone.odyssey.models.GenericModel;
 import org.gateshipone.odyssey.viewitems.GridViewItem;
 import org.gateshipone.odyssey.viewitems.ListViewItem;
 
 import androidx.preference.PreferenceManager;
 
-public class AlbumsAdapter extends GenericSectionAdapter<AlbumModel> implements ArtworkManager.onNewAlbumImageListener {
+public class AlbumsAdapter extends GenericSectionAdapter<AlbumModel> implements ArtworkManager.onNewAlbumImageListener, ArtworkPrefetchAdapter {
 
     private final Context mContext;
 
@@ -144,4 +145,19 @@ public class AlbumsAdapter extends GenericSectionAdapter<AlbumModel> implements
     public void newAlbumImage(AlbumModel album) {
         notifyDataSetChanged();
     }
-}
\ No newline at end of file
+
+    @Override
+    public int getPrefetchItemCount() {
+        return getCount();
+    }
+
+    @Override
+    public GenericModel getPrefetchItem(int position) {
+        return mHideArtwork ? null : getItem(position);
+    }
+
+    @Override
+    public int getPrefetchImageSize() {
+        return mUseList ? mListItemHeight : ((GridView) mListView).getColumnWidth();
+    }
+}
@@ -29,6 +29,7 @@ import android.view.ViewGroup;
 import org.gateshipone.odyssey.R;
 import org.gateshipone.odyssey.artwork.ArtworkManager;
 import org.gateshipone.odyssey.models.AlbumModel;
+import org.gateshipone.odyssey.models.GenericModel;
 import org.gateshipone.odyssey.utils.ThemeUtils;
 import org.gateshipone.odyssey.viewitems.GenericImageViewItem;
 import org.gateshipone.odyssey.viewitems.GenericViewItemHolder;
@@ -38,7 +39,7 @@ import org.gateshipone.odyssey.viewitems.ListViewItem;
 import androidx.annotation.NonNull;
 import androidx.preference.PreferenceManager;
 
-public class AlbumsRecyclerViewAdapter extends GenericRecyclerViewAdapter<AlbumModel, GenericViewItemHolder> implements ArtworkManager.onNewAlbumImageListener {
+public class AlbumsRecyclerViewAdapter extends GenericRecyclerViewAdapter<AlbumModel, GenericViewItemHolder> implements ArtworkManager.onNewAlbumImageListener, ArtworkPrefetchAdapter {
 
     private final ArtworkManager mArtworkManager;
 
@@ -140,4 +141,19 @@ public class AlbumsRecyclerViewAdapter extends GenericRecyclerViewAdapter<AlbumM
     public void newAlbumImage(AlbumModel album) {
         notifyDataSetChanged();
     }
+
+    @Override
+    public int getPrefetchItemCount() {
+        return getItemCount();
+    }
+
+    @Override
+    public GenericModel getPrefetchItem(int position) {
+        return mHideArtwork ? null : getItem(position);
+    }
+
+    @Override
+    public int getPrefetchImageSize() {
+        return mItemSize;
+    }
 }
@@ -32,12 +32,13 @@ import android.widget.GridView;
 import org.gateshipone.odyssey.R;
 import org.gateshipone.odyssey.artwork.ArtworkManager;
 import org.gateshipone.odyssey.models.ArtistModel;
+import org.gateshipone.odyssey.models.GenericModel;
 import org.gateshipone.odyssey.viewitems.GridViewItem;
 import org.gateshipone.odyssey.viewitems.ListViewItem;
 
 import androidx.preference.PreferenceManager;
 
-public class ArtistsAdapter extends GenericSectionAdapter<ArtistModel> implements ArtworkManager.onNewArtistImageListener {
+public class ArtistsAdapter extends GenericSectionAdapter<ArtistModel> implements ArtworkManager.onNewArtistImageListener, ArtworkPrefetchAdapter {
     private static final String TAG = ArtistsAdapter.class.getSimpleName();
 
     private final Context mContext;
@@ -146,4 +147,19 @@ public class ArtistsAdapter extends GenericSectionAdapter<ArtistModel> implement
     public void newArtistImage(ArtistModel artist) {
         notifyDataSetChanged();
     }
+
+    @Override
+    public int getPrefetchItemCount() {
+        return getCount();
+    }
+
+    @Override
+    public GenericModel getPrefetchItem(int position) {
+        return mHideArtwork ? null : getItem(position);
+    }
+
+    @Override
+    public int getPrefetchImageSize() {
+        return mUseList ? mListItemHeight : ((GridView) mListView).getColumnWidth();
+    }
 }
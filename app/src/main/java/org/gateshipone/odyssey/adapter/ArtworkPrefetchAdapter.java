@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.adapter;
+
+import org.gateshipone.odyssey.models.GenericModel;
+
+/**
+ * Interface for adapters that allow to load the artwork of items before they are shown.
+ */
+public interface ArtworkPrefetchAdapter {
+
+    /**
+     * @return The number of items in the adapter.
+     */
+    int getPrefetchItemCount();
+
+    /**
+     * Returns the item at the given position if its artwork should be loaded.
+     *
+     * @param position The position of the item in the adapter.
+     * @return The item or null if no artwork is shown for the item.
+     */
+    GenericModel getPrefetchItem(int position);
+
+    /**
+     * @return The size of the item images in pixel or 0 if it is not known yet.
+     */
+    int getPrefetchImageSize();
+}
@@ -32,6 +32,7 @@ import android.net.ConnectivityManager;
 import android.util.Log;
 
 import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
 import com.android.volley.VolleyError;
 
 import org.gateshipone.odyssey.BuildConfig;
@@ -42,24 +43,30 @@ import org.gateshipone.odyssey.artwork.network.InsertImageTask;
 import org.gateshipone.odyssey.artwork.network.LimitingRequestQueue;
 import org.gateshipone.odyssey.artwork.network.artprovider.ArtProvider;
 import org.gateshipone.odyssey.artwork.network.artprovider.FanartTVProvider;
+import org.gateshipone.odyssey.artwork.network.artprovider.HedgedArtProvider;
 import org.gateshipone.odyssey.artwork.network.artprovider.LastFMProvider;
 import org.gateshipone.odyssey.artwork.network.artprovider.MusicBrainzProvider;
 import org.gateshipone.odyssey.artwork.storage.ArtworkDatabaseManager;
 import org.gateshipone.odyssey.artwork.storage.ImageNotFoundException;
+import org.gateshipone.odyssey.artwork.storage.ThumbnailCache;
+import org.gateshipone.odyssey.metadata.EmbeddedArtworkReader;
 import org.gateshipone.odyssey.models.AlbumModel;
 import org.gateshipone.odyssey.models.ArtistModel;
 import org.gateshipone.odyssey.models.TrackModel;
-import org.gateshipone.odyssey.utils.BitmapUtils;
+import org.gateshipone.odyssey.utils.AlbumResolutionCache;
+import org.gateshipone.odyssey.utils.CoverFileIndex;
 import org.gateshipone.odyssey.utils.MusicLibraryHelper;
 import org.gateshipone.odyssey.utils.NetworkUtils;
-import org.gateshipone.odyssey.utils.PermissionHelper;
 import org.json.JSONException;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import androidx.preference.PreferenceManager;
 
@@ -97,9 +104,9 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
     private static final String INTENT_EXTRA_KEY_ARTIST_NAME = "org.gateshipone.odyssey.extra.artist_name";
 
     /**
-     * The list of supported artwork filenames. This will be used to check if a local cover exists.
+     * Base time until an image is requested again after a transient error of the provider.
      */
-    private static final List<String> ALLOWED_ARTWORK_FILENAMES = new ArrayList<>(Arrays.asList("cover.jpg", "cover.jpeg", "cover.png", "folder.jpg", "folder.jpeg", "folder.png", "artwork.jpg", "artwork.jpeg", "artwork.png"));
+    private static final long TRANSIENT_ERROR_TTL = TimeUnit.HOURS.toMillis(1);
 
     /**
      * Private static singleton instance that can be used by other classes via the
@@ -127,11 +134,31 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
      */
     private boolean mUseLocalImages;
 
+    /**
+     * Flag if thumbnails should be decoded with reduced colors to save memory.
+     */
+    private boolean mReducedColorThumbnails;
+
+    /**
+     * Flag if the other album providers should be queried if the selected one is slow or has no image.
+     */
+    private boolean mUseProviderChain;
+
+    /**
+     * Chain of all album providers, created on first use.
+     */
+    private HedgedArtProvider mAlbumProviderChain;
+
     /**
      * Manager for the SQLite database handling
      */
     private ArtworkDatabaseManager mDBManager;
 
+    /**
+     * Disk cache for scaled versions of the artwork images
+     */
+    private ThumbnailCache mThumbnailCache;
+
     /**
      * List of observers that needs updating if a new ArtistImage is downloaded.
      */
@@ -145,6 +172,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
     private ArtworkManager(Context context) {
 
         mDBManager = ArtworkDatabaseManager.getInstance(context);
+        mThumbnailCache = ThumbnailCache.getInstance(context);
 
         mArtistListeners = new ArrayList<>();
         mAlbumListeners = new ArrayList<>();
@@ -159,6 +187,8 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         mAlbumProvider = sharedPref.getString(context.getString(R.string.pref_album_provider_key), context.getString(R.string.pref_artwork_provider_album_default));
         mWifiOnly = sharedPref.getBoolean(context.getString(R.string.pref_download_wifi_only_key), context.getResources().getBoolean(R.bool.pref_download_wifi_default));
         mUseLocalImages = sharedPref.getBoolean(context.getString(R.string.pref_artwork_use_local_images_key), context.getResources().getBoolean(R.bool.pref_artwork_use_local_images_default));
+        mReducedColorThumbnails = sharedPref.getBoolean(context.getString(R.string.pref_artwork_reduced_color_thumbnails_key), context.getResources().getBoolean(R.bool.pref_artwork_reduced_color_thumbnails_default));
+        mUseProviderChain = sharedPref.getBoolean(context.getString(R.string.pref_artwork_provider_chain_key), context.getResources().getBoolean(R.bool.pref_artwork_provider_chain_default));
     }
 
     public static synchronized ArtworkManager getInstance(Context context) {
@@ -180,6 +210,14 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         mArtistProvider = artistProvider;
     }
 
+    public void setReducedColorThumbnails(boolean reducedColorThumbnails) {
+        mReducedColorThumbnails = reducedColorThumbnails;
+    }
+
+    public void setUseProviderChain(boolean useProviderChain) {
+        mUseProviderChain = useProviderChain;
+    }
+
     public void initialize(String artistProvider, String albumProvider, boolean wifiOnly, boolean useLocalImages) {
         mArtistProvider = artistProvider;
         mAlbumProvider = albumProvider;
@@ -235,8 +273,8 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         if (!skipCache) {
             // Try cache first
-            Bitmap cacheImage = BitmapCache.getInstance().requestArtistImage(artist);
-            if (cacheImage != null && width <= cacheImage.getWidth() && height <= cacheImage.getWidth()) {
+            Bitmap cacheImage = BitmapCache.getInstance().requestArtistImage(artist, width, height);
+            if (cacheImage != null) {
                 return cacheImage;
             }
         }
@@ -245,9 +283,15 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         // Checks if the database has an image for the requested artist
         if (null != image) {
+            // Artists sharing the same image file share the cached bitmaps as well
+            Bitmap cacheImage = BitmapCache.getInstance().requestArtistImage(artist, image, width, height);
+            if (cacheImage != null) {
+                return cacheImage;
+            }
+
             // Create a bitmap from the data blob in the database
-            Bitmap bm = BitmapUtils.decodeSampledBitmapFromFile(image, width, height);
-            BitmapCache.getInstance().putArtistImage(artist, bm);
+            Bitmap bm = mThumbnailCache.getBitmap(image, width, height, getThumbnailConfig());
+            BitmapCache.getInstance().putArtistImage(artist, image, width, height, bm);
             return bm;
         }
         return null;
@@ -260,8 +304,8 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         if (!skipCache) {
             // Try cache first
-            Bitmap cacheBitmap = BitmapCache.getInstance().requestAlbumBitmap(album);
-            if (cacheBitmap != null && width <= cacheBitmap.getWidth() && height <= cacheBitmap.getWidth()) {
+            Bitmap cacheBitmap = BitmapCache.getInstance().requestAlbumBitmap(album, width, height);
+            if (cacheBitmap != null) {
                 return cacheBitmap;
             }
         }
@@ -270,8 +314,13 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         String albumURL = album.getAlbumArtURL();
         if (!mUseLocalImages && albumURL != null && !albumURL.isEmpty()) {
             // Local album art found (android database)
-            Bitmap bm = BitmapUtils.decodeSampledBitmapFromFile(albumURL, width, height);
-            BitmapCache.getInstance().putAlbumBitmap(album, bm);
+            Bitmap cacheBitmap = BitmapCache.getInstance().requestAlbumBitmap(album, albumURL, width, height);
+            if (cacheBitmap != null) {
+                return cacheBitmap;
+            }
+
+            Bitmap bm = mThumbnailCache.getBitmap(albumURL, width, height, getThumbnailConfig());
+            BitmapCache.getInstance().putAlbumBitmap(album, albumURL, width, height, bm);
             return bm;
         }
 
@@ -279,21 +328,34 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
 
         // Checks if the database has an image for the requested album
         if (null != image) {
+            // Albums sharing the same cover share the cached bitmaps as well
+            Bitmap cacheBitmap = BitmapCache.getInstance().requestAlbumBitmap(album, image, width, height);
+            if (cacheBitmap != null) {
+                return cacheBitmap;
+            }
+
             // Create a bitmap from the data blob in the database
-            Bitmap bm = BitmapUtils.decodeSampledBitmapFromFile(image, width, height);
-            BitmapCache.getInstance().putAlbumBitmap(album, bm);
+            Bitmap bm = mThumbnailCache.getBitmap(image, width, height, getThumbnailConfig());
+            BitmapCache.getInstance().putAlbumBitmap(album, image, width, height, bm);
             return bm;
         }
         return null;
     }
 
+    /**
+     * @return The config for thumbnails depending on the reduced colors setting.
+     */
+    private Bitmap.Config getThumbnailConfig() {
+        return mReducedColorThumbnails ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
     public Bitmap getImage(final TrackModel track, int width, int height, boolean skipCache, final Context context) throws ImageNotFoundException {
         if (null == track) {
             return null;
         }
 
         // get album information for the current track
-        AlbumModel album = MusicLibraryHelper.createAlbumModelFromKey(track.getTrackAlbumKey(), context);
+        AlbumModel album = AlbumResolutionCache.getInstance(context).getAlbum(track.getTrackAlbumKey());
         if (album == null) {
             return null;
         }
@@ -308,19 +370,24 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
      * @param context            The application context.
      * @param imageSavedCallback Callback if an image was saved.
      * @param errorCallback      Callback if an error occured.
+     * @param priority           The priority of the network requests.
      */
     void fetchImage(final ArtistModel artistModel, final Context context,
                     final InsertImageTask.ImageSavedCallback imageSavedCallback,
-                    final ArtProvider.ArtFetchError errorCallback) {
+                    final ArtProvider.ArtFetchError errorCallback,
+                    final Request.Priority priority) {
         if (!NetworkUtils.isDownloadAllowed(context, mWifiOnly)) {
             return;
         }
 
         final ArtworkRequestModel requestModel = new ArtworkRequestModel(artistModel);
+        requestModel.setPriority(priority);
 
         if (mArtistProvider.equals(context.getString(R.string.pref_artwork_provider_fanarttv_key))) {
+            requestModel.setNotFoundTTL(FanartTVProvider.getInstance(context).getNotFoundTTL());
+
             FanartTVProvider.getInstance(context).fetchImage(requestModel, context,
-                    response -> new InsertImageTask(context, imageSavedCallback).execute(response),
+                    response -> InsertImageTask.enqueue(context, imageSavedCallback, response),
                     errorCallback);
         }
     }
@@ -333,7 +400,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
      * @param context     The application context.
      */
     public void fetchImage(final ArtistModel artistModel, final Context context) {
-        fetchImage(artistModel, context, this, this);
+        fetchImage(artistModel, context, this, this, Request.Priority.HIGH);
     }
 
     /**
@@ -343,29 +410,55 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
      * @param context            The application context.
      * @param imageSavedCallback Callback if an image was saved.
      * @param errorCallback      Callback if an error occured.
+     * @param priority           The priority of the network requests.
      */
     void fetchImage(final AlbumModel albumModel, final Context context,
                     final InsertImageTask.ImageSavedCallback imageSavedCallback,
-                    final ArtProvider.ArtFetchError errorCallback) {
+                    final ArtProvider.ArtFetchError errorCallback,
+                    final Request.Priority priority) {
         if (mUseLocalImages) {
-            final Set<String> storageLocations = MusicLibraryHelper.getTrackStorageLocationsForAlbum(albumModel.getAlbumKey(), context);
+            final List<String> trackPaths = MusicLibraryHelper.getTrackPathsForAlbum(albumModel.getAlbumKey(), context);
+
+            final Set<String> storageLocations = new LinkedHashSet<>();
+            for (final String trackPath : trackPaths) {
+                final String folderPath = new File(trackPath).getParent();
+                if (folderPath != null) {
+                    storageLocations.add(folderPath);
+                }
+            }
 
             for (final String location : storageLocations) {
-                final List<File> artworkFiles = PermissionHelper.getFilesForDirectory(context, location, (dir, name) -> ALLOWED_ARTWORK_FILENAMES.contains(name.toLowerCase()));
+                final String coverFile = CoverFileIndex.getInstance(context).getCoverFile(context, location);
+
+                if (coverFile != null) {
+                    final ArtworkRequestModel requestModel = new ArtworkRequestModel(albumModel);
+
+                    ImageResponse response = new ImageResponse();
+                    response.model = requestModel;
+                    response.image = null;
+                    response.url = null;
+                    response.localArtworkPath = coverFile;
+
+                    InsertImageTask.enqueue(context, imageSavedCallback, response);
+
+                    return;
+                }
+            }
 
-                if (!artworkFiles.isEmpty()) {
-                    // use the first valid cover file
-                    final File coverFile = artworkFiles.get(0);
+            // no cover file found so check if the tracks contain an embedded image
+            for (final String trackPath : trackPaths) {
+                final ByteBuffer embeddedImage = readEmbeddedArtwork(trackPath);
 
+                if (embeddedImage != null) {
                     final ArtworkRequestModel requestModel = new ArtworkRequestModel(albumModel);
 
                     ImageResponse response = new ImageResponse();
                     response.model = requestModel;
                     response.image = null;
                     response.url = null;
-                    response.localArtworkPath = coverFile.getAbsolutePath();
+                    response.embeddedImage = embeddedImage;
 
-                    new InsertImageTask(context, imageSavedCallback).execute(response);
+                    InsertImageTask.enqueue(context, imageSavedCallback, response);
 
                     return;
                 }
@@ -377,15 +470,58 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         }
 
         ArtworkRequestModel requestModel = new ArtworkRequestModel(albumModel);
+        requestModel.setPriority(priority);
 
+        ArtProvider provider;
         if (mAlbumProvider.equals(context.getString(R.string.pref_artwork_provider_musicbrainz_key))) {
-            MusicBrainzProvider.getInstance(context).fetchImage(requestModel, context,
-                    response -> new InsertImageTask(context, imageSavedCallback).execute(response),
-                    errorCallback);
+            provider = MusicBrainzProvider.getInstance(context);
         } else if (mAlbumProvider.equals(context.getString(R.string.pref_artwork_provider_lastfm_key))) {
-            LastFMProvider.getInstance(context).fetchImage(requestModel, context,
-                    response -> new InsertImageTask(context, imageSavedCallback).execute(response),
-                    errorCallback);
+            provider = LastFMProvider.getInstance(context);
+        } else {
+            return;
+        }
+
+        if (mUseProviderChain) {
+            final HedgedArtProvider providerChain = getAlbumProviderChain(context);
+            providerChain.setPreferredProvider(provider);
+            provider = providerChain;
+        }
+
+        requestModel.setNotFoundTTL(provider.getNotFoundTTL());
+
+        provider.fetchImage(requestModel, context,
+                response -> InsertImageTask.enqueue(context, imageSavedCallback, response),
+                errorCallback);
+    }
+
+    /**
+     * @return The chain of all album providers.
+     */
+    private synchronized HedgedArtProvider getAlbumProviderChain(final Context context) {
+        if (mAlbumProviderChain == null) {
+            final List<ArtProvider> providers = new ArrayList<>();
+            providers.add(MusicBrainzProvider.getInstance(context));
+            providers.add(LastFMProvider.getInstance(context));
+
+            mAlbumProviderChain = new HedgedArtProvider(context.getApplicationContext(), providers);
+        }
+        return mAlbumProviderChain;
+    }
+
+    /**
+     * Reads the embedded artwork of the given track file.
+     *
+     * @param trackPath The path of the track file.
+     * @return A {@link ByteBuffer} containing the encoded image or null if the file contains no image or could not be read.
+     */
+    private ByteBuffer readEmbeddedArtwork(final String trackPath) {
+        try {
+            return EmbeddedArtworkReader.readArtwork(new File(trackPath));
+        } catch (IOException | RuntimeException e) {
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Could not read embedded artwork of: " + trackPath);
+            }
+            return null;
         }
     }
 
@@ -397,7 +533,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
      * @param context    The application context.
      */
     public void fetchImage(final AlbumModel albumModel, final Context context) {
-        fetchImage(albumModel, context, this, this);
+        fetchImage(albumModel, context, this, this, Request.Priority.HIGH);
     }
 
     /**
@@ -409,7 +545,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         // Create a dummy album
         AlbumModel album = new AlbumModel(trackModel.getTrackAlbumName(), null,
                 trackModel.getTrackArtistName(), trackModel.getTrackAlbumKey(),
-                MusicLibraryHelper.getAlbumIDFromKey(trackModel.getTrackAlbumKey(), context));
+                AlbumResolutionCache.getInstance(context).getAlbumID(trackModel.getTrackAlbumKey()));
 
         fetchImage(album, context);
     }
@@ -494,11 +630,7 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
             Log.e(TAG, "JSONException fetching: " + model.getLoggingString());
         }
 
-        ImageResponse imageResponse = new ImageResponse();
-        imageResponse.model = model;
-        imageResponse.image = null;
-        imageResponse.url = null;
-        new InsertImageTask(context, this).execute(imageResponse);
+        InsertImageTask.enqueue(context, this, createNotFoundResponse(model, null));
     }
 
     @Override
@@ -510,16 +642,13 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         if (error != null) {
             NetworkResponse networkResponse = error.networkResponse;
             if (networkResponse != null && networkResponse.statusCode == 503) {
-                cancelAllRequests(context);
+                // only cancel requests of the same priority, so a running bulk download can back off on its own
+                cancelRequests(context, model.getPriority());
                 return;
             }
         }
 
-        ImageResponse imageResponse = new ImageResponse();
-        imageResponse.model = model;
-        imageResponse.image = null;
-        imageResponse.url = null;
-        new InsertImageTask(context, this).execute(imageResponse);
+        InsertImageTask.enqueue(context, this, createNotFoundResponse(model, error));
     }
 
     public void fetchError(ArtworkRequestModel model, Context context) {
@@ -527,11 +656,37 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
             Log.e(TAG, "Error fetching: " + model.getLoggingString());
         }
 
+        InsertImageTask.enqueue(context, this, createNotFoundResponse(model, null));
+    }
+
+    /**
+     * Creates the response that marks the image of the given request as not found.
+     * After transient errors like timeouts or server errors the image is requested again soon,
+     * otherwise the time of the provider that handled the request is used.
+     *
+     * @param model The request that didn't find an image.
+     * @param error The error of the request or null if the provider didn't find a matching image.
+     * @return The response that can be inserted with the {@link InsertImageTask}.
+     */
+    static ImageResponse createNotFoundResponse(final ArtworkRequestModel model, final VolleyError error) {
         ImageResponse imageResponse = new ImageResponse();
         imageResponse.model = model;
         imageResponse.image = null;
         imageResponse.url = null;
-        new InsertImageTask(context, this).execute(imageResponse);
+        imageResponse.notFoundTTL = isTransientError(error) ? TRANSIENT_ERROR_TTL : model.getNotFoundTTL();
+        return imageResponse;
+    }
+
+    /**
+     * @return True if the error was caused by the connection or the server and not by a missing image.
+     */
+    private static boolean isTransientError(final VolleyError error) {
+        if (error == null) {
+            return false;
+        }
+
+        final NetworkResponse networkResponse = error.networkResponse;
+        return networkResponse == null || networkResponse.statusCode >= 500 || networkResponse.statusCode == 429;
     }
 
     /**
@@ -542,6 +697,14 @@ public class ArtworkManager implements ArtProvider.ArtFetchError, InsertImageTas
         LimitingRequestQueue.getInstance(context).cancelAll(request -> true);
     }
 
+    /**
+     * Cancels all requests with the given priority, e.g. the requests of the bulk download
+     * without affecting requests for currently visible images.
+     */
+    public void cancelRequests(Context context, Request.Priority priority) {
+        LimitingRequestQueue.getInstance(context).cancelAll(priority);
+    }
+
     /**
      * Used to broadcast information about new available artwork to {@link BroadcastReceiver} like
      * the {@link org.gateshipone.odyssey.widget.OdysseyWidgetProvider} to reload its artwork.
@@ -27,8 +27,11 @@ import android.util.Log;
 
 import org.gateshipone.odyssey.models.AlbumModel;
 import org.gateshipone.odyssey.models.ArtistModel;
+import org.gateshipone.odyssey.utils.BitmapPool;
 
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import androidx.annotation.NonNull;
 import androidx.collection.LruCache;
@@ -36,6 +39,19 @@ import androidx.collection.LruCache;
 /**
  * Simple LRU-based caching for album & artist images. This could reduce CPU usage
  * for the cost of memory usage by caching decoded {@link Bitmap} objects in a {@link LruCache}.
+ * <p>
+ * Images are cached per size bucket, so a large cover and small list images of the same album
+ * can be cached at the same time. A request for a small image can be served by scaling down a cached larger image.
+ * <p>
+ * Bitmaps are cached by the image file they are decoded from. Stored artwork files are named by the hash
+ * of their content, so albums sharing the same cover share the decoded bitmaps as well.
+ * The cache is split into segments by the image, so concurrent requests for different images
+ * are not blocking each other.
+ * <p>
+ * Every bitmap returned by a request or passed to a put counts as one reference of the caller. Callers that stop
+ * showing the bitmap can give it back with {@link #releaseBitmap(Bitmap)}. Once a bitmap is removed from the cache
+ * and all its references are released, its memory is reused by the {@link BitmapPool}. Bitmaps of callers that
+ * never release them are never pooled.
  */
 public class BitmapCache {
     private static final String TAG = BitmapCache.class.getSimpleName();
@@ -47,6 +63,26 @@ public class BitmapCache {
      */
     private static final int mCacheSize = mMaxMemory / 4;
 
+    /**
+     * Number of independent segments of the cache
+     */
+    private static final int SEGMENT_COUNT = 4;
+
+    /**
+     * Upper bounds in pixels of the requested image size for each bucket. An additional last bucket
+     * is used for requests of the original image size or larger sizes.
+     */
+    private static final int[] SIZE_BUCKETS = {128, 256, 512, 1024, 2048};
+
+    private static final int ORIGINAL_SIZE_BUCKET = SIZE_BUCKETS.length;
+
+    private static final int BUCKET_COUNT = SIZE_BUCKETS.length + 1;
+
+    /**
+     * Maximum number of albums and artists for which the image key is remembered
+     */
+    private static final int MAXIMUM_IMAGE_KEYS = 2048;
+
     /**
      * Hash prefix for album images
      */
@@ -58,25 +94,66 @@ public class BitmapCache {
     private static final String ARTIST_PREFIX = "B_";
 
     /**
-     * Private cache instance
+     * Private cache segments
+     */
+    private final LruCache<CacheKey, Bitmap>[] mSegments;
+
+    /**
+     * Image keys of the albums and artists with cached bitmaps
      */
-    private LruCache<String, Bitmap> mCache;
+    private final LruCache<String, String> mImageKeys = new LruCache<>(MAXIMUM_IMAGE_KEYS);
+
+    /**
+     * Metrics for each size bucket
+     */
+    private final AtomicLongArray mHitCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLongArray mScaledHitCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLongArray mMissCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLongArray mEvictionCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Cache entries and references of all bitmaps managed by the cache. Guarded by itself.
+     * Bitmaps do not override equals, so the map compares them by identity.
+     */
+    private final WeakHashMap<Bitmap, BitmapReferences> mReferences = new WeakHashMap<>();
 
     /**
      * Singleton instance
      */
     private static BitmapCache mInstance;
 
+    @SuppressWarnings("unchecked")
     private BitmapCache() {
-        mCache = new LruCache<String, Bitmap>(mCacheSize) {
-            @Override
-            protected int sizeOf(@NonNull String key, @NonNull Bitmap bitmap) {
-                // The cache size will be measured in kilobytes rather than
-                // number of items.
-                return bitmap.getByteCount() / 1024;
-            }
-
-        };
+        mSegments = new LruCache[SEGMENT_COUNT];
+
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            mSegments[i] = new LruCache<CacheKey, Bitmap>(mCacheSize / SEGMENT_COUNT) {
+                @Override
+                protected int sizeOf(@NonNull CacheKey key, @NonNull Bitmap bitmap) {
+                    // The cache size will be measured in kilobytes rather than
+                    // number of items.
+                    return bitmap.getByteCount() / 1024;
+                }
+
+                @Override
+                protected void entryRemoved(boolean evicted, @NonNull CacheKey key, @NonNull Bitmap oldValue, Bitmap newValue) {
+                    if (evicted) {
+                        mEvictionCounts.incrementAndGet(key.mBucket);
+                    }
+
+                    synchronized (mReferences) {
+                        final BitmapReferences references = mReferences.get(oldValue);
+                        if (references != null) {
+                            references.mCacheEntryCount--;
+                            poolIfUnused(oldValue, references);
+                        }
+                    }
+                }
+            };
+        }
     }
 
     public static synchronized BitmapCache getInstance() {
@@ -87,34 +164,112 @@ public class BitmapCache {
     }
 
     /**
-     * Tries to get an album image from the cache
+     * Adds a reference to a bitmap returned by the cache, e.g. because it is shown by another view as well.
+     * Bitmaps that are not managed by the cache are ignored.
+     *
+     * @param bitmap The bitmap that is used by one more caller.
+     */
+    public void acquireBitmap(final Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        synchronized (mReferences) {
+            final BitmapReferences references = mReferences.get(bitmap);
+            if (references != null) {
+                references.mReferenceCount++;
+            }
+        }
+    }
+
+    /**
+     * Releases a reference to a bitmap returned by the cache. The bitmap must not be shown by the caller anymore,
+     * because it is reused for decoding once it is removed from the cache and all of its references are released.
+     * Bitmaps that are not managed by the cache are ignored.
+     *
+     * @param bitmap The bitmap that is not used by the caller anymore.
+     */
+    public void releaseBitmap(final Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        synchronized (mReferences) {
+            final BitmapReferences references = mReferences.get(bitmap);
+            if (references != null && references.mReferenceCount > 0) {
+                references.mReferenceCount--;
+                poolIfUnused(bitmap, references);
+            }
+        }
+    }
+
+    /**
+     * Moves the bitmap to the {@link BitmapPool} if it is neither cached nor referenced anymore.
+     * Must be called while holding the lock of {@link #mReferences}.
+     */
+    private void poolIfUnused(final Bitmap bitmap, final BitmapReferences references) {
+        if (references.mCacheEntryCount <= 0 && references.mReferenceCount <= 0) {
+            mReferences.remove(bitmap);
+            BitmapPool.getInstance().put(bitmap);
+        }
+    }
+
+    /**
+     * Tries to get an album image in any size from the cache
      *
      * @param album Album object to try
+     * @return The largest cached Bitmap if cache hit, null otherwise
+     */
+    public Bitmap requestAlbumBitmap(AlbumModel album) {
+        return requestLargestBitmap(mImageKeys.get(getAlbumHash(album)));
+    }
+
+    /**
+     * Tries to get an album image for the requested size from the cache
+     *
+     * @param album  Album object to try
+     * @param width  The requested width or -1 for the original size
+     * @param height The requested height or -1 for the original size
+     * @return Bitmap if cache hit, null otherwise
+     */
+    public Bitmap requestAlbumBitmap(AlbumModel album, int width, int height) {
+        return requestBitmap(mImageKeys.get(getAlbumHash(album)), getSizeBucket(width, height));
+    }
+
+    /**
+     * Tries to get the image the album is using for the requested size from the cache, e.g. because
+     * another album with the same cover was loaded before. The image key is remembered for the album on a hit.
+     *
+     * @param album    Album object to try
+     * @param imageKey The path of the image file of the album
+     * @param width    The requested width or -1 for the original size
+     * @param height   The requested height or -1 for the original size
      * @return Bitmap if cache hit, null otherwise
      */
-    public synchronized Bitmap requestAlbumBitmap(AlbumModel album) {
-        return mCache.get(getAlbumHash(album));
+    public Bitmap requestAlbumBitmap(AlbumModel album, String imageKey, int width, int height) {
+        return requestBitmap(getAlbumHash(album), imageKey, getSizeBucket(width, height));
     }
 
     /**
      * Puts an album image to the cache
      *
-     * @param album Album object to use for cache key
-     * @param bm    Bitmap to store in cache
+     * @param album    Album object to use for cache key
+     * @param imageKey The path of the image file the bitmap was decoded from
+     * @param width    The width the image was requested for
+     * @param height   The height the image was requested for
+     * @param bm       Bitmap to store in cache
      */
-    public synchronized void putAlbumBitmap(AlbumModel album, Bitmap bm) {
-        if (bm != null) {
-            mCache.put(getAlbumHash(album), bm);
-        }
+    public void putAlbumBitmap(AlbumModel album, String imageKey, int width, int height, Bitmap bm) {
+        putBitmap(getAlbumHash(album), imageKey, getSizeBucket(width, height), bm);
     }
 
     /**
-     * Removes an album image from the cache
+     * Removes all album images of the album from the cache
      *
      * @param album Album object to use for cache key
      */
-    public synchronized void removeAlbumBitmap(AlbumModel album) {
-        mCache.remove(getAlbumHash(album));
+    public void removeAlbumBitmap(AlbumModel album) {
+        removeBitmaps(getAlbumHash(album));
     }
 
     /**
@@ -146,34 +301,61 @@ public class BitmapCache {
      */
 
     /**
-     * Tries to get an artist image from the cache
+     * Tries to get an artist image in any size from the cache
      *
      * @param artist Artist object to check in cache
+     * @return The largest cached Bitmap if cache hit, null otherwise
+     */
+    public Bitmap requestArtistImage(ArtistModel artist) {
+        return requestLargestBitmap(mImageKeys.get(getArtistHash(artist)));
+    }
+
+    /**
+     * Tries to get an artist image for the requested size from the cache
+     *
+     * @param artist Artist object to check in cache
+     * @param width  The requested width or -1 for the original size
+     * @param height The requested height or -1 for the original size
+     * @return Bitmap if cache hit, null otherwise
+     */
+    public Bitmap requestArtistImage(ArtistModel artist, int width, int height) {
+        return requestBitmap(mImageKeys.get(getArtistHash(artist)), getSizeBucket(width, height));
+    }
+
+    /**
+     * Tries to get the image the artist is using for the requested size from the cache, e.g. because
+     * another artist with the same image was loaded before. The image key is remembered for the artist on a hit.
+     *
+     * @param artist   Artist object to check in cache
+     * @param imageKey The path of the image file of the artist
+     * @param width    The requested width or -1 for the original size
+     * @param height   The requested height or -1 for the original size
      * @return Bitmap if cache hit, null otherwise
      */
-    public synchronized Bitmap requestArtistImage(ArtistModel artist) {
-        return mCache.get(getArtistHash(artist));
+    public Bitmap requestArtistImage(ArtistModel artist, String imageKey, int width, int height) {
+        return requestBitmap(getArtistHash(artist), imageKey, getSizeBucket(width, height));
     }
 
     /**
      * Puts an artist image to the cache
      *
-     * @param artist Artist object used as cache key
-     * @param bm     Bitmap to store in cache
+     * @param artist   Artist object used as cache key
+     * @param imageKey The path of the image file the bitmap was decoded from
+     * @param width    The width the image was requested for
+     * @param height   The height the image was requested for
+     * @param bm       Bitmap to store in cache
      */
-    public synchronized void putArtistImage(ArtistModel artist, Bitmap bm) {
-        if (bm != null) {
-            mCache.put(getArtistHash(artist), bm);
-        }
+    public void putArtistImage(ArtistModel artist, String imageKey, int width, int height, Bitmap bm) {
+        putBitmap(getArtistHash(artist), imageKey, getSizeBucket(width, height), bm);
     }
 
     /**
-     * Removes an artist image from the cache
+     * Removes all artist images of the artist from the cache
      *
      * @param artist Artist object used as cache key
      */
-    public synchronized void removeArtistImage(ArtistModel artist) {
-        mCache.remove(getArtistHash(artist));
+    public void removeArtistImage(ArtistModel artist) {
+        removeBitmaps(getArtistHash(artist));
     }
 
     /**
@@ -198,26 +380,340 @@ public class BitmapCache {
         return hashString;
     }
 
+    /*
+     * Begin of the size bucket handling
+     */
+
+    /**
+     * Returns the image of the requested bucket or scales down an image of a larger bucket.
+     */
+    private Bitmap requestBitmap(final String hash, final int bucket) {
+        if (hash == null) {
+            mMissCounts.incrementAndGet(bucket);
+            return null;
+        }
+
+        final LruCache<CacheKey, Bitmap> segment = getSegment(hash);
+
+        final Bitmap bitmap = getBitmap(segment, new CacheKey(hash, bucket));
+        if (bitmap != null) {
+            mHitCounts.incrementAndGet(bucket);
+            return bitmap;
+        }
+
+        for (int largerBucket = bucket + 1; largerBucket < BUCKET_COUNT; largerBucket++) {
+            final Bitmap largerBitmap = getBitmap(segment, new CacheKey(hash, largerBucket));
+
+            if (largerBitmap != null) {
+                mScaledHitCounts.incrementAndGet(bucket);
+                return scaleToBucket(hash, bucket, largerBitmap);
+            }
+        }
+
+        mMissCounts.incrementAndGet(bucket);
+        return null;
+    }
+
+    /**
+     * Returns the bitmap of the image key and remembers the image key for the album or artist on a hit.
+     */
+    private Bitmap requestBitmap(final String itemHash, final String imageKey, final int bucket) {
+        if (imageKey == null) {
+            return null;
+        }
+
+        final Bitmap bitmap = requestBitmap(imageKey, bucket);
+        if (bitmap != null) {
+            mImageKeys.put(itemHash, imageKey);
+        }
+        return bitmap;
+    }
+
+    private Bitmap requestLargestBitmap(final String hash) {
+        if (hash == null) {
+            return null;
+        }
+
+        final LruCache<CacheKey, Bitmap> segment = getSegment(hash);
+
+        for (int bucket = ORIGINAL_SIZE_BUCKET; bucket >= 0; bucket--) {
+            final Bitmap bitmap = getBitmap(segment, new CacheKey(hash, bucket));
+
+            if (bitmap != null) {
+                return bitmap;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the cached bitmap and adds a reference for the caller. Both happen while holding the lock of the segment,
+     * so the bitmap can not be evicted and pooled in between.
+     */
+    private Bitmap getBitmap(final LruCache<CacheKey, Bitmap> segment, final CacheKey key) {
+        synchronized (segment) {
+            final Bitmap bitmap = segment.get(key);
+            acquireBitmap(bitmap);
+            return bitmap;
+        }
+    }
+
+    /**
+     * Remembers the image key of the album or artist and caches the bitmap for the image key.
+     */
+    private void putBitmap(final String itemHash, final String imageKey, final int bucket, final Bitmap bitmap) {
+        if (bitmap != null && imageKey != null) {
+            mImageKeys.put(itemHash, imageKey);
+            putBitmap(imageKey, bucket, bitmap);
+        }
+    }
+
+    private void putBitmap(final String hash, final int bucket, final Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        final LruCache<CacheKey, Bitmap> segment = getSegment(hash);
+
+        synchronized (segment) {
+            synchronized (mReferences) {
+                BitmapReferences references = mReferences.get(bitmap);
+                if (references == null) {
+                    references = new BitmapReferences();
+                    mReferences.put(bitmap, references);
+                }
+
+                references.mCacheEntryCount++;
+                // the caller keeps using the bitmap
+                references.mReferenceCount++;
+            }
+
+            segment.put(new CacheKey(hash, bucket), bitmap);
+        }
+    }
+
+    /**
+     * Removes the bitmaps of the image used by the album or artist. Other items using the same image
+     * will decode it again, which is wanted if the image is reset.
+     */
+    private void removeBitmaps(final String itemHash) {
+        final String hash = mImageKeys.remove(itemHash);
+        if (hash == null) {
+            return;
+        }
+
+        final LruCache<CacheKey, Bitmap> segment = getSegment(hash);
+
+        synchronized (segment) {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                segment.remove(new CacheKey(hash, bucket));
+            }
+        }
+    }
+
+    /**
+     * Scales the given bitmap down, so that the shorter side fits the size of the bucket.
+     * The scaled bitmap is cached for the bucket.
+     */
+    private Bitmap scaleToBucket(final String hash, final int bucket, final Bitmap bitmap) {
+        final int shorterSide = Math.min(bitmap.getWidth(), bitmap.getHeight());
+
+        if (bucket == ORIGINAL_SIZE_BUCKET || shorterSide <= SIZE_BUCKETS[bucket]) {
+            // scaling is not necessary
+            return bitmap;
+        }
+
+        final float scale = (float) SIZE_BUCKETS[bucket] / shorterSide;
+        final Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+
+        putBitmap(hash, bucket, scaledBitmap);
+
+        // only the scaled bitmap is handed out
+        releaseBitmap(bitmap);
+        return scaledBitmap;
+    }
+
+    private LruCache<CacheKey, Bitmap> getSegment(final String hash) {
+        return mSegments[(hash.hashCode() & Integer.MAX_VALUE) % SEGMENT_COUNT];
+    }
+
+    /**
+     * Calculates the smallest bucket that satisfies the requested size.
+     */
+    private static int getSizeBucket(final int width, final int height) {
+        final int size = Math.max(width, height);
+
+        if (size <= 0) {
+            return ORIGINAL_SIZE_BUCKET;
+        }
+
+        for (int bucket = 0; bucket < SIZE_BUCKETS.length; bucket++) {
+            if (size <= SIZE_BUCKETS[bucket]) {
+                return bucket;
+            }
+        }
+
+        return ORIGINAL_SIZE_BUCKET;
+    }
+
+    /**
+     * Returns the metrics of all size buckets. The last entry represents the original image size.
+     */
+    public BucketStatistics[] getStatistics() {
+        final BucketStatistics[] statistics = new BucketStatistics[BUCKET_COUNT];
+
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            statistics[bucket] = new BucketStatistics(bucket == ORIGINAL_SIZE_BUCKET ? -1 : SIZE_BUCKETS[bucket],
+                    mHitCounts.get(bucket), mScaledHitCounts.get(bucket), mMissCounts.get(bucket), mEvictionCounts.get(bucket));
+        }
+
+        for (LruCache<CacheKey, Bitmap> segment : mSegments) {
+            for (Map.Entry<CacheKey, Bitmap> entry : segment.snapshot().entrySet()) {
+                final BucketStatistics bucketStatistics = statistics[entry.getKey().mBucket];
+
+                bucketStatistics.mEntryCount++;
+                bucketStatistics.mByteCount += entry.getValue().getAllocationByteCount();
+            }
+        }
+
+        return statistics;
+    }
+
     /**
      * Debug method to provide performance evaluation metrics
      */
     private void printUsage() {
-        Log.v(TAG, "Cache usage: " + ((mCache.size() * 100) / mCache.maxSize()) + '%');
-        int missCount = mCache.missCount();
-        int hitCount = mCache.hitCount();
-        if (missCount > 0) {
-            Log.v(TAG, "Cache hit count: " + hitCount + " miss count: " + missCount + " Miss rate: " + ((hitCount * 100) / missCount) + '%');
+        long size = 0;
+        long maxSize = 0;
+        for (LruCache<CacheKey, Bitmap> segment : mSegments) {
+            size += segment.size();
+            maxSize += segment.maxSize();
         }
-        Log.v(TAG, "Memory usage: " + (getMemoryUsage() / (1024 * 1024)) + " MB");
-    }
+        Log.v(TAG, "Cache usage: " + ((size * 100) / maxSize) + '%');
 
-    private long getMemoryUsage() {
-        Map<String, Bitmap> snapShot = mCache.snapshot();
         long bytes = 0;
-        for (Bitmap bitmap : snapShot.values()) {
-            bytes += bitmap.getAllocationByteCount();
+        for (BucketStatistics statistics : getStatistics()) {
+            Log.v(TAG, statistics.toString());
+            bytes += statistics.getByteCount();
+        }
+        Log.v(TAG, "Memory usage: " + (bytes / (1024 * 1024)) + " MB");
+
+        BitmapPool.getInstance().printUsage();
+    }
+
+    /**
+     * Number of cache entries and references of a single bitmap.
+     */
+    private static class BitmapReferences {
+
+        private int mCacheEntryCount;
+
+        private int mReferenceCount;
+    }
+
+    /**
+     * Metrics of a single size bucket of the cache.
+     */
+    public static class BucketStatistics {
+
+        private final int mSize;
+
+        private final long mHitCount;
+
+        private final long mScaledHitCount;
+
+        private final long mMissCount;
+
+        private final long mEvictionCount;
+
+        private int mEntryCount;
+
+        private long mByteCount;
+
+        private BucketStatistics(final int size, final long hitCount, final long scaledHitCount, final long missCount, final long evictionCount) {
+            mSize = size;
+            mHitCount = hitCount;
+            mScaledHitCount = scaledHitCount;
+            mMissCount = missCount;
+            mEvictionCount = evictionCount;
+        }
+
+        /**
+         * @return The maximum size of the shorter image side or -1 for the original size bucket.
+         */
+        public int getSize() {
+            return mSize;
+        }
+
+        public long getHitCount() {
+            return mHitCount;
+        }
+
+        /**
+         * @return The number of hits that were served by scaling down an image of a larger bucket.
+         */
+        public long getScaledHitCount() {
+            return mScaledHitCount;
+        }
+
+        public long getMissCount() {
+            return mMissCount;
+        }
+
+        public long getEvictionCount() {
+            return mEvictionCount;
         }
 
-        return bytes;
+        public int getEntryCount() {
+            return mEntryCount;
+        }
+
+        public long getByteCount() {
+            return mByteCount;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Bucket " + (mSize == -1 ? "original" : String.valueOf(mSize)) + ": entries: " + mEntryCount
+                    + " hits: " + mHitCount + " scaled hits: " + mScaledHitCount
+                    + " misses: " + mMissCount + " evictions: " + mEvictionCount;
+        }
+    }
+
+    /**
+     * Key of a cached image consisting of the image key and the size bucket.
+     */
+    private static final class CacheKey {
+
+        private final String mHash;
+
+        private final int mBucket;
+
+        private CacheKey(final String hash, final int bucket) {
+            mHash = hash;
+            mBucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof CacheKey)) {
+                return false;
+            }
+
+            final CacheKey key = (CacheKey) other;
+            return mBucket == key.mBucket && mHash.equals(key.mHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mHash.hashCode() + mBucket;
+        }
     }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
+import org.gateshipone.odyssey.models.AlbumModel;
+import org.gateshipone.odyssey.models.ArtistModel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Journal of a running bulk download, so that the download can be resumed if the process was killed.
+ * <p>
+ * The journal file contains the settings of the download followed by the keys of all albums and the ids of
+ * all artists that still need to be requested. The journal is replaced with every update and removed if
+ * the download is finished or aborted.
+ */
+class BulkDownloadJournal {
+    private static final String TAG = BulkDownloadJournal.class.getSimpleName();
+
+    private static final String JOURNAL_FILE_NAME = "bulkdownload_journal";
+
+    private static final String ALBUM_PREFIX = "album\t";
+
+    private static final String ARTIST_PREFIX = "artist\t";
+
+    /**
+     * Settings and remaining requests of an unfinished bulk download.
+     */
+    static class State {
+        String albumProvider;
+
+        String artistProvider;
+
+        boolean wifiOnly;
+
+        boolean useLocalImages;
+
+        final Set<String> albumKeys = new HashSet<>();
+
+        final Set<Long> artistIds = new HashSet<>();
+    }
+
+    private final File mJournalFile;
+
+    BulkDownloadJournal(final Context context) {
+        mJournalFile = new File(context.getFilesDir(), JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * Reads the state of an unfinished bulk download.
+     *
+     * @return The state or null if no unfinished download exists.
+     */
+    synchronized State read() {
+        if (!mJournalFile.exists()) {
+            return null;
+        }
+
+        final State state = new State();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mJournalFile), StandardCharsets.UTF_8))) {
+            state.albumProvider = reader.readLine();
+            state.artistProvider = reader.readLine();
+            state.wifiOnly = Boolean.parseBoolean(reader.readLine());
+            state.useLocalImages = Boolean.parseBoolean(reader.readLine());
+
+            if (state.albumProvider == null || state.artistProvider == null) {
+                return null;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(ALBUM_PREFIX)) {
+                    state.albumKeys.add(line.substring(ALBUM_PREFIX.length()));
+                } else if (line.startsWith(ARTIST_PREFIX)) {
+                    try {
+                        state.artistIds.add(Long.parseLong(line.substring(ARTIST_PREFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // ignore invalid lines
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logError("Could not read the bulk download journal", e);
+            return null;
+        }
+
+        return state;
+    }
+
+    /**
+     * Replaces the journal with the given settings and remaining requests.
+     *
+     * @param albumProvider  The selected album provider.
+     * @param artistProvider The selected artist provider.
+     * @param wifiOnly       True if downloads are only allowed using wifi.
+     * @param useLocalImages True if local images should be used.
+     * @param requests       The requests that are not finished yet.
+     */
+    synchronized void write(final String albumProvider, final String artistProvider, final boolean wifiOnly,
+                            final boolean useLocalImages, final Collection<ArtworkRequestModel> requests) {
+        // write to a temporary file first, so that an incomplete journal is never read
+        final File temporaryFile = new File(mJournalFile.getPath() + ".tmp");
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporaryFile), StandardCharsets.UTF_8))) {
+            writer.write(albumProvider);
+            writer.newLine();
+            writer.write(artistProvider);
+            writer.newLine();
+            writer.write(String.valueOf(wifiOnly));
+            writer.newLine();
+            writer.write(String.valueOf(useLocalImages));
+            writer.newLine();
+
+            for (ArtworkRequestModel request : requests) {
+                switch (request.getType()) {
+                    case ALBUM: {
+                        final String albumKey = ((AlbumModel) request.getGenericModel()).getAlbumKey();
+                        if (albumKey != null && albumKey.indexOf('\n') < 0) {
+                            writer.write(ALBUM_PREFIX + albumKey);
+                            writer.newLine();
+                        }
+                    }
+                    break;
+                    case ARTIST:
+                        writer.write(ARTIST_PREFIX + ((ArtistModel) request.getGenericModel()).getArtistID());
+                        writer.newLine();
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            logError("Could not write the bulk download journal", e);
+            temporaryFile.delete();
+            return;
+        }
+
+        if (!temporaryFile.renameTo(mJournalFile)) {
+            temporaryFile.delete();
+        }
+    }
+
+    /**
+     * Removes the journal because the download was finished or aborted.
+     */
+    synchronized void delete() {
+        mJournalFile.delete();
+    }
+
+    private static void logError(final String message, final IOException e) {
+        if (BuildConfig.DEBUG) {
+            Log.e(TAG, message, e);
+        }
+    }
+}
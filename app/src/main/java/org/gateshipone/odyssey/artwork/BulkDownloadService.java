@@ -34,17 +34,19 @@ import android.content.IntentFilter;
 import android.net.ConnectivityManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager;
 import android.util.Log;
 
 import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
 import com.android.volley.VolleyError;
 
 import org.gateshipone.odyssey.BuildConfig;
 import org.gateshipone.odyssey.R;
 import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
-import org.gateshipone.odyssey.artwork.network.ImageResponse;
 import org.gateshipone.odyssey.artwork.network.InsertImageTask;
 import org.gateshipone.odyssey.artwork.network.artprovider.ArtProvider;
 import org.gateshipone.odyssey.artwork.storage.ArtworkDatabaseManager;
@@ -55,8 +57,12 @@ import org.gateshipone.odyssey.utils.MusicLibraryHelper;
 import org.gateshipone.odyssey.utils.NetworkUtils;
 import org.json.JSONException;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -81,12 +87,40 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
 
     public static final String BUNDLE_KEY_USE_LOCAL_IMAGES = "org.gateshipone.odyssey.use_local_images";
 
+    /**
+     * Maximum number of requests of each type that are processed at the same time.
+     * The providers still limit the request rate, but the lookup, download and insert steps of different requests overlap.
+     */
+    private static final int MAXIMUM_REQUESTS_IN_FLIGHT = 4;
+
+    /**
+     * Delay in ms before requests are retried after the first 503 response. The delay is doubled for every further 503 response.
+     */
+    private static final long BACKOFF_INITIAL_DELAY = 5000;
+
+    /**
+     * Maximum delay in ms before requests are retried after a 503 response.
+     */
+    private static final long BACKOFF_MAXIMUM_DELAY = 5 * 60 * 1000;
+
+    /**
+     * Number of consecutive 503 responses after which the remaining requests of the same type are skipped.
+     */
+    private static final int BACKOFF_MAXIMUM_RETRIES = 8;
+
+    /**
+     * Number of finished requests after which the journal is updated.
+     */
+    private static final int JOURNAL_UPDATE_INTERVAL = 20;
+
     private NotificationManager mNotificationManager;
 
     private NotificationCompat.Builder mBuilder;
 
     private int mSumArtworkRequests;
 
+    private int mFinishedArtworkRequests;
+
     private ActionReceiver mBroadcastReceiver;
 
     private PowerManager.WakeLock mWakelock;
@@ -97,12 +131,42 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
 
     private boolean mUseLocalImages;
 
-    final private LinkedList<ArtworkRequestModel> mArtworkRequestQueue = new LinkedList<>();
+    private String mAlbumProvider;
+
+    private String mArtistProvider;
+
+    /**
+     * True while a bulk download is running. All fields below are only accessed by the main thread.
+     */
+    private boolean mRunning;
+
+    /**
+     * True while the unfinished download of the journal waits until the connection allows downloads again.
+     */
+    private boolean mWaitingForNetwork;
+
+    private final RequestLane mAlbumLane = new RequestLane();
+
+    private final RequestLane mArtistLane = new RequestLane();
+
+    /**
+     * True while new requests are held back until the downloaded images are stored.
+     */
+    private boolean mWaitingForImageIngest;
 
     private ArtworkManager mArtworkManager;
 
     private ArtworkDatabaseManager mDatabaseManager;
 
+    private Handler mHandler;
+
+    private BulkDownloadJournal mJournal;
+
+    /**
+     * Single thread used to write the journal.
+     */
+    private ExecutorService mJournalExecutor;
+
     /**
      * Called when the service is created because it is requested by an activity
      */
@@ -111,6 +175,10 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
         super.onCreate();
         mNotificationManager = (NotificationManager) this.getSystemService(Context.NOTIFICATION_SERVICE);
 
+        mHandler = new Handler(Looper.getMainLooper());
+        mJournal = new BulkDownloadJournal(getApplicationContext());
+        mJournalExecutor = Executors.newSingleThreadExecutor();
+
         mConnectionStateChangeReceiver = new ConnectionStateReceiver();
         IntentFilter filter = new IntentFilter();
         filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
@@ -119,7 +187,14 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
 
     @Override
     public void onDestroy() {
-        unregisterReceiver(mBroadcastReceiver);
+        mHandler.removeCallbacksAndMessages(null);
+        // pending journal updates are still written
+        mJournalExecutor.shutdown();
+
+        // the receiver is only registered once a download was started
+        if (mBroadcastReceiver != null) {
+            unregisterReceiver(mBroadcastReceiver);
+        }
         unregisterReceiver(mConnectionStateChangeReceiver);
 
         super.onDestroy();
@@ -138,8 +213,12 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
                 Log.v(TAG, "Starting bulk download in service with thread id: " + Thread.currentThread().getId());
             }
 
-            // reset counter
-            mSumArtworkRequests = 0;
+            if (mRunning) {
+                if (BuildConfig.DEBUG) {
+                    Log.v(TAG, "Bulk download already running");
+                }
+                return START_STICKY;
+            }
 
             String artistProvider = getString(R.string.pref_artwork_provider_artist_default);
             String albumProvider = getString(R.string.pref_artwork_provider_album_default);
@@ -154,38 +233,126 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
                 mUseLocalImages = intent.getBooleanExtra(BUNDLE_KEY_USE_LOCAL_IMAGES, false);
             }
 
-            if (artistProvider.equals(getString(R.string.pref_artwork_provider_none_key)) && albumProvider.equals(getString(R.string.pref_artwork_provider_none_key))) {
+            if (!startDownload(artistProvider, albumProvider, null)) {
+                // keep an unfinished download that waits for the connection
+                if (!mWaitingForNetwork) {
+                    stopSelf();
+                }
                 return START_NOT_STICKY;
             }
-
-            if (!NetworkUtils.isDownloadAllowed(this, mWifiOnly)) {
+        } else if (intent == null && !mRunning) {
+            // the service was restarted after the process was killed, so continue an unfinished download
+            if (!resumeDownload()) {
+                stopSelf();
                 return START_NOT_STICKY;
             }
+        }
+        return START_STICKY;
+    }
 
-            PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
-            mWakelock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "odyssey:wakelock:bulkdownloader");
+    /**
+     * Resumes the unfinished download of the journal. If the current connection doesn't allow downloads
+     * the journal is kept and the download is resumed as soon as the connection changes.
+     *
+     * @return False if the journal contains no download that can be resumed.
+     */
+    private boolean resumeDownload() {
+        final BulkDownloadJournal.State state = mJournal.read();
 
-            // FIXME do some timeout checking. e.g. 5 minutes no new image then cancel the process
-            mWakelock.acquire();
+        if (state == null) {
+            mWaitingForNetwork = false;
+            return false;
+        }
 
-            mArtworkManager = ArtworkManager.getInstance(getApplicationContext());
-            mArtworkManager.initialize(artistProvider, albumProvider, mWifiOnly, mUseLocalImages);
+        mWifiOnly = state.wifiOnly;
+        mUseLocalImages = state.useLocalImages;
 
-            mDatabaseManager = ArtworkDatabaseManager.getInstance(getApplicationContext());
+        if (!NetworkUtils.isDownloadAllowed(this, mWifiOnly)) {
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Waiting for an allowed connection to resume the bulk download");
+            }
 
-            runAsForeground();
+            mWaitingForNetwork = true;
+            return true;
+        }
 
-            createArtworkRequestQueue(!albumProvider.equals(getApplicationContext().getString((R.string.pref_artwork_provider_none_key))),
-                    !artistProvider.equals(getApplicationContext().getString((R.string.pref_artwork_provider_none_key))));
+        if (BuildConfig.DEBUG) {
+            Log.v(TAG, "Resuming bulk download with: " + (state.albumKeys.size() + state.artistIds.size()) + " remaining requests");
         }
-        return START_STICKY;
+
+        mWaitingForNetwork = false;
+
+        if (!startDownload(state.artistProvider, state.albumProvider, state)) {
+            // no provider is selected anymore
+            mJournal.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Starts the bulk download with the given providers.
+     *
+     * @param artistProvider The selected artist provider.
+     * @param albumProvider  The selected album provider.
+     * @param resumeState    The state of an unfinished download that should be resumed or null to start a new download.
+     * @return True if the download was started.
+     */
+    private boolean startDownload(final String artistProvider, final String albumProvider, @Nullable final BulkDownloadJournal.State resumeState) {
+        if (artistProvider.equals(getString(R.string.pref_artwork_provider_none_key)) && albumProvider.equals(getString(R.string.pref_artwork_provider_none_key))) {
+            return false;
+        }
+
+        if (!NetworkUtils.isDownloadAllowed(this, mWifiOnly)) {
+            return false;
+        }
+
+        mArtistProvider = artistProvider;
+        mAlbumProvider = albumProvider;
+
+        // reset counter
+        mSumArtworkRequests = 0;
+        mFinishedArtworkRequests = 0;
+
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        mWakelock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "odyssey:wakelock:bulkdownloader");
+
+        // FIXME do some timeout checking. e.g. 5 minutes no new image then cancel the process
+        mWakelock.acquire();
+
+        mArtworkManager = ArtworkManager.getInstance(getApplicationContext());
+        mArtworkManager.initialize(artistProvider, albumProvider, mWifiOnly, mUseLocalImages);
+
+        mDatabaseManager = ArtworkDatabaseManager.getInstance(getApplicationContext());
+
+        mRunning = true;
+        mWaitingForNetwork = false;
+
+        runAsForeground();
+
+        createArtworkRequestQueue(!albumProvider.equals(getApplicationContext().getString((R.string.pref_artwork_provider_none_key))),
+                !artistProvider.equals(getApplicationContext().getString((R.string.pref_artwork_provider_none_key))), resumeState);
+
+        return true;
     }
 
     @Override
     public void onImageSaved(final ArtworkRequestModel artworkRequestModel, final Context applicationContext) {
         mArtworkManager.onImageSaved(artworkRequestModel, applicationContext);
 
-        performNextRequest();
+        if (!mRunning || !getLane(artworkRequestModel).removeActiveRequest(artworkRequestModel)) {
+            // the download was canceled in the meantime
+            return;
+        }
+
+        getLane(artworkRequestModel).mBackoffCount = 0;
+        mFinishedArtworkRequests++;
+
+        if (mFinishedArtworkRequests % JOURNAL_UPDATE_INTERVAL == 0) {
+            writeJournal();
+        }
+
+        performNextRequests();
     }
 
     @Override
@@ -194,11 +361,7 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
             Log.e(TAG, "JSONException fetching: " + model.getLoggingString());
         }
 
-        ImageResponse imageResponse = new ImageResponse();
-        imageResponse.model = model;
-        imageResponse.image = null;
-        imageResponse.url = null;
-        new InsertImageTask(context, this).execute(imageResponse);
+        InsertImageTask.enqueue(context, this, ArtworkManager.createNotFoundResponse(model, null));
     }
 
     @Override
@@ -210,16 +373,12 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
         if (error != null) {
             NetworkResponse networkResponse = error.networkResponse;
             if (networkResponse != null && networkResponse.statusCode == 503) {
-                finishedLoading();
+                backOff(model);
                 return;
             }
         }
 
-        ImageResponse imageResponse = new ImageResponse();
-        imageResponse.model = model;
-        imageResponse.image = null;
-        imageResponse.url = null;
-        new InsertImageTask(context, this).execute(imageResponse);
+        InsertImageTask.enqueue(context, this, ArtworkManager.createNotFoundResponse(model, error));
     }
 
     public void fetchError(final ArtworkRequestModel model, final Context context) {
@@ -227,11 +386,7 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
             Log.e(TAG, "JSONException fetching: " + model.getLoggingString());
         }
 
-        ImageResponse imageResponse = new ImageResponse();
-        imageResponse.model = model;
-        imageResponse.image = null;
-        imageResponse.url = null;
-        new InsertImageTask(context, this).execute(imageResponse);
+        InsertImageTask.enqueue(context, this, ArtworkManager.createNotFoundResponse(model, null));
     }
 
 
@@ -270,14 +425,17 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
         mNotificationManager.notify(NOTIFICATION_ID, notification);
     }
 
-    private void createArtworkRequestQueue(final boolean fetchAlbums, final boolean fetchArtists) {
-        mArtworkRequestQueue.clear();
+    private void createArtworkRequestQueue(final boolean fetchAlbums, final boolean fetchArtists, @Nullable final BulkDownloadJournal.State resumeState) {
+        mAlbumLane.clear();
+        mArtistLane.clear();
 
         if (fetchAlbums) {
             List<AlbumModel> albums = MusicLibraryHelper.getAllAlbums(getApplicationContext());
 
             for (AlbumModel album : albums) {
-                mArtworkRequestQueue.add(new ArtworkRequestModel(album));
+                if (resumeState == null || resumeState.albumKeys.contains(album.getAlbumKey())) {
+                    mAlbumLane.mQueue.add(new ArtworkRequestModel(album));
+                }
             }
         }
 
@@ -285,7 +443,9 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
             List<ArtistModel> artists = MusicLibraryHelper.getAllArtists(false, getApplicationContext());
 
             for (ArtistModel artist : artists) {
-                mArtworkRequestQueue.add(new ArtworkRequestModel(artist));
+                if (resumeState == null || resumeState.artistIds.contains(artist.getArtistID())) {
+                    mArtistLane.mQueue.add(new ArtworkRequestModel(artist));
+                }
             }
         }
 
@@ -293,38 +453,65 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
     }
 
     private void startBulkDownload() {
+        mSumArtworkRequests = mAlbumLane.mQueue.size() + mArtistLane.mQueue.size();
+
         if (BuildConfig.DEBUG) {
-            Log.v(TAG, "Bulkloading started with: " + mArtworkRequestQueue.size());
+            Log.v(TAG, "Bulkloading started with: " + mSumArtworkRequests);
         }
 
-        mSumArtworkRequests = mArtworkRequestQueue.size();
-
         mBuilder.setContentTitle(getString(R.string.downloader_notification_remaining_images));
 
-        if (mArtworkRequestQueue.isEmpty()) {
+        if (mSumArtworkRequests == 0) {
             finishedLoading();
         } else {
-            performNextRequest();
+            writeJournal();
+            performNextRequests();
+        }
+    }
+
+    /**
+     * Starts new requests for albums and artists until the maximum number of requests in flight is reached.
+     * Album and artist requests are independent, so the providers of both can work at the same time.
+     */
+    private void performNextRequests() {
+        if (InsertImageTask.isSaturated()) {
+            // downloading more images than can be stored would only hold more image data in memory
+            if (!mWaitingForImageIngest) {
+                mWaitingForImageIngest = true;
+                InsertImageTask.runWhenNotSaturated(() -> {
+                    mWaitingForImageIngest = false;
+
+                    if (mRunning) {
+                        performNextRequests();
+                    }
+                });
+            }
+            return;
+        }
+
+        performNextRequests(mAlbumLane);
+        performNextRequests(mArtistLane);
+
+        updateNotification();
+
+        if (mAlbumLane.isFinished() && mArtistLane.isFinished()) {
+            finishedLoading();
         }
     }
 
-    private void performNextRequest() {
-        ArtworkRequestModel requestModel;
-        while (true) {
-            synchronized (mArtworkRequestQueue) {
-                updateNotification(mArtworkRequestQueue.size());
+    private void performNextRequests(final RequestLane lane) {
+        while (mRunning && !lane.mPaused && lane.mActiveRequests.size() < MAXIMUM_REQUESTS_IN_FLIGHT) {
+            final ArtworkRequestModel requestModel = lane.mQueue.pollFirst();
 
-                requestModel = mArtworkRequestQueue.pollFirst();
+            if (requestModel == null) {
+                return;
             }
 
-            if (requestModel != null) {
-                if (checkRequest(requestModel)) {
-                    createRequest(requestModel);
-                    return;
-                }
+            if (checkRequest(requestModel)) {
+                lane.mActiveRequests.add(requestModel);
+                createRequest(requestModel);
             } else {
-                finishedLoading();
-                return;
+                mFinishedArtworkRequests++;
             }
         }
     }
@@ -357,39 +544,114 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
     private void createRequest(final ArtworkRequestModel requestModel) {
         switch (requestModel.getType()) {
             case ALBUM:
-                mArtworkManager.fetchImage((AlbumModel) requestModel.getGenericModel(), getApplicationContext(), this, this);
+                mArtworkManager.fetchImage((AlbumModel) requestModel.getGenericModel(), getApplicationContext(), this, this, Request.Priority.LOW);
                 break;
             case ARTIST:
-                mArtworkManager.fetchImage((ArtistModel) requestModel.getGenericModel(), getApplicationContext(), this, this);
+                mArtworkManager.fetchImage((ArtistModel) requestModel.getGenericModel(), getApplicationContext(), this, this, Request.Priority.LOW);
                 break;
         }
 
     }
 
+    /**
+     * Pauses the requests of the same type as the given request after a 503 response of a provider.
+     * The request is retried after an exponentially increasing delay.
+     *
+     * @param requestModel The request that received the 503 response.
+     */
+    private void backOff(final ArtworkRequestModel requestModel) {
+        final RequestLane lane = getLane(requestModel);
+
+        if (!mRunning || !lane.removeActiveRequest(requestModel)) {
+            return;
+        }
+
+        // retry the request first
+        lane.mQueue.addFirst(requestModel);
+
+        if (lane.mPaused) {
+            // already waiting because of another request
+            return;
+        }
+
+        if (lane.mBackoffCount >= BACKOFF_MAXIMUM_RETRIES) {
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Provider still unavailable, skipping remaining requests: " + lane.mQueue.size());
+            }
+
+            // the skipped requests are not marked as not found, so they are requested again by the next bulk download
+            mFinishedArtworkRequests += lane.mQueue.size();
+            lane.mQueue.clear();
+
+            performNextRequests();
+            return;
+        }
+
+        final long delay = Math.min(BACKOFF_INITIAL_DELAY << lane.mBackoffCount, BACKOFF_MAXIMUM_DELAY);
+
+        if (BuildConfig.DEBUG) {
+            Log.v(TAG, "Provider unavailable, retrying in: " + delay + " ms");
+        }
+
+        lane.mBackoffCount++;
+        lane.mPaused = true;
+        mHandler.postDelayed(lane.mResumeRunnable, delay);
+
+        writeJournal();
+    }
+
+    private RequestLane getLane(final ArtworkRequestModel requestModel) {
+        return requestModel.getType() == ArtworkRequestModel.ArtworkRequestType.ALBUM ? mAlbumLane : mArtistLane;
+    }
+
+    /**
+     * Writes all requests that are not finished yet to the journal, so that the download can be resumed.
+     */
+    private void writeJournal() {
+        final List<ArtworkRequestModel> remainingRequests = new ArrayList<>();
+        remainingRequests.addAll(mAlbumLane.mActiveRequests);
+        remainingRequests.addAll(mAlbumLane.mQueue);
+        remainingRequests.addAll(mArtistLane.mActiveRequests);
+        remainingRequests.addAll(mArtistLane.mQueue);
+
+        final String albumProvider = mAlbumProvider;
+        final String artistProvider = mArtistProvider;
+        final boolean wifiOnly = mWifiOnly;
+        final boolean useLocalImages = mUseLocalImages;
+
+        mJournalExecutor.execute(() -> mJournal.write(albumProvider, artistProvider, wifiOnly, useLocalImages, remainingRequests));
+    }
+
     private void finishedLoading() {
-        mArtworkRequestQueue.clear();
+        mRunning = false;
 
-        ArtworkManager.getInstance(getApplicationContext()).cancelAllRequests(getApplicationContext());
+        mHandler.removeCallbacksAndMessages(null);
+        mAlbumLane.clear();
+        mArtistLane.clear();
+
+        mJournalExecutor.execute(mJournal::delete);
+
+        ArtworkManager.getInstance(getApplicationContext()).cancelRequests(getApplicationContext(), Request.Priority.LOW);
 
         mNotificationManager.cancel(NOTIFICATION_ID);
         stopForeground(true);
         stopSelf();
-        if (mWakelock.isHeld()) {
+        if (mWakelock != null && mWakelock.isHeld()) {
             mWakelock.release();
         }
     }
 
-    private void updateNotification(final int pendingRequests) {
+    private void updateNotification() {
+        final int pendingRequests = mSumArtworkRequests - mFinishedArtworkRequests;
+
         if (BuildConfig.DEBUG) {
             Log.v(TAG, "Remaining requests: " + pendingRequests);
         }
 
-        int finishedRequests = mSumArtworkRequests - pendingRequests;
-
-        if (finishedRequests % 10 == 0) {
-            mBuilder.setProgress(mSumArtworkRequests, finishedRequests, false);
+        if (mBuilder != null && (mFinishedArtworkRequests % 10 == 0 || pendingRequests == 0)) {
+            mBuilder.setProgress(mSumArtworkRequests, mFinishedArtworkRequests, false);
             mBuilder.setStyle(new NotificationCompat.BigTextStyle()
-                    .bigText(getString(R.string.downloader_notification_remaining_images) + ' ' + finishedRequests + '/' + mSumArtworkRequests));
+                    .bigText(getString(R.string.downloader_notification_remaining_images) + ' ' + mFinishedArtworkRequests + '/' + mSumArtworkRequests));
             mNotificationManager.notify(NOTIFICATION_ID, mBuilder.build());
         }
     }
@@ -435,7 +697,11 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
 
         @Override
         public void onReceive(Context context, Intent intent) {
-            if (!NetworkUtils.isDownloadAllowed(context, mWifiOnly)) {
+            if (mWaitingForNetwork) {
+                if (NetworkUtils.isDownloadAllowed(context, mWifiOnly) && !resumeDownload()) {
+                    stopSelf();
+                }
+            } else if (mRunning && !NetworkUtils.isDownloadAllowed(context, mWifiOnly)) {
                 if (BuildConfig.DEBUG) {
                     Log.v(TAG, "Cancel all downloads because of connection change");
                 }
@@ -443,8 +709,62 @@ public class BulkDownloadService extends Service implements InsertImageTask.Imag
                 // Cancel all downloads
                 finishedLoading();
             }
+        }
+    }
 
+    /**
+     * Queue and state of the requests for one type of artwork.
+     */
+    private class RequestLane {
+
+        private final LinkedList<ArtworkRequestModel> mQueue = new LinkedList<>();
+
+        /**
+         * Requests that were started but are not finished yet.
+         */
+        private final List<ArtworkRequestModel> mActiveRequests = new ArrayList<>();
+
+        /**
+         * True while the lane waits after a 503 response.
+         */
+        private boolean mPaused;
+
+        /**
+         * Number of consecutive 503 responses.
+         */
+        private int mBackoffCount;
+
+        private final Runnable mResumeRunnable = () -> {
+            mPaused = false;
+            performNextRequests();
+        };
+
+        /**
+         * Removes the active request for the same album or artist as the given request.
+         * The callbacks receive a new {@link ArtworkRequestModel} which wraps the same model as the started request.
+         *
+         * @return True if an active request was removed.
+         */
+        private boolean removeActiveRequest(final ArtworkRequestModel requestModel) {
+            final Iterator<ArtworkRequestModel> iterator = mActiveRequests.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getGenericModel() == requestModel.getGenericModel()) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isFinished() {
+            return mQueue.isEmpty() && mActiveRequests.isEmpty();
+        }
+
+        private void clear() {
+            mQueue.clear();
+            mActiveRequests.clear();
+            mPaused = false;
+            mBackoffCount = 0;
         }
     }
 }
-
@@ -24,6 +24,9 @@ package org.gateshipone.odyssey.artwork.network;
 
 import android.net.Uri;
 
+import com.android.volley.Request;
+
+import org.gateshipone.odyssey.artwork.network.artprovider.ArtProvider;
 import org.gateshipone.odyssey.models.AlbumModel;
 import org.gateshipone.odyssey.models.ArtistModel;
 import org.gateshipone.odyssey.models.GenericModel;
@@ -36,10 +39,47 @@ public class ArtworkRequestModel {
         ARTIST
     }
 
+    public interface DispatchListener {
+        /**
+         * Called from the thread of the rate limiter if the first network request for the model was forwarded.
+         *
+         * @param model The model of the dispatched request.
+         */
+        void onFirstRequestDispatched(ArtworkRequestModel model);
+    }
+
     private GenericModel mModel;
 
     private ArtworkRequestType mType;
 
+    /**
+     * Priority of the network requests for this model. Interactive requests use {@link Request.Priority#HIGH},
+     * background requests like the bulk download should use {@link Request.Priority#LOW}.
+     */
+    private Request.Priority mPriority = Request.Priority.HIGH;
+
+    /**
+     * Base time in ms until the image is requested again if the provider that handles this model doesn't find it.
+     */
+    private long mNotFoundTTL = ArtProvider.DEFAULT_NOT_FOUND_TTL;
+
+    /**
+     * Flag if the requests for this model are not needed anymore. Requests for a canceled model are not started.
+     */
+    private volatile boolean mCanceled;
+
+    /**
+     * Time in ms when the first network request for this model was forwarded by the rate limiter or -1.
+     */
+    private long mDispatchTime = -1;
+
+    /**
+     * Time in ms the later network requests for this model waited in the rate limiter.
+     */
+    private long mQueueTime;
+
+    private volatile DispatchListener mDispatchListener;
+
     public ArtworkRequestModel(ArtistModel artistModel) {
         this(artistModel, ArtworkRequestType.ARTIST);
     }
@@ -48,15 +88,109 @@ public class ArtworkRequestModel {
         this(albumModel, ArtworkRequestType.ALBUM);
     }
 
+    /**
+     * Creates a new request model for a copy of the album or artist with the same priority and not found time.
+     * Changes of the copy, e.g. the MBID found by a provider, do not affect the original album or artist.
+     *
+     * @param requestModel The model to copy.
+     */
+    public ArtworkRequestModel(ArtworkRequestModel requestModel) {
+        this(copyModel(requestModel.mModel, requestModel.mType), requestModel.mType);
+        mPriority = requestModel.mPriority;
+        mNotFoundTTL = requestModel.mNotFoundTTL;
+    }
+
     private ArtworkRequestModel(GenericModel model, ArtworkRequestType type) {
         mModel = model;
         mType = type;
     }
 
+    private static GenericModel copyModel(final GenericModel model, final ArtworkRequestType type) {
+        switch (type) {
+            case ALBUM:
+                return new AlbumModel((AlbumModel) model);
+            case ARTIST:
+                return new ArtistModel((ArtistModel) model);
+        }
+        return model;
+    }
+
     public ArtworkRequestType getType() {
         return mType;
     }
 
+    public Request.Priority getPriority() {
+        return mPriority;
+    }
+
+    public void setPriority(final Request.Priority priority) {
+        mPriority = priority;
+    }
+
+    public long getNotFoundTTL() {
+        return mNotFoundTTL;
+    }
+
+    public void setNotFoundTTL(final long notFoundTTL) {
+        mNotFoundTTL = notFoundTTL;
+    }
+
+    public void cancel() {
+        mCanceled = true;
+    }
+
+    public boolean isCanceled() {
+        return mCanceled;
+    }
+
+    /**
+     * Sets the listener that is notified once the first network request for this model leaves the rate limiter.
+     *
+     * @param listener The listener or null to remove it.
+     */
+    public void setDispatchListener(final DispatchListener listener) {
+        mDispatchListener = listener;
+    }
+
+    /**
+     * Called if a network request for this model leaves the rate limiter.
+     *
+     * @param now       The current time in ms, see {@link android.os.SystemClock#elapsedRealtime()}.
+     * @param queueTime The time in ms the request waited in the rate limiter.
+     */
+    public void onRequestDispatched(final long now, final long queueTime) {
+        final boolean firstRequest;
+
+        synchronized (this) {
+            firstRequest = mDispatchTime < 0;
+
+            if (firstRequest) {
+                mDispatchTime = now;
+            } else {
+                mQueueTime += queueTime;
+            }
+        }
+
+        final DispatchListener listener = mDispatchListener;
+        if (firstRequest && listener != null) {
+            listener.onFirstRequestDispatched(this);
+        }
+    }
+
+    /**
+     * Returns the time spent on the network for this model. This starts with the first dispatched request and excludes
+     * the time later requests waited in the rate limiter, so neither local lookups nor the rate limiting are counted.
+     *
+     * @param now The current time in ms, see {@link android.os.SystemClock#elapsedRealtime()}.
+     * @return The network time in ms or -1 if no request was dispatched for this model.
+     */
+    public synchronized long getNetworkTime(final long now) {
+        if (mDispatchTime < 0) {
+            return -1;
+        }
+        return Math.max(0, now - mDispatchTime - mQueueTime);
+    }
+
     public void setMBID(final String mbid) {
         switch (mType) {
             case ALBUM:
@@ -68,6 +202,21 @@ public class ArtworkRequestModel {
         }
     }
 
+    public String getMBID() {
+        String mbid = null;
+
+        switch (mType) {
+            case ALBUM:
+                mbid = ((AlbumModel) mModel).getMBID();
+                break;
+            case ARTIST:
+                mbid = ((ArtistModel) mModel).getMBID();
+                break;
+        }
+
+        return mbid;
+    }
+
     public String getAlbumName() {
         String albumName = null;
 
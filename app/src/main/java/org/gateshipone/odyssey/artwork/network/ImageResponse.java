@@ -22,9 +22,17 @@
 
 package org.gateshipone.odyssey.artwork.network;
 
+import java.nio.ByteBuffer;
+
 public class ImageResponse {
     public ArtworkRequestModel model;
     public String url;
     public byte[] image;
     public String localArtworkPath;
+    public ByteBuffer embeddedImage;
+
+    /**
+     * Base time in ms until the image is requested again if neither an image nor a local path is set.
+     */
+    public long notFoundTTL;
 }
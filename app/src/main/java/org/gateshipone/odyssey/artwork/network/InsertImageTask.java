@@ -31,8 +31,16 @@ import android.os.AsyncTask;
 import org.gateshipone.odyssey.artwork.storage.ArtworkDatabaseManager;
 import org.gateshipone.odyssey.models.AlbumModel;
 import org.gateshipone.odyssey.models.ArtistModel;
+import org.gateshipone.odyssey.utils.BitmapUtils;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class InsertImageTask extends AsyncTask<ImageResponse, Object, ArtworkRequestModel> {
 
@@ -55,22 +63,89 @@ public class InsertImageTask extends AsyncTask<ImageResponse, Object, ArtworkReq
      */
     private static final int MAXIMUM_IMAGE_SIZE = 1024 * 1024;
 
+    /**
+     * Number of threads that decode and store images.
+     */
+    private static final int INGEST_THREADS = 2;
+
+    /**
+     * Number of pending images at which producers should stop adding new images.
+     */
+    private static final int MAXIMUM_PENDING_IMAGES = 8;
+
+    /**
+     * Executor for all image inserts, so that image decoding does not block the shared {@link AsyncTask} executor.
+     */
+    private static final ThreadPoolExecutor INGEST_EXECUTOR = new ThreadPoolExecutor(INGEST_THREADS, INGEST_THREADS,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+    static {
+        INGEST_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Number of images that are queued or currently inserted.
+     */
+    private static final AtomicInteger PENDING_IMAGES = new AtomicInteger();
+
+    /**
+     * Callbacks that wait until the number of pending images dropped below the limit. Only accessed on the main thread.
+     */
+    private static final List<Runnable> CAPACITY_CALLBACKS = new ArrayList<>();
+
     @SuppressLint("StaticFieldLeak")
     private final Context mApplicationContext;
 
     private final ImageSavedCallback mImageSavedCallback;
 
-    public InsertImageTask(final Context applicationContext, final ImageSavedCallback imageSavedCallback) {
+    private InsertImageTask(final Context applicationContext, final ImageSavedCallback imageSavedCallback) {
         mApplicationContext = applicationContext;
         mImageSavedCallback = imageSavedCallback;
     }
 
+    /**
+     * Starts the insert of the given response on the image ingest executor.
+     *
+     * @param applicationContext The application context.
+     * @param imageSavedCallback Callback that is called on the main thread after the image was inserted.
+     * @param response           The response to insert.
+     */
+    public static void enqueue(final Context applicationContext, final ImageSavedCallback imageSavedCallback, final ImageResponse response) {
+        PENDING_IMAGES.incrementAndGet();
+        new InsertImageTask(applicationContext, imageSavedCallback).executeOnExecutor(INGEST_EXECUTOR, response);
+    }
+
+    /**
+     * @return True if so many images are pending that no new downloads should be started.
+     */
+    public static boolean isSaturated() {
+        return PENDING_IMAGES.get() >= MAXIMUM_PENDING_IMAGES;
+    }
+
+    /**
+     * Runs the callback as soon as the ingest is not saturated anymore. Must be called on the main thread.
+     *
+     * @param callback The callback that is run on the main thread.
+     */
+    public static void runWhenNotSaturated(final Runnable callback) {
+        if (isSaturated()) {
+            CAPACITY_CALLBACKS.add(callback);
+        } else {
+            callback.run();
+        }
+    }
+
     @Override
     protected ArtworkRequestModel doInBackground(ImageResponse... params) {
         ImageResponse response = params[0];
 
+        if (response.embeddedImage != null) {
+            insertImage(response.model, decodeEmbeddedImage(response.embeddedImage), null, response.notFoundTTL);
+            return response.model;
+        }
+
         if (response.image == null) {
-            insertImage(response.model, null, response.localArtworkPath);
+            insertImage(response.model, null, response.localArtworkPath, response.notFoundTTL);
             return response.model;
         }
 
@@ -79,20 +154,14 @@ public class InsertImageTask extends AsyncTask<ImageResponse, Object, ArtworkReq
         options.inJustDecodeBounds = true;
         BitmapFactory.decodeByteArray(response.image, 0, response.image.length, options);
         if ((options.outHeight > MAXIMUM_IMAGE_RESOLUTION || options.outWidth > MAXIMUM_IMAGE_RESOLUTION)) {
-            // Calculate minimal scaling factor
-            float factor = Math.min((float) MAXIMUM_IMAGE_RESOLUTION / (float) options.outHeight, (float) MAXIMUM_IMAGE_RESOLUTION / (float) options.outWidth);
-            options.inJustDecodeBounds = false;
-            Bitmap bm = BitmapFactory.decodeByteArray(response.image, 0, response.image.length, options);
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            Bitmap.createScaledBitmap(bm, (int) (options.outWidth * factor), (int) (options.outHeight * factor), true)
-                    .compress(Bitmap.CompressFormat.JPEG, IMAGE_COMPRESSION_SETTING, byteStream);
-
-            if (byteStream.size() <= MAXIMUM_IMAGE_SIZE) {
-                insertImage(response.model, byteStream.toByteArray(), null);
+            final byte[] image = compressImage(BitmapUtils.decodeScaledBitmapFromByteArray(response.image, MAXIMUM_IMAGE_RESOLUTION));
+
+            if (image != null) {
+                insertImage(response.model, image, null, response.notFoundTTL);
             }
         } else {
             if (response.image.length <= MAXIMUM_IMAGE_SIZE) {
-                insertImage(response.model, response.image, null);
+                insertImage(response.model, response.image, null, response.notFoundTTL);
             }
         }
 
@@ -101,18 +170,66 @@ public class InsertImageTask extends AsyncTask<ImageResponse, Object, ArtworkReq
 
     @Override
     protected void onPostExecute(ArtworkRequestModel artworkRequestModel) {
+        PENDING_IMAGES.decrementAndGet();
+
         mImageSavedCallback.onImageSaved(artworkRequestModel, mApplicationContext);
+
+        if (!CAPACITY_CALLBACKS.isEmpty() && !isSaturated()) {
+            final List<Runnable> callbacks = new ArrayList<>(CAPACITY_CALLBACKS);
+            CAPACITY_CALLBACKS.clear();
+
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * Decodes the embedded image close to the target size so that the full resolution image is never
+     * allocated and compresses the result for the database.
+     *
+     * @param image The encoded image data.
+     * @return The compressed image or null if the image could not be decoded or is too big.
+     */
+    private byte[] decodeEmbeddedImage(final ByteBuffer image) {
+        return compressImage(BitmapUtils.decodeScaledBitmapFromByteBuffer(image, MAXIMUM_IMAGE_RESOLUTION));
+    }
+
+    /**
+     * Compresses the downscaled bitmap for the database. The bitmap is recycled afterwards.
+     *
+     * @param bm The decoded bitmap.
+     * @return The compressed image or null if the image could not be decoded or is too big.
+     */
+    private byte[] compressImage(Bitmap bm) {
+        if (bm == null) {
+            return null;
+        }
+
+        if (bm.getHeight() > MAXIMUM_IMAGE_RESOLUTION || bm.getWidth() > MAXIMUM_IMAGE_RESOLUTION) {
+            // the decoder could round up the scaled size so scale the rest
+            float factor = Math.min((float) MAXIMUM_IMAGE_RESOLUTION / (float) bm.getHeight(), (float) MAXIMUM_IMAGE_RESOLUTION / (float) bm.getWidth());
+            final Bitmap scaledBitmap = Bitmap.createScaledBitmap(bm, (int) (bm.getWidth() * factor), (int) (bm.getHeight() * factor), true);
+            bm.recycle();
+            bm = scaledBitmap;
+        }
+
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        bm.compress(Bitmap.CompressFormat.JPEG, IMAGE_COMPRESSION_SETTING, byteStream);
+        bm.recycle();
+
+        return byteStream.size() <= MAXIMUM_IMAGE_SIZE ? byteStream.toByteArray() : null;
     }
 
-    private void insertImage(final ArtworkRequestModel model, final byte[] image, final String localArtworkPath) {
+    private void insertImage(final ArtworkRequestModel model, final byte[] image, final String localArtworkPath, final long notFoundTTL) {
         final ArtworkDatabaseManager artworkDatabase = ArtworkDatabaseManager.getInstance(mApplicationContext);
 
         switch (model.getType()) {
             case ALBUM:
-                artworkDatabase.insertAlbumImage(mApplicationContext, (AlbumModel) model.getGenericModel(), image, localArtworkPath);
+                artworkDatabase.insertAlbumImage(mApplicationContext, (AlbumModel) model.getGenericModel(), image, localArtworkPath, notFoundTTL);
                 break;
             case ARTIST:
-                artworkDatabase.insertArtistImage(mApplicationContext, (ArtistModel) model.getGenericModel(), image);
+                artworkDatabase.insertArtistImage(mApplicationContext, (ArtistModel) model.getGenericModel(), image, notFoundTTL);
                 break;
         }
     }
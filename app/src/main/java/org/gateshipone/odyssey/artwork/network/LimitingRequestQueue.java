@@ -23,6 +23,7 @@
 package org.gateshipone.odyssey.artwork.network;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.android.volley.Cache;
@@ -34,30 +35,99 @@ import com.android.volley.toolbox.DiskBasedCache;
 import com.android.volley.toolbox.HurlStack;
 
 import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.artwork.network.requests.ArtworkRequest;
 
-import java.util.Queue;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * {@link RequestQueue} that limits the rate of requests per host.
+ * <p>
+ * Every host gets its own token bucket, so requests for a host that is currently limited do not block
+ * requests for other hosts. Waiting requests of a host are forwarded by their {@link Request.Priority}
+ * and in FIFO order within the same priority. This allows interactive requests to overtake bulk requests.
+ * <p>
+ * Waiting requests can be canceled by tag with {@link #cancelAll(Object)} like requests of a normal {@link RequestQueue}.
+ */
 public class LimitingRequestQueue extends RequestQueue implements RequestQueue.RequestFinishedListener {
     private static final String TAG = LimitingRequestQueue.class.getSimpleName();
 
-    private Timer mLimiterTimer;
+    /**
+     * Number of network threads used by the default instance.
+     */
+    private static final int NETWORK_THREADS = 4;
+
+    /**
+     * MusicBrainz allows only one request per second, see https://musicbrainz.org/doc/MusicBrainz_API/Rate_Limiting
+     */
+    private static final String MUSICBRAINZ_HOST = "musicbrainz.org";
+
+    private static final double MUSICBRAINZ_REQUEST_RATE = 1.0;
+
+    /**
+     * Rate and burst size used for all hosts without an explicit configuration.
+     */
+    private static final double DEFAULT_REQUEST_RATE = 1.0;
+
+    private static final int DEFAULT_REQUEST_BURST = 1;
 
     private static LimitingRequestQueue mInstance;
 
-    private final Queue<Request<?>> mLimitingRequestQueue;
+    /**
+     * Waiting requests and the token bucket for each host.
+     * Access is synchronized by this map.
+     */
+    private final Map<String, HostQueue> mHostQueues;
+
+    /**
+     * Configured request rates for the hosts.
+     * Access is synchronized by {@link #mHostQueues}.
+     */
+    private final Map<String, HostRate> mHostRates;
 
     /**
-     * Wait 1000ms between every request
+     * Single thread used to forward the waiting requests if tokens are available.
      */
-    private static final int REQUEST_RATE = 1000;
+    private final ScheduledThreadPoolExecutor mDispatcher;
+
+    /**
+     * The next scheduled dispatch or null if no dispatch is pending.
+     */
+    private ScheduledFuture<?> mScheduledDispatch;
+
+    /**
+     * Sequence number to keep the FIFO order of requests with the same priority.
+     */
+    private long mSequence;
+
+    /**
+     * Creates a new queue. The queue must be started with {@link #start()}.
+     *
+     * @param cache          The cache used for the requests.
+     * @param network        The network used to perform the requests.
+     * @param networkThreads The number of network threads.
+     */
+    public LimitingRequestQueue(Cache cache, Network network, int networkThreads) {
+        super(cache, network, networkThreads);
+        mHostQueues = new HashMap<>();
+        mHostRates = new HashMap<>();
+        mDispatcher = new ScheduledThreadPoolExecutor(1);
+        mDispatcher.setRemoveOnCancelPolicy(true);
+
+        setHostRate(MUSICBRAINZ_HOST, MUSICBRAINZ_REQUEST_RATE, 1);
+        setHostRate("coverartarchive.org", 4.0, 4);
+        setHostRate("webservice.fanart.tv", 2.0, 2);
+        setHostRate("assets.fanart.tv", 4.0, 4);
+        setHostRate("ws.audioscrobbler.com", 4.0, 4);
+        setHostRate("lastfm.freetls.fastly.net", 4.0, 4);
 
-    private LimitingRequestQueue(Cache cache, Network network) {
-        super(cache, network, 1);
-        mLimitingRequestQueue = new LinkedBlockingQueue<>();
-        mLimiterTimer = null;
         super.addRequestFinishedListener(this);
     }
 
@@ -67,12 +137,38 @@ public class LimitingRequestQueue extends RequestQueue implements RequestQueue.R
             // 10MB disk cache
             Cache cache = new DiskBasedCache(context.getCacheDir(), 1024 * 1024 * 10);
 
-            mInstance = new LimitingRequestQueue(cache, network);
+            mInstance = new LimitingRequestQueue(cache, network, NETWORK_THREADS);
             mInstance.start();
         }
         return mInstance;
     }
 
+    /**
+     * Configures the request rate for the given host.
+     * <p>
+     * The rate for MusicBrainz can't be raised above one request per second.
+     *
+     * @param host             The host name, e.g. coverartarchive.org
+     * @param permitsPerSecond The number of requests per second.
+     * @param burst            The number of requests that can be done without waiting.
+     */
+    public void setHostRate(final String host, double permitsPerSecond, int burst) {
+        if (MUSICBRAINZ_HOST.equals(host)) {
+            permitsPerSecond = Math.min(permitsPerSecond, MUSICBRAINZ_REQUEST_RATE);
+            burst = 1;
+        }
+
+        synchronized (mHostQueues) {
+            final HostRate rate = new HostRate(permitsPerSecond, burst);
+            mHostRates.put(host, rate);
+
+            final HostQueue hostQueue = mHostQueues.get(host);
+            if (hostQueue != null) {
+                hostQueue.mBucket.setRate(rate.mPermitsPerSecond, rate.mBurst);
+            }
+        }
+    }
+
     @Override
     public void onRequestFinished(Request request) {
         if (BuildConfig.DEBUG) {
@@ -85,70 +181,209 @@ public class LimitingRequestQueue extends RequestQueue implements RequestQueue.R
         if (null == request) {
             return null;
         }
+
+        if (request instanceof ArtworkRequest && ((ArtworkRequest) request).getModel().isCanceled()) {
+            // the result is not needed anymore, e.g. because another provider already delivered an image
+            request.cancel();
+            return request;
+        }
+
+        final String host = getHost(request.getUrl());
+
         if (BuildConfig.DEBUG) {
-            Log.v(TAG, "RATE LIMITING REQUEST ADDED");
+            Log.v(TAG, "Rate limiting request added for host: " + host + " with priority: " + request.getPriority());
         }
 
-        synchronized (mLimitingRequestQueue) {
-            mLimitingRequestQueue.add(request);
-            if (null == mLimiterTimer) {
-                // Timer currently not running
-                mLimiterTimer = new Timer();
-                mLimiterTimer.schedule(new LimitingRequestQueue.LimiterTask(), 0, REQUEST_RATE);
+        synchronized (mHostQueues) {
+            HostQueue hostQueue = mHostQueues.get(host);
+            if (hostQueue == null) {
+                HostRate rate = mHostRates.get(host);
+                if (rate == null) {
+                    rate = new HostRate(DEFAULT_REQUEST_RATE, DEFAULT_REQUEST_BURST);
+                }
+                hostQueue = new HostQueue(new TokenBucket(rate.mPermitsPerSecond, rate.mBurst, System.nanoTime()));
+                mHostQueues.put(host, hostQueue);
             }
+
+            hostQueue.mRequests.add(new PendingRequest(request, mSequence++));
+
+            scheduleDispatch(0);
         }
         return request;
     }
 
-    private <T> void realAddRequest(Request<T> request) {
-        super.add(request);
+    /**
+     * Cancels all requests in this queue for which the given filter applies.
+     *
+     * @param filter The filtering function to use
+     */
+    @Override
+    public void cancelAll(RequestFilter filter) {
+        super.cancelAll(filter);
+        synchronized (mHostQueues) {
+            for (HostQueue hostQueue : mHostQueues.values()) {
+                final Iterator<PendingRequest> iterator = hostQueue.mRequests.iterator();
+                while (iterator.hasNext()) {
+                    final Request<?> request = iterator.next().mRequest;
+                    if (filter.apply(request)) {
+                        if (BuildConfig.DEBUG) {
+                            Log.v(TAG, "Canceling request: " + request);
+                        }
+
+                        request.cancel();
+                        iterator.remove();
+                    }
+                }
+            }
+        }
     }
 
-    private class LimiterTask extends TimerTask {
-        @Override
-        public void run() {
-            synchronized (mLimitingRequestQueue) {
-                Request request = mLimitingRequestQueue.poll();
-                if (null != request) {
-                    realAddRequest(request);
+    @Override
+    public void stop() {
+        super.stop();
+        synchronized (mHostQueues) {
+            if (mScheduledDispatch != null) {
+                mScheduledDispatch.cancel(false);
+                mScheduledDispatch = null;
+            }
+        }
+    }
 
-                    if (BuildConfig.DEBUG) {
-                        Log.v(TAG, "RATE LIMITING FORWARED");
+    /**
+     * Schedules a dispatch of the waiting requests. An already scheduled dispatch is kept if it will run earlier.
+     * Must be called with {@link #mHostQueues} locked.
+     *
+     * @param delay The delay in ns.
+     */
+    private void scheduleDispatch(final long delay) {
+        if (mScheduledDispatch != null && !mScheduledDispatch.isDone()) {
+            if (mScheduledDispatch.getDelay(TimeUnit.NANOSECONDS) <= delay) {
+                return;
+            }
+            mScheduledDispatch.cancel(false);
+        }
+
+        mScheduledDispatch = mDispatcher.schedule(this::dispatchRequests, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Forwards waiting requests of all hosts as long as their token buckets allow it
+     * and schedules the next dispatch for the host that gets a token first.
+     */
+    private void dispatchRequests() {
+        synchronized (mHostQueues) {
+            mScheduledDispatch = null;
+
+            final long now = System.nanoTime();
+            long nextDispatch = Long.MAX_VALUE;
+
+            for (HostQueue hostQueue : mHostQueues.values()) {
+                PendingRequest pendingRequest;
+                while ((pendingRequest = hostQueue.mRequests.peek()) != null) {
+                    if (pendingRequest.mRequest.isCanceled()) {
+                        // canceled requests should not use a token
+                        hostQueue.mRequests.poll();
+                        continue;
+                    }
+
+                    final long wait = hostQueue.mBucket.tryAcquire(now);
+                    if (wait > 0) {
+                        nextDispatch = Math.min(nextDispatch, wait);
+                        break;
+                    }
+
+                    hostQueue.mRequests.poll();
+                    realAddRequest(pendingRequest.mRequest);
+
+                    if (pendingRequest.mRequest instanceof ArtworkRequest) {
+                        ((ArtworkRequest) pendingRequest.mRequest).getModel().onRequestDispatched(SystemClock.elapsedRealtime(),
+                                TimeUnit.NANOSECONDS.toMillis(now - pendingRequest.mAddTime));
                     }
-                } else {
-                    // Stop the timer, no requests left
-                    mLimiterTimer.cancel();
-                    mLimiterTimer.purge();
-                    mLimiterTimer = null;
 
                     if (BuildConfig.DEBUG) {
-                        Log.v(TAG, "RATE LIMITING EMPTY, STOPPING");
+                        Log.v(TAG, "Rate limiting forwarded: " + pendingRequest.mRequest.getUrl());
                     }
                 }
             }
+
+            if (nextDispatch != Long.MAX_VALUE) {
+                scheduleDispatch(nextDispatch);
+            }
+        }
+    }
+
+    private <T> void realAddRequest(Request<T> request) {
+        super.add(request);
+    }
+
+    private static String getHost(final String url) {
+        try {
+            final String host = new URL(url).getHost();
+            return host != null ? host : "";
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+
+    private static class HostRate {
+
+        private final double mPermitsPerSecond;
+
+        private final int mBurst;
+
+        private HostRate(final double permitsPerSecond, final int burst) {
+            mPermitsPerSecond = permitsPerSecond;
+            mBurst = burst;
+        }
+    }
+
+    private static class HostQueue {
+
+        private final TokenBucket mBucket;
+
+        /**
+         * Waiting requests ordered by their priority and the order they were added.
+         */
+        private final PriorityQueue<PendingRequest> mRequests;
+
+        private HostQueue(final TokenBucket bucket) {
+            mBucket = bucket;
+            mRequests = new PriorityQueue<>();
         }
     }
 
     /**
-     * Cancels all requests in this queue for which the given filter applies.
-     *
-     * @param filter The filtering function to use
+     * Waiting request of a host. Ordered by the priority of the request and the sequence number within the same priority.
      */
-    public void cancelAll(RequestFilter filter) {
-        super.cancelAll(filter);
-        synchronized (mLimitingRequestQueue) {
-            for (Request<?> request : mLimitingRequestQueue) {
-                if (filter.apply(request)) {
-                    if (BuildConfig.DEBUG) {
-                        Log.v(TAG, "Canceling request: " + request);
-                    }
+    static class PendingRequest implements Comparable<PendingRequest> {
 
-                    request.cancel();
-                    mLimitingRequestQueue.remove(request);
-                }
+        private final Request<?> mRequest;
+
+        private final long mSequence;
+
+        /**
+         * Time in ns when the request was added to the queue.
+         */
+        private final long mAddTime;
+
+        PendingRequest(final Request<?> request, final long sequence) {
+            mRequest = request;
+            mSequence = sequence;
+            mAddTime = System.nanoTime();
+        }
+
+        @Override
+        public int compareTo(PendingRequest other) {
+            // higher priorities first
+            final int priorityCompare = other.mRequest.getPriority().compareTo(mRequest.getPriority());
+            if (priorityCompare != 0) {
+                return priorityCompare;
             }
+            return Long.compare(mSequence, other.mSequence);
         }
-    }
 
+        Request<?> getRequest() {
+            return mRequest;
+        }
+    }
 }
-
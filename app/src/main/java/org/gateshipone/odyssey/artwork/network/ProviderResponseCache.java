@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.artwork.storage.ArtworkDatabaseManager;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Persistent cache for resolved MBIDs and search responses of the artwork providers.
+ * <p>
+ * The entries are stored in the artwork database with an expiration time, so retries, resets and
+ * provider switches can skip the search requests that count against the rate limit of the providers.
+ * All database accesses are done on a background thread and the results are delivered on the main thread
+ * like the responses of the network requests.
+ */
+public class ProviderResponseCache {
+    private static final String TAG = ProviderResponseCache.class.getSimpleName();
+
+    /**
+     * Resolved MBIDs are only stored for matching responses and change rarely.
+     */
+    public static final long MBID_TTL = TimeUnit.DAYS.toMillis(90);
+
+    /**
+     * Search responses could change if new releases are added to the provider databases.
+     * Must stay below the shortest retry time of a not found image (3 days of fanart.tv minus 25% jitter),
+     * otherwise a retry would only replay the cached response of the previous attempt.
+     */
+    public static final long RESPONSE_TTL = TimeUnit.DAYS.toMillis(2);
+
+    private static final String KEY_PREFIX_MBID = "mbid/";
+
+    private static final String KEY_PREFIX_RESPONSE = "response/";
+
+    public interface LookupCallback {
+        void onLookupFinished(@Nullable String value);
+    }
+
+    private static ProviderResponseCache mInstance;
+
+    private final ArtworkDatabaseManager mDatabaseManager;
+
+    private final ExecutorService mExecutor;
+
+    private final Handler mMainHandler;
+
+    private ProviderResponseCache(final Context context) {
+        mDatabaseManager = ArtworkDatabaseManager.getInstance(context.getApplicationContext());
+        mExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public static synchronized ProviderResponseCache getInstance(final Context context) {
+        if (null == mInstance) {
+            mInstance = new ProviderResponseCache(context);
+        }
+        return mInstance;
+    }
+
+    /**
+     * Creates the key for the MBID of the release of the given album.
+     */
+    public static String getReleaseMBIDKey(final ArtworkRequestModel model) {
+        return KEY_PREFIX_MBID + "release/" + normalize(model.getArtistName()) + '/' + normalize(model.getAlbumName());
+    }
+
+    /**
+     * Creates the key for the MBID of the given artist.
+     */
+    public static String getArtistMBIDKey(final ArtworkRequestModel model) {
+        return KEY_PREFIX_MBID + "artist/" + normalize(model.getArtistName());
+    }
+
+    /**
+     * Creates the key for the response of the given request url.
+     */
+    public static String getResponseKey(final String url) {
+        return KEY_PREFIX_RESPONSE + url;
+    }
+
+    /**
+     * Looks up the cached value for the given key.
+     *
+     * @param key      The key of the value.
+     * @param callback Callback that receives the value or null if no valid value is cached. Called on the main thread.
+     */
+    public void get(final String key, final LookupCallback callback) {
+        mExecutor.execute(() -> {
+            final String value = mDatabaseManager.getProviderResponse(key);
+
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, (value != null ? "Cache hit for: " : "Cache miss for: ") + key);
+            }
+
+            mMainHandler.post(() -> callback.onLookupFinished(value));
+        });
+    }
+
+    /**
+     * Stores the value for the given key.
+     *
+     * @param key   The key of the value.
+     * @param value The value to store.
+     * @param ttl   The time in ms the value is valid.
+     */
+    public void put(final String key, final String value, final long ttl) {
+        final long expires = System.currentTimeMillis() + ttl;
+        mExecutor.execute(() -> mDatabaseManager.insertProviderResponse(key, value, expires));
+    }
+
+    /**
+     * Removes all cached search responses. Resolved MBIDs are kept because they are only stored
+     * for matching responses.
+     */
+    public void clearResponses() {
+        mExecutor.execute(() -> mDatabaseManager.removeProviderResponses(KEY_PREFIX_RESPONSE));
+    }
+
+    private static String normalize(final String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simple token bucket used to limit the request rate for a single host.
+ * <p>
+ * The bucket is refilled continuously with the configured rate and can hold up to burst tokens.
+ * This class is not thread safe, all calls must be synchronized by the caller.
+ */
+class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Time in ns needed to refill a single token.
+     */
+    private long mNanosPerToken;
+
+    /**
+     * Maximum number of tokens the bucket can hold.
+     */
+    private int mBurst;
+
+    /**
+     * Currently available tokens (fractional tokens are possible).
+     */
+    private double mTokens;
+
+    /**
+     * Time of the last refill in ns.
+     */
+    private long mLastRefill;
+
+    TokenBucket(final double permitsPerSecond, final int burst, final long now) {
+        setRate(permitsPerSecond, burst);
+        mTokens = mBurst;
+        mLastRefill = now;
+    }
+
+    /**
+     * Changes the rate of this bucket. Already available tokens are kept up to the new burst size.
+     *
+     * @param permitsPerSecond The number of requests per second.
+     * @param burst            The number of requests that can be done without waiting.
+     */
+    void setRate(final double permitsPerSecond, final int burst) {
+        mNanosPerToken = Math.max(1, (long) (NANOS_PER_SECOND / Math.max(permitsPerSecond, 0.001)));
+        mBurst = Math.max(1, burst);
+        mTokens = Math.min(mTokens, mBurst);
+    }
+
+    /**
+     * Tries to take a token from this bucket.
+     *
+     * @param now The current time in ns.
+     * @return 0 if a token was taken, otherwise the time in ns until the next token is available.
+     */
+    long tryAcquire(final long now) {
+        refill(now);
+
+        if (mTokens >= 1.0) {
+            mTokens -= 1.0;
+            return 0;
+        }
+
+        return Math.max(1, (long) ((1.0 - mTokens) * mNanosPerToken));
+    }
+
+    private void refill(final long now) {
+        final long elapsed = now - mLastRefill;
+
+        if (elapsed > 0) {
+            mTokens = Math.min(mBurst, mTokens + (double) elapsed / mNanosPerToken);
+            mLastRefill = now;
+        }
+    }
+}
@@ -24,16 +24,29 @@ package org.gateshipone.odyssey.artwork.network.artprovider;
 
 import android.content.Context;
 
+import com.android.volley.RequestQueue;
 import com.android.volley.Response;
 import com.android.volley.VolleyError;
 
 import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
 import org.gateshipone.odyssey.artwork.network.ImageResponse;
+import org.gateshipone.odyssey.artwork.network.ProviderResponseCache;
+import org.gateshipone.odyssey.artwork.network.requests.OdysseyJsonStreamRequest;
+import org.gateshipone.odyssey.artwork.network.responses.ResponseDecoder;
 import org.gateshipone.odyssey.utils.StringCompareUtils;
 import org.json.JSONException;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
 public abstract class ArtProvider {
 
+    /**
+     * Default base time until a missing image is requested again from a provider.
+     */
+    public static final long DEFAULT_NOT_FOUND_TTL = TimeUnit.DAYS.toMillis(7);
+
     public interface ArtFetchError {
         void fetchJSONException(final ArtworkRequestModel model, final Context context, final JSONException exception);
 
@@ -44,6 +57,53 @@ public abstract class ArtProvider {
 
     public abstract void fetchImage(final ArtworkRequestModel model, final Context context, final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener);
 
+    /**
+     * @return The base time in ms until an image that this provider didn't find is requested again.
+     */
+    public long getNotFoundTTL() {
+        return DEFAULT_NOT_FOUND_TTL;
+    }
+
+    /**
+     * Adds a json request for the given url to the queue. If a valid response for the url is cached
+     * the cached response is decoded and delivered instead and no request is made.
+     * Successfully decoded responses are added to the cache.
+     *
+     * @param requestQueue  The queue to add the request to.
+     * @param responseCache The cache for the responses.
+     * @param model         The model the request is made for.
+     * @param url           The url to request.
+     * @param decoder       Decoder to extract the needed fields of the response.
+     * @param listener      Response listener
+     * @param errorListener Error listener
+     */
+    <T> void addCachedRequest(final RequestQueue requestQueue, final ProviderResponseCache responseCache,
+                              final ArtworkRequestModel model, final String url, final ResponseDecoder<T> decoder,
+                              final Response.Listener<T> listener, final Response.ErrorListener errorListener) {
+        final String key = ProviderResponseCache.getResponseKey(url);
+
+        responseCache.get(key, cachedResponse -> {
+            if (cachedResponse != null) {
+                T decodedResponse = null;
+                try {
+                    decodedResponse = OdysseyJsonStreamRequest.decode(decoder, new StringReader(cachedResponse));
+                } catch (IOException | IllegalStateException | NumberFormatException e) {
+                    // invalid cache entry so request the response again
+                }
+
+                if (decodedResponse != null) {
+                    listener.onResponse(decodedResponse);
+                    return;
+                }
+            }
+
+            final OdysseyJsonStreamRequest<T> request = new OdysseyJsonStreamRequest<>(model, url, decoder, listener, errorListener);
+            request.setResponseCache(responseCache, key);
+
+            requestQueue.add(request);
+        });
+    }
+
     boolean compareAlbumResponse(final String expectedAlbum, final String expectedArtist, final String retrievedAlbum, final String retrievedArtist) {
         return StringCompareUtils.compareStrings(expectedAlbum, retrievedAlbum) && StringCompareUtils.compareStrings(expectedArtist, retrievedArtist);
     }
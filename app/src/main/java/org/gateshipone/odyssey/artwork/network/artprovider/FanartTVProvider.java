@@ -33,11 +33,13 @@ import org.gateshipone.odyssey.BuildConfig;
 import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
 import org.gateshipone.odyssey.artwork.network.ImageResponse;
 import org.gateshipone.odyssey.artwork.network.LimitingRequestQueue;
+import org.gateshipone.odyssey.artwork.network.ProviderResponseCache;
 import org.gateshipone.odyssey.artwork.network.requests.OdysseyByteRequest;
-import org.gateshipone.odyssey.artwork.network.requests.OdysseyJsonObjectRequest;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.gateshipone.odyssey.artwork.network.responses.FanartTVArtistImages;
+import org.gateshipone.odyssey.artwork.network.responses.MusicBrainzArtist;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class FanartTVProvider extends ArtProvider {
 
@@ -79,6 +81,11 @@ public class FanartTVProvider extends ArtProvider {
      */
     private RequestQueue mRequestQueue;
 
+    /**
+     * Cache for resolved MBIDs and search responses.
+     */
+    private ProviderResponseCache mResponseCache;
+
     /**
      * Singleton instance
      */
@@ -86,6 +93,7 @@ public class FanartTVProvider extends ArtProvider {
 
     private FanartTVProvider(final Context context) {
         mRequestQueue = LimitingRequestQueue.getInstance(context);
+        mResponseCache = ProviderResponseCache.getInstance(context);
     }
 
     public static synchronized FanartTVProvider getInstance(final Context context) {
@@ -95,6 +103,14 @@ public class FanartTVProvider extends ArtProvider {
         return mInstance;
     }
 
+    /**
+     * Artist images are frequently added by the fanart.tv community, so missing images are requested more often.
+     */
+    @Override
+    public long getNotFoundTTL() {
+        return TimeUnit.DAYS.toMillis(3);
+    }
+
     @Override
     public void fetchImage(final ArtworkRequestModel model, final Context context,
                            final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
@@ -103,77 +119,91 @@ public class FanartTVProvider extends ArtProvider {
                 // not used for this provider
                 break;
             case ARTIST:
-                getArtists(model.getLuceneEscapedEncodedArtistName(),
-                        response -> parseMusicBrainzArtistsJSON(model, context, response, listener, errorListener),
-                        error -> errorListener.fetchVolleyError(model, context, error));
+                mResponseCache.get(ProviderResponseCache.getArtistMBIDKey(model), artistMBID -> {
+                    if (artistMBID != null) {
+                        // the artist was resolved before so the search can be skipped
+                        fetchArtistImage(model, context, artistMBID, listener, errorListener);
+                    } else {
+                        getArtists(model,
+                                artists -> checkMusicBrainzArtists(model, context, artists, listener, errorListener),
+                                error -> errorListener.fetchVolleyError(model, context, error));
+                    }
+                });
                 break;
         }
     }
 
     /**
-     * Method to parse the artist info json response.
+     * Method to check the artist search response.
      * The response will be used to get an image for the requested artist (via getArtistImageURL and getArtistImage).
      *
      * @param model         The model representing the artist for which an image was requested.
      * @param context       The current application context.
-     * @param response      The artist info response as a {@link JSONObject}.
+     * @param artists       The decoded artists of the search response.
      * @param listener      Callback if an image could be loaded successfully.
      * @param errorListener Callback if an error occured.
      */
-    private void parseMusicBrainzArtistsJSON(final ArtworkRequestModel model, final Context context, final JSONObject response,
-                                             final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
-        JSONArray artists;
-        try {
-            artists = response.getJSONArray("artists");
-
-            if (!artists.isNull(0)) {
-                JSONObject artistObj = artists.getJSONObject(0);
-
-                // verify response
-                final String artist = artistObj.getString("name");
-
-                final boolean isMatching = compareArtistResponse(model.getArtistName(), artist);
-
-                if (isMatching) {
-                    final String artistMBID = artistObj.getString("id");
-
-                    getArtistImageURL(artistMBID, response1 -> {
-                        JSONArray thumbImages;
-                        try {
-                            thumbImages = response1.getJSONArray("artistthumb");
-
-                            JSONObject firstThumbImage = thumbImages.getJSONObject(0);
-                            model.setMBID(artistMBID);
-                            getArtistImage(firstThumbImage.getString("url"), model, listener, error -> errorListener.fetchVolleyError(model, context, error));
-
-                        } catch (JSONException e) {
-                            errorListener.fetchJSONException(model, context, e);
-                        }
-                    }, error -> errorListener.fetchVolleyError(model, context, error));
-                } else {
-                    if (BuildConfig.DEBUG) {
-                        Log.v(TAG, "Response ( " + artist + " )" + " doesn't match requested model: " +
-                                "( " + model.getLoggingString() + " )");
-                    }
+    private void checkMusicBrainzArtists(final ArtworkRequestModel model, final Context context, final List<MusicBrainzArtist> artists,
+                                         final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+        if (artists.isEmpty()) {
+            errorListener.fetchError(model, context);
+            return;
+        }
 
-                    errorListener.fetchVolleyError(model, context, null);
-                }
-            } else {
-                errorListener.fetchError(model, context);
+        final MusicBrainzArtist artist = artists.get(0);
+
+        // verify response
+        final boolean isMatching = compareArtistResponse(model.getArtistName(), artist.getName());
+
+        if (isMatching) {
+            final String artistMBID = artist.getId();
+
+            mResponseCache.put(ProviderResponseCache.getArtistMBIDKey(model), artistMBID, ProviderResponseCache.MBID_TTL);
+
+            fetchArtistImage(model, context, artistMBID, listener, errorListener);
+        } else {
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Response ( " + artist.getName() + " )" + " doesn't match requested model: " +
+                        "( " + model.getLoggingString() + " )");
             }
-        } catch (JSONException e) {
-            errorListener.fetchJSONException(model, context, e);
+
+            errorListener.fetchVolleyError(model, context, null);
         }
     }
 
+    /**
+     * Fetches the image for an artist with a resolved MBID.
+     *
+     * @param model         The model representing the artist for which an image was requested.
+     * @param context       The current application context.
+     * @param artistMBID    The MBID of the artist.
+     * @param listener      Callback if an image could be loaded successfully.
+     * @param errorListener Callback if an error occured.
+     */
+    private void fetchArtistImage(final ArtworkRequestModel model, final Context context, final String artistMBID,
+                                  final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+        getArtistImageURL(model, artistMBID, response -> {
+            final List<String> thumbnailUrls = response.getThumbnailUrls();
+
+            if (thumbnailUrls.isEmpty()) {
+                errorListener.fetchError(model, context);
+                return;
+            }
+
+            model.setMBID(artistMBID);
+            getArtistImage(thumbnailUrls.get(0), model, listener, error -> errorListener.fetchVolleyError(model, context, error));
+        }, error -> errorListener.fetchVolleyError(model, context, error));
+    }
+
     /**
      * Gets a list of possible artists from Musicbrainz database.
      *
-     * @param artistName    Name of the artist to search for
+     * @param model         The model representing the artist to search for
      * @param listener      Response listener to handle the artist list
      * @param errorListener Error listener
      */
-    private void getArtists(final String artistName, final Response.Listener<JSONObject> listener, final Response.ErrorListener errorListener) {
+    private void getArtists(final ArtworkRequestModel model, final Response.Listener<List<MusicBrainzArtist>> listener, final Response.ErrorListener errorListener) {
+        final String artistName = model.getLuceneEscapedEncodedArtistName();
 
         String url = MUSICBRAINZ_API_URL + "/" + "artist/?query=artist:" + artistName + MUSICBRAINZ_LIMIT_RESULT + MUSICBRAINZ_FORMAT_JSON;
 
@@ -181,19 +211,18 @@ public class FanartTVProvider extends ArtProvider {
             Log.v(TAG, "Requesting release mbid for: " + url);
         }
 
-        OdysseyJsonObjectRequest jsonObjectRequest = new OdysseyJsonObjectRequest(url, null, listener, errorListener);
-
-        mRequestQueue.add(jsonObjectRequest);
+        addCachedRequest(mRequestQueue, mResponseCache, model, url, MusicBrainzArtist::decodeArtists, listener, errorListener);
     }
 
     /**
      * Retrieves all available information (Artist image url, fanart url, ...) for an artist with an MBID of fanart.tv
      *
+     * @param model         The model representing the artist
      * @param artistMBID    Artists MBID to query
      * @param listener      Response listener to handle the artists information from fanart.tv
      * @param errorListener Error listener
      */
-    private void getArtistImageURL(final String artistMBID, final Response.Listener<JSONObject> listener, final Response.ErrorListener errorListener) {
+    private void getArtistImageURL(final ArtworkRequestModel model, final String artistMBID, final Response.Listener<FanartTVArtistImages> listener, final Response.ErrorListener errorListener) {
 
         String url = FANART_TV_API_URL + "/" + artistMBID + "?api_key=" + API_KEY;
 
@@ -201,9 +230,7 @@ public class FanartTVProvider extends ArtProvider {
             Log.v(TAG, "Requesting artist image url for: " + url);
         }
 
-        OdysseyJsonObjectRequest jsonObjectRequest = new OdysseyJsonObjectRequest(url, null, listener, errorListener);
-
-        mRequestQueue.add(jsonObjectRequest);
+        addCachedRequest(mRequestQueue, mResponseCache, model, url, FanartTVArtistImages::decodeArtistImages, listener, errorListener);
     }
 
     /**
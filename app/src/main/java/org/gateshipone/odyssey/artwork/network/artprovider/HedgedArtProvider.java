@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.artprovider;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+
+import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
+import org.gateshipone.odyssey.artwork.network.ImageResponse;
+import org.gateshipone.odyssey.artwork.network.LimitingRequestQueue;
+import org.gateshipone.odyssey.artwork.network.requests.ArtworkRequest;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ArtProvider} that queries a chain of providers for the same image.
+ * <p>
+ * The preferred provider is queried first. The next provider of the chain is queried if the current provider
+ * has no image or if it did not answer within a delay derived from its average latency. The delay starts when the
+ * first request of the current provider leaves the rate limiter. The first image that
+ * is found is used and the requests of all other providers are canceled. The success rate and latency of each
+ * provider are tracked and used to order the chain. The latency is measured from the first request that leaves the
+ * rate limiter, so waiting for a token does not count against a provider.
+ * <p>
+ * Requests with {@link Request.Priority#LOW} are not hedged. The next provider is only queried if the current
+ * provider has no image, because background requests would only add load to the rate limited hosts.
+ * <p>
+ * All callbacks are delivered on the main thread.
+ */
+public class HedgedArtProvider extends ArtProvider {
+
+    private static final String TAG = HedgedArtProvider.class.getSimpleName();
+
+    /**
+     * Delay in ms before the next provider is queried if no statistics are available yet.
+     */
+    private static final long DEFAULT_HEDGE_DELAY = 3000;
+
+    /**
+     * Bounds for the delay in ms before the next provider is queried.
+     */
+    private static final long MINIMUM_HEDGE_DELAY = 1000;
+
+    private static final long MAXIMUM_HEDGE_DELAY = 10000;
+
+    /**
+     * Factor applied to the average latency of a provider to get the delay before the next provider is queried.
+     */
+    private static final float HEDGE_DELAY_FACTOR = 1.5f;
+
+    /**
+     * Number of finished requests of a provider before its statistics are used.
+     */
+    private static final int MINIMUM_STATISTIC_SAMPLES = 10;
+
+    /**
+     * Weight of a new latency sample in the moving average.
+     */
+    private static final float LATENCY_AVERAGE_WEIGHT = 0.2f;
+
+    /**
+     * Clock and task scheduling used by the chain. All tasks must be run on the same thread.
+     */
+    interface Scheduler {
+
+        /**
+         * @return The current time in ms.
+         */
+        long now();
+
+        void post(Runnable task);
+
+        void postDelayed(Runnable task, long delay);
+
+        void removeCallbacks(Runnable task);
+    }
+
+    private final List<ArtProvider> mProviders;
+
+    /**
+     * Statistics of each provider. Only accessed by the main thread.
+     */
+    private final Map<ArtProvider, ProviderStatistics> mStatistics;
+
+    private ArtProvider mPreferredProvider;
+
+    private final RequestQueue mRequestQueue;
+
+    private final Scheduler mScheduler;
+
+    /**
+     * Creates a chain of the given providers.
+     *
+     * @param context   The application context.
+     * @param providers The providers of the chain. The first provider is preferred until another one is set.
+     */
+    public HedgedArtProvider(final Context context, final List<ArtProvider> providers) {
+        this(providers, LimitingRequestQueue.getInstance(context), new MainThreadScheduler());
+    }
+
+    HedgedArtProvider(final List<ArtProvider> providers, final RequestQueue requestQueue, final Scheduler scheduler) {
+        mProviders = new ArrayList<>(providers);
+        mStatistics = new HashMap<>();
+        for (ArtProvider provider : mProviders) {
+            mStatistics.put(provider, new ProviderStatistics());
+        }
+
+        mPreferredProvider = mProviders.get(0);
+        mRequestQueue = requestQueue;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Sets the provider that is queried first as long as not enough statistics are available.
+     *
+     * @param provider The preferred provider. Must be part of the chain.
+     */
+    public void setPreferredProvider(final ArtProvider provider) {
+        mPreferredProvider = provider;
+    }
+
+    /**
+     * An image is only missing if no provider of the chain found it, so the shortest time of all providers is used.
+     */
+    @Override
+    public long getNotFoundTTL() {
+        long notFoundTTL = Long.MAX_VALUE;
+        for (ArtProvider provider : mProviders) {
+            notFoundTTL = Math.min(notFoundTTL, provider.getNotFoundTTL());
+        }
+        return notFoundTTL;
+    }
+
+    @Override
+    public void fetchImage(final ArtworkRequestModel model, final Context context,
+                           final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+        mScheduler.post(() -> new HedgedFetch(model, context, listener, errorListener, getProviderOrder()).launchNextProvider());
+    }
+
+    /**
+     * @return The providers ordered by their statistics. The preferred provider is used first if it has no statistics yet.
+     */
+    private List<ArtProvider> getProviderOrder() {
+        final List<ArtProvider> order = new ArrayList<>(mProviders);
+
+        Collections.sort(order, (first, second) -> Float.compare(mStatistics.get(second).getScore(), mStatistics.get(first).getScore()));
+
+        if (order.remove(mPreferredProvider)) {
+            final float preferredScore = mStatistics.get(mPreferredProvider).getScore();
+
+            int index = 0;
+            if (preferredScore >= 0) {
+                while (index < order.size() && mStatistics.get(order.get(index)).getScore() > preferredScore) {
+                    index++;
+                }
+            }
+            order.add(index, mPreferredProvider);
+        }
+
+        return order;
+    }
+
+    /**
+     * State of a single image request that is sent to the providers of the chain.
+     */
+    private class HedgedFetch {
+
+        private final ArtworkRequestModel mModel;
+
+        private final Context mContext;
+
+        private final Response.Listener<ImageResponse> mListener;
+
+        private final ArtFetchError mErrorListener;
+
+        private final List<ArtProvider> mOrder;
+
+        private final List<Attempt> mAttempts;
+
+        /**
+         * Forwards the error of the last failed provider if no provider has an image.
+         */
+        private Runnable mLastError;
+
+        private boolean mFinished;
+
+        private final Runnable mHedgeRunnable = this::launchNextProvider;
+
+        private HedgedFetch(final ArtworkRequestModel model, final Context context,
+                            final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener,
+                            final List<ArtProvider> order) {
+            mModel = model;
+            mContext = context;
+            mListener = listener;
+            mErrorListener = errorListener;
+            mOrder = order;
+            mAttempts = new ArrayList<>();
+        }
+
+        /**
+         * Queries the next provider of the chain.
+         *
+         * @return False if all providers were already queried.
+         */
+        private boolean launchNextProvider() {
+            if (mFinished || mAttempts.size() >= mOrder.size()) {
+                return false;
+            }
+
+            final ArtProvider provider = mOrder.get(mAttempts.size());
+            final Attempt attempt = new Attempt(provider, new ArtworkRequestModel(mModel));
+            mAttempts.add(attempt);
+
+            if (mAttempts.size() < mOrder.size() && mModel.getPriority() != Request.Priority.LOW) {
+                // waiting for a token of the rate limiter does not count against the provider
+                attempt.mModel.setDispatchListener(model -> mScheduler.post(() -> startHedgeDelay(attempt)));
+            }
+
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Query " + provider.getClass().getSimpleName() + " for: " + mModel.getLoggingString());
+            }
+
+            provider.fetchImage(attempt.mModel, mContext, response -> onImageFound(attempt, response), new ArtFetchError() {
+                @Override
+                public void fetchJSONException(ArtworkRequestModel model, Context context, JSONException exception) {
+                    onImageMissing(attempt, () -> mErrorListener.fetchJSONException(mModel, context, exception));
+                }
+
+                @Override
+                public void fetchVolleyError(ArtworkRequestModel model, Context context, VolleyError error) {
+                    onImageMissing(attempt, () -> mErrorListener.fetchVolleyError(mModel, context, error));
+                }
+
+                @Override
+                public void fetchError(ArtworkRequestModel model, Context context) {
+                    onImageMissing(attempt, () -> mErrorListener.fetchError(mModel, context));
+                }
+            });
+
+            return true;
+        }
+
+        /**
+         * Queries the next provider after the hedge delay of the attempt, measured from its first dispatched request.
+         */
+        private void startHedgeDelay(final Attempt attempt) {
+            // only the most recent attempt can start the next provider
+            if (mFinished || attempt.mFinished || attempt != mAttempts.get(mAttempts.size() - 1)) {
+                return;
+            }
+
+            final long delay = mStatistics.get(attempt.mProvider).getHedgeDelay() - attempt.mModel.getNetworkTime(mScheduler.now());
+            mScheduler.postDelayed(mHedgeRunnable, Math.max(0, delay));
+        }
+
+        private void onImageFound(final Attempt attempt, final ImageResponse response) {
+            if (attempt.mModel.isCanceled()) {
+                return;
+            }
+
+            mStatistics.get(attempt.mProvider).addResult(true, attempt.mModel.getNetworkTime(mScheduler.now()));
+            attempt.mFinished = true;
+
+            if (mFinished) {
+                return;
+            }
+
+            mFinished = true;
+            mScheduler.removeCallbacks(mHedgeRunnable);
+
+            // the other providers are not needed anymore
+            for (Attempt otherAttempt : mAttempts) {
+                if (!otherAttempt.mFinished) {
+                    otherAttempt.cancel();
+                }
+            }
+
+            // each attempt uses its own copy of the album or artist, so only the MBID found by the winner is kept
+            mModel.setMBID(attempt.mModel.getMBID());
+
+            response.model = mModel;
+            mListener.onResponse(response);
+        }
+
+        private void onImageMissing(final Attempt attempt, final Runnable error) {
+            if (attempt.mModel.isCanceled() || attempt.mFinished) {
+                return;
+            }
+
+            mStatistics.get(attempt.mProvider).addResult(false, attempt.mModel.getNetworkTime(mScheduler.now()));
+            attempt.mFinished = true;
+
+            if (mFinished) {
+                return;
+            }
+
+            mLastError = error;
+            mScheduler.removeCallbacks(mHedgeRunnable);
+
+            if (!launchNextProvider() && allAttemptsFinished()) {
+                mFinished = true;
+                mLastError.run();
+            }
+        }
+
+        private boolean allAttemptsFinished() {
+            for (Attempt attempt : mAttempts) {
+                if (!attempt.mFinished) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A query of a single provider.
+     */
+    private class Attempt {
+
+        private final ArtProvider mProvider;
+
+        private final ArtworkRequestModel mModel;
+
+        private boolean mFinished;
+
+        private Attempt(final ArtProvider provider, final ArtworkRequestModel model) {
+            mProvider = provider;
+            mModel = model;
+        }
+
+        private void cancel() {
+            mModel.cancel();
+            mRequestQueue.cancelAll(request -> request instanceof ArtworkRequest && ((ArtworkRequest) request).getModel() == mModel);
+        }
+    }
+
+    /**
+     * Success rate and latency of a provider.
+     */
+    private static class ProviderStatistics {
+
+        private int mRequests;
+
+        private int mSuccesses;
+
+        /**
+         * Number of successful requests that used the network.
+         */
+        private int mLatencySamples;
+
+        /**
+         * Moving average of the network time of successful requests in ms.
+         */
+        private float mAverageLatency;
+
+        /**
+         * @param latency The network time in ms or -1 if the result was found without a network request.
+         */
+        private void addResult(final boolean success, final long latency) {
+            mRequests++;
+
+            if (success) {
+                mSuccesses++;
+
+                if (latency >= 0) {
+                    mLatencySamples++;
+                    mAverageLatency = mLatencySamples == 1 ? latency : mAverageLatency + LATENCY_AVERAGE_WEIGHT * (latency - mAverageLatency);
+                }
+            }
+        }
+
+        /**
+         * @return A score that prefers providers with a high success rate and a low latency or -1 if not enough samples are available.
+         */
+        private float getScore() {
+            if (mRequests < MINIMUM_STATISTIC_SAMPLES) {
+                return -1;
+            }
+
+            final float successRate = (float) mSuccesses / mRequests;
+            return successRate * 1000 / (1000 + mAverageLatency);
+        }
+
+        private long getHedgeDelay() {
+            if (mLatencySamples < MINIMUM_STATISTIC_SAMPLES) {
+                return DEFAULT_HEDGE_DELAY;
+            }
+
+            return Math.max(MINIMUM_HEDGE_DELAY, Math.min(MAXIMUM_HEDGE_DELAY, (long) (mAverageLatency * HEDGE_DELAY_FACTOR)));
+        }
+    }
+
+    /**
+     * Runs the tasks on the main thread and uses {@link SystemClock#elapsedRealtime()} as clock.
+     */
+    private static class MainThreadScheduler implements Scheduler {
+
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public long now() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void post(final Runnable task) {
+            mHandler.post(task);
+        }
+
+        @Override
+        public void postDelayed(final Runnable task, final long delay) {
+            mHandler.postDelayed(task, delay);
+        }
+
+        @Override
+        public void removeCallbacks(final Runnable task) {
+            mHandler.removeCallbacks(task);
+        }
+    }
+}
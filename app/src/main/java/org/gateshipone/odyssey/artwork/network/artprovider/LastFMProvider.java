@@ -34,11 +34,9 @@ import org.gateshipone.odyssey.BuildConfig;
 import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
 import org.gateshipone.odyssey.artwork.network.ImageResponse;
 import org.gateshipone.odyssey.artwork.network.LimitingRequestQueue;
+import org.gateshipone.odyssey.artwork.network.ProviderResponseCache;
 import org.gateshipone.odyssey.artwork.network.requests.OdysseyByteRequest;
-import org.gateshipone.odyssey.artwork.network.requests.OdysseyJsonObjectRequest;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.gateshipone.odyssey.artwork.network.responses.LastFMAlbumInfo;
 
 public class LastFMProvider extends ArtProvider {
 
@@ -70,6 +68,11 @@ public class LastFMProvider extends ArtProvider {
      */
     private RequestQueue mRequestQueue;
 
+    /**
+     * Cache for resolved MBIDs and search responses.
+     */
+    private ProviderResponseCache mResponseCache;
+
     /**
      * Singleton instance
      */
@@ -77,6 +80,7 @@ public class LastFMProvider extends ArtProvider {
 
     private LastFMProvider(final Context context) {
         mRequestQueue = LimitingRequestQueue.getInstance(context);
+        mResponseCache = ProviderResponseCache.getInstance(context);
     }
 
     public static synchronized LastFMProvider getInstance(final Context context) {
@@ -92,7 +96,7 @@ public class LastFMProvider extends ArtProvider {
         switch (model.getType()) {
             case ALBUM:
                 getAlbumImageURL(model,
-                        response -> parseJSONResponse(model, context, response, listener, errorListener),
+                        albumInfo -> checkAlbumInfo(model, context, albumInfo, listener, errorListener),
                         error -> errorListener.fetchVolleyError(model, context, error));
                 break;
             case ARTIST:
@@ -109,7 +113,7 @@ public class LastFMProvider extends ArtProvider {
      * @param errorListener Callback to handle a fetch error
      */
     private void getAlbumImageURL(final ArtworkRequestModel model,
-                                  final Response.Listener<JSONObject> listener, final Response.ErrorListener errorListener) {
+                                  final Response.Listener<LastFMAlbumInfo> listener, final Response.ErrorListener errorListener) {
         String albumName = model.getEncodedAlbumName();
         String artistName = model.getEncodedArtistName();
 
@@ -122,61 +126,54 @@ public class LastFMProvider extends ArtProvider {
                 Log.v(TAG, url);
             }
 
-            OdysseyJsonObjectRequest jsonObjectRequest = new OdysseyJsonObjectRequest(url, null, listener, errorListener);
-
-            mRequestQueue.add(jsonObjectRequest);
+            addCachedRequest(mRequestQueue, mResponseCache, model, url, LastFMAlbumInfo::decodeAlbumInfo, listener, errorListener);
         }
     }
 
     /**
-     * Method to parse the album info json response.
+     * Method to check the album info response.
      * The response will be used to get an image for the requested album.
      *
      * @param model         The model representing the album for which an image was requested.
      * @param context       The current application context.
-     * @param response      The album info response as a {@link JSONObject}.
+     * @param albumInfo     The decoded album info response.
      * @param listener      Callback if an image could be loaded successfully.
      * @param errorListener Callback if an error occured.
      */
-    private void parseJSONResponse(final ArtworkRequestModel model, final Context context, final JSONObject response,
-                                   final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
-        try {
-            final JSONObject baseObj = response.getJSONObject("album");
-
-            // verify response
-            final String album = baseObj.getString("name");
-            final String artist = baseObj.getString("artist");
-
-            final boolean isMatching = compareAlbumResponse(model.getAlbumName(), model.getArtistName(), album, artist);
-
-            if (isMatching) {
-                final JSONArray images = baseObj.getJSONArray("image");
-
-                if (BuildConfig.DEBUG) {
-                    Log.v(TAG, "Found: " + images.length() + " images");
-                }
-
-                for (int i = 0; i < images.length(); i++) {
-                    JSONObject image = images.getJSONObject(i);
-                    if (image.getString("size").equals(LAST_FM_REQUESTED_IMAGE_SIZE)) {
-                        String url = image.getString("#text");
-                        if (!url.isEmpty()) {
-                            getByteImage(image.getString("#text"), model, listener, error -> errorListener.fetchVolleyError(model, context, error));
-                        } else {
-                            errorListener.fetchVolleyError(model, context, null);
-                        }
-                    }
-                }
-            } else {
-                if (BuildConfig.DEBUG) {
-                    Log.v(TAG, "Response ( " + album + "-" + artist + " )" + " doesn't match requested model: " +
-                            "( " + model.getLoggingString() + " )");
-                }
+    private void checkAlbumInfo(final ArtworkRequestModel model, final Context context, final LastFMAlbumInfo albumInfo,
+                                final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+        if (!albumInfo.isValid()) {
+            errorListener.fetchError(model, context);
+            return;
+        }
+
+        // verify response
+        final String album = albumInfo.getName();
+        final String artist = albumInfo.getArtist();
+
+        final boolean isMatching = compareAlbumResponse(model.getAlbumName(), model.getArtistName(), album, artist);
 
+        if (isMatching) {
+            // last.fm returns the MBID of the release if known, so a later switch to MusicBrainz can skip the search
+            final String mbid = albumInfo.getMBID();
+            if (mbid != null && !mbid.isEmpty()) {
+                mResponseCache.put(ProviderResponseCache.getReleaseMBIDKey(model), mbid, ProviderResponseCache.MBID_TTL);
+            }
+
+            final String url = albumInfo.getImageUrl(LAST_FM_REQUESTED_IMAGE_SIZE);
+
+            if (url != null && !url.isEmpty()) {
+                getByteImage(url, model, listener, error -> errorListener.fetchVolleyError(model, context, error));
+            } else {
                 errorListener.fetchVolleyError(model, context, null);
             }
-        } catch (JSONException e) {
-            errorListener.fetchJSONException(model, context, e);
+        } else {
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Response ( " + album + "-" + artist + " )" + " doesn't match requested model: " +
+                        "( " + model.getLoggingString() + " )");
+            }
+
+            errorListener.fetchVolleyError(model, context, null);
         }
     }
 
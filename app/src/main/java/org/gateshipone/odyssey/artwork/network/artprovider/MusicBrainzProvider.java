@@ -28,16 +28,19 @@ import android.util.Log;
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response;
+import com.android.volley.VolleyError;
 
 import org.gateshipone.odyssey.BuildConfig;
 import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
 import org.gateshipone.odyssey.artwork.network.ImageResponse;
 import org.gateshipone.odyssey.artwork.network.LimitingRequestQueue;
+import org.gateshipone.odyssey.artwork.network.ProviderResponseCache;
 import org.gateshipone.odyssey.artwork.network.requests.OdysseyByteRequest;
-import org.gateshipone.odyssey.artwork.network.requests.OdysseyJsonObjectRequest;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.gateshipone.odyssey.artwork.network.responses.MusicBrainzRelease;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class MusicBrainzProvider extends ArtProvider {
 
@@ -58,6 +61,11 @@ public class MusicBrainzProvider extends ArtProvider {
      */
     private RequestQueue mRequestQueue;
 
+    /**
+     * Cache for resolved MBIDs and search responses.
+     */
+    private ProviderResponseCache mResponseCache;
+
     /**
      * Singleton instance
      */
@@ -65,6 +73,7 @@ public class MusicBrainzProvider extends ArtProvider {
 
     private MusicBrainzProvider(final Context context) {
         mRequestQueue = LimitingRequestQueue.getInstance(context);
+        mResponseCache = ProviderResponseCache.getInstance(context);
     }
 
     public static synchronized MusicBrainzProvider getInstance(final Context context) {
@@ -74,14 +83,35 @@ public class MusicBrainzProvider extends ArtProvider {
         return mInstance;
     }
 
+    /**
+     * New covers are only added slowly to the cover art archive, so missing covers are requested less often.
+     */
+    @Override
+    public long getNotFoundTTL() {
+        return TimeUnit.DAYS.toMillis(14);
+    }
+
     @Override
     public void fetchImage(final ArtworkRequestModel model, final Context context,
                            final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
         switch (model.getType()) {
             case ALBUM:
-                getAlbumMBID(model,
-                        response -> parseMusicBrainzReleaseJSON(model, 0, response, context, listener, errorListener),
-                        error -> errorListener.fetchVolleyError(model, context, error));
+                mResponseCache.get(ProviderResponseCache.getReleaseMBIDKey(model), mbid -> {
+                    if (mbid != null) {
+                        // the release was resolved before so the search can be skipped
+                        model.setMBID(mbid);
+                        getAlbumImage(getCoverArtURL(mbid), model, listener, error -> {
+                            if (isNotFoundError(error)) {
+                                // the release has no image anymore so search for another matching release
+                                searchAlbumImage(model, context, listener, errorListener);
+                            } else {
+                                errorListener.fetchVolleyError(model, context, error);
+                            }
+                        });
+                    } else {
+                        searchAlbumImage(model, context, listener, errorListener);
+                    }
+                });
                 break;
             case ARTIST:
                 // not used for this provider
@@ -89,6 +119,21 @@ public class MusicBrainzProvider extends ArtProvider {
         }
     }
 
+    /**
+     * Searches the releases for the given album and checks the matching releases for an image.
+     *
+     * @param model         Album to search an image for
+     * @param context       Context used for lookup
+     * @param listener      Callback to handle the response
+     * @param errorListener Callback to handle errors
+     */
+    private void searchAlbumImage(final ArtworkRequestModel model, final Context context,
+                                  final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+        getAlbumMBID(model,
+                releases -> fetchReleaseImage(model, 0, getMatchingReleases(model, releases), context, listener, errorListener),
+                error -> errorListener.fetchVolleyError(model, context, error));
+    }
+
     /**
      * Wrapper to get an MBID out of an {@link ArtworkRequestModel}.
      *
@@ -96,7 +141,7 @@ public class MusicBrainzProvider extends ArtProvider {
      * @param listener      Response listener
      * @param errorListener Error listener
      */
-    private void getAlbumMBID(final ArtworkRequestModel model, final Response.Listener<JSONObject> listener, final Response.ErrorListener errorListener) {
+    private void getAlbumMBID(final ArtworkRequestModel model, final Response.Listener<List<MusicBrainzRelease>> listener, final Response.ErrorListener errorListener) {
         final String albumName = model.getLuceneEscapedEncodedAlbumName();
         final String artistName = model.getLuceneEscapedEncodedArtistName();
 
@@ -111,74 +156,84 @@ public class MusicBrainzProvider extends ArtProvider {
             Log.v(TAG, "Requesting release mbid for: " + url);
         }
 
-        OdysseyJsonObjectRequest jsonObjectRequest = new OdysseyJsonObjectRequest(url, null, listener, errorListener);
+        addCachedRequest(mRequestQueue, mResponseCache, model, url, MusicBrainzRelease::decodeReleases, listener, errorListener);
+    }
 
-        mRequestQueue.add(jsonObjectRequest);
+    /**
+     * Filters the releases of a search response that match the requested album.
+     *
+     * @param model    Album that was searched
+     * @param releases The decoded releases of the search response
+     * @return The matching releases in the order of the response
+     */
+    private List<MusicBrainzRelease> getMatchingReleases(final ArtworkRequestModel model, final List<MusicBrainzRelease> releases) {
+        final List<MusicBrainzRelease> matchingReleases = new ArrayList<>();
+
+        for (MusicBrainzRelease release : releases) {
+            if (compareAlbumResponse(model.getAlbumName(), model.getArtistName(), release.getTitle(), release.getArtist())) {
+                matchingReleases.add(release);
+            } else if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Response ( " + release.getTitle() + "-" + release.getArtist() + " )" + " doesn't match requested model: " +
+                        "( " + model.getLoggingString() + " )");
+            }
+        }
+
+        return matchingReleases;
     }
 
     /**
-     * Parses the JSON response and searches the image URL
+     * Tries to download the image of the matching release with the given index.
+     * If the release has no image the next matching release is checked.
      *
      * @param model         Album to check for an image
-     * @param releaseIndex  Index of the requested release to check for an image
-     * @param response      Response to check use to search for an image
+     * @param releaseIndex  Index of the release to check for an image
+     * @param releases      The releases that match the requested album
      * @param context       Context used for lookup
      * @param listener      Callback to handle the response
      * @param errorListener Callback to handle errors
      */
-    private void parseMusicBrainzReleaseJSON(final ArtworkRequestModel model, final int releaseIndex, final JSONObject response, final Context context,
-                                             final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
-        if (releaseIndex >= MUSICBRAINZ_LIMIT_RESULT_COUNT) {
+    private void fetchReleaseImage(final ArtworkRequestModel model, final int releaseIndex, final List<MusicBrainzRelease> releases, final Context context,
+                                   final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+        if (releaseIndex >= releases.size()) {
             errorListener.fetchVolleyError(model, context, null);
             return;
         }
 
-        try {
-            final JSONArray releases = response.getJSONArray("releases");
-            if (releases.length() > releaseIndex) {
-                final JSONObject baseObj = releases.getJSONObject(releaseIndex);
-
-                // verify response
-                final String album = baseObj.getString("title");
-                final String artist = baseObj.getJSONArray("artist-credit").getJSONObject(0).getString("name");
-
-                final boolean isMatching = compareAlbumResponse(model.getAlbumName(), model.getArtistName(), album, artist);
-
-                if (isMatching) {
-                    final String mbid = releases.getJSONObject(releaseIndex).getString("id");
-                    model.setMBID(mbid);
-
-                    final String url = COVERART_ARCHIVE_API_URL + "/" + "release/" + mbid + "/front-500";
-
-                    getAlbumImage(url, model, listener, error -> {
-                        if (BuildConfig.DEBUG) {
-                            Log.v(TAG, "No image found for: " + model.getAlbumName() + " with release index: " + releaseIndex);
-                        }
-
-                        if (releaseIndex + 1 < releases.length()) {
-                            parseMusicBrainzReleaseJSON(model, releaseIndex + 1, response, context, listener, errorListener);
-                        } else {
-                            errorListener.fetchVolleyError(model, context, error);
-                        }
-                    });
-                } else {
-                    if (BuildConfig.DEBUG) {
-                        Log.v(TAG, "Response ( " + album + "-" + artist + " )" + " doesn't match requested model: " +
-                                "( " + model.getLoggingString() + " )");
-                    }
+        final String mbid = releases.get(releaseIndex).getId();
+        model.setMBID(mbid);
 
-                    if (releaseIndex + 1 < releases.length()) {
-                        parseMusicBrainzReleaseJSON(model, releaseIndex + 1, response, context, listener, errorListener);
-                    } else {
-                        errorListener.fetchVolleyError(model, context, null);
-                    }
-                }
+        getAlbumImage(getCoverArtURL(mbid), model, imageResponse -> {
+            // remember the release with an image for later requests
+            mResponseCache.put(ProviderResponseCache.getReleaseMBIDKey(model), mbid, ProviderResponseCache.MBID_TTL);
+            listener.onResponse(imageResponse);
+        }, error -> {
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "No image found for: " + model.getAlbumName() + " with release index: " + releaseIndex);
+            }
+
+            if (releaseIndex + 1 < releases.size()) {
+                fetchReleaseImage(model, releaseIndex + 1, releases, context, listener, errorListener);
             } else {
-                errorListener.fetchVolleyError(model, context, null);
+                errorListener.fetchVolleyError(model, context, error);
             }
-        } catch (JSONException e) {
-            errorListener.fetchJSONException(model, context, e);
-        }
+        });
+    }
+
+    /**
+     * Creates the Cover Art Archive url for the front image of the given release.
+     *
+     * @param mbid The MBID of the release.
+     * @return The url of the image.
+     */
+    private static String getCoverArtURL(final String mbid) {
+        return COVERART_ARCHIVE_API_URL + "/" + "release/" + mbid + "/front-500";
+    }
+
+    /**
+     * Checks if the given error was caused by a missing resource.
+     */
+    private static boolean isNotFoundError(final VolleyError error) {
+        return error != null && error.networkResponse != null && error.networkResponse.statusCode == 404;
     }
 
     /**
@@ -22,25 +22,15 @@
 
 package org.gateshipone.odyssey.artwork.network.requests;
 
-import com.android.volley.Response;
-import com.android.volley.toolbox.JsonObjectRequest;
+import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
 
-import org.gateshipone.odyssey.BuildConfig;
-import org.json.JSONObject;
-
-import java.util.HashMap;
-import java.util.Map;
-
-public class OdysseyJsonObjectRequest extends JsonObjectRequest {
-
-    public OdysseyJsonObjectRequest(String url, JSONObject jsonRequest, Response.Listener<JSONObject> listener, Response.ErrorListener errorListener) {
-        super(Method.GET, url, jsonRequest, listener, errorListener);
-    }
+/**
+ * Interface for all network requests that are made for an {@link ArtworkRequestModel}.
+ */
+public interface ArtworkRequest {
 
-    @Override
-    public Map<String, String> getHeaders() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("User-agent", "Application Odyssey/" + BuildConfig.VERSION_NAME + " (https://github.com/gateship-one/odyssey)");
-        return headers;
-    }
+    /**
+     * @return The model this request was made for.
+     */
+    ArtworkRequestModel getModel();
 }
@@ -35,7 +35,7 @@ import java.util.Map;
 
 import androidx.annotation.Nullable;
 
-public class OdysseyByteRequest extends Request<ImageResponse> {
+public class OdysseyByteRequest extends Request<ImageResponse> implements ArtworkRequest {
 
     private final Response.Listener<ImageResponse> mListener;
 
@@ -46,6 +46,19 @@ public class OdysseyByteRequest extends Request<ImageResponse> {
 
         mModel = model;
         mListener = listener;
+
+        // tag the request with its priority so all requests of a priority can be canceled at once
+        setTag(model.getPriority());
+    }
+
+    @Override
+    public Priority getPriority() {
+        return mModel.getPriority();
+    }
+
+    @Override
+    public ArtworkRequestModel getModel() {
+        return mModel;
     }
 
     @Override
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.requests;
+
+import android.util.JsonReader;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+
+import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
+import org.gateshipone.odyssey.artwork.network.ProviderResponseCache;
+import org.gateshipone.odyssey.artwork.network.responses.ResponseDecoder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Request for a json response that is decoded with a {@link ResponseDecoder} on the network thread.
+ * Only the fields needed by the decoder are extracted, so no complete {@link org.json.JSONObject} is created.
+ *
+ * @param <T> The type of the decoded response.
+ */
+public class OdysseyJsonStreamRequest<T> extends Request<T> implements ArtworkRequest {
+
+    private final ArtworkRequestModel mModel;
+
+    private final ResponseDecoder<T> mDecoder;
+
+    private final Response.Listener<T> mListener;
+
+    /**
+     * Optional cache for the raw response.
+     */
+    private ProviderResponseCache mResponseCache;
+
+    private String mResponseKey;
+
+    public OdysseyJsonStreamRequest(ArtworkRequestModel model, String url, ResponseDecoder<T> decoder, Response.Listener<T> listener, @Nullable Response.ErrorListener errorListener) {
+        super(Method.GET, url, errorListener);
+
+        mModel = model;
+        mDecoder = decoder;
+        mListener = listener;
+
+        // tag the request with its priority so all requests of a priority can be canceled at once
+        setTag(model.getPriority());
+    }
+
+    /**
+     * Sets the cache to store the raw response in after it was decoded successfully.
+     *
+     * @param responseCache The cache for the response.
+     * @param key           The key of the response in the cache.
+     */
+    public void setResponseCache(final ProviderResponseCache responseCache, final String key) {
+        mResponseCache = responseCache;
+        mResponseKey = key;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return mModel.getPriority();
+    }
+
+    @Override
+    public ArtworkRequestModel getModel() {
+        return mModel;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("User-agent", "Application Odyssey/" + BuildConfig.VERSION_NAME + " (https://github.com/gateship-one/odyssey)");
+        return headers;
+    }
+
+    @Override
+    protected Response<T> parseNetworkResponse(NetworkResponse response) {
+        try {
+            final String json = new String(response.data, HttpHeaderParser.parseCharset(response.headers, "utf-8"));
+
+            final T result = decode(mDecoder, new StringReader(json));
+
+            if (mResponseCache != null) {
+                mResponseCache.put(mResponseKey, json, ProviderResponseCache.RESPONSE_TTL);
+            }
+
+            return Response.success(result, HttpHeaderParser.parseCacheHeaders(response));
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // malformed json or an unexpected structure of the response
+            return Response.error(new ParseError(e));
+        }
+    }
+
+    @Override
+    protected void deliverResponse(T response) {
+        mListener.onResponse(response);
+    }
+
+    /**
+     * Decodes a json response with the given decoder.
+     *
+     * @param decoder The decoder for the response.
+     * @param reader  The reader for the json response. The reader will be closed.
+     * @return The decoded response.
+     * @throws IOException If the response is malformed.
+     */
+    public static <T> T decode(final ResponseDecoder<T> decoder, final Reader reader) throws IOException {
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            return decoder.decode(jsonReader);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.responses;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The artist images of a fanart.tv artist response.
+ */
+public class FanartTVArtistImages {
+
+    private final List<String> mThumbnailUrls;
+
+    private FanartTVArtistImages(final List<String> thumbnailUrls) {
+        mThumbnailUrls = thumbnailUrls;
+    }
+
+    /**
+     * @return The urls of the artist thumbnails in the order of the response.
+     */
+    public List<String> getThumbnailUrls() {
+        return mThumbnailUrls;
+    }
+
+    /**
+     * Decodes the urls of the artist thumbnails. All other images like backgrounds or logos are skipped.
+     *
+     * @param reader The reader positioned at the start of the response.
+     * @return The decoded images.
+     */
+    public static FanartTVArtistImages decodeArtistImages(final JsonReader reader) throws IOException {
+        final List<String> thumbnailUrls = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("artistthumb".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    final String url = decodeImageUrl(reader);
+                    if (url != null && !url.isEmpty()) {
+                        thumbnailUrls.add(url);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new FanartTVArtistImages(thumbnailUrls);
+    }
+
+    private static String decodeImageUrl(final JsonReader reader) throws IOException {
+        String url = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("url".equals(reader.nextName())) {
+                url = JsonReaderUtils.nextStringOrNull(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return url;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.responses;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Helper methods for the response decoders.
+ */
+class JsonReaderUtils {
+
+    private JsonReaderUtils() {
+    }
+
+    /**
+     * Reads a string or number value. Other values like null, objects or arrays are skipped.
+     *
+     * @param reader The reader positioned at the value.
+     * @return The read value or null if the value is not a string or number.
+     */
+    static String nextStringOrNull(final JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+
+        reader.skipValue();
+        return null;
+    }
+}
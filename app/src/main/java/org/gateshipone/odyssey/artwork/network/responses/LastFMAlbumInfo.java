@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.responses;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The fields of a last.fm album.getinfo response needed to find the album image.
+ * The track list and wiki of the response are skipped.
+ */
+public class LastFMAlbumInfo {
+
+    private String mName;
+
+    private String mArtist;
+
+    private String mMBID;
+
+    /**
+     * Image urls by their size name, e.g. extralarge
+     */
+    private final Map<String, String> mImageUrls = new HashMap<>();
+
+    private LastFMAlbumInfo() {
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public String getArtist() {
+        return mArtist;
+    }
+
+    /**
+     * @return The MBID of the release or null if not known.
+     */
+    public String getMBID() {
+        return mMBID;
+    }
+
+    /**
+     * @param size The size name of the image, e.g. extralarge
+     * @return The url of the image or null if no image of this size exists.
+     */
+    public String getImageUrl(final String size) {
+        return mImageUrls.get(size);
+    }
+
+    /**
+     * @return True if the response contained an album, last.fm returns an error object otherwise.
+     */
+    public boolean isValid() {
+        return mName != null && mArtist != null;
+    }
+
+    /**
+     * Decodes an album.getinfo response.
+     *
+     * @param reader The reader positioned at the start of the response.
+     * @return The decoded album info. Use {@link #isValid()} to check if an album was found.
+     */
+    public static LastFMAlbumInfo decodeAlbumInfo(final JsonReader reader) throws IOException {
+        final LastFMAlbumInfo albumInfo = new LastFMAlbumInfo();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("album".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                albumInfo.decodeAlbum(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return albumInfo;
+    }
+
+    private void decodeAlbum(final JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+
+            if ("name".equals(name)) {
+                mName = JsonReaderUtils.nextStringOrNull(reader);
+            } else if ("artist".equals(name)) {
+                mArtist = JsonReaderUtils.nextStringOrNull(reader);
+            } else if ("mbid".equals(name)) {
+                mMBID = JsonReaderUtils.nextStringOrNull(reader);
+            } else if ("image".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    decodeImage(reader);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void decodeImage(final JsonReader reader) throws IOException {
+        String url = null;
+        String size = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+
+            if ("#text".equals(name)) {
+                url = JsonReaderUtils.nextStringOrNull(reader);
+            } else if ("size".equals(name)) {
+                size = JsonReaderUtils.nextStringOrNull(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (size != null && url != null) {
+            mImageUrls.put(size, url);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.responses;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An artist of a MusicBrainz artist search.
+ */
+public class MusicBrainzArtist {
+
+    private final String mId;
+
+    private final String mName;
+
+    private MusicBrainzArtist(final String id, final String name) {
+        mId = id;
+        mName = name;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Decodes the artists of an artist search response. Artists without an id or name are skipped.
+     *
+     * @param reader The reader positioned at the start of the response.
+     * @return The artists in the order of the response.
+     */
+    public static List<MusicBrainzArtist> decodeArtists(final JsonReader reader) throws IOException {
+        final List<MusicBrainzArtist> artists = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("artists".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    final MusicBrainzArtist artist = decodeArtist(reader);
+                    if (artist != null) {
+                        artists.add(artist);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return artists;
+    }
+
+    private static MusicBrainzArtist decodeArtist(final JsonReader reader) throws IOException {
+        String id = null;
+        String name = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String fieldName = reader.nextName();
+
+            if ("id".equals(fieldName)) {
+                id = JsonReaderUtils.nextStringOrNull(reader);
+            } else if ("name".equals(fieldName)) {
+                name = JsonReaderUtils.nextStringOrNull(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (id == null || name == null) {
+            return null;
+        }
+
+        return new MusicBrainzArtist(id, name);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.responses;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A release of a MusicBrainz release search with the fields needed to find its cover.
+ */
+public class MusicBrainzRelease {
+
+    private final String mId;
+
+    private final String mTitle;
+
+    private final String mArtist;
+
+    private MusicBrainzRelease(final String id, final String title, final String artist) {
+        mId = id;
+        mTitle = title;
+        mArtist = artist;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * @return The name of the first artist credit.
+     */
+    public String getArtist() {
+        return mArtist;
+    }
+
+    /**
+     * Decodes the releases of a release search response. Releases without an id, title or artist are skipped.
+     *
+     * @param reader The reader positioned at the start of the response.
+     * @return The releases in the order of the response.
+     */
+    public static List<MusicBrainzRelease> decodeReleases(final JsonReader reader) throws IOException {
+        final List<MusicBrainzRelease> releases = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("releases".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    final MusicBrainzRelease release = decodeRelease(reader);
+                    if (release != null) {
+                        releases.add(release);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return releases;
+    }
+
+    private static MusicBrainzRelease decodeRelease(final JsonReader reader) throws IOException {
+        String id = null;
+        String title = null;
+        String artist = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+
+            if ("id".equals(name)) {
+                id = JsonReaderUtils.nextStringOrNull(reader);
+            } else if ("title".equals(name)) {
+                title = JsonReaderUtils.nextStringOrNull(reader);
+            } else if ("artist-credit".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                artist = decodeFirstArtistCredit(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (id == null || title == null || artist == null) {
+            return null;
+        }
+
+        return new MusicBrainzRelease(id, title, artist);
+    }
+
+    private static String decodeFirstArtistCredit(final JsonReader reader) throws IOException {
+        String artist = null;
+
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("name".equals(reader.nextName())) {
+                    artist = JsonReaderUtils.nextStringOrNull(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        // ignore the other credits
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+
+        return artist;
+    }
+}
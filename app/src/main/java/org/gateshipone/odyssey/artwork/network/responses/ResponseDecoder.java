@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.responses;
+
+import android.util.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Decodes the needed fields of a json response with a streaming {@link JsonReader},
+ * so that no complete DOM of the response is created.
+ *
+ * @param <T> The type of the decoded response.
+ */
+public interface ResponseDecoder<T> {
+
+    /**
+     * Decodes the response.
+     *
+     * @param reader The reader positioned at the start of the response.
+     * @return The decoded response.
+     * @throws IOException If the response could not be read or is malformed.
+     */
+    T decode(JsonReader reader) throws IOException;
+}
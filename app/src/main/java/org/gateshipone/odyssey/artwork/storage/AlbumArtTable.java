@@ -41,6 +41,10 @@ class AlbumArtTable {
 
     static final String COLUMN_IMAGE_HAS_FULL_PATH = "image_has_full_path";
 
+    static final String COLUMN_NOT_FOUND_ATTEMPTS = "not_found_attempts";
+
+    static final String COLUMN_NOT_FOUND_RETRY_TIME = "not_found_retry_time";
+
     private static final String DATABASE_CREATE = "CREATE TABLE if not exists " +
             TABLE_NAME +
             " (" +
@@ -50,7 +54,9 @@ class AlbumArtTable {
             COLUMN_ALBUM_ID + " text primary key," +
             COLUMN_IMAGE_NOT_FOUND + " integer," +
             COLUMN_IMAGE_FILE_PATH + " text," +
-            COLUMN_IMAGE_HAS_FULL_PATH + " integer" +
+            COLUMN_IMAGE_HAS_FULL_PATH + " integer," +
+            COLUMN_NOT_FOUND_ATTEMPTS + " integer default 0," +
+            COLUMN_NOT_FOUND_RETRY_TIME + " integer default 0" +
             ");";
 
     private static final String DATABASE_DROP = "DROP TABLE if exists " + TABLE_NAME;
@@ -37,6 +37,10 @@ class ArtistArtTable {
 
     static final String COLUMN_IMAGE_NOT_FOUND = "image_not_found";
 
+    static final String COLUMN_NOT_FOUND_ATTEMPTS = "not_found_attempts";
+
+    static final String COLUMN_NOT_FOUND_RETRY_TIME = "not_found_retry_time";
+
     private static final String DATABASE_CREATE = "CREATE TABLE if not exists " +
             TABLE_NAME
             + " (" +
@@ -44,7 +48,9 @@ class ArtistArtTable {
             COLUMN_ARTIST_MBID + " text," +
             COLUMN_ARTIST_ID + " text primary key," +
             COLUMN_IMAGE_NOT_FOUND + " integer," +
-            COLUMN_IMAGE_FILE_PATH + " text" +
+            COLUMN_IMAGE_FILE_PATH + " text," +
+            COLUMN_NOT_FOUND_ATTEMPTS + " integer default 0," +
+            COLUMN_NOT_FOUND_RETRY_TIME + " integer default 0" +
             ");";
 
     private static final String DATABASE_DROP = "DROP TABLE if exists " + TABLE_NAME;
@@ -33,8 +33,16 @@ import org.gateshipone.odyssey.models.ArtistModel;
 import org.gateshipone.odyssey.utils.FileUtils;
 import org.gateshipone.odyssey.utils.MusicLibraryHelper;
 
+import java.io.File;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import androidx.core.util.Pair;
 
 public class ArtworkDatabaseManager extends SQLiteOpenHelper {
 
@@ -46,21 +54,51 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     /**
      * The version of the database
      */
-    private static final int DATABASE_VERSION = 23;
+    private static final int DATABASE_VERSION = 27;
 
     private static ArtworkDatabaseManager mInstance;
 
+    /**
+     * Directories of the images before they were stored by the hash of their content. Only used for the migration.
+     */
     private static final String DIRECTORY_ALBUM_IMAGES = "albumArt";
 
     private static final String DIRECTORY_ARTIST_IMAGES = "artistArt";
 
+    /**
+     * Directory of the images that are named by the hash of their content.
+     */
+    private static final String DIRECTORY_IMAGES = "images";
+
+    /**
+     * Maximum time in ms until a missing image is requested again, regardless of the number of attempts.
+     */
+    private static final long MAXIMUM_NOT_FOUND_TTL = TimeUnit.DAYS.toMillis(180);
+
+    /**
+     * Relative range of the random part of the time until a missing image is requested again.
+     */
+    private static final double NOT_FOUND_TTL_JITTER = 0.25;
+
+    /**
+     * Period in which the missing images of an older database are requested again after the upgrade.
+     */
+    private static final long MIGRATION_RETRY_PERIOD = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * Application context used to migrate the image files on upgrades.
+     */
+    private final Context mApplicationContext;
+
     private ArtworkDatabaseManager(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+
+        mApplicationContext = context;
     }
 
     public static synchronized ArtworkDatabaseManager getInstance(Context context) {
         if (null == mInstance) {
-            mInstance = new ArtworkDatabaseManager(context);
+            mInstance = new ArtworkDatabaseManager(context.getApplicationContext());
         }
         return mInstance;
     }
@@ -75,19 +113,120 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         AlbumArtTable.createTable(db);
         ArtistArtTable.createTable(db);
+        ProviderResponseTable.createTable(db);
+        ArtworkImageTable.createTable(db);
+        CoverFileTable.createTable(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        if (newVersion == 22) {
+        if (oldVersion < 22) {
             AlbumArtTable.dropTable(db);
             ArtistArtTable.dropTable(db);
             onCreate(db);
+            return;
         }
 
-        if (newVersion == 23) {
+        if (oldVersion < 23) {
             db.execSQL("ALTER TABLE " + AlbumArtTable.TABLE_NAME + " ADD COLUMN " + AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH + " integer default 0");
         }
+
+        if (oldVersion < 24) {
+            ProviderResponseTable.createTable(db);
+        }
+
+        if (oldVersion < 25) {
+            ArtworkImageTable.createTable(db);
+
+            migrateImages(db, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_ALBUM_ID, AlbumArtTable.COLUMN_IMAGE_FILE_PATH,
+                    AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH + "=0", DIRECTORY_ALBUM_IMAGES);
+            migrateImages(db, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_ARTIST_ID, ArtistArtTable.COLUMN_IMAGE_FILE_PATH,
+                    null, DIRECTORY_ARTIST_IMAGES);
+
+            FileUtils.removeArtworkDirectory(mApplicationContext, DIRECTORY_ALBUM_IMAGES);
+            FileUtils.removeArtworkDirectory(mApplicationContext, DIRECTORY_ARTIST_IMAGES);
+
+            // thumbnails are keyed by the image path which changed for all images
+            ThumbnailCache.getInstance(mApplicationContext).clearThumbnails();
+        }
+
+        if (oldVersion < 26) {
+            db.execSQL("ALTER TABLE " + AlbumArtTable.TABLE_NAME + " ADD COLUMN " + AlbumArtTable.COLUMN_NOT_FOUND_ATTEMPTS + " integer default 0");
+            db.execSQL("ALTER TABLE " + AlbumArtTable.TABLE_NAME + " ADD COLUMN " + AlbumArtTable.COLUMN_NOT_FOUND_RETRY_TIME + " integer default 0");
+            db.execSQL("ALTER TABLE " + ArtistArtTable.TABLE_NAME + " ADD COLUMN " + ArtistArtTable.COLUMN_NOT_FOUND_ATTEMPTS + " integer default 0");
+            db.execSQL("ALTER TABLE " + ArtistArtTable.TABLE_NAME + " ADD COLUMN " + ArtistArtTable.COLUMN_NOT_FOUND_RETRY_TIME + " integer default 0");
+
+            // spread the requests for the images that were not found before over a period instead of requesting all of them at once
+            final long now = System.currentTimeMillis();
+            db.execSQL("UPDATE " + AlbumArtTable.TABLE_NAME + " SET " + AlbumArtTable.COLUMN_NOT_FOUND_ATTEMPTS + "=1, " +
+                    AlbumArtTable.COLUMN_NOT_FOUND_RETRY_TIME + "=" + now + " + abs(random() % " + MIGRATION_RETRY_PERIOD + ")" +
+                    " WHERE " + AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "=1");
+            db.execSQL("UPDATE " + ArtistArtTable.TABLE_NAME + " SET " + ArtistArtTable.COLUMN_NOT_FOUND_ATTEMPTS + "=1, " +
+                    ArtistArtTable.COLUMN_NOT_FOUND_RETRY_TIME + "=" + now + " + abs(random() % " + MIGRATION_RETRY_PERIOD + ")" +
+                    " WHERE " + ArtistArtTable.COLUMN_IMAGE_NOT_FOUND + "=1");
+        }
+
+        if (oldVersion < 27) {
+            CoverFileTable.createTable(db);
+        }
+    }
+
+    /**
+     * Moves the image files of the given table to the content addressed image directory.
+     * Entries of images that could not be moved are removed, so the images are requested again.
+     *
+     * @param database   The database to migrate.
+     * @param tableName  The table of the entries.
+     * @param idColumn   The primary key column of the table.
+     * @param fileColumn The column of the file name.
+     * @param selection  Optional selection of the entries with files in the given directory.
+     * @param directory  The directory of the old image files.
+     */
+    private void migrateImages(final SQLiteDatabase database, final String tableName, final String idColumn, final String fileColumn,
+                               final String selection, final String directory) {
+        final String where = fileColumn + " IS NOT NULL" + (selection != null ? " AND " + selection : "");
+
+        final Cursor requestCursor = database.query(tableName, new String[]{idColumn, fileColumn}, where, null, null, null, null);
+
+        final List<String> ids = new ArrayList<>();
+        final List<String> oldFilenames = new ArrayList<>();
+
+        while (requestCursor.moveToNext()) {
+            ids.add(requestCursor.getString(0));
+            oldFilenames.add(requestCursor.getString(1));
+        }
+
+        requestCursor.close();
+
+        for (int i = 0; i < ids.size(); i++) {
+            final File oldFile = new File(FileUtils.getFullArtworkFilePath(mApplicationContext, oldFilenames.get(i), directory));
+
+            String artworkFilename = null;
+            try {
+                artworkFilename = FileUtils.createSHA256HashForFile(oldFile) + ".jpg";
+            } catch (IOException | NoSuchAlgorithmException e) {
+                // the image file is missing
+            }
+
+            if (artworkFilename != null && getReferenceCount(database, artworkFilename) == 0) {
+                final File imageFile = new File(FileUtils.getFullArtworkFilePath(mApplicationContext, artworkFilename, DIRECTORY_IMAGES));
+                imageFile.getParentFile().mkdirs();
+
+                if (!oldFile.renameTo(imageFile)) {
+                    artworkFilename = null;
+                }
+            }
+
+            if (artworkFilename != null) {
+                setReferenceCount(database, artworkFilename, getReferenceCount(database, artworkFilename) + 1);
+
+                final ContentValues values = new ContentValues();
+                values.put(fileColumn, artworkFilename);
+                database.update(tableName, values, idColumn + "=?", new String[]{ids.get(i)});
+            } else {
+                database.delete(tableName, idColumn + "=?", new String[]{ids.get(i)});
+            }
+        }
     }
 
     /**
@@ -95,7 +234,8 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      *
      * @param album The album to search for.
      * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
-     * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
+     * @throws ImageNotFoundException If the image is not in the database and it was not searched for before
+     *                                or the last search is so long ago that the image should be searched for again.
      */
     public synchronized String getAlbumImage(final Context context, final AlbumModel album) throws ImageNotFoundException {
         final SQLiteDatabase database = getReadableDatabase();
@@ -118,15 +258,22 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
             selectionArguments = new String[]{albumName};
         }
 
-        final Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND, AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH},
+        final Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND, AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH,
+                        AlbumArtTable.COLUMN_NOT_FOUND_RETRY_TIME},
                 selection, selectionArguments, null, null, null);
 
         // Check if an image was found
         if (requestCursor.moveToFirst()) {
             // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
             if (requestCursor.getInt(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
+                final long retryTime = requestCursor.getLong(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_NOT_FOUND_RETRY_TIME));
+
                 requestCursor.close();
                 database.close();
+
+                if (retryTime <= System.currentTimeMillis()) {
+                    throw new ImageNotFoundException();
+                }
                 return null;
             }
             final String artworkFilename = requestCursor.getString(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_FILE_PATH));
@@ -139,7 +286,7 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
             if (hasFullImagePath) {
                 return artworkFilename;
             } else {
-                return FileUtils.getFullArtworkFilePath(context, artworkFilename, DIRECTORY_ALBUM_IMAGES);
+                return FileUtils.getFullArtworkFilePath(context, artworkFilename, DIRECTORY_IMAGES);
             }
         }
 
@@ -154,7 +301,8 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      *
      * @param artist The artist to search for.
      * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
-     * @throws ImageNotFoundException If the image is not found and it was not searched for before.
+     * @throws ImageNotFoundException If the image is not found and it was not searched for before
+     *                                or the last search is so long ago that the image should be searched for again.
      */
     public synchronized String getArtistImage(final Context context, ArtistModel artist) throws ImageNotFoundException {
         final SQLiteDatabase database = getReadableDatabase();
@@ -173,15 +321,21 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
             selectionArguments = new String[]{artistName};
         }
 
-        final Cursor requestCursor = database.query(ArtistArtTable.TABLE_NAME, new String[]{ArtistArtTable.COLUMN_IMAGE_FILE_PATH, ArtistArtTable.COLUMN_IMAGE_NOT_FOUND},
+        final Cursor requestCursor = database.query(ArtistArtTable.TABLE_NAME, new String[]{ArtistArtTable.COLUMN_IMAGE_FILE_PATH, ArtistArtTable.COLUMN_IMAGE_NOT_FOUND, ArtistArtTable.COLUMN_NOT_FOUND_RETRY_TIME},
                 selection, selectionArguments, null, null, null);
 
         // Check if an image was found
         if (requestCursor.moveToFirst()) {
             // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
             if (requestCursor.getInt(requestCursor.getColumnIndex(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
+                final long retryTime = requestCursor.getLong(requestCursor.getColumnIndex(ArtistArtTable.COLUMN_NOT_FOUND_RETRY_TIME));
+
                 requestCursor.close();
                 database.close();
+
+                if (retryTime <= System.currentTimeMillis()) {
+                    throw new ImageNotFoundException();
+                }
                 return null;
             }
 
@@ -191,7 +345,7 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
             requestCursor.close();
             database.close();
 
-            return FileUtils.getFullArtworkFilePath(context, artworkFilename, DIRECTORY_ARTIST_IMAGES);
+            return FileUtils.getFullArtworkFilePath(context, artworkFilename, DIRECTORY_IMAGES);
         }
 
         // If we reach this, no entry was found for the given request. Throw an exception
@@ -203,11 +357,13 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     /**
      * Saves the given artist byte[] image.
      *
-     * @param artist Artist for the associated image byte[].
-     * @param image  byte[] containing the raw image that was downloaded. This can be null in which case
-     *               the database entry will have the not_found flag set.
+     * @param artist      Artist for the associated image byte[].
+     * @param image       byte[] containing the raw image that was downloaded. This can be null in which case
+     *                    the database entry will have the not_found flag set.
+     * @param notFoundTTL Base time in ms until the image is searched for again if the not_found flag is set.
+     *                    The time is doubled for every search that didn't find an image.
      */
-    public synchronized void insertArtistImage(final Context context, final ArtistModel artist, final byte[] image) {
+    public synchronized void insertArtistImage(final Context context, final ArtistModel artist, final byte[] image, final long notFoundTTL) {
         final SQLiteDatabase database = getWritableDatabase();
 
         long artistID = artist.getArtistID();
@@ -220,35 +376,49 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
         final String artistMBID = artist.getMBID();
         final String artistName = artist.getArtistName();
 
-        String artworkFilename = null;
-        if (image != null) {
-            try {
-                artworkFilename = FileUtils.createSHA256HashForString(artistIDString, artistMBID, artistName) + ".jpg";
-            } catch (NoSuchAlgorithmException e) {
-                e.printStackTrace();
-                return;
-            }
+        database.beginTransaction();
+        try {
+            // the image of a replaced entry is released after the new image is stored, so that an unchanged image is kept
+            final String previousFilename = getImageFilename(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_ARTIST_ID,
+                    ArtistArtTable.COLUMN_IMAGE_FILE_PATH, null, artistIDString);
 
-            try {
-                FileUtils.saveArtworkFile(context, artworkFilename, DIRECTORY_ARTIST_IMAGES, image);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
+            String artworkFilename = null;
+            if (image != null) {
+                artworkFilename = storeImage(context, database, image);
+
+                if (artworkFilename == null) {
+                    return;
+                }
             }
-        }
 
-        final ContentValues values = new ContentValues();
-        values.put(ArtistArtTable.COLUMN_ARTIST_ID, artistIDString);
-        values.put(ArtistArtTable.COLUMN_ARTIST_MBID, artistMBID);
-        values.put(ArtistArtTable.COLUMN_ARTIST_NAME, artistName);
-        values.put(ArtistArtTable.COLUMN_IMAGE_FILE_PATH, artworkFilename);
+            final ContentValues values = new ContentValues();
+            values.put(ArtistArtTable.COLUMN_ARTIST_ID, artistIDString);
+            values.put(ArtistArtTable.COLUMN_ARTIST_MBID, artistMBID);
+            values.put(ArtistArtTable.COLUMN_ARTIST_NAME, artistName);
+            values.put(ArtistArtTable.COLUMN_IMAGE_FILE_PATH, artworkFilename);
 
-        // If null was given as byte[] set the not_found flag for this entry.
-        values.put(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND, image == null ? 1 : 0);
+            // If null was given as byte[] set the not_found flag for this entry.
+            values.put(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND, image == null ? 1 : 0);
 
-        database.replace(ArtistArtTable.TABLE_NAME, "", values);
+            if (image == null) {
+                final int attempts = getNotFoundAttempts(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_ARTIST_ID,
+                        ArtistArtTable.COLUMN_NOT_FOUND_ATTEMPTS, artistIDString) + 1;
 
-        database.close();
+                values.put(ArtistArtTable.COLUMN_NOT_FOUND_ATTEMPTS, attempts);
+                values.put(ArtistArtTable.COLUMN_NOT_FOUND_RETRY_TIME, getRetryTime(notFoundTTL, attempts));
+            }
+
+            database.replace(ArtistArtTable.TABLE_NAME, "", values);
+
+            if (previousFilename != null) {
+                releaseImage(context, database, previousFilename, 1);
+            }
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            database.close();
+        }
     }
 
     /**
@@ -259,8 +429,11 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      *                             the database entry will have the not_found flag set if artworkFullImagePath is null as well.
      * @param artworkFullImagePath Optional path to an album image if local image support is active otherwise null. If this parameter is null
      *                             the not_found flag is set if image is null as well.
+     * @param notFoundTTL          Base time in ms until the image is searched for again if the not_found flag is set.
+     *                             The time is doubled for every search that didn't find an image.
      */
-    public synchronized void insertAlbumImage(final Context context, final AlbumModel album, final byte[] image, final String artworkFullImagePath) {
+    public synchronized void insertAlbumImage(final Context context, final AlbumModel album, final byte[] image, final String artworkFullImagePath,
+                                              final long notFoundTTL) {
         final SQLiteDatabase database = getWritableDatabase();
 
         final String albumID = String.valueOf(album.getAlbumID());
@@ -268,35 +441,160 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
         final String albumName = album.getAlbumName();
         final String albumArtistName = album.getArtistName();
 
-        String artworkFilename = null;
-        if (image != null) {
-            try {
-                artworkFilename = FileUtils.createSHA256HashForString(albumID, albumMBID, albumName, albumArtistName) + ".jpg";
-            } catch (NoSuchAlgorithmException e) {
-                e.printStackTrace();
-                return;
+        database.beginTransaction();
+        try {
+            // the image of a replaced entry is released after the new image is stored, so that an unchanged image is kept
+            final String previousFilename = getImageFilename(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_ALBUM_ID,
+                    AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH, albumID);
+
+            String artworkFilename = null;
+            if (image != null) {
+                artworkFilename = storeImage(context, database, image);
+
+                if (artworkFilename == null) {
+                    return;
+                }
             }
 
-            try {
-                FileUtils.saveArtworkFile(context, artworkFilename, DIRECTORY_ALBUM_IMAGES, image);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
+            final ContentValues values = new ContentValues();
+            values.put(AlbumArtTable.COLUMN_ALBUM_ID, albumID);
+            values.put(AlbumArtTable.COLUMN_ALBUM_MBID, albumMBID);
+            values.put(AlbumArtTable.COLUMN_ALBUM_NAME, albumName);
+            values.put(AlbumArtTable.COLUMN_ARTIST_NAME, albumArtistName);
+            values.put(AlbumArtTable.COLUMN_IMAGE_FILE_PATH, artworkFilename == null ? artworkFullImagePath : artworkFilename);
+            values.put(AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH, artworkFullImagePath == null ? 0 : 1);
+
+            // If null was given as byte[] set the not_found flag for this entry.
+            values.put(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND, (image == null && artworkFullImagePath == null) ? 1 : 0);
+
+            if (image == null && artworkFullImagePath == null) {
+                final int attempts = getNotFoundAttempts(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_ALBUM_ID,
+                        AlbumArtTable.COLUMN_NOT_FOUND_ATTEMPTS, albumID) + 1;
+
+                values.put(AlbumArtTable.COLUMN_NOT_FOUND_ATTEMPTS, attempts);
+                values.put(AlbumArtTable.COLUMN_NOT_FOUND_RETRY_TIME, getRetryTime(notFoundTTL, attempts));
+            }
+
+            database.replace(AlbumArtTable.TABLE_NAME, "", values);
+
+            if (previousFilename != null) {
+                releaseImage(context, database, previousFilename, 1);
             }
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            database.close();
         }
+    }
+
+    /**
+     * Tries to fetch a cached provider response.
+     *
+     * @param key The key of the response.
+     * @return The cached response or null if no response was found or the response is expired.
+     */
+    public synchronized String getProviderResponse(final String key) {
+        final SQLiteDatabase database = getReadableDatabase();
+
+        final String selection = ProviderResponseTable.COLUMN_RESPONSE_KEY + "=? AND " + ProviderResponseTable.COLUMN_EXPIRES + ">?";
+        final String[] selectionArguments = {key, String.valueOf(System.currentTimeMillis())};
+
+        final Cursor requestCursor = database.query(ProviderResponseTable.TABLE_NAME, new String[]{ProviderResponseTable.COLUMN_RESPONSE},
+                selection, selectionArguments, null, null, null);
+
+        String response = null;
+        if (requestCursor.moveToFirst()) {
+            response = requestCursor.getString(requestCursor.getColumnIndex(ProviderResponseTable.COLUMN_RESPONSE));
+        }
+
+        requestCursor.close();
+        database.close();
+
+        return response;
+    }
+
+    /**
+     * Saves a provider response. Expired responses are removed as well.
+     *
+     * @param key      The key of the response.
+     * @param response The response to save.
+     * @param expires  The time in ms since epoch after which the response is not valid anymore.
+     */
+    public synchronized void insertProviderResponse(final String key, final String response, final long expires) {
+        final SQLiteDatabase database = getWritableDatabase();
+
+        database.delete(ProviderResponseTable.TABLE_NAME, ProviderResponseTable.COLUMN_EXPIRES + "<=?",
+                new String[]{String.valueOf(System.currentTimeMillis())});
 
         final ContentValues values = new ContentValues();
-        values.put(AlbumArtTable.COLUMN_ALBUM_ID, albumID);
-        values.put(AlbumArtTable.COLUMN_ALBUM_MBID, albumMBID);
-        values.put(AlbumArtTable.COLUMN_ALBUM_NAME, albumName);
-        values.put(AlbumArtTable.COLUMN_ARTIST_NAME, albumArtistName);
-        values.put(AlbumArtTable.COLUMN_IMAGE_FILE_PATH, artworkFilename == null ? artworkFullImagePath : artworkFilename);
-        values.put(AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH, artworkFullImagePath == null ? 0 : 1);
+        values.put(ProviderResponseTable.COLUMN_RESPONSE_KEY, key);
+        values.put(ProviderResponseTable.COLUMN_RESPONSE, response);
+        values.put(ProviderResponseTable.COLUMN_EXPIRES, expires);
 
-        // If null was given as byte[] set the not_found flag for this entry.
-        values.put(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND, (image == null && artworkFullImagePath == null) ? 1 : 0);
+        database.replace(ProviderResponseTable.TABLE_NAME, "", values);
 
-        database.replace(AlbumArtTable.TABLE_NAME, "", values);
+        database.close();
+    }
+
+    /**
+     * Returns the indexed cover file of a local directory.
+     *
+     * @param directoryPath The path of the directory.
+     * @return The modification time of the directory when it was indexed and the path of its cover file (null if it has none),
+     * or null if the directory is not indexed.
+     */
+    public synchronized Pair<Long, String> getCoverFile(final String directoryPath) {
+        final SQLiteDatabase database = getReadableDatabase();
+
+        final Cursor requestCursor = database.query(CoverFileTable.TABLE_NAME,
+                new String[]{CoverFileTable.COLUMN_DIRECTORY_MODIFIED, CoverFileTable.COLUMN_COVER_PATH},
+                CoverFileTable.COLUMN_DIRECTORY_PATH + "=?", new String[]{directoryPath}, null, null, null);
+
+        Pair<Long, String> coverFile = null;
+        if (requestCursor.moveToFirst()) {
+            coverFile = new Pair<>(requestCursor.getLong(requestCursor.getColumnIndex(CoverFileTable.COLUMN_DIRECTORY_MODIFIED)),
+                    requestCursor.getString(requestCursor.getColumnIndex(CoverFileTable.COLUMN_COVER_PATH)));
+        }
+
+        requestCursor.close();
+        database.close();
+
+        return coverFile;
+    }
+
+    /**
+     * Saves the cover file of a local directory, so that all processes can resolve it without listing the directory.
+     *
+     * @param directoryPath The path of the directory.
+     * @param lastModified  The modification time of the directory when it was listed.
+     * @param coverPath     The path of the cover file or null if the directory has none.
+     */
+    public synchronized void insertCoverFile(final String directoryPath, final long lastModified, final String coverPath) {
+        final SQLiteDatabase database = getWritableDatabase();
+
+        final ContentValues values = new ContentValues();
+        values.put(CoverFileTable.COLUMN_DIRECTORY_PATH, directoryPath);
+        values.put(CoverFileTable.COLUMN_DIRECTORY_MODIFIED, lastModified);
+        values.put(CoverFileTable.COLUMN_COVER_PATH, coverPath);
+
+        database.replace(CoverFileTable.TABLE_NAME, "", values);
+
+        database.close();
+    }
+
+    /**
+     * Removes all provider responses with keys starting with the given prefix.
+     *
+     * @param keyPrefix The prefix of the keys to remove.
+     */
+    public synchronized void removeProviderResponses(final String keyPrefix) {
+        final SQLiteDatabase database = getWritableDatabase();
+
+        final String where = "substr(" + ProviderResponseTable.COLUMN_RESPONSE_KEY + ", 1, " + keyPrefix.length() + ")=?";
+        final String[] whereArgs = {keyPrefix};
+
+        database.delete(ProviderResponseTable.TABLE_NAME, where, whereArgs);
 
         database.close();
     }
@@ -307,11 +605,17 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     public synchronized void clearArtistImages(final Context context) {
         final SQLiteDatabase database = getWritableDatabase();
 
-        database.delete(ArtistArtTable.TABLE_NAME, null, null);
+        database.beginTransaction();
+        try {
+            releaseImages(context, database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, null, null, null);
 
-        database.close();
+            database.delete(ArtistArtTable.TABLE_NAME, null, null);
 
-        FileUtils.removeArtworkDirectory(context, DIRECTORY_ARTIST_IMAGES);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            database.close();
+        }
     }
 
     /**
@@ -320,11 +624,20 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     public synchronized void clearAlbumImages(final Context context) {
         final SQLiteDatabase database = getWritableDatabase();
 
-        database.delete(AlbumArtTable.TABLE_NAME, null, null);
+        database.beginTransaction();
+        try {
+            releaseImages(context, database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH, null, null);
 
-        database.close();
+            database.delete(AlbumArtTable.TABLE_NAME, null, null);
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            database.close();
+        }
 
-        FileUtils.removeArtworkDirectory(context, DIRECTORY_ALBUM_IMAGES);
+        // thumbnails of local images are not separated by album so all of them are removed
+        ThumbnailCache.getInstance(context).clearThumbnails();
     }
 
     /**
@@ -367,21 +680,17 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
         final String where = ArtistArtTable.COLUMN_ARTIST_ID + "=? OR " + ArtistArtTable.COLUMN_ARTIST_NAME + "=?";
         final String[] whereArgs = {String.valueOf(artist.getArtistID()), artist.getArtistName()};
 
-        final Cursor requestCursor = database.query(ArtistArtTable.TABLE_NAME, new String[]{ArtistArtTable.COLUMN_IMAGE_FILE_PATH},
-                where, whereArgs, null, null, null);
-
-        if (requestCursor.moveToFirst()) {
+        database.beginTransaction();
+        try {
+            releaseImages(context, database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_FILE_PATH, null, where, whereArgs);
 
-            final String artworkFilename = requestCursor.getString(requestCursor.getColumnIndex(ArtistArtTable.COLUMN_IMAGE_FILE_PATH));
+            database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
 
-            FileUtils.removeArtworkFile(context, artworkFilename, DIRECTORY_ARTIST_IMAGES);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            database.close();
         }
-
-        requestCursor.close();
-
-        database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
-
-        database.close();
     }
 
     /**
@@ -411,24 +720,193 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
             whereArgs = new String[]{albumName};
         }
 
-        final Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH},
-                where, whereArgs, null, null, null);
+        database.beginTransaction();
+        try {
+            final Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_IMAGE_FILE_PATH},
+                    AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH + "=1 AND (" + where + ")", whereArgs, null, null, null);
+
+            while (requestCursor.moveToNext()) {
+                // the local image is kept but its thumbnails belong to the removed entry
+                ThumbnailCache.getInstance(context).removeThumbnails(requestCursor.getString(0));
+            }
+
+            requestCursor.close();
+
+            releaseImages(context, database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_FILE_PATH, AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH, where, whereArgs);
 
+            database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            database.close();
+        }
+    }
+
+    /**
+     * @return The number of searches that didn't find an image for the entry with the given id.
+     */
+    private int getNotFoundAttempts(final SQLiteDatabase database, final String tableName, final String idColumn, final String attemptsColumn,
+                                    final String id) {
+        final Cursor requestCursor = database.query(tableName, new String[]{attemptsColumn}, idColumn + "=?", new String[]{id}, null, null, null);
+
+        int attempts = 0;
         if (requestCursor.moveToFirst()) {
+            attempts = requestCursor.getInt(0);
+        }
 
-            final String artworkFilename = requestCursor.getString(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_FILE_PATH));
+        requestCursor.close();
 
-            final boolean hasFullImagePath = requestCursor.getInt(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_HAS_FULL_PATH)) == 1;
+        return attempts;
+    }
+
+    /**
+     * Calculates the time after which a missing image is searched for again. The base time is doubled with every
+     * failed search and randomized, so that images which were searched for together are not searched for together again.
+     *
+     * @param notFoundTTL The base time in ms until the next search.
+     * @param attempts    The number of searches that didn't find an image, including the current one.
+     * @return The time in ms since epoch after which the image should be searched for again.
+     */
+    private static long getRetryTime(final long notFoundTTL, final int attempts) {
+        long ttl = notFoundTTL;
+        for (int i = 1; i < attempts && ttl < MAXIMUM_NOT_FOUND_TTL; i++) {
+            ttl *= 2;
+        }
+        ttl = Math.min(ttl, MAXIMUM_NOT_FOUND_TTL);
+
+        final double jitter = 1.0 + NOT_FOUND_TTL_JITTER * (2.0 * Math.random() - 1.0);
 
-            if (!hasFullImagePath) {
-                FileUtils.removeArtworkFile(context, artworkFilename, DIRECTORY_ALBUM_IMAGES);
+        return System.currentTimeMillis() + (long) (ttl * jitter);
+    }
+
+    /*
+     * Begin of the content addressed image handling
+     */
+
+    /**
+     * Stores the image in a file named by the hash of its content and adds a reference to it.
+     * An image that is already stored is not written again.
+     *
+     * @return The name of the image file or null if the image couldn't be stored.
+     */
+    private String storeImage(final Context context, final SQLiteDatabase database, final byte[] image) {
+        final String artworkFilename;
+        try {
+            artworkFilename = FileUtils.createSHA256HashForBytes(image) + ".jpg";
+        } catch (NoSuchAlgorithmException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        final int referenceCount = getReferenceCount(database, artworkFilename);
+
+        if (referenceCount == 0 || !new File(FileUtils.getFullArtworkFilePath(context, artworkFilename, DIRECTORY_IMAGES)).exists()) {
+            try {
+                FileUtils.saveArtworkFile(context, artworkFilename, DIRECTORY_IMAGES, image);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
             }
         }
 
+        setReferenceCount(database, artworkFilename, referenceCount + 1);
+
+        return artworkFilename;
+    }
+
+    /**
+     * Removes the given number of references to an image file. The file and its thumbnails are removed
+     * if it is not referenced anymore.
+     */
+    private void releaseImage(final Context context, final SQLiteDatabase database, final String artworkFilename, final int references) {
+        final int referenceCount = getReferenceCount(database, artworkFilename) - references;
+
+        setReferenceCount(database, artworkFilename, referenceCount);
+
+        if (referenceCount <= 0) {
+            FileUtils.removeArtworkFile(context, artworkFilename, DIRECTORY_IMAGES);
+
+            ThumbnailCache.getInstance(context).removeThumbnails(FileUtils.getFullArtworkFilePath(context, artworkFilename, DIRECTORY_IMAGES));
+        }
+    }
+
+    /**
+     * Releases the image files referenced by the selected entries of the given table.
+     *
+     * @param fullPathColumn Optional column that marks entries with a path to a local image instead of an image file.
+     * @param selection      Optional selection of the entries. All entries are selected if null.
+     */
+    private void releaseImages(final Context context, final SQLiteDatabase database, final String tableName, final String fileColumn,
+                               final String fullPathColumn, final String selection, final String[] selectionArgs) {
+        String where = fileColumn + " IS NOT NULL";
+        if (fullPathColumn != null) {
+            where += " AND " + fullPathColumn + "=0";
+        }
+        if (selection != null) {
+            where += " AND (" + selection + ")";
+        }
+
+        final Cursor requestCursor = database.query(tableName, new String[]{fileColumn, "count(*)"},
+                where, selectionArgs, fileColumn, null, null);
+
+        final Map<String, Integer> references = new HashMap<>();
+        while (requestCursor.moveToNext()) {
+            references.put(requestCursor.getString(0), requestCursor.getInt(1));
+        }
+
         requestCursor.close();
 
-        database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
+        for (Map.Entry<String, Integer> entry : references.entrySet()) {
+            releaseImage(context, database, entry.getKey(), entry.getValue());
+        }
+    }
 
-        database.close();
+    /**
+     * @return The name of the image file referenced by the entry with the given id or null if the entry has no image file.
+     */
+    private String getImageFilename(final SQLiteDatabase database, final String tableName, final String idColumn, final String fileColumn,
+                                    final String fullPathColumn, final String id) {
+        String where = idColumn + "=? AND " + fileColumn + " IS NOT NULL";
+        if (fullPathColumn != null) {
+            where += " AND " + fullPathColumn + "=0";
+        }
+
+        final Cursor requestCursor = database.query(tableName, new String[]{fileColumn}, where, new String[]{id}, null, null, null);
+
+        String artworkFilename = null;
+        if (requestCursor.moveToFirst()) {
+            artworkFilename = requestCursor.getString(0);
+        }
+
+        requestCursor.close();
+
+        return artworkFilename;
+    }
+
+    private int getReferenceCount(final SQLiteDatabase database, final String artworkFilename) {
+        final Cursor requestCursor = database.query(ArtworkImageTable.TABLE_NAME, new String[]{ArtworkImageTable.COLUMN_REFERENCE_COUNT},
+                ArtworkImageTable.COLUMN_IMAGE_FILE_NAME + "=?", new String[]{artworkFilename}, null, null, null);
+
+        int referenceCount = 0;
+        if (requestCursor.moveToFirst()) {
+            referenceCount = requestCursor.getInt(0);
+        }
+
+        requestCursor.close();
+
+        return referenceCount;
+    }
+
+    private void setReferenceCount(final SQLiteDatabase database, final String artworkFilename, final int referenceCount) {
+        if (referenceCount <= 0) {
+            database.delete(ArtworkImageTable.TABLE_NAME, ArtworkImageTable.COLUMN_IMAGE_FILE_NAME + "=?", new String[]{artworkFilename});
+        } else {
+            final ContentValues values = new ContentValues();
+            values.put(ArtworkImageTable.COLUMN_IMAGE_FILE_NAME, artworkFilename);
+            values.put(ArtworkImageTable.COLUMN_REFERENCE_COUNT, referenceCount);
+
+            database.replace(ArtworkImageTable.TABLE_NAME, "", values);
+        }
     }
 }
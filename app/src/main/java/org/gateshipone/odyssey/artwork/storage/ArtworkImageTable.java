@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.storage;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Table of the stored image files. The files are named by the hash of their content,
+ * so every distinct image is only stored once and referenced by all album and artist entries using it.
+ */
+class ArtworkImageTable {
+    static final String TABLE_NAME = "odyssey_artwork_images";
+
+    static final String COLUMN_IMAGE_FILE_NAME = "image_file_name";
+
+    static final String COLUMN_REFERENCE_COUNT = "reference_count";
+
+    private static final String DATABASE_CREATE = "CREATE TABLE if not exists " +
+            TABLE_NAME +
+            " (" +
+            COLUMN_IMAGE_FILE_NAME + " text primary key," +
+            COLUMN_REFERENCE_COUNT + " integer" +
+            ");";
+
+    private static final String DATABASE_DROP = "DROP TABLE if exists " + TABLE_NAME;
+
+    static void createTable(final SQLiteDatabase database) {
+        // Create table if not already existing
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    static void dropTable(final SQLiteDatabase database) {
+        // drop table if already existing
+        database.execSQL(DATABASE_DROP);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.storage;
+
+import android.database.sqlite.SQLiteDatabase;
+
+class ProviderResponseTable {
+    static final String TABLE_NAME = "odyssey_provider_responses";
+
+    static final String COLUMN_RESPONSE_KEY = "response_key";
+
+    static final String COLUMN_RESPONSE = "response";
+
+    static final String COLUMN_EXPIRES = "expires";
+
+    private static final String DATABASE_CREATE = "CREATE TABLE if not exists " +
+            TABLE_NAME +
+            " (" +
+            COLUMN_RESPONSE_KEY + " text primary key," +
+            COLUMN_RESPONSE + " text," +
+            COLUMN_EXPIRES + " integer" +
+            ");";
+
+    private static final String DATABASE_DROP = "DROP TABLE if exists " + TABLE_NAME;
+
+    static void createTable(final SQLiteDatabase database) {
+        // Create table if not already existing
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    static void dropTable(final SQLiteDatabase database) {
+        // drop table if already existing
+        database.execSQL(DATABASE_DROP);
+    }
+}
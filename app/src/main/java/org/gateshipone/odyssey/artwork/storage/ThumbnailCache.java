@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.storage;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.utils.BitmapPool;
+import org.gateshipone.odyssey.utils.BitmapUtils;
+import org.gateshipone.odyssey.utils.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk cache for pre-scaled versions of artwork images.
+ * <p>
+ * A thumbnail is created once for each image and size bucket, so list and grid items only have to decode
+ * an image that already has the size of the view. The thumbnails are shared between all processes of the app.
+ * A thumbnail is recreated if the original image was modified after the thumbnail was written.
+ * <p>
+ * The size of the cache directory is limited. The modification time of a thumbnail is refreshed when it is used,
+ * so the least recently used thumbnails are removed first if the limit is exceeded.
+ */
+public class ThumbnailCache {
+    private static final String TAG = ThumbnailCache.class.getSimpleName();
+
+    private static final String DIRECTORY_THUMBNAILS = "artworkThumbnails";
+
+    /**
+     * Requested sizes are rounded up to a multiple of this step to limit the number of thumbnails per image.
+     */
+    private static final int SIZE_BUCKET_STEP = 64;
+
+    /**
+     * Requests for larger images are decoded from the original image.
+     */
+    private static final int MAXIMUM_THUMBNAIL_SIZE = 512;
+
+    private static final int THUMBNAIL_QUALITY = 90;
+
+    /**
+     * Maximum size of all thumbnails in bytes.
+     */
+    private static final long MAXIMUM_CACHE_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * If the limit is exceeded the thumbnails are removed until this size is reached, so the directory is not trimmed after every insert.
+     */
+    private static final long TRIMMED_CACHE_SIZE = MAXIMUM_CACHE_SIZE * 3 / 4;
+
+    /**
+     * The modification time of a used thumbnail is only refreshed if it is older than this, to avoid a write for every read.
+     */
+    private static final long ACCESS_UPDATE_INTERVAL = TimeUnit.DAYS.toMillis(1);
+
+    private static ThumbnailCache mInstance;
+
+    private final File mThumbnailDirectory;
+
+    /**
+     * Estimated size of all thumbnails in bytes or -1 if the directory was not measured yet.
+     * Other processes could add thumbnails as well, so the directory is measured again before it is trimmed.
+     */
+    private long mCacheSize = -1;
+
+    private ThumbnailCache(final Context context) {
+        mThumbnailDirectory = new File(context.getCacheDir(), DIRECTORY_THUMBNAILS);
+    }
+
+    public static synchronized ThumbnailCache getInstance(final Context context) {
+        if (null == mInstance) {
+            mInstance = new ThumbnailCache(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    /**
+     * Decodes the given image for the requested size. A thumbnail is used if the requested size is small enough.
+     *
+     * @param imagePath       The full path of the original image.
+     * @param width           The requested width or 0 if the original size is requested.
+     * @param height          The requested height or 0 if the original size is requested.
+     * @param thumbnailConfig The config used for thumbnails, e.g. {@link Bitmap.Config#RGB_565} to halve their memory usage.
+     *                        Images that are too large for a thumbnail are always decoded with {@link Bitmap.Config#ARGB_8888}.
+     * @return The decoded {@link Bitmap} or null if the image could not be decoded.
+     */
+    public Bitmap getBitmap(final String imagePath, final int width, final int height, final Bitmap.Config thumbnailConfig) {
+        final int sizeBucket = getSizeBucket(width, height);
+
+        if (sizeBucket <= 0 || sizeBucket > MAXIMUM_THUMBNAIL_SIZE) {
+            return BitmapUtils.decodeSampledBitmapFromFile(imagePath, width, height);
+        }
+
+        final String imageKey = getImageKey(imagePath);
+        if (imageKey == null) {
+            return BitmapUtils.decodeSampledBitmapFromFile(imagePath, width, height);
+        }
+
+        final File thumbnailFile = getThumbnailFile(imageKey, sizeBucket);
+
+        final long imageModified = new File(imagePath).lastModified();
+        if (imageModified == 0) {
+            // the original image is missing
+            return null;
+        }
+
+        final long thumbnailModified = thumbnailFile.lastModified();
+        if (thumbnailModified >= imageModified) {
+            final Bitmap thumbnail = BitmapUtils.decodeSampledBitmapFromFile(thumbnailFile.getPath(), 0, 0, thumbnailConfig);
+
+            if (thumbnail != null) {
+                // mark the thumbnail as recently used, the time stays newer than the original image
+                final long now = System.currentTimeMillis();
+                if (now - thumbnailModified > ACCESS_UPDATE_INTERVAL) {
+                    thumbnailFile.setLastModified(now);
+                }
+
+                return thumbnail;
+            }
+        }
+
+        return createThumbnail(imagePath, thumbnailFile, sizeBucket, thumbnailConfig);
+    }
+
+    /**
+     * Removes all thumbnails of the given image.
+     *
+     * @param imagePath The full path of the original image.
+     */
+    public void removeThumbnails(final String imagePath) {
+        if (imagePath == null) {
+            return;
+        }
+
+        final String imageKey = getImageKey(imagePath);
+        if (imageKey == null) {
+            return;
+        }
+
+        for (int sizeBucket = SIZE_BUCKET_STEP; sizeBucket <= MAXIMUM_THUMBNAIL_SIZE; sizeBucket += SIZE_BUCKET_STEP) {
+            getThumbnailFile(imageKey, sizeBucket).delete();
+        }
+    }
+
+    /**
+     * Removes all thumbnails.
+     */
+    public void clearThumbnails() {
+        final File[] thumbnailFiles = mThumbnailDirectory.listFiles();
+
+        if (thumbnailFiles != null) {
+            for (File thumbnailFile : thumbnailFiles) {
+                thumbnailFile.delete();
+            }
+        }
+
+        synchronized (this) {
+            mCacheSize = 0;
+        }
+    }
+
+    /**
+     * Adds the size of a new thumbnail and removes the least recently used thumbnails if the cache is too large.
+     */
+    private synchronized void onThumbnailAdded(final long size) {
+        if (mCacheSize < 0) {
+            mCacheSize = measureCacheSize();
+        } else {
+            mCacheSize += size;
+        }
+
+        if (mCacheSize <= MAXIMUM_CACHE_SIZE) {
+            return;
+        }
+
+        final File[] thumbnailFiles = mThumbnailDirectory.listFiles();
+        if (thumbnailFiles == null) {
+            mCacheSize = 0;
+            return;
+        }
+
+        // read the attributes once, they must not change while sorting
+        final List<CachedThumbnail> thumbnails = new ArrayList<>(thumbnailFiles.length);
+        long cacheSize = 0;
+        for (File thumbnailFile : thumbnailFiles) {
+            final CachedThumbnail thumbnail = new CachedThumbnail(thumbnailFile);
+            thumbnails.add(thumbnail);
+            cacheSize += thumbnail.mSize;
+        }
+
+        Collections.sort(thumbnails, (a, b) -> Long.compare(a.mLastModified, b.mLastModified));
+
+        for (CachedThumbnail thumbnail : thumbnails) {
+            if (cacheSize <= TRIMMED_CACHE_SIZE) {
+                break;
+            }
+
+            if (thumbnail.mFile.delete()) {
+                cacheSize -= thumbnail.mSize;
+            }
+        }
+
+        if (BuildConfig.DEBUG) {
+            Log.v(TAG, "Trimmed thumbnails from " + mCacheSize + " to " + cacheSize + " bytes");
+        }
+
+        mCacheSize = cacheSize;
+    }
+
+    private long measureCacheSize() {
+        long cacheSize = 0;
+
+        final File[] thumbnailFiles = mThumbnailDirectory.listFiles();
+        if (thumbnailFiles != null) {
+            for (File thumbnailFile : thumbnailFiles) {
+                cacheSize += thumbnailFile.length();
+            }
+        }
+
+        return cacheSize;
+    }
+
+    /**
+     * Decodes the original image, scales it to the size bucket and saves the result as a thumbnail.
+     */
+    private Bitmap createThumbnail(final String imagePath, final File thumbnailFile, final int sizeBucket, final Bitmap.Config thumbnailConfig) {
+        final Bitmap sampledBitmap = BitmapUtils.decodeSampledBitmapFromFile(imagePath, sizeBucket, sizeBucket);
+
+        if (sampledBitmap == null) {
+            return null;
+        }
+
+        final int sampledWidth = sampledBitmap.getWidth();
+        final int sampledHeight = sampledBitmap.getHeight();
+
+        // the shorter side should fill the requested size like the sampled decoding does
+        final float scale = (float) sizeBucket / Math.min(sampledWidth, sampledHeight);
+
+        if (scale >= 1.0f) {
+            // the original image is already small enough
+            return convertBitmap(sampledBitmap, thumbnailConfig);
+        }
+
+        final int thumbnailWidth = Math.max(1, Math.round(sampledWidth * scale));
+        final int thumbnailHeight = Math.max(1, Math.round(sampledHeight * scale));
+
+        final Bitmap thumbnail = Bitmap.createScaledBitmap(sampledBitmap, thumbnailWidth, thumbnailHeight, true);
+        if (thumbnail != sampledBitmap) {
+            // the memory of the temporary bitmap can be reused by the next decoding
+            BitmapPool.getInstance().put(sampledBitmap);
+        }
+
+        saveThumbnail(thumbnail, thumbnailFile);
+
+        return convertBitmap(thumbnail, thumbnailConfig);
+    }
+
+    /**
+     * Converts the bitmap to the given config, so that a new thumbnail has the same config as a decoded one.
+     */
+    private static Bitmap convertBitmap(final Bitmap bitmap, final Bitmap.Config config) {
+        if (bitmap.getConfig() == config || (config == Bitmap.Config.RGB_565 && bitmap.hasAlpha())) {
+            return bitmap;
+        }
+
+        final Bitmap convertedBitmap = bitmap.copy(config, true);
+        if (convertedBitmap == null) {
+            return bitmap;
+        }
+
+        if (bitmap.isMutable()) {
+            BitmapPool.getInstance().put(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+
+        return convertedBitmap;
+    }
+
+    /**
+     * Writes the thumbnail to a temporary file first, so that other processes never read a partial thumbnail.
+     */
+    private void saveThumbnail(final Bitmap thumbnail, final File thumbnailFile) {
+        mThumbnailDirectory.mkdirs();
+
+        File temporaryFile = null;
+
+        try {
+            temporaryFile = File.createTempFile(thumbnailFile.getName(), ".tmp", mThumbnailDirectory);
+
+            try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                final Bitmap.CompressFormat format = thumbnail.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+                thumbnail.compress(format, THUMBNAIL_QUALITY, outputStream);
+            }
+
+            if (temporaryFile.renameTo(thumbnailFile)) {
+                onThumbnailAdded(thumbnailFile.length());
+            } else {
+                temporaryFile.delete();
+            }
+        } catch (IOException e) {
+            if (BuildConfig.DEBUG) {
+                Log.e(TAG, "Could not save thumbnail: " + thumbnailFile.getName(), e);
+            }
+
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    private File getThumbnailFile(final String imageKey, final int sizeBucket) {
+        return new File(mThumbnailDirectory, imageKey + "_" + sizeBucket);
+    }
+
+    /**
+     * @return The hash of the image path that identifies all thumbnails of the image or null if the hash could not be created.
+     */
+    private static String getImageKey(final String imagePath) {
+        try {
+            return FileUtils.createSHA256HashForString(imagePath);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rounds the larger requested dimension up to the next size bucket.
+     *
+     * @return The size bucket or 0 if the original size is requested.
+     */
+    private static int getSizeBucket(final int width, final int height) {
+        final int size = Math.max(width, height);
+
+        if (size <= 0) {
+            return 0;
+        }
+
+        return ((size + SIZE_BUCKET_STEP - 1) / SIZE_BUCKET_STEP) * SIZE_BUCKET_STEP;
+    }
+
+    /**
+     * The attributes of a thumbnail file at the time the cache is trimmed.
+     */
+    private static class CachedThumbnail {
+
+        final File mFile;
+
+        final long mLastModified;
+
+        final long mSize;
+
+        CachedThumbnail(final File file) {
+            mFile = file;
+            mLastModified = file.lastModified();
+            mSize = file.length();
+        }
+    }
+}
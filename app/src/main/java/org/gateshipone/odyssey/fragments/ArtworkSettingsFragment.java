@@ -35,6 +35,7 @@ import org.gateshipone.odyssey.R;
 import org.gateshipone.odyssey.activities.GenericActivity;
 import org.gateshipone.odyssey.artwork.ArtworkManager;
 import org.gateshipone.odyssey.artwork.BulkDownloadService;
+import org.gateshipone.odyssey.artwork.network.ProviderResponseCache;
 import org.gateshipone.odyssey.artwork.storage.ArtworkDatabaseManager;
 import org.gateshipone.odyssey.dialogs.BulkDownloaderDialog;
 import org.gateshipone.odyssey.listener.ToolbarAndFABCallback;
@@ -85,12 +86,16 @@ public class ArtworkSettingsFragment extends PreferenceFragmentCompat implements
         Preference clearBlockedAlbums = findPreference(getString(R.string.pref_clear_blocked_album_key));
         clearBlockedAlbums.setOnPreferenceClickListener(preference -> {
             ArtworkDatabaseManager.getInstance(getContext()).clearBlockedAlbumImages();
+            // cached search responses would lead to the same result so search again
+            ProviderResponseCache.getInstance(getContext()).clearResponses();
             return true;
         });
 
         Preference clearBlockedArtists = findPreference(getString(R.string.pref_clear_blocked_artist_key));
         clearBlockedArtists.setOnPreferenceClickListener(preference -> {
             ArtworkDatabaseManager.getInstance(getContext()).clearBlockedArtistImages();
+            // cached search responses would lead to the same result so search again
+            ProviderResponseCache.getInstance(getContext()).clearResponses();
             return true;
         });
 
@@ -190,6 +195,12 @@ public class ArtworkSettingsFragment extends PreferenceFragmentCompat implements
             } else if (key.equals(downloadWifiOnlyKey)) {
                 artworkManager.setWifiOnly(sharedPreferences.getBoolean(downloadWifiOnlyKey, getResources().getBoolean(R.bool.pref_download_wifi_default)));
             }
+        } else if (key.equals(getString(R.string.pref_artwork_provider_chain_key))) {
+            ArtworkManager.getInstance(getContext().getApplicationContext()).setUseProviderChain(sharedPreferences.getBoolean(key,
+                    getResources().getBoolean(R.bool.pref_artwork_provider_chain_default)));
+        } else if (key.equals(getString(R.string.pref_artwork_reduced_color_thumbnails_key))) {
+            ArtworkManager.getInstance(getContext().getApplicationContext()).setReducedColorThumbnails(sharedPreferences.getBoolean(key,
+                    getResources().getBoolean(R.bool.pref_artwork_reduced_color_thumbnails_default)));
         } else if (key.equals(getString(R.string.pref_hide_artwork_key))) {
             boolean hideArtwork = sharedPreferences.getBoolean(key, getResources().getBoolean(R.bool.pref_hide_artwork_default));
             try {
@@ -248,6 +248,18 @@ public class FilesFragment extends OdysseyFragment<FileModel> implements Adapter
         }
     }
 
+    /**
+     * Reload the content of the current directory without using the cached directory listing.
+     */
+    @Override
+    public void refreshContent() {
+        if (mCurrentDirectory != null) {
+            mCurrentDirectory.invalidateDirectoryListing();
+        }
+
+        super.refreshContent();
+    }
+
     /**
      * Callback when an item in the ListView was clicked.
      */
@@ -460,7 +472,7 @@ public class FilesFragment extends OdysseyFragment<FileModel> implements Adapter
     private void playFolder(int position) {
         try {
             // compute position
-            int index = position - mCurrentDirectory.getNumberOfSubFolders();
+            int index = position - mCurrentDirectory.getNumberOfSubFolders(getContext());
             ((GenericActivity) getActivity()).getPlaybackService().playDirectory(mCurrentDirectory.getPath(), index);
         } catch (RemoteException e) {
             // TODO Auto-generated catch block
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.mediascanner;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+
+import org.gateshipone.odyssey.models.FileModel;
+import org.gateshipone.odyssey.utils.FileExplorerHelper;
+import org.gateshipone.odyssey.utils.FolderWalker;
+import org.gateshipone.odyssey.utils.MusicLibraryHelper;
+import org.gateshipone.odyssey.utils.PermissionHelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Finds the files that are missing in the MediaStore by comparing the directories with the snapshot of the last scan.
+ * <p>
+ * Each directory is stamped with its modification time and the names of its subdirectories and supported files.
+ * A directory with an unchanged modification time is not listed again, the known entries of the stamp are used instead.
+ * All files are still compared with the MediaStore, so files whose scan failed or which were removed from the
+ * MediaStore are scanned again. This way the file system cost of a scan depends on the number of changed directories
+ * and not on the size of the library.
+ */
+public class DirectorySnapshot implements FolderWalker.DirectoryLister {
+
+    /**
+     * The stamp of a single directory.
+     */
+    public static class Stamp {
+
+        final String mPath;
+
+        final long mLastModified;
+
+        /**
+         * The names of the subdirectories at the time the stamp was created.
+         */
+        final String[] mSubdirectories;
+
+        /**
+         * The names of the supported files at the time the stamp was created.
+         */
+        final String[] mFiles;
+
+        Stamp(final String path, final long lastModified, final String[] subdirectories, final String[] files) {
+            mPath = path;
+            mLastModified = lastModified;
+            mSubdirectories = subdirectories;
+            mFiles = files;
+        }
+    }
+
+    private final String mBasePath;
+
+    /**
+     * The stamps of the last completed scan with the directory path as key.
+     */
+    private final Map<String, Stamp> mPreviousStamps;
+
+    /**
+     * The stamps of all directories found by the current scan.
+     */
+    private final Map<String, Stamp> mCurrentStamps;
+
+    /**
+     * Files of unchanged directories, known from the stamps of the last scan.
+     */
+    private final Queue<FileModel> mKnownFiles;
+
+    /**
+     * Creates a snapshot for the given directory based on the stamps of the last completed scan.
+     *
+     * @param context  The application context to access the snapshot database.
+     * @param basePath The directory that will be scanned.
+     */
+    public DirectorySnapshot(final Context context, final FileModel basePath) {
+        mBasePath = basePath.getPath();
+        mPreviousStamps = DirectorySnapshotManager.getInstance(context).getStamps(mBasePath);
+        mCurrentStamps = new ConcurrentHashMap<>();
+        mKnownFiles = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Generates a list of {@link FileModel} objects that are either in the Android DB and not on the FS
+     * or that are on the FS but not in the Android DB. Only directories that changed since the last scan are listed.
+     *
+     * @param context            Context used for DB query
+     * @param cancellationSignal Optional signal to abort the walk through the file system.
+     * @return List of files that need to be scanned or an empty list if the walk was cancelled.
+     */
+    public List<FileModel> getMissingDBFiles(final Context context, final CancellationSignal cancellationSignal) {
+        final List<FileModel> filesFS = new ArrayList<>();
+
+        if (!FolderWalker.getInstance().walk(context, Collections.singletonList(new FileModel(mBasePath)), this, cancellationSignal, filesFS::add)) {
+            return new ArrayList<>();
+        }
+
+        // files of unchanged directories are compared as well, the MediaStore could have lost them or their scan failed
+        filesFS.addAll(mKnownFiles);
+
+        final List<FileModel> filesDB = MusicLibraryHelper.getMediaFilesForPath(mBasePath, context);
+
+        return FileExplorerHelper.getInstance().generateFileListDiff(filesDB, filesFS);
+    }
+
+    /**
+     * Saves the stamps of the current scan. This should only be called after all missing files were scanned.
+     *
+     * @param context The application context to access the snapshot database.
+     */
+    public void save(final Context context) {
+        DirectorySnapshotManager.getInstance(context).replaceStamps(mBasePath, mCurrentStamps.values());
+    }
+
+    /**
+     * Lists the directory only if it was changed since the last scan.
+     * <p>
+     * For unchanged directories only the known subdirectories are returned. Their known files are collected
+     * separately, so the walker doesn't need to read their attributes.
+     */
+    @Override
+    public List<FileModel> listDirectory(final Context context, final FileModel directory) {
+        final String path = directory.getPath();
+        // read the time directly, attributes cached by the model could be older than the directory content
+        final long lastModified = new File(path).lastModified();
+
+        final Stamp previousStamp = mPreviousStamps.get(path);
+
+        if (previousStamp != null && previousStamp.mLastModified == lastModified) {
+            mCurrentStamps.put(path, previousStamp);
+
+            for (String name : previousStamp.mFiles) {
+                mKnownFiles.add(new FileModel(new File(path, name)));
+            }
+
+            final List<FileModel> subdirectories = new ArrayList<>();
+            for (String name : previousStamp.mSubdirectories) {
+                subdirectories.add(new FileModel(new File(path, name)));
+            }
+            return subdirectories;
+        }
+
+        final List<FileModel> files = PermissionHelper.getFilesForDirectory(context, directory);
+
+        final List<String> subdirectoryNames = new ArrayList<>();
+        final List<String> fileNames = new ArrayList<>();
+
+        for (FileModel file : files) {
+            if (file.isDirectory()) {
+                subdirectoryNames.add(file.getName());
+            } else {
+                fileNames.add(file.getName());
+            }
+        }
+
+        mCurrentStamps.put(path, new Stamp(path, lastModified, subdirectoryNames.toArray(new String[0]), fileNames.toArray(new String[0])));
+
+        return files;
+    }
+}
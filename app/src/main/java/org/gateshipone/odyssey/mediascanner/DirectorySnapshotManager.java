@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.mediascanner;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent storage for the directory stamps of the last completed media scan.
+ */
+public class DirectorySnapshotManager extends SQLiteOpenHelper {
+
+    /**
+     * The name of the database
+     */
+    private static final String DATABASE_NAME = "OdysseyDirectorySnapshotDB";
+
+    /**
+     * The version of the database
+     */
+    private static final int DATABASE_VERSION = 2;
+
+    /**
+     * Separator for the names of the subdirectories and files. This character is not allowed in file names.
+     */
+    private static final String NAME_SEPARATOR = "/";
+
+    private static DirectorySnapshotManager mInstance;
+
+    private DirectorySnapshotManager(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public static synchronized DirectorySnapshotManager getInstance(Context context) {
+        if (null == mInstance) {
+            mInstance = new DirectorySnapshotManager(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    /**
+     * Creates the database tables if they are not already existing
+     *
+     * @param db The {@link SQLiteDatabase} instance that will be used to create the tables.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        DirectorySnapshotTable.createTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Without a snapshot the next scan is a full scan so just start with an empty one
+        DirectorySnapshotTable.dropTable(db);
+        onCreate(db);
+    }
+
+    /**
+     * Returns the stamps of the given directory and all its subdirectories.
+     *
+     * @param basePath The path of the scanned directory.
+     * @return A {@link Map} of all stamps with the path of the directory as key.
+     */
+    public synchronized Map<String, DirectorySnapshot.Stamp> getStamps(final String basePath) {
+        final SQLiteDatabase database = getReadableDatabase();
+
+        final Cursor cursor = database.query(DirectorySnapshotTable.TABLE_NAME,
+                new String[]{DirectorySnapshotTable.COLUMN_DIRECTORY_PATH, DirectorySnapshotTable.COLUMN_DIRECTORY_MODIFIED,
+                        DirectorySnapshotTable.COLUMN_SUBDIRECTORIES, DirectorySnapshotTable.COLUMN_FILES},
+                getSubtreeSelection(), getSubtreeSelectionArguments(basePath), null, null, null);
+
+        final Map<String, DirectorySnapshot.Stamp> stamps = new HashMap<>();
+
+        if (cursor.moveToFirst()) {
+            final int pathIndex = cursor.getColumnIndex(DirectorySnapshotTable.COLUMN_DIRECTORY_PATH);
+            final int modifiedIndex = cursor.getColumnIndex(DirectorySnapshotTable.COLUMN_DIRECTORY_MODIFIED);
+            final int subdirectoriesIndex = cursor.getColumnIndex(DirectorySnapshotTable.COLUMN_SUBDIRECTORIES);
+            final int filesIndex = cursor.getColumnIndex(DirectorySnapshotTable.COLUMN_FILES);
+
+            do {
+                final String path = cursor.getString(pathIndex);
+
+                stamps.put(path, new DirectorySnapshot.Stamp(path, cursor.getLong(modifiedIndex),
+                        splitNames(cursor.getString(subdirectoriesIndex)), splitNames(cursor.getString(filesIndex))));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        database.close();
+
+        return stamps;
+    }
+
+    /**
+     * Replaces all stamps of the given directory and its subdirectories in one transaction.
+     *
+     * @param basePath The path of the scanned directory.
+     * @param stamps   The stamps of all directories that were found by the scan.
+     */
+    public synchronized void replaceStamps(final String basePath, final Collection<DirectorySnapshot.Stamp> stamps) {
+        final SQLiteDatabase database = getWritableDatabase();
+
+        final ContentValues values = new ContentValues();
+
+        database.beginTransaction();
+
+        // remove the old snapshot first so that deleted directories are removed as well
+        database.delete(DirectorySnapshotTable.TABLE_NAME, getSubtreeSelection(), getSubtreeSelectionArguments(basePath));
+
+        for (DirectorySnapshot.Stamp stamp : stamps) {
+            values.clear();
+
+            values.put(DirectorySnapshotTable.COLUMN_DIRECTORY_PATH, stamp.mPath);
+            values.put(DirectorySnapshotTable.COLUMN_DIRECTORY_MODIFIED, stamp.mLastModified);
+            values.put(DirectorySnapshotTable.COLUMN_SUBDIRECTORIES, TextUtils.join(NAME_SEPARATOR, Arrays.asList(stamp.mSubdirectories)));
+            values.put(DirectorySnapshotTable.COLUMN_FILES, TextUtils.join(NAME_SEPARATOR, Arrays.asList(stamp.mFiles)));
+
+            database.replace(DirectorySnapshotTable.TABLE_NAME, "", values);
+        }
+
+        database.setTransactionSuccessful();
+        database.endTransaction();
+
+        database.close();
+    }
+
+    /**
+     * Removes all stamps so that the next scan will check all directories.
+     */
+    public synchronized void clearStamps() {
+        final SQLiteDatabase database = getWritableDatabase();
+
+        database.delete(DirectorySnapshotTable.TABLE_NAME, null, null);
+
+        database.close();
+    }
+
+    private static String[] splitNames(final String names) {
+        return TextUtils.isEmpty(names) ? new String[0] : names.split(NAME_SEPARATOR);
+    }
+
+    /**
+     * Selects a directory and all its subdirectories with a range query on the path ('0' follows '/').
+     */
+    private static String getSubtreeSelection() {
+        return DirectorySnapshotTable.COLUMN_DIRECTORY_PATH + "=? OR (" + DirectorySnapshotTable.COLUMN_DIRECTORY_PATH + ">=? AND "
+                + DirectorySnapshotTable.COLUMN_DIRECTORY_PATH + "<?)";
+    }
+
+    private static String[] getSubtreeSelectionArguments(final String basePath) {
+        final String path = basePath.endsWith("/") ? basePath.substring(0, basePath.length() - 1) : basePath;
+        return new String[]{path, path + "/", path + "0"};
+    }
+}
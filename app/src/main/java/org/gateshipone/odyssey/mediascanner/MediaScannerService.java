@@ -36,18 +36,19 @@ import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.CancellationSignal;
 import android.os.IBinder;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import org.gateshipone.odyssey.BuildConfig;
 import org.gateshipone.odyssey.R;
 import org.gateshipone.odyssey.models.FileModel;
-import org.gateshipone.odyssey.utils.FileExplorerHelper;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -67,25 +68,71 @@ public class MediaScannerService extends Service {
     private static final String NOTIFICATION_CHANNEL_ID = "MediaScanner";
 
     /**
-     * Defines how many tracks are sent at once to the MediaScanner. Should not be to big to avoid creating
-     * to large objects for Binder IPC.
+     * Defines how many tracks are sent at once to the MediaScanner initially. The size is adapted
+     * to the observed scan duration between the minimum and maximum bunch size.
      */
     private static final int MEDIASCANNER_BUNCH_SIZE = 100;
 
+    private static final int MEDIASCANNER_MINIMUM_BUNCH_SIZE = 20;
+
+    /**
+     * Should not be to big to avoid creating to large objects for Binder IPC.
+     */
+    private static final int MEDIASCANNER_MAXIMUM_BUNCH_SIZE = 250;
+
+    /**
+     * Number of bunches that are scanned by the MediaScanner at the same time.
+     */
+    private static final int MEDIASCANNER_BUNCHES_IN_FLIGHT = 3;
+
+    /**
+     * Desired time in ms to scan a single bunch. Used to adapt the bunch size.
+     */
+    private static final long MEDIASCANNER_TARGET_BUNCH_DURATION = 2000;
+
     private NotificationManager mNotificationManager;
     private NotificationCompat.Builder mBuilder;
 
-    private List<FileModel> mRemainingFiles;
+    /**
+     * Lock for the queue of remaining files and the scan progress, which is updated from the MediaScanner callbacks.
+     */
+    private final Object mScanLock = new Object();
+
+    private ArrayDeque<String> mRemainingFiles;
 
     private int mFilesToScan;
     private int mScannedFiles;
 
+    private int mBunchesInFlight;
+
+    private int mBunchSize;
+
+    /**
+     * Time in ms when the last bunch was completed. The media scanner scans the bunches one after another,
+     * so the next bunch starts running at this time at the earliest.
+     */
+    private long mLastBunchCompleteTime;
+
+    private boolean mStopScheduled;
+
+    private ScanJournal mScanJournal;
+
     private MediaScannerService.ActionReceiver mBroadcastReceiver;
 
     private PowerManager.WakeLock mWakelock;
 
     private boolean mAbort;
 
+    /**
+     * Signal to cancel the walk through the file system when the scan is aborted.
+     */
+    private CancellationSignal mCancellationSignal;
+
+    /**
+     * Snapshot of the scanned directories that is saved once all missing files are scanned.
+     */
+    private DirectorySnapshot mDirectorySnapshot;
+
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
@@ -96,20 +143,36 @@ public class MediaScannerService extends Service {
     public void onCreate() {
         super.onCreate();
         mNotificationManager = (NotificationManager) this.getSystemService(Context.NOTIFICATION_SERVICE);
+        mScanJournal = new ScanJournal(this);
     }
 
     @Override
     public void onDestroy() {
-        unregisterReceiver(mBroadcastReceiver);
+        if (mBroadcastReceiver != null) {
+            unregisterReceiver(mBroadcastReceiver);
+        }
+
+        // keep the journal if the scan is not finished so that it can be resumed
+        mScanJournal.close();
+
         super.onDestroy();
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (intent != null && intent.getAction().equals(ACTION_START_MEDIASCANNING)) {
-            mRemainingFiles = new ArrayList<>();
+            synchronized (mScanLock) {
+                mRemainingFiles = new ArrayDeque<>();
+                mFilesToScan = 0;
+                mScannedFiles = 0;
+                mBunchesInFlight = 0;
+                mBunchSize = MEDIASCANNER_BUNCH_SIZE;
+                mLastBunchCompleteTime = 0;
+                mStopScheduled = false;
+            }
 
             mAbort = false;
+            mCancellationSignal = new CancellationSignal();
             FileModel directory = null;
 
             // read path to directory from extras
@@ -167,7 +230,8 @@ public class MediaScannerService extends Service {
             }
         }
 
-        return START_NOT_STICKY;
+        // redeliver the intent if the process was killed, so that the scan is resumed from the journal
+        return START_REDELIVER_INTENT;
     }
 
     private void updateNotification() {
@@ -181,38 +245,67 @@ public class MediaScannerService extends Service {
     }
 
     private void scanDirectory(final Context context, FileModel basePath) {
-        new ListCreationTask(context).execute(basePath);
+        new ListCreationTask(context, mCancellationSignal).execute(basePath);
     }
 
-    private void scanFileList(final Context context, List<FileModel> files) {
-        mRemainingFiles = files;
+    private void scanFileList(final Context context, List<String> files) {
+        synchronized (mScanLock) {
+            mRemainingFiles = new ArrayDeque<>(files);
+            mFilesToScan = files.size();
+        }
 
-        scanNextBunch(context);
+        scanNextBunches(context);
     }
 
     /**
-     * Proceeds to the next bunch of files to scan if any available.
+     * Proceeds to the next bunches of files to scan if any available, so that up to
+     * {@link #MEDIASCANNER_BUNCHES_IN_FLIGHT} bunches are scanned at the same time.
      *
      * @param context Context used for scanning.
      */
-    private void scanNextBunch(final Context context) {
-        if (mRemainingFiles.isEmpty() || mAbort) {
-            // No files left to scan, stop service (delayed to allow the ServiceConnection to the MediaScanner to close itself)
-            Timer delayedStopTimer = new Timer();
-            delayedStopTimer.schedule(new DelayedStopTask(), 100);
-            return;
+    private void scanNextBunches(final Context context) {
+        synchronized (mScanLock) {
+            if (mAbort || (mRemainingFiles.isEmpty() && mBunchesInFlight == 0)) {
+                if (!mStopScheduled) {
+                    mStopScheduled = true;
+
+                    // No files left to scan, stop service (delayed to allow the ServiceConnection to the MediaScanner to close itself)
+                    Timer delayedStopTimer = new Timer();
+                    delayedStopTimer.schedule(new DelayedStopTask(), 100);
+                }
+                return;
+            }
+
+            while (mBunchesInFlight < MEDIASCANNER_BUNCHES_IN_FLIGHT && !mRemainingFiles.isEmpty()) {
+                String[] bunch = new String[Math.min(mBunchSize, mRemainingFiles.size())];
+
+                for (int i = 0; i < bunch.length; i++) {
+                    bunch[i] = mRemainingFiles.poll();
+                }
+
+                mBunchesInFlight++;
+
+                MediaScannerConnection.scanFile(context, bunch, null, new MediaScanCompletedCallback(bunch, context));
+            }
         }
+    }
 
-        String[] bunch = new String[Math.min(MEDIASCANNER_BUNCH_SIZE, mRemainingFiles.size())];
-        int i = 0;
+    /**
+     * Adapts the size of the next bunches, so that a bunch takes about {@link #MEDIASCANNER_TARGET_BUNCH_DURATION} to scan.
+     *
+     * @param numberOfFiles The number of files of the completed bunch.
+     * @param duration      The time in ms it took to scan the bunch.
+     */
+    private void adaptBunchSize(final int numberOfFiles, final long duration) {
+        final long durationPerFile = Math.max(1, duration / numberOfFiles);
+        final int optimalBunchSize = (int) Math.max(MEDIASCANNER_MINIMUM_BUNCH_SIZE, Math.min(MEDIASCANNER_MAXIMUM_BUNCH_SIZE, MEDIASCANNER_TARGET_BUNCH_DURATION / durationPerFile));
 
-        ListIterator<FileModel> listIterator = mRemainingFiles.listIterator();
-        while (listIterator.hasNext() && i < MEDIASCANNER_BUNCH_SIZE) {
-            bunch[i] = listIterator.next().getPath();
-            listIterator.remove();
-            i++;
+        // move halfway to the optimal size to smooth out single slow files
+        mBunchSize = (mBunchSize + optimalBunchSize) / 2;
+
+        if (BuildConfig.DEBUG) {
+            Log.v(TAG, "Bunch of " + numberOfFiles + " files took " + duration + " ms, next bunch size: " + mBunchSize);
         }
-        MediaScannerConnection.scanFile(context, bunch, null, new MediaScanCompletedCallback(bunch.length, context));
     }
 
     private void finishService() {
@@ -251,13 +344,16 @@ public class MediaScannerService extends Service {
 
         private final Context mContext;
 
-        private final int mNumberOfFiles;
+        private final String[] mBunch;
+
+        private final long mSubmitTime;
 
         private int mBunchScannedFiles;
 
-        public MediaScanCompletedCallback(final int numberOfFiles, final Context context) {
+        public MediaScanCompletedCallback(final String[] bunch, final Context context) {
             mContext = context;
-            mNumberOfFiles = numberOfFiles;
+            mBunch = bunch;
+            mSubmitTime = SystemClock.elapsedRealtime();
             mBunchScannedFiles = 0;
         }
 
@@ -267,18 +363,35 @@ public class MediaScannerService extends Service {
                 Log.v(TAG, "scan completed: " + uri);
             }
 
-            mScannedFiles++;
+            final boolean bunchComplete;
+
+            synchronized (mScanLock) {
+                mScannedFiles++;
+
+                mBunchScannedFiles++;
 
-            mBunchScannedFiles++;
+                updateNotification();
 
-            updateNotification();
+                bunchComplete = mBunchScannedFiles == mBunch.length;
 
-            if (mBunchScannedFiles == mNumberOfFiles) {
+                if (bunchComplete) {
+                    mBunchesInFlight--;
+
+                    // the bunch waited for the previous one, so only the time since it started running is measured
+                    final long now = SystemClock.elapsedRealtime();
+                    adaptBunchSize(mBunch.length, now - Math.max(mSubmitTime, mLastBunchCompleteTime));
+                    mLastBunchCompleteTime = now;
+                }
+            }
+
+            if (bunchComplete) {
                 if (BuildConfig.DEBUG) {
                     Log.v(TAG, "Bunch complete, proceed to next one");
                 }
 
-                scanNextBunch(mContext);
+                mScanJournal.markScanned(mBunch);
+
+                scanNextBunches(mContext);
             }
         }
     }
@@ -298,6 +411,7 @@ public class MediaScannerService extends Service {
 
                 // abort scan after finish scanning current folder
                 mAbort = true;
+                mCancellationSignal.cancel();
                 // cancel notification
                 mNotificationManager.cancel(NOTIFICATION_ID);
                 stopForeground(true);
@@ -305,22 +419,49 @@ public class MediaScannerService extends Service {
         }
     }
 
-    private class ListCreationTask extends AsyncTask<FileModel, Integer, List<FileModel>> {
+    private class ListCreationTask extends AsyncTask<FileModel, Integer, List<String>> {
 
         Context mContext;
 
-        public ListCreationTask(Context context) {
+        CancellationSignal mCancellationSignal;
+
+        public ListCreationTask(Context context, CancellationSignal cancellationSignal) {
             mContext = context;
+            mCancellationSignal = cancellationSignal;
         }
 
         @Override
-        protected List<FileModel> doInBackground(FileModel... params) {
-            List<FileModel> files = FileExplorerHelper.getInstance().getMissingDBFiles(mContext, params[0]);
-            if (BuildConfig.DEBUG) {
-                Log.v(TAG, "Got missing tracks: " + files.size());
+        protected List<String> doInBackground(FileModel... params) {
+            final String basePath = params[0].getPath();
+
+            // resume an unfinished scan of the same directory
+            List<String> files = mScanJournal.readRemainingFiles(basePath);
+
+            if (files != null) {
+                if (BuildConfig.DEBUG) {
+                    Log.v(TAG, "Resume scan with remaining tracks: " + files.size());
+                }
+
+                mScanJournal.resume();
+            } else {
+                DirectorySnapshot snapshot = new DirectorySnapshot(mContext, params[0]);
+
+                files = new ArrayList<>();
+                for (FileModel file : snapshot.getMissingDBFiles(mContext, mCancellationSignal)) {
+                    files.add(file.getPath());
+                }
+
+                mDirectorySnapshot = snapshot;
+
+                if (BuildConfig.DEBUG) {
+                    Log.v(TAG, "Got missing tracks: " + files.size());
+                }
+
+                if (!mAbort) {
+                    mScanJournal.start(basePath, files);
+                }
             }
 
-            mFilesToScan = files.size();
             scanFileList(mContext, files);
             return files;
         }
@@ -330,6 +471,14 @@ public class MediaScannerService extends Service {
 
         @Override
         public void run() {
+            // only remember the scanned directories if all missing files were scanned
+            // a resumed scan has no snapshot, so the directories will be checked again by the next scan
+            if (!mAbort && mDirectorySnapshot != null) {
+                mDirectorySnapshot.save(getApplicationContext());
+            }
+
+            mScanJournal.finish();
+
             finishService();
         }
     }
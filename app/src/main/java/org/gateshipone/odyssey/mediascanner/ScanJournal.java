@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.mediascanner;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.gateshipone.odyssey.BuildConfig;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Journal of a running media scan, so that a scan can be resumed if the process was killed.
+ * <p>
+ * The journal file contains the scanned directory in the first line followed by all files that need to be scanned.
+ * The progress file is appended with the files that were scanned by the MediaScanner.
+ * Both files are removed if the scan is finished or aborted.
+ */
+class ScanJournal {
+    private static final String TAG = ScanJournal.class.getSimpleName();
+
+    private static final String JOURNAL_FILE_NAME = "mediascanner_journal";
+
+    private static final String PROGRESS_FILE_NAME = "mediascanner_progress";
+
+    private final File mJournalFile;
+
+    private final File mProgressFile;
+
+    private BufferedWriter mProgressWriter;
+
+    ScanJournal(final Context context) {
+        mJournalFile = new File(context.getFilesDir(), JOURNAL_FILE_NAME);
+        mProgressFile = new File(context.getFilesDir(), PROGRESS_FILE_NAME);
+    }
+
+    /**
+     * Reads the files that are not scanned yet of an unfinished scan of the given directory.
+     *
+     * @param basePath The path of the directory that should be scanned.
+     * @return The list of remaining files or null if no unfinished scan exists for the directory.
+     */
+    synchronized List<String> readRemainingFiles(final String basePath) {
+        if (!mJournalFile.exists()) {
+            return null;
+        }
+
+        final List<String> files = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mJournalFile), StandardCharsets.UTF_8))) {
+            if (!basePath.equals(reader.readLine())) {
+                // the journal belongs to a different scan
+                return null;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    files.add(line);
+                }
+            }
+        } catch (IOException e) {
+            logError("Could not read the scan journal", e);
+            return null;
+        }
+
+        final Set<String> scannedFiles = new HashSet<>();
+
+        if (mProgressFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mProgressFile), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    scannedFiles.add(line);
+                }
+            } catch (IOException e) {
+                // the files will just be scanned again
+                logError("Could not read the scan progress", e);
+            }
+        }
+
+        final List<String> remainingFiles = new ArrayList<>();
+        for (String file : files) {
+            if (!scannedFiles.contains(file)) {
+                remainingFiles.add(file);
+            }
+        }
+
+        return remainingFiles;
+    }
+
+    /**
+     * Writes a new journal for the given files and resets the progress.
+     *
+     * @param basePath The path of the scanned directory.
+     * @param files    The paths of all files that will be scanned.
+     */
+    synchronized void start(final String basePath, final Collection<String> files) {
+        close();
+
+        // write to a temporary file first, so that an incomplete journal is never read
+        final File temporaryFile = new File(mJournalFile.getPath() + ".tmp");
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporaryFile), StandardCharsets.UTF_8))) {
+            writer.write(basePath);
+            writer.newLine();
+
+            for (String file : files) {
+                writer.write(file);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logError("Could not write the scan journal", e);
+            temporaryFile.delete();
+            return;
+        }
+
+        mProgressFile.delete();
+
+        if (!temporaryFile.renameTo(mJournalFile)) {
+            temporaryFile.delete();
+            return;
+        }
+
+        openProgressWriter();
+    }
+
+    /**
+     * Continues to record the progress of an existing journal.
+     */
+    synchronized void resume() {
+        close();
+        openProgressWriter();
+    }
+
+    /**
+     * Records that the given files were scanned.
+     *
+     * @param files The paths of the scanned files.
+     */
+    synchronized void markScanned(final String[] files) {
+        if (mProgressWriter == null) {
+            return;
+        }
+
+        try {
+            for (String file : files) {
+                mProgressWriter.write(file);
+                mProgressWriter.newLine();
+            }
+            mProgressWriter.flush();
+        } catch (IOException e) {
+            logError("Could not write the scan progress", e);
+        }
+    }
+
+    /**
+     * Removes the journal because the scan was finished or aborted.
+     */
+    synchronized void finish() {
+        close();
+
+        mJournalFile.delete();
+        mProgressFile.delete();
+    }
+
+    /**
+     * Closes the journal but keeps it, so that the scan can be resumed.
+     */
+    synchronized void close() {
+        if (mProgressWriter != null) {
+            try {
+                mProgressWriter.close();
+            } catch (IOException e) {
+                logError("Could not close the scan progress", e);
+            }
+            mProgressWriter = null;
+        }
+    }
+
+    private void openProgressWriter() {
+        try {
+            mProgressWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(mProgressFile, true), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logError("Could not open the scan progress", e);
+        }
+    }
+
+    private static void logError(final String message, final IOException e) {
+        if (BuildConfig.DEBUG) {
+            Log.e(TAG, message, e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reader for pictures that are embedded in the tags of audio files.
+ * <p>
+ * Supported are APIC/PIC frames of ID3v2 tags, PICTURE blocks of FLAC files and cover atoms of MP4 files.
+ * The tag region is mapped into memory and the returned buffer is a view of the image data inside the mapping,
+ * so the image is not copied until it is decoded.
+ * <p>
+ * This class does not depend on any android framework classes.
+ */
+public class EmbeddedArtworkReader {
+
+    /**
+     * Picture type of the front cover as defined by ID3v2 and FLAC.
+     */
+    static final int PICTURE_TYPE_FRONT_COVER = 3;
+
+    private EmbeddedArtworkReader() {
+    }
+
+    /**
+     * Reads the embedded artwork of the given file.
+     * <p>
+     * The returned buffer stays valid after the file was closed.
+     *
+     * @param file The file to read.
+     * @return A {@link ByteBuffer} containing the encoded image or null if the file contains no artwork.
+     * @throws IOException If the file could not be read.
+     */
+    public static ByteBuffer readArtwork(final File file) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            return readArtwork(inputStream.getChannel());
+        }
+    }
+
+    /**
+     * Reads the embedded artwork of the file represented by the given channel.
+     *
+     * @param channel The {@link FileChannel} of the file to read. Only positional reads are used.
+     * @return A {@link ByteBuffer} containing the encoded image or null if the file contains no artwork.
+     * @throws IOException If the file could not be read.
+     */
+    public static ByteBuffer readArtwork(final FileChannel channel) throws IOException {
+        final long fileSize = channel.size();
+
+        final ByteBuffer header = TagReader.read(channel, 0, TagReader.DETECTION_HEADER_SIZE);
+        if (header.remaining() < TagReader.DETECTION_HEADER_SIZE) {
+            return null;
+        }
+
+        if (TagReader.hasMagic(header, 0, ID3TagParser.ID3V2_MAGIC)) {
+            final ByteBuffer picture = ID3TagParser.readPicture(channel);
+            if (picture != null) {
+                return picture;
+            }
+
+            // flac files with a prepended ID3v2 tag
+            final long tagEnd = ID3TagParser.getTagSize(header);
+            if (TagReader.hasMagic(TagReader.read(channel, tagEnd, FlacTagParser.FLAC_MAGIC.length), 0, FlacTagParser.FLAC_MAGIC)) {
+                return FlacTagParser.readPicture(channel, tagEnd);
+            }
+        } else if (TagReader.hasMagic(header, 0, FlacTagParser.FLAC_MAGIC)) {
+            return FlacTagParser.readPicture(channel, 0);
+        } else if (TagReader.hasMagic(header, 4, MP4TagParser.FTYP_MAGIC)) {
+            return MP4TagParser.readPicture(channel, fileSize);
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Parser for the metadata blocks of FLAC files.
+ */
+class FlacTagParser {
+
+    static final byte[] FLAC_MAGIC = {'f', 'L', 'a', 'C'};
+
+    private static final int BLOCK_HEADER_SIZE = 4;
+
+    private static final int BLOCK_TYPE_STREAMINFO = 0;
+
+    private static final int BLOCK_TYPE_VORBIS_COMMENT = 4;
+
+    private static final int BLOCK_TYPE_PICTURE = 6;
+
+    private static final int STREAMINFO_SIZE = 34;
+
+    /**
+     * Minimum size of a picture block with empty mime type, description and data.
+     */
+    private static final int PICTURE_HEADER_SIZE = 32;
+
+    /**
+     * Maximum size of a vorbis comment block that is read.
+     */
+    private static final int MAXIMUM_COMMENT_SIZE = 512 * 1024;
+
+    /**
+     * Callback for each metadata block found by {@link #forEachBlock}.
+     */
+    private interface BlockVisitor {
+        /**
+         * @param blockType   The type of the block.
+         * @param blockStart  The position of the block data.
+         * @param blockLength The length of the block data.
+         * @return True to continue with the next block, false to stop.
+         */
+        boolean visit(int blockType, long blockStart, int blockLength) throws IOException;
+    }
+
+    /**
+     * Reads the STREAMINFO and VORBIS_COMMENT blocks.
+     *
+     * @param channel     The channel of the file.
+     * @param streamStart The position of the FLAC magic bytes.
+     * @param tags        The {@link TrackTags} to fill.
+     */
+    static void parse(final FileChannel channel, final long streamStart, final TrackTags tags) throws IOException {
+        forEachBlock(channel, streamStart, (blockType, blockStart, blockLength) -> {
+            if (blockType == BLOCK_TYPE_STREAMINFO && blockLength >= STREAMINFO_SIZE) {
+                parseStreamInfo(TagReader.read(channel, blockStart, STREAMINFO_SIZE), tags);
+            } else if (blockType == BLOCK_TYPE_VORBIS_COMMENT && blockLength <= MAXIMUM_COMMENT_SIZE) {
+                VorbisCommentParser.parse(TagReader.read(channel, blockStart, blockLength), 0, tags);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Reads the image data of the PICTURE blocks.
+     * <p>
+     * The block is mapped into memory so the returned buffer is a view of the file.
+     *
+     * @param channel     The channel of the file.
+     * @param streamStart The position of the FLAC magic bytes.
+     * @return The image data of the front cover, the first other picture if no front cover exists or null if the file
+     * contains no picture.
+     */
+    static ByteBuffer readPicture(final FileChannel channel, final long streamStart) throws IOException {
+        final ByteBuffer[] picture = new ByteBuffer[1];
+
+        forEachBlock(channel, streamStart, (blockType, blockStart, blockLength) -> {
+            if (blockType != BLOCK_TYPE_PICTURE || blockLength < PICTURE_HEADER_SIZE) {
+                return true;
+            }
+
+            final ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, blockStart, blockLength);
+
+            final boolean frontCover = TagReader.getUnsignedInt(block, 0) == EmbeddedArtworkReader.PICTURE_TYPE_FRONT_COVER;
+
+            // picture type, mime type and description are followed by width, height, depth, number of colors and the data length
+            final long mimeLength = TagReader.getUnsignedInt(block, 4);
+            final long descriptionPosition = 8 + mimeLength;
+            if (descriptionPosition + 4 > blockLength) {
+                return true;
+            }
+
+            final long descriptionLength = TagReader.getUnsignedInt(block, (int) descriptionPosition);
+            final long dataLengthPosition = descriptionPosition + 4 + descriptionLength + 16;
+            if (dataLengthPosition + 4 > blockLength) {
+                return true;
+            }
+
+            final long dataLength = TagReader.getUnsignedInt(block, (int) dataLengthPosition);
+            final long dataPosition = dataLengthPosition + 4;
+            if (dataLength == 0 || dataPosition + dataLength > blockLength) {
+                return true;
+            }
+
+            if (frontCover || picture[0] == null) {
+                block.position((int) dataPosition);
+                block.limit((int) (dataPosition + dataLength));
+                picture[0] = block.slice();
+            }
+
+            // stop as soon as the front cover is found
+            return !frontCover;
+        });
+
+        return picture[0];
+    }
+
+    /**
+     * Iterates over the metadata blocks by reading only their headers.
+     */
+    private static void forEachBlock(final FileChannel channel, final long streamStart, final BlockVisitor visitor) throws IOException {
+        final long fileSize = channel.size();
+
+        long position = streamStart + FLAC_MAGIC.length;
+        boolean lastBlock = false;
+
+        while (!lastBlock && position + BLOCK_HEADER_SIZE <= fileSize) {
+            final ByteBuffer blockHeader = TagReader.read(channel, position, BLOCK_HEADER_SIZE);
+            if (blockHeader.remaining() < BLOCK_HEADER_SIZE) {
+                return;
+            }
+
+            lastBlock = (blockHeader.get(0) & 0x80) != 0;
+            final int blockType = blockHeader.get(0) & 0x7F;
+            final int blockLength = ((blockHeader.get(1) & 0xFF) << 16) | ((blockHeader.get(2) & 0xFF) << 8) | (blockHeader.get(3) & 0xFF);
+
+            final long blockStart = position + BLOCK_HEADER_SIZE;
+
+            if (blockStart + blockLength > fileSize || !visitor.visit(blockType, blockStart, blockLength)) {
+                return;
+            }
+
+            position = blockStart + blockLength;
+        }
+    }
+
+    /**
+     * Calculates the duration from the sample rate and the total number of samples.
+     */
+    private static void parseStreamInfo(final ByteBuffer streamInfo, final TrackTags tags) {
+        if (streamInfo.remaining() < STREAMINFO_SIZE) {
+            return;
+        }
+
+        final int sampleRate = ((streamInfo.get(10) & 0xFF) << 12) | ((streamInfo.get(11) & 0xFF) << 4) | ((streamInfo.get(12) & 0xF0) >> 4);
+        final long totalSamples = ((long) (streamInfo.get(13) & 0x0F) << 32) | TagReader.getUnsignedInt(streamInfo, 14);
+
+        if (sampleRate > 0) {
+            tags.setDuration(totalSamples * 1000L / sampleRate);
+        }
+    }
+}
@@ -0,0 +1,571 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser for ID3v1 and ID3v2 (2.2, 2.3 and 2.4) tags.
+ */
+class ID3TagParser {
+
+    static final byte[] ID3V2_MAGIC = {'I', 'D', '3'};
+
+    private static final byte[] ID3V1_MAGIC = {'T', 'A', 'G'};
+
+    /**
+     * Size of the ID3v2 header and the optional footer.
+     */
+    private static final int ID3V2_HEADER_SIZE = 10;
+
+    /**
+     * Size of an ID3v1 tag at the end of the file.
+     */
+    static final int ID3V1_TAG_SIZE = 128;
+
+    /**
+     * Maximum size of an unsynchronised tag that is read completely.
+     */
+    private static final int MAXIMUM_UNSYNCHRONISED_TAG_SIZE = 1024 * 1024;
+
+    /**
+     * Maximum size of a text frame that is read.
+     */
+    private static final int MAXIMUM_TEXT_FRAME_SIZE = 4096;
+
+    /**
+     * Maximum size of a picture frame that is read.
+     */
+    private static final int MAXIMUM_PICTURE_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private static final int HEADER_FLAG_UNSYNCHRONISATION = 0x80;
+
+    private static final int HEADER_FLAG_EXTENDED_HEADER = 0x40;
+
+    private static final int HEADER_FLAG_FOOTER = 0x10;
+
+    /**
+     * Abstraction of the tag data, which is either read directly from the file, from a mapped buffer of the tag or
+     * from a buffer if the complete tag had to be resynchronised.
+     */
+    private interface TagSource {
+        ByteBuffer read(long position, int length) throws IOException;
+    }
+
+    /**
+     * Callback for each frame found by {@link Tag#forEachFrame}.
+     */
+    private interface FrameVisitor {
+        /**
+         * @param frameId    The identifier of the frame.
+         * @param frameFlags The flags of the frame (version 2.3 and 2.4 only).
+         * @param dataStart  The position of the frame data in the tag.
+         * @param frameSize  The size of the frame data.
+         * @return True to continue with the next frame, false to stop.
+         */
+        boolean visit(String frameId, int frameFlags, long dataStart, long frameSize) throws IOException;
+    }
+
+    /**
+     * Returns the complete size of the ID3v2 tag including header and footer.
+     *
+     * @param header The first bytes of the file. Must contain at least the ID3v2 header.
+     */
+    static long getTagSize(final ByteBuffer header) {
+        final int flags = header.get(5) & 0xFF;
+        final long size = getSyncSafeInt(header, 6) + ID3V2_HEADER_SIZE;
+
+        return (flags & HEADER_FLAG_FOOTER) != 0 ? size + ID3V2_HEADER_SIZE : size;
+    }
+
+    /**
+     * Reads the text frames of an ID3v2 tag at the beginning of the file.
+     */
+    static void parseID3v2(final FileChannel channel, final TrackTags tags) throws IOException {
+        final Tag tag = Tag.open(channel, false);
+        if (tag == null) {
+            return;
+        }
+
+        tag.forEachFrame((frameId, frameFlags, dataStart, frameSize) -> {
+            if (frameSize <= MAXIMUM_TEXT_FRAME_SIZE && isTextFrame(frameId)) {
+                final ByteBuffer frameData = tag.readFrameData(frameFlags, dataStart, (int) frameSize);
+
+                if (frameData != null) {
+                    applyTextFrame(frameId, decodeTextFrame(frameData), tags);
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Reads the embedded picture of an ID3v2 tag at the beginning of the file.
+     * <p>
+     * The tag is mapped into memory so the returned buffer is a view of the file if the frame is not unsynchronised.
+     *
+     * @return The image data of the front cover, the first other picture if no front cover exists or null if the tag
+     * contains no picture.
+     */
+    static ByteBuffer readPicture(final FileChannel channel) throws IOException {
+        final Tag tag = Tag.open(channel, true);
+        if (tag == null) {
+            return null;
+        }
+
+        final ByteBuffer[] picture = new ByteBuffer[1];
+
+        tag.forEachFrame((frameId, frameFlags, dataStart, frameSize) -> {
+            final boolean pictureFrame = tag.mVersion == 2 ? "PIC".equals(frameId) : "APIC".equals(frameId);
+
+            if (pictureFrame && frameSize <= MAXIMUM_PICTURE_FRAME_SIZE) {
+                final ByteBuffer frameData = tag.readFrameData(frameFlags, dataStart, (int) frameSize);
+
+                if (frameData != null) {
+                    final boolean frontCover = parsePictureFrame(frameData, tag.mVersion == 2);
+
+                    if (frameData.hasRemaining() && (frontCover || picture[0] == null)) {
+                        picture[0] = frameData.slice();
+                    }
+
+                    // stop as soon as the front cover is found
+                    return !(frontCover && frameData.hasRemaining());
+                }
+            }
+            return true;
+        });
+
+        return picture[0];
+    }
+
+    /**
+     * Moves the position of the given frame data to the beginning of the image data.
+     *
+     * @param frameData The data of an APIC or PIC frame.
+     * @param version2  True if the frame is a version 2.2 PIC frame with a fixed length image format.
+     * @return True if the picture is the front cover.
+     */
+    private static boolean parsePictureFrame(final ByteBuffer frameData, final boolean version2) {
+        final int limit = frameData.limit();
+        if (limit < 2) {
+            frameData.position(limit);
+            return false;
+        }
+
+        final int encoding = frameData.get(0);
+
+        // the image format is either 3 characters (PIC) or a null terminated mime type (APIC)
+        final int typePosition = version2 ? 4 : findTerminator(frameData, 1, limit - 1, 0) + 1;
+        if (typePosition >= limit) {
+            frameData.position(limit);
+            return false;
+        }
+
+        final int pictureType = frameData.get(typePosition) & 0xFF;
+
+        final int descriptionEnd = findTerminator(frameData, typePosition + 1, limit - typePosition - 1, encoding);
+        frameData.position(Math.min(limit, descriptionEnd + getTerminatorLength(encoding)));
+
+        return pictureType == EmbeddedArtworkReader.PICTURE_TYPE_FRONT_COVER;
+    }
+
+    /**
+     * Reads the ID3v1 tag at the end of the file if available.
+     */
+    static void parseID3v1(final FileChannel channel, final TrackTags tags) throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize < ID3V1_TAG_SIZE) {
+            return;
+        }
+
+        final ByteBuffer tag = TagReader.read(channel, fileSize - ID3V1_TAG_SIZE, ID3V1_TAG_SIZE);
+        if (!hasID3v1Tag(tag)) {
+            return;
+        }
+
+        tags.setTitle(decodeFixedString(tag, 3, 30));
+        tags.setArtist(decodeFixedString(tag, 33, 30));
+        tags.setAlbum(decodeFixedString(tag, 63, 30));
+
+        // ID3v1.1 stores the track number in the last byte of the comment
+        if (tag.get(125) == 0 && tag.get(126) != 0) {
+            tags.setTrackNumber(tag.get(126) & 0xFF);
+        }
+    }
+
+    /**
+     * Checks if the given buffer contains an ID3v1 tag.
+     */
+    static boolean hasID3v1Tag(final ByteBuffer buffer) {
+        return buffer.remaining() == ID3V1_TAG_SIZE && TagReader.hasMagic(buffer, 0, ID3V1_MAGIC);
+    }
+
+    private static boolean isTextFrame(final String frameId) {
+        switch (frameId) {
+            case "TIT2":
+            case "TT2":
+            case "TPE1":
+            case "TP1":
+            case "TALB":
+            case "TAL":
+            case "TRCK":
+            case "TRK":
+            case "TLEN":
+            case "TLE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void applyTextFrame(final String frameId, final String value, final TrackTags tags) {
+        switch (frameId) {
+            case "TIT2":
+            case "TT2":
+                tags.setTitle(value);
+                break;
+            case "TPE1":
+            case "TP1":
+                tags.setArtist(value);
+                break;
+            case "TALB":
+            case "TAL":
+                tags.setAlbum(value);
+                break;
+            case "TRCK":
+            case "TRK":
+                tags.setTrackNumber(value);
+                break;
+            case "TLEN":
+            case "TLE":
+                // the stream is parsed first so this is only used if the duration could not be calculated from it
+                try {
+                    if (value != null) {
+                        tags.setDuration(Long.parseLong(value.trim()));
+                    }
+                } catch (NumberFormatException e) {
+                    // ignore invalid values
+                }
+                break;
+        }
+    }
+
+    /**
+     * Decodes the first value of a text frame.
+     *
+     * @param data The frame data starting with the text encoding byte.
+     */
+    static String decodeTextFrame(final ByteBuffer data) {
+        if (data.remaining() < 1) {
+            return null;
+        }
+
+        final int encoding = data.get(0);
+        return decodeString(data, 1, data.limit() - 1, encoding);
+    }
+
+    /**
+     * Decodes a null terminated string in the given text encoding.
+     *
+     * @param data     The buffer containing the string.
+     * @param offset   The start of the string.
+     * @param length   The maximum length of the string in bytes.
+     * @param encoding The ID3v2 text encoding.
+     */
+    static String decodeString(final ByteBuffer data, final int offset, final int length, final int encoding) {
+        final int end = findTerminator(data, offset, length, encoding);
+        return new String(data.array(), data.arrayOffset() + offset, end - offset, getCharset(encoding));
+    }
+
+    /**
+     * Returns the position of the null terminator of a string or the end of the given range if not terminated.
+     *
+     * @param data     The buffer containing the string.
+     * @param offset   The start of the string.
+     * @param length   The maximum length of the string in bytes.
+     * @param encoding The ID3v2 text encoding.
+     */
+    static int findTerminator(final ByteBuffer data, final int offset, final int length, final int encoding) {
+        final int end = Math.min(offset + length, data.limit());
+
+        if (encoding == 1 || encoding == 2) {
+            // UTF-16 strings are terminated by two aligned null bytes
+            for (int i = offset; i + 1 < end; i += 2) {
+                if (data.get(i) == 0 && data.get(i + 1) == 0) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = offset; i < end; i++) {
+                if (data.get(i) == 0) {
+                    return i;
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Returns the length of the null terminator for the given text encoding.
+     */
+    static int getTerminatorLength(final int encoding) {
+        return (encoding == 1 || encoding == 2) ? 2 : 1;
+    }
+
+    private static Charset getCharset(final int encoding) {
+        switch (encoding) {
+            case 1:
+                return StandardCharsets.UTF_16;
+            case 2:
+                return StandardCharsets.UTF_16BE;
+            case 3:
+                return StandardCharsets.UTF_8;
+            default:
+                return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    private static String decodeFixedString(final ByteBuffer data, final int offset, final int length) {
+        return decodeString(data, offset, length, 0).trim();
+    }
+
+    /**
+     * Reads a 28 bit integer that is stored in 4 bytes with the most significant bit of each byte unused.
+     */
+    private static long getSyncSafeInt(final ByteBuffer buffer, final int position) {
+        return ((buffer.get(position) & 0x7F) << 21) | ((buffer.get(position + 1) & 0x7F) << 14)
+                | ((buffer.get(position + 2) & 0x7F) << 7) | (buffer.get(position + 3) & 0x7F);
+    }
+
+    /**
+     * Removes the unsynchronisation scheme (0xFF 0x00 -> 0xFF) from the given data.
+     */
+    private static ByteBuffer resynchronise(final ByteBuffer data) {
+        final byte[] result = new byte[data.remaining()];
+        int length = 0;
+
+        for (int i = 0; i < data.limit(); i++) {
+            final byte value = data.get(i);
+            result[length++] = value;
+
+            if (value == (byte) 0xFF && i + 1 < data.limit() && data.get(i + 1) == 0) {
+                i++;
+            }
+        }
+
+        return ByteBuffer.wrap(result, 0, length).slice();
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buffer, final long position, final int length) {
+        if (position >= buffer.limit()) {
+            return ByteBuffer.allocate(0);
+        }
+
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) position);
+        duplicate.limit((int) Math.min(buffer.limit(), position + length));
+
+        final ByteBuffer result = ByteBuffer.allocate(duplicate.remaining());
+        result.put(duplicate);
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Returns a view of the given range of the buffer without copying the data.
+     */
+    private static ByteBuffer view(final ByteBuffer buffer, final long position, final int length) {
+        if (position >= buffer.limit()) {
+            return ByteBuffer.allocate(0);
+        }
+
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) position);
+        duplicate.limit((int) Math.min(buffer.limit(), position + length));
+        return duplicate.slice();
+    }
+
+    /**
+     * An opened ID3v2 tag which provides access to its frames.
+     */
+    private static class Tag {
+
+        private final int mVersion;
+
+        private final int mFlags;
+
+        private final long mTagEnd;
+
+        private final TagSource mSource;
+
+        private Tag(final int version, final int flags, final long tagEnd, final TagSource source) {
+            mVersion = version;
+            mFlags = flags;
+            mTagEnd = tagEnd;
+            mSource = source;
+        }
+
+        /**
+         * Reads the header of an ID3v2 tag at the beginning of the file.
+         *
+         * @param channel The channel of the file.
+         * @param map     True if the tag should be mapped into memory, so that the frame data is not copied.
+         * @return The opened tag or null if the file does not start with a supported ID3v2 tag.
+         */
+        static Tag open(final FileChannel channel, final boolean map) throws IOException {
+            final ByteBuffer header = TagReader.read(channel, 0, ID3V2_HEADER_SIZE);
+            if (!TagReader.hasMagic(header, 0, ID3V2_MAGIC) || header.remaining() < ID3V2_HEADER_SIZE) {
+                return null;
+            }
+
+            final int version = header.get(3) & 0xFF;
+            final int flags = header.get(5) & 0xFF;
+            final long tagEnd = Math.min(getSyncSafeInt(header, 6) + ID3V2_HEADER_SIZE, channel.size());
+
+            if (version < 2 || version > 4) {
+                return null;
+            }
+
+            // version 2.2 uses this flag to mark the whole tag as compressed
+            if (version == 2 && (flags & HEADER_FLAG_EXTENDED_HEADER) != 0) {
+                return null;
+            }
+
+            if (version < 4 && (flags & HEADER_FLAG_UNSYNCHRONISATION) != 0) {
+                // the whole tag is unsynchronised so it needs to be read completely
+                if (tagEnd > MAXIMUM_UNSYNCHRONISED_TAG_SIZE) {
+                    return null;
+                }
+                final ByteBuffer tag = resynchronise(TagReader.read(channel, 0, (int) tagEnd));
+                return new Tag(version, flags, tag.limit(), (position, length) -> slice(tag, position, length));
+            }
+
+            if (map) {
+                final ByteBuffer tag = channel.map(FileChannel.MapMode.READ_ONLY, 0, tagEnd);
+                return new Tag(version, flags, tagEnd, (position, length) -> view(tag, position, length));
+            }
+
+            return new Tag(version, flags, tagEnd, (position, length) -> TagReader.read(channel, position, length));
+        }
+
+        /**
+         * Iterates over all frames of the tag until the padding is reached.
+         */
+        void forEachFrame(final FrameVisitor visitor) throws IOException {
+            long position = ID3V2_HEADER_SIZE;
+
+            if ((mFlags & HEADER_FLAG_EXTENDED_HEADER) != 0 && mVersion > 2) {
+                final ByteBuffer extendedHeader = mSource.read(position, 4);
+                if (extendedHeader.remaining() < 4) {
+                    return;
+                }
+                // the size of the extended header excludes the size field in version 2.3
+                position += mVersion == 4 ? getSyncSafeInt(extendedHeader, 0) : TagReader.getUnsignedInt(extendedHeader, 0) + 4;
+            }
+
+            final int frameHeaderSize = mVersion == 2 ? 6 : 10;
+
+            while (position + frameHeaderSize <= mTagEnd) {
+                final ByteBuffer frameHeader = mSource.read(position, frameHeaderSize);
+                if (frameHeader.remaining() < frameHeaderSize || frameHeader.get(0) == 0) {
+                    // padding reached
+                    break;
+                }
+
+                final byte[] frameIdBytes = new byte[mVersion == 2 ? 3 : 4];
+                for (int i = 0; i < frameIdBytes.length; i++) {
+                    frameIdBytes[i] = frameHeader.get(i);
+                }
+                final String frameId = new String(frameIdBytes, StandardCharsets.ISO_8859_1);
+
+                final long frameSize;
+                int frameFlags = 0;
+
+                if (mVersion == 2) {
+                    frameSize = ((frameHeader.get(3) & 0xFF) << 16) | ((frameHeader.get(4) & 0xFF) << 8) | (frameHeader.get(5) & 0xFF);
+                } else {
+                    frameSize = mVersion == 4 ? getSyncSafeInt(frameHeader, 4) : TagReader.getUnsignedInt(frameHeader, 4);
+                    frameFlags = frameHeader.get(9) & 0xFF;
+                }
+
+                final long frameDataStart = position + frameHeaderSize;
+
+                if (frameSize <= 0 || frameDataStart + frameSize > mTagEnd) {
+                    break;
+                }
+
+                if (!visitor.visit(frameId, frameFlags, frameDataStart, frameSize)) {
+                    break;
+                }
+
+                position = frameDataStart + frameSize;
+            }
+        }
+
+        /**
+         * Reads the data of a frame and removes the additional frame header data of version 2.3 and 2.4.
+         *
+         * @return The frame data or null if the frame is compressed or encrypted.
+         */
+        ByteBuffer readFrameData(final int frameFlags, final long start, final int size) throws IOException {
+            int skip = 0;
+            boolean unsynchronised = false;
+
+            if (mVersion == 3) {
+                // compression or encryption
+                if ((frameFlags & 0xC0) != 0) {
+                    return null;
+                }
+                // grouping identity
+                if ((frameFlags & 0x20) != 0) {
+                    skip++;
+                }
+            } else if (mVersion == 4) {
+                // compression or encryption
+                if ((frameFlags & 0x0C) != 0) {
+                    return null;
+                }
+                // grouping identity
+                if ((frameFlags & 0x40) != 0) {
+                    skip++;
+                }
+                // data length indicator
+                if ((frameFlags & 0x01) != 0) {
+                    skip += 4;
+                }
+                unsynchronised = (frameFlags & 0x02) != 0;
+            }
+
+            if (skip >= size) {
+                return null;
+            }
+
+            final ByteBuffer data = mSource.read(start + skip, size - skip);
+            return unsynchronised ? resynchronise(data) : data;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser for the iTunes style meta data atoms (moov/udta/meta/ilst) of MP4 files.
+ * <p>
+ * Only the headers of the atoms are read to navigate through the file. The duration is read from the movie header.
+ */
+class MP4TagParser {
+
+    static final byte[] FTYP_MAGIC = {'f', 't', 'y', 'p'};
+
+    private static final int ATOM_HEADER_SIZE = 8;
+
+    /**
+     * Size of the header of a data atom (header, type indicator and locale).
+     */
+    private static final int DATA_ATOM_HEADER_SIZE = 16;
+
+    /**
+     * Maximum size of a text value that is read.
+     */
+    private static final int MAXIMUM_TEXT_SIZE = 4096;
+
+    /**
+     * Type indicator of data atoms containing UTF-8 text.
+     */
+    private static final int DATA_TYPE_UTF8 = 1;
+
+    /**
+     * Type indicator of data atoms containing UTF-16 text.
+     */
+    private static final int DATA_TYPE_UTF16 = 2;
+
+    /**
+     * Callback for each atom found by {@link #forEachAtom}.
+     */
+    interface AtomVisitor {
+        /**
+         * @param type      The four character type of the atom.
+         * @param dataStart The position of the atom data after the header.
+         * @param dataEnd   The end position of the atom.
+         * @return True to continue with the next atom, false to stop.
+         */
+        boolean visit(String type, long dataStart, long dataEnd) throws IOException;
+    }
+
+    /**
+     * Callback for the atom found by {@link #forEachAtomInPath}.
+     */
+    private interface PathTarget {
+        void found(long dataStart, long dataEnd) throws IOException;
+    }
+
+    /**
+     * Reads the duration and the tags of the file.
+     *
+     * @param channel  The channel of the file.
+     * @param fileSize The size of the file.
+     * @param tags     The {@link TrackTags} to fill.
+     */
+    static void parse(final FileChannel channel, final long fileSize, final TrackTags tags) throws IOException {
+        forEachAtom(channel, 0, fileSize, (type, dataStart, dataEnd) -> {
+            if ("moov".equals(type)) {
+                parseMovie(channel, dataStart, dataEnd, tags);
+                return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Reads the image data of the cover atom.
+     * <p>
+     * The data is mapped into memory so the returned buffer is a view of the file.
+     *
+     * @param channel  The channel of the file.
+     * @param fileSize The size of the file.
+     * @return The image data of the first cover or null if the file contains no cover.
+     */
+    static ByteBuffer readPicture(final FileChannel channel, final long fileSize) throws IOException {
+        final ByteBuffer[] picture = new ByteBuffer[1];
+
+        forEachAtomInPath(channel, 0, fileSize, new String[]{"moov", "udta", "meta", "ilst", "covr"}, 0, (dataStart, dataEnd) -> {
+            final ByteBuffer header = TagReader.read(channel, dataStart, DATA_ATOM_HEADER_SIZE);
+            if (header.remaining() < DATA_ATOM_HEADER_SIZE || !TagReader.hasMagic(header, 4, new byte[]{'d', 'a', 't', 'a'})) {
+                return;
+            }
+
+            final long payloadSize = Math.min(TagReader.getUnsignedInt(header, 0), dataEnd - dataStart) - DATA_ATOM_HEADER_SIZE;
+            if (payloadSize > 0) {
+                picture[0] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + DATA_ATOM_HEADER_SIZE, payloadSize);
+            }
+        });
+
+        return picture[0];
+    }
+
+    /**
+     * Descends into the first atom of each type of the given path and calls the target for the last one.
+     */
+    private static void forEachAtomInPath(final FileChannel channel, final long start, final long end, final String[] path, final int depth, final PathTarget target) throws IOException {
+        forEachAtom(channel, start, end, (type, dataStart, dataEnd) -> {
+            if (!path[depth].equals(type)) {
+                return true;
+            }
+
+            if (depth == path.length - 1) {
+                target.found(dataStart, dataEnd);
+            } else {
+                final long childrenStart = "meta".equals(type) ? getMetaChildrenStart(channel, dataStart) : dataStart;
+                forEachAtomInPath(channel, childrenStart, dataEnd, path, depth + 1, target);
+            }
+            return false;
+        });
+    }
+
+    private static void parseMovie(final FileChannel channel, final long start, final long end, final TrackTags tags) throws IOException {
+        forEachAtom(channel, start, end, (type, dataStart, dataEnd) -> {
+            if ("mvhd".equals(type)) {
+                parseMovieHeader(TagReader.read(channel, dataStart, 32), tags);
+            } else if ("udta".equals(type)) {
+                forEachAtom(channel, dataStart, dataEnd, (udtaType, udtaStart, udtaEnd) -> {
+                    if ("meta".equals(udtaType)) {
+                        parseMeta(channel, udtaStart, udtaEnd, tags);
+                    }
+                    return true;
+                });
+            }
+            return true;
+        });
+    }
+
+    private static void parseMeta(final FileChannel channel, final long start, final long end, final TrackTags tags) throws IOException {
+        forEachAtom(channel, getMetaChildrenStart(channel, start), end, (type, dataStart, dataEnd) -> {
+            if ("ilst".equals(type)) {
+                forEachAtom(channel, dataStart, dataEnd, (itemType, itemStart, itemEnd) -> {
+                    parseItem(channel, itemType, itemStart, itemEnd, tags);
+                    return true;
+                });
+                return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Returns the position of the first child atom of a meta atom.
+     * <p>
+     * In MP4 files the meta atom is a full atom with 4 additional bytes for version and flags, in QuickTime files it is not.
+     */
+    static long getMetaChildrenStart(final FileChannel channel, final long start) throws IOException {
+        final ByteBuffer header = TagReader.read(channel, start, 8);
+        if (TagReader.hasMagic(header, 4, new byte[]{'h', 'd', 'l', 'r'})) {
+            return start;
+        }
+        return start + 4;
+    }
+
+    private static void parseMovieHeader(final ByteBuffer header, final TrackTags tags) {
+        if (header.remaining() < 20) {
+            return;
+        }
+
+        final int version = header.get(0);
+
+        final long timeScale;
+        final long duration;
+
+        if (version == 1) {
+            if (header.remaining() < 32) {
+                return;
+            }
+            timeScale = TagReader.getUnsignedInt(header, 20);
+            duration = header.getLong(24);
+        } else {
+            timeScale = TagReader.getUnsignedInt(header, 12);
+            duration = TagReader.getUnsignedInt(header, 16);
+        }
+
+        if (timeScale > 0 && duration > 0) {
+            tags.setDuration(duration * 1000L / timeScale);
+        }
+    }
+
+    private static void parseItem(final FileChannel channel, final String type, final long start, final long end, final TrackTags tags) throws IOException {
+        switch (type) {
+            case "\u00A9nam":
+                tags.setTitle(readText(channel, start, end));
+                break;
+            case "\u00A9ART":
+                tags.setArtist(readText(channel, start, end));
+                break;
+            case "\u00A9alb":
+                tags.setAlbum(readText(channel, start, end));
+                break;
+            case "trkn": {
+                final ByteBuffer data = readData(channel, start, end);
+                // reserved (2 bytes), track number (2 bytes), number of tracks (2 bytes)
+                if (data != null && data.remaining() >= 4) {
+                    tags.setTrackNumber(data.getShort(2) & 0xFFFF);
+                }
+                break;
+            }
+        }
+    }
+
+    private static String readText(final FileChannel channel, final long start, final long end) throws IOException {
+        final ByteBuffer header = TagReader.read(channel, start, DATA_ATOM_HEADER_SIZE);
+        if (!TagReader.hasMagic(header, 4, new byte[]{'d', 'a', 't', 'a'}) || header.remaining() < DATA_ATOM_HEADER_SIZE) {
+            return null;
+        }
+
+        final int dataType = header.getInt(8) & 0xFFFFFF;
+        final ByteBuffer data = readData(channel, start, end);
+
+        if (data == null || (dataType != DATA_TYPE_UTF8 && dataType != DATA_TYPE_UTF16)) {
+            return null;
+        }
+
+        return new String(data.array(), 0, data.limit(), dataType == DATA_TYPE_UTF16 ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the payload of the first data atom of an item.
+     */
+    private static ByteBuffer readData(final FileChannel channel, final long start, final long end) throws IOException {
+        final ByteBuffer header = TagReader.read(channel, start, DATA_ATOM_HEADER_SIZE);
+        if (header.remaining() < DATA_ATOM_HEADER_SIZE || !TagReader.hasMagic(header, 4, new byte[]{'d', 'a', 't', 'a'})) {
+            return null;
+        }
+
+        final long atomSize = TagReader.getUnsignedInt(header, 0);
+        final long payloadSize = Math.min(atomSize, end - start) - DATA_ATOM_HEADER_SIZE;
+
+        if (payloadSize < 0 || payloadSize > MAXIMUM_TEXT_SIZE) {
+            return null;
+        }
+
+        return TagReader.read(channel, start + DATA_ATOM_HEADER_SIZE, (int) payloadSize);
+    }
+
+    /**
+     * Iterates over the atoms between start and end by reading only their headers.
+     */
+    static void forEachAtom(final FileChannel channel, final long start, final long end, final AtomVisitor visitor) throws IOException {
+        long position = start;
+
+        while (position + ATOM_HEADER_SIZE <= end) {
+            final ByteBuffer header = TagReader.read(channel, position, ATOM_HEADER_SIZE);
+            if (header.remaining() < ATOM_HEADER_SIZE) {
+                return;
+            }
+
+            long size = TagReader.getUnsignedInt(header, 0);
+            final String type = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+
+            long headerSize = ATOM_HEADER_SIZE;
+
+            if (size == 1) {
+                // 64 bit size follows the type
+                final ByteBuffer largeSize = TagReader.read(channel, position + ATOM_HEADER_SIZE, 8);
+                if (largeSize.remaining() < 8) {
+                    return;
+                }
+                size = largeSize.getLong(0);
+                headerSize += 8;
+            } else if (size == 0) {
+                // atom extends to the end
+                size = end - position;
+            }
+
+            if (size < headerSize || position + size > end) {
+                return;
+            }
+
+            if (!visitor.visit(type, position + headerSize, position + size)) {
+                return;
+            }
+
+            position += size;
+        }
+    }
+}
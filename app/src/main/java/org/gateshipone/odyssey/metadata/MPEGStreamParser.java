@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Parser that calculates the duration of an MPEG audio stream from its first frame header.
+ * <p>
+ * For VBR files the frame count of a Xing/Info or VBRI header is used, otherwise the duration is derived from
+ * the bitrate of the first frame.
+ */
+class MPEGStreamParser {
+
+    /**
+     * Number of bytes that are searched for the first frame header.
+     */
+    private static final int FRAME_SEARCH_SIZE = 64 * 1024;
+
+    private static final byte[] XING_MAGIC = {'X', 'i', 'n', 'g'};
+
+    private static final byte[] INFO_MAGIC = {'I', 'n', 'f', 'o'};
+
+    private static final byte[] VBRI_MAGIC = {'V', 'B', 'R', 'I'};
+
+    /**
+     * Offset of the VBRI header from the frame start.
+     */
+    private static final int VBRI_OFFSET = 36;
+
+    private static final int VERSION_2_5 = 0;
+
+    private static final int VERSION_2 = 2;
+
+    private static final int VERSION_1 = 3;
+
+    private static final int LAYER_3 = 1;
+
+    private static final int LAYER_2 = 2;
+
+    private static final int LAYER_1 = 3;
+
+    /**
+     * Bitrates in kbit/s indexed by [table][bitrate index].
+     */
+    private static final int[][] BITRATES = {
+            // MPEG 1 Layer I
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            // MPEG 1 Layer II
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            // MPEG 1 Layer III
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            // MPEG 2/2.5 Layer I
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            // MPEG 2/2.5 Layer II & III
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+
+    /**
+     * Sample rates in Hz for MPEG 1. MPEG 2 uses the half and MPEG 2.5 the quarter of these values.
+     */
+    private static final int[] SAMPLE_RATES = {44100, 48000, 32000};
+
+    /**
+     * Decoded values of a frame header.
+     */
+    private static class FrameHeader {
+        int version;
+        int layer;
+        int bitrate;
+        int sampleRate;
+        boolean mono;
+        int frameLength;
+        int samplesPerFrame;
+    }
+
+    /**
+     * Checks if the given 4 bytes are a valid frame header.
+     */
+    static boolean isFrameHeader(final int header) {
+        return decodeFrameHeader(header) != null;
+    }
+
+    /**
+     * Calculates the duration of the stream and stores it in the given tags.
+     *
+     * @param channel     The channel of the file.
+     * @param streamStart The position where the audio data starts (after the ID3v2 tag).
+     * @param fileSize    The size of the file.
+     * @param tags        The {@link TrackTags} to fill.
+     */
+    static void parse(final FileChannel channel, final long streamStart, final long fileSize, final TrackTags tags) throws IOException {
+        final ByteBuffer data = TagReader.read(channel, streamStart, FRAME_SEARCH_SIZE);
+
+        for (int i = 0; i + 4 <= data.limit(); i++) {
+            if ((data.get(i) & 0xFF) != 0xFF || (data.get(i + 1) & 0xE0) != 0xE0) {
+                continue;
+            }
+
+            final FrameHeader header = decodeFrameHeader(data.getInt(i));
+            if (header == null) {
+                continue;
+            }
+
+            // check that the next frame starts where expected to avoid false syncs
+            final int nextFrame = i + header.frameLength;
+            if (nextFrame + 4 <= data.limit() && decodeFrameHeader(data.getInt(nextFrame)) == null) {
+                continue;
+            }
+
+            final long frameCount = getVBRFrameCount(data, i, header);
+
+            if (frameCount > 0) {
+                tags.setDuration(frameCount * header.samplesPerFrame * 1000L / header.sampleRate);
+            } else {
+                long streamEnd = fileSize;
+
+                if (fileSize >= ID3TagParser.ID3V1_TAG_SIZE) {
+                    final ByteBuffer tail = TagReader.read(channel, fileSize - ID3TagParser.ID3V1_TAG_SIZE, ID3TagParser.ID3V1_TAG_SIZE);
+                    if (ID3TagParser.hasID3v1Tag(tail)) {
+                        streamEnd -= ID3TagParser.ID3V1_TAG_SIZE;
+                    }
+                }
+
+                // bitrate is in kbit/s so the result is in ms
+                tags.setDuration((streamEnd - streamStart - i) * 8L / header.bitrate);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Reads the number of frames from a Xing/Info or VBRI header in the first frame.
+     *
+     * @return The number of frames or 0 if no such header exists.
+     */
+    private static long getVBRFrameCount(final ByteBuffer data, final int frameStart, final FrameHeader header) {
+        // the xing header follows the side information
+        final int xingOffset;
+        if (header.version == VERSION_1) {
+            xingOffset = frameStart + (header.mono ? 21 : 36);
+        } else {
+            xingOffset = frameStart + (header.mono ? 13 : 21);
+        }
+
+        if ((TagReader.hasMagic(data, xingOffset, XING_MAGIC) || TagReader.hasMagic(data, xingOffset, INFO_MAGIC)) && xingOffset + 12 <= data.limit()) {
+            final int flags = data.getInt(xingOffset + 4);
+            // frame count available
+            if ((flags & 0x1) != 0) {
+                return TagReader.getUnsignedInt(data, xingOffset + 8);
+            }
+            return 0;
+        }
+
+        final int vbriOffset = frameStart + VBRI_OFFSET;
+        if (TagReader.hasMagic(data, vbriOffset, VBRI_MAGIC) && vbriOffset + 18 <= data.limit()) {
+            return TagReader.getUnsignedInt(data, vbriOffset + 14);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Decodes the given frame header.
+     *
+     * @return The decoded header or null if this is not a valid frame header.
+     */
+    private static FrameHeader decodeFrameHeader(final int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) {
+            return null;
+        }
+
+        final int version = (header >> 19) & 0x3;
+        final int layer = (header >> 17) & 0x3;
+        final int bitrateIndex = (header >> 12) & 0xF;
+        final int sampleRateIndex = (header >> 10) & 0x3;
+        final int padding = (header >> 9) & 0x1;
+        final int channelMode = (header >> 6) & 0x3;
+
+        // reserved or free format values are not supported
+        if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 0xF || sampleRateIndex == 0x3) {
+            return null;
+        }
+
+        final FrameHeader frameHeader = new FrameHeader();
+        frameHeader.version = version;
+        frameHeader.layer = layer;
+        frameHeader.mono = channelMode == 0x3;
+
+        final int bitrateTable;
+        if (version == VERSION_1) {
+            bitrateTable = layer == LAYER_1 ? 0 : (layer == LAYER_2 ? 1 : 2);
+        } else {
+            bitrateTable = layer == LAYER_1 ? 3 : 4;
+        }
+        frameHeader.bitrate = BITRATES[bitrateTable][bitrateIndex];
+
+        int sampleRate = SAMPLE_RATES[sampleRateIndex];
+        if (version == VERSION_2) {
+            sampleRate /= 2;
+        } else if (version == VERSION_2_5) {
+            sampleRate /= 4;
+        }
+        frameHeader.sampleRate = sampleRate;
+
+        if (layer == LAYER_1) {
+            frameHeader.samplesPerFrame = 384;
+            frameHeader.frameLength = (12 * frameHeader.bitrate * 1000 / sampleRate + padding) * 4;
+        } else if (layer == LAYER_3 && version != VERSION_1) {
+            frameHeader.samplesPerFrame = 576;
+            frameHeader.frameLength = 72 * frameHeader.bitrate * 1000 / sampleRate + padding;
+        } else {
+            frameHeader.samplesPerFrame = 1152;
+            frameHeader.frameLength = 144 * frameHeader.bitrate * 1000 / sampleRate + padding;
+        }
+
+        return frameHeader;
+    }
+}
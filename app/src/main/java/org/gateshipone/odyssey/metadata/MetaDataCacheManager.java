@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import org.gateshipone.odyssey.models.TrackModel;
+
+import java.util.Collection;
+
+/**
+ * Persistent cache for meta data that was extracted from files outside of the mediastore.
+ * <p>
+ * Entries are keyed by the path of the file together with its size and its last modification time,
+ * so a changed file will be extracted again.
+ */
+public class MetaDataCacheManager extends SQLiteOpenHelper {
+
+    /**
+     * The name of the database
+     */
+    private static final String DATABASE_NAME = "OdysseyMetaDataDB";
+
+    /**
+     * The version of the database
+     */
+    private static final int DATABASE_VERSION = 1;
+
+    private static MetaDataCacheManager mInstance;
+
+    /**
+     * Entry of the cache which binds a {@link TrackModel} to the state of its file.
+     */
+    public static class CacheEntry {
+        public final TrackModel track;
+
+        public final long fileSize;
+
+        public final long fileModified;
+
+        public CacheEntry(final TrackModel track, final long fileSize, final long fileModified) {
+            this.track = track;
+            this.fileSize = fileSize;
+            this.fileModified = fileModified;
+        }
+    }
+
+    private MetaDataCacheManager(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public static synchronized MetaDataCacheManager getInstance(Context context) {
+        if (null == mInstance) {
+            mInstance = new MetaDataCacheManager(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    /**
+     * Creates the database tables if they are not already existing
+     *
+     * @param db The {@link SQLiteDatabase} instance that will be used to create the tables.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        MetaDataCacheTable.createTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The cache can always be rebuilt so just start with an empty one
+        MetaDataCacheTable.dropTable(db);
+        onCreate(db);
+    }
+
+    /**
+     * Tries to find a previously extracted track for the given file.
+     *
+     * @param path         The path of the file.
+     * @param fileSize     The current size of the file.
+     * @param fileModified The current modification time of the file.
+     * @return The cached {@link TrackModel} or null if the file is unknown or was changed.
+     */
+    public synchronized TrackModel getTrack(final String path, final long fileSize, final long fileModified) {
+        final SQLiteDatabase database = getReadableDatabase();
+
+        final String selection = MetaDataCacheTable.COLUMN_TRACK_PATH + "=? AND " + MetaDataCacheTable.COLUMN_FILE_SIZE + "=? AND " + MetaDataCacheTable.COLUMN_FILE_MODIFIED + "=?";
+        final String[] selectionArguments = {path, String.valueOf(fileSize), String.valueOf(fileModified)};
+
+        final Cursor cursor = database.query(MetaDataCacheTable.TABLE_NAME,
+                new String[]{MetaDataCacheTable.COLUMN_TRACK_TITLE, MetaDataCacheTable.COLUMN_TRACK_ARTIST, MetaDataCacheTable.COLUMN_TRACK_ALBUM,
+                        MetaDataCacheTable.COLUMN_TRACK_DURATION, MetaDataCacheTable.COLUMN_TRACK_NUMBER},
+                selection, selectionArguments, null, null, null);
+
+        TrackModel track = null;
+
+        if (cursor.moveToFirst()) {
+            final String title = cursor.getString(cursor.getColumnIndex(MetaDataCacheTable.COLUMN_TRACK_TITLE));
+            final String artist = cursor.getString(cursor.getColumnIndex(MetaDataCacheTable.COLUMN_TRACK_ARTIST));
+            final String album = cursor.getString(cursor.getColumnIndex(MetaDataCacheTable.COLUMN_TRACK_ALBUM));
+            final long duration = cursor.getLong(cursor.getColumnIndex(MetaDataCacheTable.COLUMN_TRACK_DURATION));
+            final int number = cursor.getInt(cursor.getColumnIndex(MetaDataCacheTable.COLUMN_TRACK_NUMBER));
+
+            final String albumKey = "" + ((artist == null ? "" : artist) + (album == null ? "" : album)).hashCode();
+
+            track = new TrackModel(title, artist, album, albumKey, duration, number, path, -1);
+        }
+
+        cursor.close();
+        database.close();
+
+        return track;
+    }
+
+    /**
+     * Saves the given entries in one transaction. Existing entries for the same path are replaced.
+     *
+     * @param entries The extracted tracks together with the state of their files.
+     */
+    public synchronized void insertTracks(final Collection<CacheEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        final SQLiteDatabase database = getWritableDatabase();
+
+        final ContentValues values = new ContentValues();
+
+        database.beginTransaction();
+
+        for (CacheEntry entry : entries) {
+            values.clear();
+
+            values.put(MetaDataCacheTable.COLUMN_TRACK_PATH, entry.track.getTrackURL());
+            values.put(MetaDataCacheTable.COLUMN_FILE_SIZE, entry.fileSize);
+            values.put(MetaDataCacheTable.COLUMN_FILE_MODIFIED, entry.fileModified);
+            values.put(MetaDataCacheTable.COLUMN_TRACK_TITLE, entry.track.getTrackName());
+            values.put(MetaDataCacheTable.COLUMN_TRACK_ARTIST, entry.track.getTrackArtistName());
+            values.put(MetaDataCacheTable.COLUMN_TRACK_ALBUM, entry.track.getTrackAlbumName());
+            values.put(MetaDataCacheTable.COLUMN_TRACK_DURATION, entry.track.getTrackDuration());
+            values.put(MetaDataCacheTable.COLUMN_TRACK_NUMBER, entry.track.getTrackNumber());
+
+            database.replace(MetaDataCacheTable.TABLE_NAME, "", values);
+        }
+
+        database.setTransactionSuccessful();
+        database.endTransaction();
+
+        database.close();
+    }
+
+    /**
+     * Removes all cached entries.
+     */
+    public synchronized void clearCache() {
+        final SQLiteDatabase database = getWritableDatabase();
+
+        database.delete(MetaDataCacheTable.TABLE_NAME, null, null);
+
+        database.close();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import android.database.sqlite.SQLiteDatabase;
+
+class MetaDataCacheTable {
+    static final String TABLE_NAME = "odyssey_track_metadata_items";
+
+    static final String COLUMN_TRACK_PATH = "track_path";
+
+    static final String COLUMN_FILE_SIZE = "file_size";
+
+    static final String COLUMN_FILE_MODIFIED = "file_modified";
+
+    static final String COLUMN_TRACK_TITLE = "track_title";
+
+    static final String COLUMN_TRACK_ARTIST = "track_artist";
+
+    static final String COLUMN_TRACK_ALBUM = "track_album";
+
+    static final String COLUMN_TRACK_DURATION = "track_duration";
+
+    static final String COLUMN_TRACK_NUMBER = "track_number";
+
+    private static final String DATABASE_CREATE = "CREATE TABLE if not exists " +
+            TABLE_NAME +
+            " (" +
+            COLUMN_TRACK_PATH + " text primary key," +
+            COLUMN_FILE_SIZE + " integer," +
+            COLUMN_FILE_MODIFIED + " integer," +
+            COLUMN_TRACK_TITLE + " text," +
+            COLUMN_TRACK_ARTIST + " text," +
+            COLUMN_TRACK_ALBUM + " text," +
+            COLUMN_TRACK_DURATION + " integer," +
+            COLUMN_TRACK_NUMBER + " integer" +
+            ");";
+
+    private static final String DATABASE_DROP = "DROP TABLE if exists " + TABLE_NAME;
+
+    static void createTable(final SQLiteDatabase database) {
+        // Create table if not already existing
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    static void dropTable(final SQLiteDatabase database) {
+        // drop table if already existing
+        database.execSQL(DATABASE_DROP);
+    }
+}
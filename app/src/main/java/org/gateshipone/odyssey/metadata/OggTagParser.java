@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Parser for Vorbis and Opus streams in an Ogg container.
+ * <p>
+ * The tags are read from the comment header packet, the duration is calculated from the granule position
+ * of the last page of the stream.
+ */
+class OggTagParser {
+
+    static final byte[] OGG_MAGIC = {'O', 'g', 'g', 'S'};
+
+    private static final byte[] VORBIS_IDENTIFICATION_MAGIC = {0x01, 'v', 'o', 'r', 'b', 'i', 's'};
+
+    private static final byte[] VORBIS_COMMENT_MAGIC = {0x03, 'v', 'o', 'r', 'b', 'i', 's'};
+
+    private static final byte[] OPUS_IDENTIFICATION_MAGIC = {'O', 'p', 'u', 's', 'H', 'e', 'a', 'd'};
+
+    private static final byte[] OPUS_COMMENT_MAGIC = {'O', 'p', 'u', 's', 'T', 'a', 'g', 's'};
+
+    /**
+     * Opus always uses a 48 kHz clock for the granule position.
+     */
+    private static final int OPUS_SAMPLE_RATE = 48000;
+
+    private static final int PAGE_HEADER_SIZE = 27;
+
+    /**
+     * Maximum size of a header packet that is read. Larger packets are truncated.
+     */
+    private static final int MAXIMUM_PACKET_SIZE = 512 * 1024;
+
+    /**
+     * Number of bytes at the end of the file that are searched for the last page.
+     */
+    private static final int LAST_PAGE_SEARCH_SIZE = 64 * 1024;
+
+    /**
+     * Reads the tags and the duration of the first logical stream.
+     *
+     * @param channel  The channel of the file.
+     * @param fileSize The size of the file.
+     * @param tags     The {@link TrackTags} to fill.
+     */
+    static void parse(final FileChannel channel, final long fileSize, final TrackTags tags) throws IOException {
+        final PacketReader reader = new PacketReader(channel, fileSize);
+
+        final ByteBuffer identification = reader.nextPacket();
+        if (identification == null) {
+            return;
+        }
+
+        final long sampleRate;
+        final long preSkip;
+        final byte[] commentMagic;
+
+        if (TagReader.hasMagic(identification, 0, VORBIS_IDENTIFICATION_MAGIC) && identification.limit() >= 16) {
+            sampleRate = TagReader.getUnsignedInt(identification, 12);
+            preSkip = 0;
+            commentMagic = VORBIS_COMMENT_MAGIC;
+        } else if (TagReader.hasMagic(identification, 0, OPUS_IDENTIFICATION_MAGIC) && identification.limit() >= 12) {
+            sampleRate = OPUS_SAMPLE_RATE;
+            preSkip = identification.getShort(10) & 0xFFFF;
+            commentMagic = OPUS_COMMENT_MAGIC;
+        } else {
+            // other codecs are not supported
+            return;
+        }
+
+        final ByteBuffer comment = reader.nextPacket();
+        if (comment != null && TagReader.hasMagic(comment, 0, commentMagic)) {
+            VorbisCommentParser.parse(comment, commentMagic.length, tags);
+        }
+
+        final long granulePosition = getLastGranulePosition(channel, fileSize, reader.getSerialNumber());
+        if (sampleRate > 0 && granulePosition > preSkip) {
+            tags.setDuration((granulePosition - preSkip) * 1000L / sampleRate);
+        }
+    }
+
+    /**
+     * Searches the last page of the stream with the given serial number and returns its granule position.
+     *
+     * @return The granule position or -1 if no page was found.
+     */
+    private static long getLastGranulePosition(final FileChannel channel, final long fileSize, final int serialNumber) throws IOException {
+        final long searchStart = Math.max(0, fileSize - LAST_PAGE_SEARCH_SIZE);
+        final ByteBuffer data = TagReader.read(channel, searchStart, (int) (fileSize - searchStart)).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = data.limit() - PAGE_HEADER_SIZE; i >= 0; i--) {
+            if (TagReader.hasMagic(data, i, OGG_MAGIC) && data.getInt(i + 14) == serialNumber) {
+                final long granulePosition = data.getLong(i + 6);
+                // pages without a finished packet have a granule position of -1
+                if (granulePosition >= 0) {
+                    return granulePosition;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Reassembles the packets of the first logical stream from its pages.
+     */
+    private static class PacketReader {
+
+        private final FileChannel mChannel;
+
+        private final long mFileSize;
+
+        /**
+         * Position of the next page.
+         */
+        private long mNextPage;
+
+        /**
+         * Segment table of the current page.
+         */
+        private ByteBuffer mSegmentTable;
+
+        /**
+         * Index of the next segment in the current page.
+         */
+        private int mSegmentIndex;
+
+        /**
+         * Position of the next segment in the file.
+         */
+        private long mSegmentPosition;
+
+        private int mSerialNumber;
+
+        private boolean mFirstPage = true;
+
+        PacketReader(final FileChannel channel, final long fileSize) {
+            mChannel = channel;
+            mFileSize = fileSize;
+        }
+
+        int getSerialNumber() {
+            return mSerialNumber;
+        }
+
+        /**
+         * Reads the next complete packet.
+         *
+         * @return The packet data as a little endian buffer or null if no packet is available.
+         */
+        ByteBuffer nextPacket() throws IOException {
+            final ByteArrayOutputStream packet = new ByteArrayOutputStream();
+
+            while (true) {
+                if (mSegmentTable == null || mSegmentIndex >= mSegmentTable.limit()) {
+                    if (!readPageHeader()) {
+                        return null;
+                    }
+                    continue;
+                }
+
+                final int segmentLength = mSegmentTable.get(mSegmentIndex++) & 0xFF;
+
+                final int readLength = Math.min(segmentLength, MAXIMUM_PACKET_SIZE - packet.size());
+                if (readLength > 0) {
+                    final ByteBuffer segment = TagReader.read(mChannel, mSegmentPosition, readLength);
+                    packet.write(segment.array(), 0, segment.limit());
+                }
+                mSegmentPosition += segmentLength;
+
+                // a segment shorter than 255 bytes finishes the packet
+                if (segmentLength < 255) {
+                    return ByteBuffer.wrap(packet.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+        }
+
+        /**
+         * Reads the header of the next page that belongs to the first logical stream.
+         *
+         * @return True if a page was found.
+         */
+        private boolean readPageHeader() throws IOException {
+            while (mNextPage + PAGE_HEADER_SIZE <= mFileSize) {
+                final ByteBuffer header = TagReader.read(mChannel, mNextPage, PAGE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                if (header.remaining() < PAGE_HEADER_SIZE || !TagReader.hasMagic(header, 0, OGG_MAGIC)) {
+                    return false;
+                }
+
+                final int serialNumber = header.getInt(14);
+                final int segmentCount = header.get(26) & 0xFF;
+
+                final ByteBuffer segmentTable = TagReader.read(mChannel, mNextPage + PAGE_HEADER_SIZE, segmentCount);
+                if (segmentTable.remaining() < segmentCount) {
+                    return false;
+                }
+
+                final long dataStart = mNextPage + PAGE_HEADER_SIZE + segmentCount;
+                long dataLength = 0;
+                for (int i = 0; i < segmentCount; i++) {
+                    dataLength += segmentTable.get(i) & 0xFF;
+                }
+
+                mNextPage = dataStart + dataLength;
+
+                if (mFirstPage) {
+                    mSerialNumber = serialNumber;
+                    mFirstPage = false;
+                } else if (serialNumber != mSerialNumber) {
+                    // page of another multiplexed stream
+                    continue;
+                }
+
+                mSegmentTable = segmentTable;
+                mSegmentIndex = 0;
+                mSegmentPosition = dataStart;
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
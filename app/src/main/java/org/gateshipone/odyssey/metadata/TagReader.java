@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Lightweight reader for the tags of audio files.
+ * <p>
+ * Supported are ID3v1/ID3v2 tags of MPEG audio files, FLAC files, Vorbis and Opus streams in an Ogg container and
+ * MP4 files. Only the header parts of a file are read with positional reads on a {@link FileChannel}, the audio data
+ * itself is never touched. The duration is derived from the stream headers.
+ * <p>
+ * This class does not depend on any android framework classes.
+ */
+public class TagReader {
+
+    /**
+     * Number of bytes needed to detect the format of a file.
+     */
+    static final int DETECTION_HEADER_SIZE = 12;
+
+    private TagReader() {
+    }
+
+    /**
+     * Reads the tags of the given file.
+     *
+     * @param file The file to read.
+     * @return The read {@link TrackTags} or null if the format is not supported or no meta data could be read.
+     * @throws IOException If the file could not be read.
+     */
+    public static TrackTags readTags(final File file) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            return readTags(inputStream.getChannel());
+        }
+    }
+
+    /**
+     * Reads the tags of the file represented by the given channel.
+     *
+     * @param channel The {@link FileChannel} of the file to read. Only positional reads are used.
+     * @return The read {@link TrackTags} or null if the format is not supported or no meta data could be read.
+     * @throws IOException If the file could not be read.
+     */
+    public static TrackTags readTags(final FileChannel channel) throws IOException {
+        final long fileSize = channel.size();
+
+        final ByteBuffer header = read(channel, 0, DETECTION_HEADER_SIZE);
+        if (header.remaining() < DETECTION_HEADER_SIZE) {
+            return null;
+        }
+
+        final TrackTags tags = new TrackTags();
+
+        if (hasMagic(header, 0, ID3TagParser.ID3V2_MAGIC)) {
+            // ID3v2 tags are used for mpeg files but some taggers also prepend them to flac files
+            final long tagEnd = ID3TagParser.getTagSize(header);
+            final ByteBuffer streamHeader = read(channel, tagEnd, FlacTagParser.FLAC_MAGIC.length);
+
+            if (hasMagic(streamHeader, 0, FlacTagParser.FLAC_MAGIC)) {
+                FlacTagParser.parse(channel, tagEnd, tags);
+                ID3TagParser.parseID3v2(channel, tags);
+            } else {
+                MPEGStreamParser.parse(channel, tagEnd, fileSize, tags);
+                ID3TagParser.parseID3v2(channel, tags);
+                ID3TagParser.parseID3v1(channel, tags);
+            }
+        } else if (hasMagic(header, 0, FlacTagParser.FLAC_MAGIC)) {
+            FlacTagParser.parse(channel, 0, tags);
+        } else if (hasMagic(header, 0, OggTagParser.OGG_MAGIC)) {
+            OggTagParser.parse(channel, fileSize, tags);
+        } else if (hasMagic(header, 4, MP4TagParser.FTYP_MAGIC)) {
+            MP4TagParser.parse(channel, fileSize, tags);
+        } else if (MPEGStreamParser.isFrameHeader(header.getInt(0))) {
+            // mpeg file without an ID3v2 tag
+            MPEGStreamParser.parse(channel, 0, fileSize, tags);
+            ID3TagParser.parseID3v1(channel, tags);
+        } else {
+            return null;
+        }
+
+        return tags.isEmpty() ? null : tags;
+    }
+
+    /**
+     * Reads up to length bytes at the given position of the channel.
+     *
+     * @param channel  The channel to read from.
+     * @param position The position in the file.
+     * @param length   The maximum number of bytes to read.
+     * @return A big endian {@link ByteBuffer} that contains the read bytes. This could be less than the requested
+     * length if the end of the file was reached.
+     */
+    static ByteBuffer read(final FileChannel channel, final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.max(0, length));
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Checks if the buffer contains the given magic bytes at the given position.
+     */
+    static boolean hasMagic(final ByteBuffer buffer, final int position, final byte[] magic) {
+        if (buffer.limit() < position + magic.length) {
+            return false;
+        }
+
+        for (int i = 0; i < magic.length; i++) {
+            if (buffer.get(position + i) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads an unsigned 32 bit integer at the given position using the byte order of the buffer.
+     */
+    static long getUnsignedInt(final ByteBuffer buffer, final int position) {
+        return buffer.getInt(position) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+/**
+ * Meta data that was read from the tags and the stream headers of a single file by the {@link TagReader}.
+ */
+public class TrackTags {
+
+    /**
+     * The title of the track or null if not available
+     */
+    private String mTitle;
+
+    /**
+     * The artist of the track or null if not available
+     */
+    private String mArtist;
+
+    /**
+     * The album of the track or null if not available
+     */
+    private String mAlbum;
+
+    /**
+     * The number of the track or -1 if not available
+     */
+    private int mTrackNumber = -1;
+
+    /**
+     * The duration of the track in ms or 0 if not available
+     */
+    private long mDuration;
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public String getArtist() {
+        return mArtist;
+    }
+
+    public String getAlbum() {
+        return mAlbum;
+    }
+
+    public int getTrackNumber() {
+        return mTrackNumber;
+    }
+
+    public long getDuration() {
+        return mDuration;
+    }
+
+    /**
+     * @return True if neither a tag nor the duration could be read.
+     */
+    public boolean isEmpty() {
+        return mTitle == null && mArtist == null && mAlbum == null && mTrackNumber == -1 && mDuration <= 0;
+    }
+
+    /*
+     * The setters will keep the first valid value, so the preferred tag format should be parsed first.
+     */
+
+    void setTitle(final String title) {
+        if (mTitle == null && isValid(title)) {
+            mTitle = title;
+        }
+    }
+
+    void setArtist(final String artist) {
+        if (mArtist == null && isValid(artist)) {
+            mArtist = artist;
+        }
+    }
+
+    void setAlbum(final String album) {
+        if (mAlbum == null && isValid(album)) {
+            mAlbum = album;
+        }
+    }
+
+    /**
+     * Sets the track number from a tag value which could have the format (trackNumber / numberOfTracks).
+     *
+     * @param trackNumber The value of the track number tag.
+     */
+    void setTrackNumber(final String trackNumber) {
+        if (mTrackNumber != -1 || !isValid(trackNumber)) {
+            return;
+        }
+
+        try {
+            final int separator = trackNumber.indexOf('/');
+            setTrackNumber(Integer.parseInt((separator >= 0 ? trackNumber.substring(0, separator) : trackNumber).trim()));
+        } catch (NumberFormatException e) {
+            // ignore invalid values
+        }
+    }
+
+    void setTrackNumber(final int trackNumber) {
+        if (mTrackNumber == -1 && trackNumber > 0) {
+            mTrackNumber = trackNumber;
+        }
+    }
+
+    void setDuration(final long duration) {
+        if (mDuration <= 0 && duration > 0) {
+            mDuration = duration;
+        }
+    }
+
+    private static boolean isValid(final String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
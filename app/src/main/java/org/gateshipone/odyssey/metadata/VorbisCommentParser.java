@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Parser for Vorbis comments as used by FLAC, Ogg Vorbis and Opus files.
+ */
+class VorbisCommentParser {
+
+    /**
+     * Reads the comments in the given buffer.
+     *
+     * @param data   The buffer containing the comment header.
+     * @param offset The start of the comment header (the vendor string length).
+     * @param tags   The {@link TrackTags} to fill.
+     */
+    static void parse(final ByteBuffer data, final int offset, final TrackTags tags) {
+        final ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        int position = offset;
+
+        if (position + 4 > buffer.limit()) {
+            return;
+        }
+
+        // skip the vendor string
+        position += 4 + buffer.getInt(position);
+
+        if (position < offset || position + 4 > buffer.limit()) {
+            return;
+        }
+
+        final long commentCount = TagReader.getUnsignedInt(buffer, position);
+        position += 4;
+
+        for (long i = 0; i < commentCount && position + 4 <= buffer.limit(); i++) {
+            final long length = TagReader.getUnsignedInt(buffer, position);
+            position += 4;
+
+            if (position + length > buffer.limit()) {
+                // the comment was truncated
+                return;
+            }
+
+            final String comment = new String(buffer.array(), buffer.arrayOffset() + position, (int) length, StandardCharsets.UTF_8);
+            position += length;
+
+            final int separator = comment.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+
+            final String value = comment.substring(separator + 1);
+
+            switch (comment.substring(0, separator).toUpperCase(Locale.ROOT)) {
+                case "TITLE":
+                    tags.setTitle(value);
+                    break;
+                case "ARTIST":
+                    tags.setArtist(value);
+                    break;
+                case "ALBUM":
+                    tags.setAlbum(value);
+                    break;
+                case "TRACKNUMBER":
+                    tags.setTrackNumber(value);
+                    break;
+            }
+        }
+    }
+}
@@ -97,6 +97,20 @@ public class AlbumModel implements GenericModel, Parcelable {
         this(name, albumArtURL, artistName, albumKey, albumID, -1);
     }
 
+    /**
+     * Constructs a copy of the given AlbumModel instance.
+     */
+    public AlbumModel(AlbumModel album) {
+        mAlbumName = album.mAlbumName;
+        mAlbumArtURL = album.mAlbumArtURL;
+        mArtistName = album.mArtistName;
+        mAlbumKey = album.mAlbumKey;
+        mDateAdded = album.mDateAdded;
+        mAlbumID = album.mAlbumID;
+        mMBID = album.mMBID;
+        mImageFetching = album.mImageFetching;
+    }
+
     /**
      * Constructs a AlbumModel from a Parcel.
      * <p>
@@ -56,6 +56,16 @@ public class ArtistModel implements GenericModel, Parcelable {
         mArtistID = artistID;
     }
 
+    /**
+     * Constructs a copy of the given ArtistModel instance.
+     */
+    public ArtistModel(ArtistModel artist) {
+        mArtistName = artist.mArtistName;
+        mArtistID = artist.mArtistID;
+        mMBID = artist.mMBID;
+        mImageFetching = artist.mImageFetching;
+    }
+
     protected ArtistModel(Parcel in) {
         mArtistName = in.readString();
         mArtistID = in.readLong();
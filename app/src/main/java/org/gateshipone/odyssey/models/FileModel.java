@@ -22,8 +22,16 @@
 
 package org.gateshipone.odyssey.models;
 
+import android.content.Context;
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+
+import org.gateshipone.odyssey.utils.CoverFileIndex;
+
 import java.io.File;
-import java.io.FilenameFilter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -31,6 +39,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import androidx.annotation.NonNull;
+import androidx.collection.LruCache;
 
 public class FileModel implements GenericModel, Comparable<FileModel> {
 
@@ -39,15 +48,25 @@ public class FileModel implements GenericModel, Comparable<FileModel> {
      */
     private final File mFile;
 
+    /**
+     * The attributes of the file object. These are read once on first access.
+     */
+    private volatile FileAttributes mAttributes;
+
     /**
      * Helper class to compare to FileModel instances
      */
-    private final FileModelComparator mFileModelComparator;
+    private static final FileModelComparator mFileModelComparator = new FileModelComparator();
 
     /**
-     * Helper class to filter specific file extensions
+     * Number of directory listings that are kept in memory.
      */
-    private final FileExtensionFilter mFileExtensionFilter;
+    private static final int DIRECTORY_CACHE_SIZE = 32;
+
+    /**
+     * Cache for the sorted content of recently listed directories with the path of the directory as key.
+     */
+    private static final LruCache<String, DirectoryListing> mDirectoryCache = new LruCache<>(DIRECTORY_CACHE_SIZE);
 
     /**
      * Static list of valid file extensions
@@ -63,9 +82,6 @@ public class FileModel implements GenericModel, Comparable<FileModel> {
      */
     public FileModel(File file) {
         mFile = file;
-
-        mFileModelComparator = new FileModelComparator();
-        mFileExtensionFilter = new FileExtensionFilter(fileExtensions);
     }
 
     /**
@@ -73,16 +89,28 @@ public class FileModel implements GenericModel, Comparable<FileModel> {
      */
     public FileModel(String filePath) {
         mFile = new File(filePath);
+    }
 
-        mFileModelComparator = new FileModelComparator();
-        mFileExtensionFilter = new FileExtensionFilter(fileExtensions);
+    /**
+     * Construct a FileModel instance for the given file object with already read attributes.
+     */
+    private FileModel(File file, FileAttributes attributes) {
+        mFile = file;
+        mAttributes = attributes;
     }
 
     /**
      * Return the lastModified value of the file object
      */
     public long getLastModified() {
-        return mFile.lastModified();
+        return getAttributes().mLastModified;
+    }
+
+    /**
+     * Return the size of the file object in bytes
+     */
+    public long getSize() {
+        return getAttributes().mSize;
     }
 
     /**
@@ -120,14 +148,14 @@ public class FileModel implements GenericModel, Comparable<FileModel> {
      * Return if the file object is a directory
      */
     public boolean isDirectory() {
-        return mFile.isDirectory();
+        return getAttributes().mIsDirectory;
     }
 
     /**
      * Return if the file object is a file
      */
     public boolean isFile() {
-        return mFile.isFile();
+        return getAttributes().mIsFile;
     }
 
     /**
@@ -149,53 +177,31 @@ public class FileModel implements GenericModel, Comparable<FileModel> {
     /**
      * Return a list of the files in the directory represented by the file object.
      * This list will contain FileModel objects sorted by the filename and the filetype.
+     * <p>
+     * The attributes of each file are read only once while listing the directory. The result is cached
+     * as long as the modification time of the directory does not change.
+     *
+     * @param context The application context to access the {@link CoverFileIndex}.
      */
-    public List<FileModel> listFilesSorted() {
-        List<FileModel> files = new ArrayList<>();
-
-        // get all files in the current folder
-        File[] filesArray = mFile.listFiles(mFileExtensionFilter);
-
-        if (null == filesArray) {
-            return files;
-        }
-        // create FileModel instances
-        for (File file : filesArray) {
-            if (file.getName().equals(".nomedia")) {
-                // .nomedia file found so clear the list and finish
-                files.clear();
-                break;
-            }
-
-            files.add(new FileModel(file));
-        }
-
-        // sort the list
-        Collections.sort(files, mFileModelComparator);
-
-        return files;
+    public List<FileModel> listFilesSorted(final Context context) {
+        return new ArrayList<>(getDirectoryListing(context).mFiles);
     }
 
     /**
      * Return the number of subfolders
+     *
+     * @param context The application context to access the {@link CoverFileIndex}.
      */
-    public int getNumberOfSubFolders() {
-        int numberOfSubFolders = 0;
-
-        // get all files in the current folder
-        File[] filesArray = mFile.listFiles(mFileExtensionFilter);
-
-        if (null == filesArray) {
-            return numberOfSubFolders;
-        }
-
-        for (File file : filesArray) {
-            if (file.isDirectory()) {
-                numberOfSubFolders++;
-            }
-        }
+    public int getNumberOfSubFolders(final Context context) {
+        return getDirectoryListing(context).mNumberOfSubFolders;
+    }
 
-        return numberOfSubFolders;
+    /**
+     * Removes the cached listing of the directory represented by the file object,
+     * so the next call to {@link #listFilesSorted(Context)} will read the directory again.
+     */
+    public void invalidateDirectoryListing() {
+        mDirectoryCache.remove(mFile.getPath());
     }
 
     /**
@@ -226,10 +232,91 @@ public class FileModel implements GenericModel, Comparable<FileModel> {
         return mFile.compareTo(model.mFile);
     }
 
+    private FileAttributes getAttributes() {
+        FileAttributes attributes = mAttributes;
+
+        if (attributes == null) {
+            attributes = FileAttributes.read(mFile);
+            mAttributes = attributes;
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Returns the cached listing of the directory if it is still valid, otherwise the directory is listed again.
+     */
+    private DirectoryListing getDirectoryListing(final Context context) {
+        final String path = mFile.getPath();
+        final long lastModified = mFile.lastModified();
+
+        DirectoryListing listing = mDirectoryCache.get(path);
+
+        if (listing == null || listing.mLastModified != lastModified) {
+            listing = new DirectoryListing(lastModified, listFiles(context, lastModified));
+            mDirectoryCache.put(path, listing);
+        }
+
+        return listing;
+    }
+
+    /**
+     * Lists all directories and supported files of the directory and reads their attributes.
+     * The cover files of the directory are added to the {@link CoverFileIndex} on the way.
+     *
+     * @param context      The application context to access the {@link CoverFileIndex}.
+     * @param lastModified The modification time of the directory before it is listed.
+     */
+    private List<FileModel> listFiles(final Context context, final long lastModified) {
+        List<FileModel> files = new ArrayList<>();
+
+        // get all files in the current folder
+        final String[] fileNames = mFile.list();
+
+        if (null == fileNames) {
+            return files;
+        }
+
+        CoverFileIndex.getInstance(context).updateDirectory(mFile.getPath(), lastModified, fileNames);
+
+        // create FileModel instances
+        for (String fileName : fileNames) {
+            if (fileName.equals(".nomedia")) {
+                // .nomedia file found so clear the list and finish
+                files.clear();
+                break;
+            }
+
+            final File file = new File(mFile, fileName);
+            final FileAttributes attributes = FileAttributes.read(file);
+
+            // show all directories and files that match the valid extensions
+            if (attributes.mIsDirectory || fileExtensions.contains(getFileExtension(fileName))) {
+                files.add(new FileModel(file, attributes));
+            }
+        }
+
+        // sort the list
+        Collections.sort(files, mFileModelComparator);
+
+        return Collections.unmodifiableList(files);
+    }
+
+    private static String getFileExtension(String filename) {
+        // get the extension of the given filename
+
+        String ext = null;
+        int i = filename.lastIndexOf('.');
+        if (i != -1 && i < filename.length()) {
+            ext = filename.substring(i + 1).toLowerCase();
+        }
+        return ext;
+    }
+
     /**
      * Comparator class for the FileModel
      */
-    private class FileModelComparator implements Comparator<FileModel> {
+    private static class FileModelComparator implements Comparator<FileModel> {
 
         @Override
         public int compare(FileModel f1, FileModel f2) {
@@ -254,48 +341,75 @@ public class FileModel implements GenericModel, Comparable<FileModel> {
     }
 
     /**
-     * Filename filter class for the FileModel.
+     * Immutable snapshot of the attributes of a file.
      */
-    private class FileExtensionFilter implements FilenameFilter {
+    private static class FileAttributes {
 
-        private List<String> mExtensions;
+        private final boolean mIsDirectory;
 
-        FileExtensionFilter(List<String> extensions) {
-            mExtensions = extensions;
-        }
+        private final boolean mIsFile;
 
-        @Override
-        public boolean accept(File dir, String filename) {
+        private final long mSize;
 
-            // check if directory
-            if (new File(dir, filename).isDirectory()) {
-                // show all directories
-                return true;
-            }
+        private final long mLastModified;
+
+        private FileAttributes(final boolean isDirectory, final boolean isFile, final long size, final long lastModified) {
+            mIsDirectory = isDirectory;
+            mIsFile = isFile;
+            mSize = size;
+            mLastModified = lastModified;
+        }
 
-            // check if file matches the valid extensions
+        /**
+         * Reads all attributes of the given file with a single stat call.
+         * The modification time keeps the millisecond precision of {@link File#lastModified()}.
+         */
+        static FileAttributes read(final File file) {
+            try {
+                final StructStat stat = Os.stat(file.getPath());
+
+                final long lastModified;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+                    lastModified = stat.st_mtim.tv_sec * 1000L + stat.st_mtim.tv_nsec / 1000000L;
+                } else {
+                    // st_mtime only has a precision of seconds
+                    lastModified = file.lastModified();
+                }
+
+                return new FileAttributes(OsConstants.S_ISDIR(stat.st_mode), OsConstants.S_ISREG(stat.st_mode),
+                        stat.st_size, lastModified);
+            } catch (ErrnoException e) {
+                // file does not exist or is not accessible
+                return new FileAttributes(false, false, 0, 0);
+            }
+        }
+    }
 
-            if (!mExtensions.isEmpty()) {
+    /**
+     * Immutable snapshot of the content of a directory.
+     */
+    private static class DirectoryListing {
 
-                // get file extension
-                String ext = getFileExtension(filename);
+        /**
+         * The modification time of the directory when it was listed.
+         */
+        private final long mLastModified;
 
-                return mExtensions.contains(ext);
-            }
+        private final List<FileModel> mFiles;
 
-            // filename has no valid extension
-            return false;
-        }
+        private final int mNumberOfSubFolders;
 
-        private String getFileExtension(String filename) {
-            // get the extension of the given filename
+        private DirectoryListing(final long lastModified, final List<FileModel> files) {
+            mLastModified = lastModified;
+            mFiles = files;
 
-            String ext = null;
-            int i = filename.lastIndexOf('.');
-            if (i != -1 && i < filename.length()) {
-                ext = filename.substring(i + 1).toLowerCase();
+            int numberOfSubFolders = 0;
+            for (FileModel file : files) {
+                if (file.isDirectory()) {
+                    numberOfSubFolders++;
+                }
             }
-            return ext;
+            mNumberOfSubFolders = numberOfSubFolders;
         }
     }
 }
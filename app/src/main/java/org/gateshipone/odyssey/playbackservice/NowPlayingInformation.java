@@ -24,6 +24,7 @@ package org.gateshipone.odyssey.playbackservice;
 
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
 
 import org.gateshipone.odyssey.models.TrackModel;
 
@@ -48,6 +49,11 @@ public final class NowPlayingInformation implements Parcelable {
     @NonNull
     private final TrackModel mCurrentTrack;
 
+    // Snapshot of the playback position, receivers interpolate the current position from it
+    private final long mTrackPosition;
+    private final long mPositionTimestamp;
+    private final float mPlaybackSpeed;
+
     public static Parcelable.Creator<NowPlayingInformation> CREATOR = new Parcelable.Creator<NowPlayingInformation>() {
 
         @Override
@@ -58,7 +64,10 @@ public final class NowPlayingInformation implements Parcelable {
             PlaybackService.RANDOMSTATE random = PlaybackService.RANDOMSTATE.values()[source.readInt()];
             int playlistlength = source.readInt();
             TrackModel currentTrack = source.readParcelable(TrackModel.class.getClassLoader());
-            return new NowPlayingInformation(playState, playingIndex, repeat, random, playlistlength, currentTrack);
+            long trackPosition = source.readLong();
+            long positionTimestamp = source.readLong();
+            float playbackSpeed = source.readFloat();
+            return new NowPlayingInformation(playState, playingIndex, repeat, random, playlistlength, currentTrack, trackPosition, positionTimestamp, playbackSpeed);
         }
 
         @Override
@@ -80,15 +89,27 @@ public final class NowPlayingInformation implements Parcelable {
         mRandom = PlaybackService.RANDOMSTATE.RANDOM_OFF;
         mPlaylistLength = 0;
         mCurrentTrack = new TrackModel();
+        mTrackPosition = 0;
+        mPositionTimestamp = SystemClock.elapsedRealtime();
+        mPlaybackSpeed = 0.0f;
     }
 
-    public NowPlayingInformation(PlaybackService.PLAYSTATE playing, int playingIndex, PlaybackService.REPEATSTATE repeat, PlaybackService.RANDOMSTATE random, int playlistlength, @NonNull TrackModel currentTrack) {
+    /**
+     * @param trackPosition     Playback position of the current track in ms at the time of the snapshot.
+     * @param positionTimestamp Time of the snapshot as {@link SystemClock#elapsedRealtime()}.
+     * @param playbackSpeed     Speed of the playback, 0 if the playback is not running.
+     */
+    public NowPlayingInformation(PlaybackService.PLAYSTATE playing, int playingIndex, PlaybackService.REPEATSTATE repeat, PlaybackService.RANDOMSTATE random, int playlistlength, @NonNull TrackModel currentTrack,
+                                 long trackPosition, long positionTimestamp, float playbackSpeed) {
         mPlayState = playing;
         mPlayingIndex = playingIndex;
         mRepeat = repeat;
         mRandom = random;
         mPlaylistLength = playlistlength;
         mCurrentTrack = currentTrack;
+        mTrackPosition = trackPosition;
+        mPositionTimestamp = positionTimestamp;
+        mPlaybackSpeed = playbackSpeed;
     }
 
     @Override
@@ -99,6 +120,9 @@ public final class NowPlayingInformation implements Parcelable {
         dest.writeInt(mRandom.ordinal());
         dest.writeInt(mPlaylistLength);
         dest.writeParcelable(mCurrentTrack, flags);
+        dest.writeLong(mTrackPosition);
+        dest.writeLong(mPositionTimestamp);
+        dest.writeFloat(mPlaybackSpeed);
     }
 
     public PlaybackService.PLAYSTATE getPlayState() {
@@ -130,4 +154,16 @@ public final class NowPlayingInformation implements Parcelable {
         return mCurrentTrack;
     }
 
+    public long getTrackPosition() {
+        return mTrackPosition;
+    }
+
+    public long getPositionTimestamp() {
+        return mPositionTimestamp;
+    }
+
+    public float getPlaybackSpeed() {
+        return mPlaybackSpeed;
+    }
+
 }
@@ -34,11 +34,13 @@ import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.media.AudioManager;
 import android.os.Build;
+import android.os.CancellationSignal;
 import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.PowerManager;
 import android.os.PowerManager.WakeLock;
 import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -58,9 +60,11 @@ import org.gateshipone.odyssey.utils.PlaylistParserFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 
 import androidx.preference.PreferenceManager;
 
@@ -132,6 +136,11 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
 
     private static final int INDEX_NO_TRACKS_AVAILABLE = -1;
 
+    /**
+     * Number of tracks that are enqueued at once while walking through a directory tree.
+     */
+    private static final int DIRECTORY_ENQUEUE_BATCH_SIZE = 250;
+
     /**
      * Request code for the timeout intent when the PlaybackService is waiting to quit
      */
@@ -228,6 +237,11 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
 
     private MetaDataLoader mMetaDataLoader;
 
+    /**
+     * Signal to cancel the currently running walk through a directory tree.
+     */
+    private volatile CancellationSignal mDirectoryWalkSignal;
+
     private OdysseyComponentCallback mComponentCallback;
 
     /**
@@ -432,6 +446,15 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
 
         unregisterComponentCallbacks(mComponentCallback);
 
+        // Cancel pending meta data extraction
+        mMetaDataLoader.cancelAll();
+
+        // Cancel a running directory walk
+        final CancellationSignal directoryWalkSignal = mDirectoryWalkSignal;
+        if (directoryWalkSignal != null) {
+            directoryWalkSignal.cancel();
+        }
+
         // Stop myself
         stopService();
     }
@@ -780,6 +803,9 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
         // Clear the list
         mCurrentList.clear();
 
+        // No track remains so the meta data of pending tracks is not needed anymore
+        mMetaDataLoader.cancelAll();
+
         updateTrackRandomGenerator();
 
         // reset random and repeat state
@@ -882,6 +908,8 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
                 break;
             case RESUMED:
                 mLastPosition = position;
+                // Publish the new position snapshot
+                mPlaybackServiceStatusHelper.updateStatus();
                 break;
             case STOPPED:
                 break;
@@ -1139,6 +1167,12 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
      */
     public void dequeueTrack(int index) {
         PLAYSTATE state = getPlaybackState();
+
+        final List<TrackModel> removedTracks = new ArrayList<>();
+        if (index >= 0 && index < mCurrentList.size()) {
+            removedTracks.add(mCurrentList.get(index));
+        }
+
         // Check if track is currently playing, if so stop it
         if (mCurrentPlayingIndex == index) {
             // Delete song at index
@@ -1170,6 +1204,8 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
             stop();
         }
 
+        cancelMetaDataLoading(removedTracks);
+
         // Send new NowPlaying because playlist changed
         mPlaybackServiceStatusHelper.updateStatus();
 
@@ -1202,6 +1238,8 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
             }
         }
 
+        final List<TrackModel> removedTracks = new ArrayList<>(mCurrentList.subList(index, endIndex));
+
         if (mCurrentPlayingIndex >= index && mCurrentPlayingIndex < endIndex) {
             // remove section and update endindex accordingly
             ListIterator<TrackModel> iterator = mCurrentList.listIterator(index);
@@ -1268,6 +1306,8 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
             stop();
         }
 
+        cancelMetaDataLoading(removedTracks);
+
         // Send new NowPlaying because playlist changed
         mPlaybackServiceStatusHelper.updateStatus();
 
@@ -1418,7 +1458,11 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
         } else {
             TrackModel currentTrack = mCurrentList.get(mCurrentPlayingIndex);
 
-            return new NowPlayingInformation(state, mCurrentPlayingIndex, mRepeat, mRandom, mCurrentList.size(), currentTrack);
+            // Snapshot of the position, so that receivers can interpolate it without asking the service again
+            final float playbackSpeed = state == PLAYSTATE.PLAYING ? 1.0f : 0.0f;
+
+            return new NowPlayingInformation(state, mCurrentPlayingIndex, mRepeat, mRandom, mCurrentList.size(), currentTrack,
+                    getTrackPosition(), SystemClock.elapsedRealtime(), playbackSpeed);
         }
     }
 
@@ -1490,6 +1534,7 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
 
         // start meta data extraction for new tracks
         mMetaDataLoader.getTrackListMetaData(getApplicationContext(), playlistTracks);
+        prioritizeMetaDataLoading();
 
         mPlaybackServiceStatusHelper.broadcastPlaybackServiceState(PLAYBACKSERVICESTATE.IDLE);
         mBusy = false;
@@ -1650,6 +1695,7 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
 
             // start meta data extraction for new tracks
             mMetaDataLoader.getTrackListMetaData(getApplicationContext(), playlistTracks);
+            prioritizeMetaDataLoading();
 
             return playlistTracks.size();
         } else {
@@ -1659,6 +1705,7 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
 
             // start meta data extraction for new tracks
             mMetaDataLoader.getTrackListMetaData(getApplicationContext(), Collections.singletonList(track));
+            prioritizeMetaDataLoading();
 
             return 1;
         }
@@ -1686,6 +1733,7 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
 
         // start meta data extraction for new tracks
         mMetaDataLoader.getTrackListMetaData(getApplicationContext(), tracks);
+        prioritizeMetaDataLoading();
 
         jumpToIndex(position);
 
@@ -1700,18 +1748,47 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
      * @param filterString  A filter that is used to exclude folders/files that didn't contain this String.
      */
     public void enqueueDirectoryAndSubDirectories(String directoryPath, String filterString) {
+        enqueueDirectoryAndSubDirectories(directoryPath, filterString, false);
+    }
+
+    /**
+     * creates trackmodels for a given directorypath (inclusive all subdirectories) and adds the tracks to the playlist
+     * in batches while the directories are still being walked.
+     *
+     * @param directoryPath the path to the selected directory
+     * @param filterString  A filter that is used to exclude folders/files that didn't contain this String.
+     * @param startPlayback Flag if the playback should be started with the first track as soon as the first batch was enqueued.
+     */
+    private void enqueueDirectoryAndSubDirectories(String directoryPath, String filterString, boolean startPlayback) {
         mPlaybackServiceStatusHelper.broadcastPlaybackServiceState(PLAYBACKSERVICESTATE.WORKING);
         mBusy = true;
 
         final FileModel currentDirectory = new FileModel(directoryPath);
 
-        List<TrackModel> tracks = FileExplorerHelper.getInstance().getTrackModelsForFolderAndSubFolders(getApplicationContext(), currentDirectory, filterString);
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        mDirectoryWalkSignal = cancellationSignal;
 
-        // add tracks to current playlist
-        enqueueTracks(tracks);
+        final boolean[] playbackStarted = {!startPlayback};
 
-        // start meta data extraction for new tracks
-        mMetaDataLoader.getTrackListMetaData(getApplicationContext(), tracks);
+        FileExplorerHelper.getInstance().getTrackModelsForFolderAndSubFolders(getApplicationContext(), currentDirectory, filterString,
+                DIRECTORY_ENQUEUE_BATCH_SIZE, cancellationSignal, tracks -> {
+                    // add tracks to current playlist
+                    enqueueTracks(tracks);
+
+                    // start meta data extraction for new tracks
+                    mMetaDataLoader.getTrackListMetaData(getApplicationContext(), tracks);
+
+                    if (!playbackStarted[0]) {
+                        playbackStarted[0] = true;
+                        jumpToIndex(0);
+                    }
+
+                    prioritizeMetaDataLoading();
+                });
+
+        if (mDirectoryWalkSignal == cancellationSignal) {
+            mDirectoryWalkSignal = null;
+        }
 
         mPlaybackServiceStatusHelper.broadcastPlaybackServiceState(PLAYBACKSERVICESTATE.IDLE);
         mBusy = false;
@@ -1727,9 +1804,7 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
     public void playDirectoryAndSubDirectories(String directoryPath, String filterString) {
         clearPlaylist();
 
-        enqueueDirectoryAndSubDirectories(directoryPath, filterString);
-
-        jumpToIndex(0);
+        enqueueDirectoryAndSubDirectories(directoryPath, filterString, true);
     }
 
     /**
@@ -1845,6 +1920,48 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
         }
     }
 
+    /**
+     * Requests the {@link MetaDataLoader} to handle the current and the next track first.
+     */
+    private void prioritizeMetaDataLoading() {
+        final List<String> trackUrls = new ArrayList<>();
+
+        if (mCurrentPlayingIndex >= 0 && mCurrentPlayingIndex < mCurrentList.size()) {
+            trackUrls.add(mCurrentList.get(mCurrentPlayingIndex).getTrackURL());
+        }
+
+        if (mNextPlayingIndex >= 0 && mNextPlayingIndex < mCurrentList.size()) {
+            trackUrls.add(mCurrentList.get(mNextPlayingIndex).getTrackURL());
+        } else if (mCurrentPlayingIndex >= 0 && mCurrentPlayingIndex + 1 < mCurrentList.size()) {
+            trackUrls.add(mCurrentList.get(mCurrentPlayingIndex + 1).getTrackURL());
+        }
+
+        mMetaDataLoader.prioritizeTracks(trackUrls);
+    }
+
+    /**
+     * Cancels the meta data extraction for removed tracks that are not part of the playlist anymore.
+     *
+     * @param removedTracks The tracks that were removed from the playlist.
+     */
+    private void cancelMetaDataLoading(final List<TrackModel> removedTracks) {
+        if (removedTracks.isEmpty()) {
+            return;
+        }
+
+        final Set<String> removedUrls = new HashSet<>();
+        for (TrackModel track : removedTracks) {
+            removedUrls.add(track.getTrackURL());
+        }
+
+        // the same file could still be enqueued at another position
+        for (TrackModel track : mCurrentList) {
+            removedUrls.remove(track.getTrackURL());
+        }
+
+        mMetaDataLoader.cancelTracks(removedUrls);
+    }
+
     public void setSmartRandom(int intelligenceFactor) {
         mTrackRandomGenerator.setEnabled(intelligenceFactor);
         updateTrackRandomGenerator();
@@ -1924,6 +2041,9 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
             // Sets the next track for gapless playing
             setNextTrackForMP();
 
+            // Make sure the meta data of the current and the next track is available soon
+            prioritizeMetaDataLoading();
+
             // Check if temporary wakelock is held to prevent device from shutting down during
             // the short transition
             if (mSongTransitionWakelock.isHeld()) {
@@ -2004,13 +2124,22 @@ public class PlaybackService extends Service implements AudioManager.OnAudioFocu
     }
 
     /**
-     * Callback if the parsing of all unknown tracks has finished.
-     * This will update all unknown tracks in the current playlist if they still exist.
+     * Callback if a batch of unknown tracks was parsed.
+     * The update is moved to the handler thread so it is serialized with all other playlist changes.
      *
      * @param parsedTracks A Map of parsed tracks.
      */
     @Override
     public void metaDataLoaderFinished(Map<String, TrackModel> parsedTracks) {
+        mHandler.post(() -> updateParsedTracks(parsedTracks));
+    }
+
+    /**
+     * This will update all unknown tracks in the current playlist if they still exist.
+     *
+     * @param parsedTracks A Map of parsed tracks.
+     */
+    private void updateParsedTracks(Map<String, TrackModel> parsedTracks) {
         ListIterator<TrackModel> iterator = mCurrentList.listIterator();
 
         boolean updatedNeeded = false;
@@ -80,6 +80,22 @@ public class OdysseyNotificationManager {
 
     private boolean mHideArtwork;
 
+    // Intents and actions are created once and reused for every notification
+    private PendingIntent mContentPendingIntent;
+    private PendingIntent mQuitPendingIntent;
+    private NotificationCompat.Action mPreviousAction;
+    private NotificationCompat.Action mPlayAction;
+    private NotificationCompat.Action mPauseAction;
+    private NotificationCompat.Action mNextAction;
+
+    // Fields of the last published notification, used to skip updates without visible changes
+    private PlaybackService.PLAYSTATE mPublishedState;
+    private MediaSessionCompat.Token mPublishedToken;
+    private Bitmap mPublishedLargeIcon;
+    private boolean mPublishedHideMediaOnLockscreen;
+    private String mPublishedTitle;
+    private String mPublishedArtist;
+
     public OdysseyNotificationManager(Context context) {
         mContext = context;
         mNotificationManager = (NotificationManager) mContext.getSystemService(Context.NOTIFICATION_SERVICE);
@@ -89,56 +105,39 @@ public class OdysseyNotificationManager {
      * Creates a android system notification with two different remoteViews. One
      * for the normal layout and one for the big one. Sets the different
      * attributes of the remoteViews and starts a thread for Cover generation.
+     * The notification is only published again if one of its visible fields changed.
      */
     public synchronized void updateNotification(TrackModel track, PlaybackService.PLAYSTATE state, MediaSessionCompat.Token mediaSessionToken) {
         mLastState = state;
         mLastToken = mediaSessionToken;
         if (track != null) {
-            openChannel();
-            mNotificationBuilder = new NotificationCompat.Builder(mContext, NOTIFICATION_CHANNEL_ID);
+            // Cover but only if changed
+            if (mLastTrack == null || !track.getTrackAlbumKey().equals(mLastTrack.getTrackAlbumKey())) {
+                mLastBitmap = null;
+            }
+            mLastTrack = track;
+
+            final Bitmap largeIcon = mHideArtwork ? null : mLastBitmap;
 
-            // Open application intent
-            Intent mainIntent = new Intent(mContext, OdysseySplashActivity.class);
-            mainIntent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_CLEAR_TASK | Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_NO_ANIMATION);
-            mainIntent.putExtra(OdysseyMainActivity.MAINACTIVITY_INTENT_EXTRA_REQUESTEDVIEW, OdysseyMainActivity.REQUESTEDVIEW.NOWPLAYING.ordinal());
-            PendingIntent contentPendingIntent = PendingIntent.getActivity(mContext, NOTIFICATION_INTENT_OPENGUI, mainIntent, PendingIntent.FLAG_UPDATE_CURRENT);
-            mNotificationBuilder.setContentIntent(contentPendingIntent);
-
-            // Set pendingintents
-            // Previous song action
-            Intent prevIntent = new Intent(PlaybackService.ACTION_PREVIOUS);
-            PendingIntent prevPendingIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_PREVIOUS, prevIntent, PendingIntent.FLAG_UPDATE_CURRENT);
-            NotificationCompat.Action prevAction = new NotificationCompat.Action.Builder(R.drawable.ic_skip_previous_48dp, "Previous", prevPendingIntent).build();
-
-            // Pause/Play action
-            PendingIntent playPauseIntent;
-            int playPauseIcon;
-            if (state == PlaybackService.PLAYSTATE.PLAYING) {
-                Intent pauseIntent = new Intent(PlaybackService.ACTION_PAUSE);
-                playPauseIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_PLAYPAUSE, pauseIntent, PendingIntent.FLAG_UPDATE_CURRENT);
-                playPauseIcon = R.drawable.ic_pause_48dp;
-            } else {
-                Intent playIntent = new Intent(PlaybackService.ACTION_PLAY);
-                playPauseIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_PLAYPAUSE, playIntent, PendingIntent.FLAG_UPDATE_CURRENT);
-                playPauseIcon = R.drawable.ic_play_arrow_48dp;
+            // Skip the update if the published notification shows the same content
+            if (mNotification != null && state == mPublishedState && mediaSessionToken == mPublishedToken && largeIcon == mPublishedLargeIcon
+                    && mHideMediaOnLockscreen == mPublishedHideMediaOnLockscreen
+                    && track.getTrackDisplayedName().equals(mPublishedTitle) && track.getTrackArtistName().equals(mPublishedArtist)) {
+                return;
             }
-            NotificationCompat.Action playPauseAction = new NotificationCompat.Action.Builder(playPauseIcon, "PlayPause", playPauseIntent).build();
 
-            // Next song action
-            Intent nextIntent = new Intent(PlaybackService.ACTION_NEXT);
-            PendingIntent nextPendingIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_NEXT, nextIntent, PendingIntent.FLAG_UPDATE_CURRENT);
-            NotificationCompat.Action nextAction = new NotificationCompat.Action.Builder(R.drawable.ic_skip_next_48dp, "Next", nextPendingIntent).build();
+            openChannel();
+            createActions();
 
-            // Quit action
-            Intent quitIntent = new Intent(PlaybackService.ACTION_QUIT);
-            PendingIntent quitPendingIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_QUIT, quitIntent, PendingIntent.FLAG_UPDATE_CURRENT);
-            mNotificationBuilder.setDeleteIntent(quitPendingIntent);
+            mNotificationBuilder = new NotificationCompat.Builder(mContext, NOTIFICATION_CHANNEL_ID);
+            mNotificationBuilder.setContentIntent(mContentPendingIntent);
+            mNotificationBuilder.setDeleteIntent(mQuitPendingIntent);
 
             mNotificationBuilder.setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
             mNotificationBuilder.setSmallIcon(R.drawable.odyssey_notification);
-            mNotificationBuilder.addAction(prevAction);
-            mNotificationBuilder.addAction(playPauseAction);
-            mNotificationBuilder.addAction(nextAction);
+            mNotificationBuilder.addAction(mPreviousAction);
+            mNotificationBuilder.addAction(state == PlaybackService.PLAYSTATE.PLAYING ? mPauseAction : mPlayAction);
+            mNotificationBuilder.addAction(mNextAction);
             androidx.media.app.NotificationCompat.MediaStyle notificationStyle = new androidx.media.app.NotificationCompat.MediaStyle();
             notificationStyle.setShowActionsInCompactView(1, 2);
             notificationStyle.setMediaSession(mediaSessionToken);
@@ -154,15 +153,9 @@ public class OdysseyNotificationManager {
             mNotificationBuilder.setContentTitle(track.getTrackDisplayedName());
             mNotificationBuilder.setContentText(track.getTrackArtistName());
 
-            // Cover but only if changed
-            if (mLastTrack == null || !track.getTrackAlbumKey().equals(mLastTrack.getTrackAlbumKey())) {
-                mLastTrack = track;
-                mLastBitmap = null;
-            }
-
             // Only set image if an saved one is available
-            if (mLastBitmap != null && !mHideArtwork) {
-                mNotificationBuilder.setLargeIcon(mLastBitmap);
+            if (largeIcon != null) {
+                mNotificationBuilder.setLargeIcon(largeIcon);
             }
 
             // Build the private notification
@@ -185,8 +178,54 @@ public class OdysseyNotificationManager {
 
             // Send the notification away
             mNotificationManager.notify(NOTIFICATION_ID, mNotification);
+
+            mPublishedState = state;
+            mPublishedToken = mediaSessionToken;
+            mPublishedLargeIcon = largeIcon;
+            mPublishedHideMediaOnLockscreen = mHideMediaOnLockscreen;
+            mPublishedTitle = track.getTrackDisplayedName();
+            mPublishedArtist = track.getTrackArtistName();
+        }
+
+    }
+
+    /**
+     * Creates the intents and actions of the notification once, because every {@link PendingIntent} is requested
+     * from the system server. The intents don't change, so they can be reused for every update.
+     */
+    private void createActions() {
+        if (mContentPendingIntent != null) {
+            return;
         }
 
+        // Open application intent
+        Intent mainIntent = new Intent(mContext, OdysseySplashActivity.class);
+        mainIntent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_CLEAR_TASK | Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_NO_ANIMATION);
+        mainIntent.putExtra(OdysseyMainActivity.MAINACTIVITY_INTENT_EXTRA_REQUESTEDVIEW, OdysseyMainActivity.REQUESTEDVIEW.NOWPLAYING.ordinal());
+        mContentPendingIntent = PendingIntent.getActivity(mContext, NOTIFICATION_INTENT_OPENGUI, mainIntent, PendingIntent.FLAG_UPDATE_CURRENT);
+
+        // Previous song action
+        Intent prevIntent = new Intent(PlaybackService.ACTION_PREVIOUS);
+        PendingIntent prevPendingIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_PREVIOUS, prevIntent, PendingIntent.FLAG_UPDATE_CURRENT);
+        mPreviousAction = new NotificationCompat.Action.Builder(R.drawable.ic_skip_previous_48dp, "Previous", prevPendingIntent).build();
+
+        // Pause and play action, the different intent actions keep both pending intents apart
+        Intent pauseIntent = new Intent(PlaybackService.ACTION_PAUSE);
+        PendingIntent pausePendingIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_PLAYPAUSE, pauseIntent, PendingIntent.FLAG_UPDATE_CURRENT);
+        mPauseAction = new NotificationCompat.Action.Builder(R.drawable.ic_pause_48dp, "PlayPause", pausePendingIntent).build();
+
+        Intent playIntent = new Intent(PlaybackService.ACTION_PLAY);
+        PendingIntent playPendingIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_PLAYPAUSE, playIntent, PendingIntent.FLAG_UPDATE_CURRENT);
+        mPlayAction = new NotificationCompat.Action.Builder(R.drawable.ic_play_arrow_48dp, "PlayPause", playPendingIntent).build();
+
+        // Next song action
+        Intent nextIntent = new Intent(PlaybackService.ACTION_NEXT);
+        PendingIntent nextPendingIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_NEXT, nextIntent, PendingIntent.FLAG_UPDATE_CURRENT);
+        mNextAction = new NotificationCompat.Action.Builder(R.drawable.ic_skip_next_48dp, "Next", nextPendingIntent).build();
+
+        // Quit action
+        Intent quitIntent = new Intent(PlaybackService.ACTION_QUIT);
+        mQuitPendingIntent = PendingIntent.getBroadcast(mContext, NOTIFICATION_INTENT_QUIT, quitIntent, PendingIntent.FLAG_UPDATE_CURRENT);
     }
 
     /* Removes the Foreground notification */
@@ -233,6 +272,7 @@ public class OdysseyNotificationManager {
         mHideMediaOnLockscreen = enable;
         if (mNotification != null) {
             mNotification.visibility = mHideMediaOnLockscreen ? Notification.VISIBILITY_PRIVATE : Notification.VISIBILITY_PUBLIC;
+            mPublishedHideMediaOnLockscreen = mHideMediaOnLockscreen;
 
             if (mNotificationManager != null) {
                 mNotificationManager.notify(NOTIFICATION_ID, mNotification);
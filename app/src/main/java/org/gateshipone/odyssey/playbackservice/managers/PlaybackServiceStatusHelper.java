@@ -26,17 +26,25 @@ import android.app.PendingIntent;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.v4.media.MediaMetadataCompat;
 import android.support.v4.media.session.MediaSessionCompat;
 import android.support.v4.media.session.PlaybackStateCompat;
+import android.text.TextUtils;
 
 import org.gateshipone.odyssey.R;
+import org.gateshipone.odyssey.artwork.BitmapCache;
 import org.gateshipone.odyssey.models.TrackModel;
 import org.gateshipone.odyssey.playbackservice.NowPlayingInformation;
 import org.gateshipone.odyssey.playbackservice.PlaybackService;
 import org.gateshipone.odyssey.playbackservice.RemoteControlReceiver;
+import org.gateshipone.odyssey.utils.BitmapUtils;
 import org.gateshipone.odyssey.utils.CoverBitmapLoader;
 
+import java.util.Objects;
+
 import androidx.preference.PreferenceManager;
 
 public class PlaybackServiceStatusHelper {
@@ -57,14 +65,31 @@ public class PlaybackServiceStatusHelper {
 
     public static final String MESSAGE_EXTRA_HIDE_ARTWORK_CHANGED_VALUE = "org.gateshipone.odyssey.hideartwork.changed.value";
 
+    /**
+     * Minimum time in ms between two published status updates. Updates within this time are merged into one.
+     */
+    private static final long MINIMUM_UPDATE_INTERVAL = 250;
+
+    /**
+     * Maximum difference in ms between the reported position and the position the system extrapolates
+     * from the last published playback state before the playback state is published again.
+     */
+    private static final long POSITION_TOLERANCE = 500;
+
     private PlaybackService mPlaybackService;
 
     // MediaSession objects
     private MediaSessionCompat mMediaSession;
 
-    // Asynchronous cover fetcher
+    // Asynchronous cover fetcher for the MediaSession and the notification
     private CoverBitmapLoader mCoverLoader;
 
+    // Sizes of the artwork in pixels, the bitmaps are sent to the system UI so they should not be larger than displayed.
+    // The cover is loaded once in the larger MediaSession size and scaled down for the notification.
+    private final int mMediaSessionCoverSize;
+
+    private final int mNotificationCoverSize;
+
     // Save last track to update cover art only if needed
     private TrackModel mLastTrack = null;
 
@@ -75,9 +100,29 @@ public class PlaybackServiceStatusHelper {
     // Notification manager
     private OdysseyNotificationManager mNotificationManager;
 
+    // Handler and runnable used to merge bursts of status updates
+    private final Handler mHandler;
+
+    private final Runnable mPublishRunnable = this::publishStatus;
+
+    private boolean mPublishScheduled;
+
+    private long mLastPublishTime;
+
+    // Last published MediaSession state to skip updates without changes
+    private int mPublishedPlaybackState = -1;
+
+    private long mPublishedPosition;
+
+    private long mPublishedPositionTime;
+
+    private PublishedMetadata mPublishedMetadata;
+
     public PlaybackServiceStatusHelper(PlaybackService playbackService) {
         mPlaybackService = playbackService;
 
+        mHandler = new Handler(Looper.getMainLooper());
+
         // Get MediaSession objects
         mMediaSession = new MediaSessionCompat(mPlaybackService, "OdysseyPBS");
 
@@ -86,6 +131,9 @@ public class PlaybackServiceStatusHelper {
 
         mCoverLoader = new CoverBitmapLoader(mPlaybackService, new BitmapCoverReceiver());
 
+        mMediaSessionCoverSize = mPlaybackService.getResources().getDimensionPixelSize(R.dimen.artwork_size_media_session);
+        mNotificationCoverSize = mPlaybackService.getResources().getDimensionPixelSize(R.dimen.artwork_size_notification);
+
         // Register the button receiver
         PendingIntent mediaButtonPendingIntent = PendingIntent.getBroadcast(mPlaybackService, 0, new Intent(mPlaybackService, RemoteControlReceiver.class), PendingIntent.FLAG_UPDATE_CURRENT);
         mMediaSession.setMediaButtonReceiver(mediaButtonPendingIntent);
@@ -119,6 +167,8 @@ public class PlaybackServiceStatusHelper {
     public void stopMediaSession() {
         // Make sure to remove the old metadata.
         mMediaSession.setPlaybackState(new PlaybackStateCompat.Builder().setState(PlaybackStateCompat.STATE_STOPPED, 0, 0.0f).build());
+        mPublishedPlaybackState = PlaybackStateCompat.STATE_STOPPED;
+        mPublishedMetadata = null;
         // Clear last track so that covers load again when resuming.
         mLastTrack = null;
         // Actual session disable.
@@ -128,8 +178,42 @@ public class PlaybackServiceStatusHelper {
     /**
      * This method should be safe to call at any time. So it should check the
      * current state of PlaybackService and so on.
+     * <p/>
+     * Updates that follow each other within {@link #MINIMUM_UPDATE_INTERVAL} are merged into
+     * one update that publishes the state at the end of the interval. Stopping and resuming is published immediately
+     * because the notification must be removed without delay.
      */
     public synchronized void updateStatus() {
+        final PlaybackService.PLAYSTATE state = mPlaybackService.getPlaybackState();
+
+        if (state == PlaybackService.PLAYSTATE.STOPPED || state == PlaybackService.PLAYSTATE.RESUMED) {
+            mHandler.removeCallbacks(mPublishRunnable);
+            publishStatus();
+            return;
+        }
+
+        if (mPublishScheduled) {
+            // The scheduled update will publish the latest state
+            return;
+        }
+
+        final long elapsed = SystemClock.uptimeMillis() - mLastPublishTime;
+        if (elapsed >= MINIMUM_UPDATE_INTERVAL) {
+            publishStatus();
+        } else {
+            mPublishScheduled = true;
+            mHandler.postDelayed(mPublishRunnable, MINIMUM_UPDATE_INTERVAL - elapsed);
+        }
+    }
+
+    /**
+     * Publishes the current state of the PlaybackService to the MediaSession, the notification and all
+     * broadcast receivers.
+     */
+    private synchronized void publishStatus() {
+        mPublishScheduled = false;
+        mLastPublishTime = SystemClock.uptimeMillis();
+
         NowPlayingInformation info = mPlaybackService.getNowPlayingInformation();
         TrackModel currentTrack = info.getCurrentTrack();
 
@@ -145,7 +229,7 @@ public class PlaybackServiceStatusHelper {
             case PLAYING:
             case PAUSE:
                 // Update MediaSession metadata.
-                updateMetadata(currentTrack, currentState);
+                updateMetadata(info);
 
                 // Call the notification manager, it handles the rest.
                 mNotificationManager.updateNotification(currentTrack, currentState, mMediaSession.getSessionToken());
@@ -166,7 +250,7 @@ public class PlaybackServiceStatusHelper {
                 // In this state all broadcast listeners should be informed already.
                 // Notification should NOT be created in this state, so skip it in contrast to state PAUSE
                 // Update MediaSession metadata.
-                updateMetadata(currentTrack, currentState);
+                updateMetadata(info);
 
                 // Broadcast all the information.
                 broadcastPlaybackInformation(info);
@@ -191,23 +275,40 @@ public class PlaybackServiceStatusHelper {
      * Updates the Metadata from Androids MediaSession. This sets track/album and stuff
      * for a lockscreen image for example.
      *
-     * @param track         Current track.
-     * @param playbackState State of the PlaybackService.
+     * @param info Current state of the PlaybackService including the current track and the position snapshot.
      */
-    private void updateMetadata(TrackModel track, PlaybackService.PLAYSTATE playbackState) {
+    private void updateMetadata(NowPlayingInformation info) {
+        final TrackModel track = info.getCurrentTrack();
         if (track != null) {
-            if (playbackState == PlaybackService.PLAYSTATE.PLAYING) {
-                mMediaSession.setPlaybackState(new PlaybackStateCompat.Builder().setState(PlaybackStateCompat.STATE_PLAYING, mPlaybackService.getTrackPosition(), 1.0f)
+            final int sessionState = info.getPlayState() == PlaybackService.PLAYSTATE.PLAYING ? PlaybackStateCompat.STATE_PLAYING : PlaybackStateCompat.STATE_PAUSED;
+            // Use the same position snapshot as the GUI and the widget
+            final long position = info.getTrackPosition();
+            final long now = info.getPositionTimestamp();
+
+            // The system extrapolates the position of a playing session, so only publish if the position jumped
+            long expectedPosition = mPublishedPosition;
+            if (mPublishedPlaybackState == PlaybackStateCompat.STATE_PLAYING) {
+                expectedPosition += now - mPublishedPositionTime;
+            }
+
+            if (sessionState != mPublishedPlaybackState || Math.abs(position - expectedPosition) > POSITION_TOLERANCE) {
+                mMediaSession.setPlaybackState(new PlaybackStateCompat.Builder().setState(sessionState, position, info.getPlaybackSpeed(), now)
                         .setActions(PlaybackStateCompat.ACTION_SKIP_TO_NEXT + PlaybackStateCompat.ACTION_PAUSE +
                                 PlaybackStateCompat.ACTION_PLAY + PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS +
                                 PlaybackStateCompat.ACTION_STOP + PlaybackStateCompat.ACTION_SEEK_TO).build());
-            } else {
-                mMediaSession.setPlaybackState(new PlaybackStateCompat.Builder().
-                        setState(PlaybackStateCompat.STATE_PAUSED, mPlaybackService.getTrackPosition(), 1.0f).setActions(PlaybackStateCompat.ACTION_SKIP_TO_NEXT +
-                        PlaybackStateCompat.ACTION_PAUSE + PlaybackStateCompat.ACTION_PLAY +
-                        PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS + PlaybackStateCompat.ACTION_STOP +
-                        PlaybackStateCompat.ACTION_SEEK_TO).build());
+
+                mPublishedPlaybackState = sessionState;
+                mPublishedPosition = position;
+                mPublishedPositionTime = now;
+            }
+
+            final PublishedMetadata metadata = new PublishedMetadata(track, mHideArtwork || mHideMediaOnLockscreen);
+            if (metadata.equals(mPublishedMetadata)) {
+                // Nothing visible changed, keep the current metadata including its artwork
+                return;
             }
+            mPublishedMetadata = metadata;
+
             // Try to get old metadata to save image retrieval.
             MediaMetadataCompat oldData = mMediaSession.getController().getMetadata();
             MediaMetadataCompat.Builder metaDataBuilder;
@@ -313,8 +414,8 @@ public class PlaybackServiceStatusHelper {
         metaDataBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, null);
         mMediaSession.setMetadata(metaDataBuilder.build());
 
-        // Start the actual task based on the current track. (mLastTrack get sets before in updateStatus())
-        mCoverLoader.getImage(mLastTrack, -1, -1);
+        // Start the actual tasks based on the current track. (mLastTrack get sets before in updateStatus())
+        mCoverLoader.getImage(mLastTrack, mMediaSessionCoverSize, mMediaSessionCoverSize);
     }
 
     /**
@@ -362,13 +463,16 @@ public class PlaybackServiceStatusHelper {
 
     /**
      * Receives the generated album picture from a separate thread for the
-     * lockscreen controls. Also sets the title/artist/album again otherwise
+     * lockscreen controls and the notification. Also sets the title/artist/album again otherwise
      * android would sometimes set it to the track before
      */
     private class BitmapCoverReceiver implements CoverBitmapLoader.CoverBitmapReceiver {
 
         @Override
         public void receiveAlbumBitmap(Bitmap bm) {
+            // Derive the notification image from the same bitmap, so the artwork is only loaded and fetched once
+            mNotificationManager.setNotificationImage(BitmapUtils.scaleBitmapForTransfer(bm, mNotificationCoverSize, BitmapUtils.MAXIMUM_TRANSFER_BYTES));
+
             // Try to get old metadata to save image retrieval.
             MediaMetadataCompat.Builder metaDataBuilder;
             metaDataBuilder = new MediaMetadataCompat.Builder(mMediaSession.getController().getMetadata());
@@ -376,10 +480,13 @@ public class PlaybackServiceStatusHelper {
             if (mHideMediaOnLockscreen) {
                 metaDataBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, null);
             } else {
-                metaDataBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, bm);
+                metaDataBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART,
+                        BitmapUtils.scaleBitmapForTransfer(bm, mMediaSessionCoverSize, BitmapUtils.MAXIMUM_TRANSFER_BYTES));
             }
             mMediaSession.setMetadata(metaDataBuilder.build());
-            mNotificationManager.setNotificationImage(bm);
+
+            // the notification and the media session only keep their own copies
+            BitmapCache.getInstance().releaseBitmap(bm);
         }
 
         @Override
@@ -396,6 +503,7 @@ public class PlaybackServiceStatusHelper {
     public void hideArtwork(boolean enable) {
         mHideArtwork = enable;
         mLastTrack = null;
+        mPublishedMetadata = null;
         mNotificationManager.hideArtwork(enable);
         Intent settingChangedIntent = new Intent(MESSAGE_HIDE_ARTWORK_CHANGED);
         settingChangedIntent.setPackage(mPlaybackService.getPackageName());
@@ -421,6 +529,7 @@ public class PlaybackServiceStatusHelper {
         mNotificationManager.hideMediaOnLockscreen(enable);
 
         mLastTrack = null;
+        mPublishedMetadata = null;
         updateStatus();
     }
 
@@ -436,4 +545,51 @@ public class PlaybackServiceStatusHelper {
             startCoverImageTask();
         }
     }
+
+    /**
+     * Holds the fields of the last metadata that was set to the MediaSession.
+     */
+    private static class PublishedMetadata {
+
+        private final String mTitle;
+
+        private final String mDisplayedName;
+
+        private final String mAlbum;
+
+        private final String mArtist;
+
+        private final int mNumber;
+
+        private final long mDuration;
+
+        private final boolean mHideArtwork;
+
+        PublishedMetadata(TrackModel track, boolean hideArtwork) {
+            mTitle = track.getTrackName();
+            mDisplayedName = track.getTrackDisplayedName();
+            mAlbum = track.getTrackAlbumName();
+            mArtist = track.getTrackArtistName();
+            mNumber = track.getTrackNumber();
+            mDuration = track.getTrackDuration();
+            mHideArtwork = hideArtwork;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PublishedMetadata)) {
+                return false;
+            }
+
+            final PublishedMetadata other = (PublishedMetadata) obj;
+            return TextUtils.equals(mTitle, other.mTitle) && TextUtils.equals(mDisplayedName, other.mDisplayedName)
+                    && TextUtils.equals(mAlbum, other.mAlbum) && TextUtils.equals(mArtist, other.mArtist)
+                    && mNumber == other.mNumber && mDuration == other.mDuration && mHideArtwork == other.mHideArtwork;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mTitle, mDisplayedName, mAlbum, mArtist, mNumber, mDuration, mHideArtwork);
+        }
+    }
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.utils;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.models.AlbumModel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.collection.LruCache;
+
+/**
+ * Process wide cache for the resolution of album keys to the album information of the MediaStore.
+ * <p>
+ * Track based artwork only knows the album key of a track, so every notification, widget or playlist
+ * update would otherwise need a MediaStore query. The cache is cleared whenever the MediaStore reports a change
+ * of the audio library. Albums that are not part of the MediaStore are cached as well.
+ */
+public class AlbumResolutionCache {
+    private static final String TAG = AlbumResolutionCache.class.getSimpleName();
+
+    /**
+     * Maximum number of resolved album keys.
+     */
+    private static final int CACHE_SIZE = 512;
+
+    private static AlbumResolutionCache mInstance;
+
+    private final Context mApplicationContext;
+
+    private final LruCache<String, Entry> mEntries;
+
+    /**
+     * Incremented for every change of the library, so that results of queries that started before a change are not cached.
+     */
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    private final AtomicLong mHitCount = new AtomicLong();
+
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    private final AtomicLong mInvalidationCount = new AtomicLong();
+
+    private AlbumResolutionCache(final Context context) {
+        mApplicationContext = context;
+        mEntries = new LruCache<>(CACHE_SIZE);
+
+        mApplicationContext.getContentResolver().registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, new LibraryObserver());
+    }
+
+    public static synchronized AlbumResolutionCache getInstance(final Context context) {
+        if (mInstance == null) {
+            mInstance = new AlbumResolutionCache(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    /**
+     * Returns the album for the given album key. The MediaStore is only queried if the key is not cached.
+     *
+     * @param albumKey The key to identify the album in the MediaStore.
+     * @return A new {@link AlbumModel} for the album or null if the album is not part of the MediaStore.
+     */
+    public AlbumModel getAlbum(final String albumKey) {
+        if (albumKey == null) {
+            return null;
+        }
+
+        final Entry entry = getEntry(albumKey);
+
+        if (!entry.mFound) {
+            return null;
+        }
+
+        // the models are mutable, so every caller gets its own instance
+        return new AlbumModel(entry.mAlbumName, entry.mAlbumArtURL, entry.mArtistName, albumKey, entry.mAlbumID);
+    }
+
+    /**
+     * Returns the album id for the given album key. The MediaStore is only queried if the key is not cached.
+     *
+     * @param albumKey The key to identify the album in the MediaStore.
+     * @return The album id if found or a derived id based on the album key.
+     */
+    public long getAlbumID(final String albumKey) {
+        final Entry entry = getEntry(albumKey);
+
+        return entry.mFound ? entry.mAlbumID : MusicLibraryHelper.getFakeAlbumID(albumKey);
+    }
+
+    /**
+     * @return The percentage of requests that were answered by the cache.
+     */
+    public int getHitRate() {
+        final long hitCount = mHitCount.get();
+        final long requestCount = hitCount + mMissCount.get();
+        return requestCount == 0 ? 0 : (int) ((hitCount * 100) / requestCount);
+    }
+
+    /**
+     * Debug method to provide performance evaluation metrics
+     */
+    public void printUsage() {
+        if (BuildConfig.DEBUG) {
+            Log.v(TAG, "Cached albums: " + mEntries.size() + " hit count: " + mHitCount.get() + " miss count: " + mMissCount.get()
+                    + " hit rate: " + getHitRate() + '%' + " invalidations: " + mInvalidationCount.get());
+        }
+    }
+
+    private Entry getEntry(final String albumKey) {
+        Entry entry = mEntries.get(albumKey);
+
+        if (entry != null) {
+            mHitCount.incrementAndGet();
+            return entry;
+        }
+
+        mMissCount.incrementAndGet();
+
+        final int generation = mGeneration.get();
+
+        final AlbumModel album = MusicLibraryHelper.createAlbumModelFromKey(albumKey, mApplicationContext);
+        entry = new Entry(album);
+
+        if (generation == mGeneration.get()) {
+            mEntries.put(albumKey, entry);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Clears the cache if the audio library of the MediaStore changed.
+     */
+    private class LibraryObserver extends ContentObserver {
+
+        LibraryObserver() {
+            super(null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange) {
+            mGeneration.incrementAndGet();
+            mEntries.evictAll();
+            mInvalidationCount.incrementAndGet();
+
+            printUsage();
+        }
+    }
+
+    /**
+     * The resolved information of a single album key.
+     */
+    private static class Entry {
+
+        /**
+         * False if the album is not part of the MediaStore.
+         */
+        final boolean mFound;
+
+        final String mAlbumName;
+
+        final String mAlbumArtURL;
+
+        final String mArtistName;
+
+        final long mAlbumID;
+
+        Entry(final AlbumModel album) {
+            mFound = album != null;
+            mAlbumName = mFound ? album.getAlbumName() : null;
+            mAlbumArtURL = mFound ? album.getAlbumArtURL() : null;
+            mArtistName = mFound ? album.getArtistName() : null;
+            mAlbumID = mFound ? album.getAlbumID() : -1;
+        }
+    }
+}
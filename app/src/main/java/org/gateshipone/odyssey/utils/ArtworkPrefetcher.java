@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.utils;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import org.gateshipone.odyssey.adapter.ArtworkPrefetchAdapter;
+import org.gateshipone.odyssey.adapter.ScrollSpeedAdapter;
+import org.gateshipone.odyssey.artwork.ArtworkManager;
+import org.gateshipone.odyssey.artwork.BitmapCache;
+import org.gateshipone.odyssey.models.GenericModel;
+
+/**
+ * Loads the artwork of the items that will be shown next in the scroll direction into the {@link org.gateshipone.odyssey.artwork.BitmapCache}.
+ * <p>
+ * The number of prefetched rows depends on the scroll speed and is limited by a memory budget.
+ * The prefetching is skipped if the scrolling is too fast to load the images in time.
+ * All methods must be called from the main thread.
+ */
+public class ArtworkPrefetcher {
+
+    public static final int DIRECTION_UP = -1;
+
+    public static final int DIRECTION_DOWN = 1;
+
+    /**
+     * Maximum number of rows that are loaded in advance.
+     */
+    private static final int MAXIMUM_PREFETCH_ROWS = 4;
+
+    /**
+     * Time in ms the prefetched items should cover at the current scroll speed.
+     */
+    private static final int PREFETCH_TIME = 1000;
+
+    /**
+     * Maximum memory in bytes the prefetched images may use.
+     */
+    private static final long PREFETCH_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 16;
+
+    private final ArtworkPrefetchAdapter mAdapter;
+
+    private final ScrollSpeedAdapter mScrollSpeedAdapter;
+
+    private final ArtworkManager mArtworkManager;
+
+    private final Context mContext;
+
+    /**
+     * Pending prefetch requests with the adapter position as key.
+     */
+    private final SparseArray<ImageLoadScheduler.Request> mRequests;
+
+    private int mDirection;
+
+    public ArtworkPrefetcher(final Context context, final ArtworkPrefetchAdapter adapter, final ScrollSpeedAdapter scrollSpeedAdapter) {
+        mContext = context.getApplicationContext();
+        mAdapter = adapter;
+        mScrollSpeedAdapter = scrollSpeedAdapter;
+        mArtworkManager = ArtworkManager.getInstance(mContext);
+        mRequests = new SparseArray<>();
+        mDirection = DIRECTION_DOWN;
+    }
+
+    /**
+     * Prefetches the items after the visible items in the scroll direction.
+     *
+     * @param firstVisiblePosition The adapter position of the first visible item.
+     * @param lastVisiblePosition  The adapter position of the last visible item.
+     * @param direction            The scroll direction, either {@link #DIRECTION_UP} or {@link #DIRECTION_DOWN}.
+     * @param scrollSpeed          The current scroll speed in items per second.
+     * @param columns              The number of items per row.
+     */
+    public void prefetch(final int firstVisiblePosition, final int lastVisiblePosition, final int direction, final int scrollSpeed, final int columns) {
+        if (direction != mDirection) {
+            // the prefetched items will not be shown soon
+            cancel();
+            mDirection = direction;
+        }
+
+        final int imageSize = mAdapter.getPrefetchImageSize();
+        if (imageSize <= 0) {
+            return;
+        }
+
+        // skip if images can not be loaded as fast as the items are scrolled by
+        final int possibleItems = (int) (1000 / mScrollSpeedAdapter.getAverageImageLoadTime());
+        if (scrollSpeed >= possibleItems) {
+            return;
+        }
+
+        final int itemCount = getPrefetchItemCount(scrollSpeed, Math.max(1, columns), imageSize);
+
+        final int start;
+        final int end;
+        if (direction == DIRECTION_DOWN) {
+            start = lastVisiblePosition + 1;
+            end = Math.min(mAdapter.getPrefetchItemCount() - 1, lastVisiblePosition + itemCount);
+        } else {
+            start = Math.max(0, firstVisiblePosition - itemCount);
+            end = firstVisiblePosition - 1;
+        }
+
+        // cancel the requests that are visible already or outside of the new range
+        for (int i = mRequests.size() - 1; i >= 0; i--) {
+            final int position = mRequests.keyAt(i);
+
+            if (position < start || position > end) {
+                mRequests.valueAt(i).cancel();
+                mRequests.removeAt(i);
+            }
+        }
+
+        for (int position = start; position <= end; position++) {
+            if (mRequests.get(position) != null) {
+                continue;
+            }
+
+            final GenericModel item = mAdapter.getPrefetchItem(position);
+            if (item == null) {
+                continue;
+            }
+
+            final AsyncLoader loader = new AsyncLoader(mContext, mArtworkManager, item, imageSize, imageSize);
+            final int requestPosition = position;
+
+            // the loaded image is put in the cache by the artwork manager, so it only needs to be forgotten here
+            mRequests.put(position, ImageLoadScheduler.getInstance().load(loader.getRequestKey(), ImageLoadScheduler.PRIORITY_LOW, loader,
+                    (image, loadTime) -> {
+                        BitmapCache.getInstance().releaseBitmap(image);
+                        mRequests.remove(requestPosition);
+                    }));
+        }
+    }
+
+    /**
+     * Cancels all pending prefetch requests.
+     */
+    public void cancel() {
+        for (int i = 0; i < mRequests.size(); i++) {
+            mRequests.valueAt(i).cancel();
+        }
+        mRequests.clear();
+    }
+
+    /**
+     * Calculates the number of items that will be shown in the next {@link #PREFETCH_TIME} ms but at least one row.
+     */
+    private static int getPrefetchItemCount(final int scrollSpeed, final int columns, final int imageSize) {
+        final int budgetItems = (int) Math.max(1, PREFETCH_MEMORY_BUDGET / ((long) imageSize * imageSize * 4));
+
+        int rows = (scrollSpeed * PREFETCH_TIME / 1000 + columns - 1) / columns;
+        rows = Math.max(1, Math.min(MAXIMUM_PREFETCH_ROWS, rows));
+
+        return Math.min(rows * columns, budgetItems);
+    }
+}
@@ -24,7 +24,6 @@ package org.gateshipone.odyssey.utils;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.os.AsyncTask;
 import android.util.Pair;
 
 import org.gateshipone.odyssey.adapter.ScrollSpeedAdapter;
@@ -37,18 +36,34 @@ import org.gateshipone.odyssey.models.TrackModel;
 import org.gateshipone.odyssey.viewitems.CoverLoadable;
 
 /**
- * Loader class for covers
+ * Loader class for covers that is executed by the {@link ImageLoadScheduler}
  */
-public class AsyncLoader extends AsyncTask<AsyncLoader.CoverViewHolder, Void, Bitmap> {
+public class AsyncLoader implements ImageLoadScheduler.ImageLoader {
     private static final String TAG = AsyncLoader.class.getSimpleName();
-    private CoverViewHolder mCover;
 
     private final Context mContext;
 
-    private long mStartTime;
+    private final ArtworkManager mArtworkManager;
 
-    public AsyncLoader(Context context) {
-        mContext = context;
+    private final GenericModel mModelItem;
+
+    private final int mWidth;
+
+    private final int mHeight;
+
+    /**
+     * The holder is reused by the view, so the current values are copied for the load.
+     */
+    public AsyncLoader(Context context, CoverViewHolder cover) {
+        this(context, cover.artworkManager, cover.modelItem, cover.imageDimension.first, cover.imageDimension.second);
+    }
+
+    public AsyncLoader(Context context, ArtworkManager artworkManager, GenericModel modelItem, int width, int height) {
+        mContext = context.getApplicationContext();
+        mArtworkManager = artworkManager;
+        mModelItem = modelItem;
+        mWidth = width;
+        mHeight = height;
     }
 
     /**
@@ -62,71 +77,76 @@ public class AsyncLoader extends AsyncTask<AsyncLoader.CoverViewHolder, Void, Bi
         public ScrollSpeedAdapter mAdapter;
     }
 
-    @Override
-    protected Bitmap doInBackground(CoverViewHolder... params) {
-        // Save the time when loading started for later duration calculation
-        mStartTime = System.currentTimeMillis();
+    /**
+     * Creates the key for the {@link ImageLoadScheduler}, so that requests for the same image are loaded once.
+     * Tracks share the key with their album.
+     *
+     * @return The key consisting of the album or artist and the requested size.
+     */
+    public String getRequestKey() {
+        String key;
+
+        if (mModelItem instanceof ArtistModel) {
+            final ArtistModel artist = (ArtistModel) mModelItem;
+            key = "B_" + artist.getArtistID() + '_' + artist.getArtistName();
+        } else if (mModelItem instanceof AlbumModel) {
+            final AlbumModel album = (AlbumModel) mModelItem;
+            key = "A_" + album.getAlbumKey() + '_' + album.getAlbumID() + '_' + album.getAlbumName();
+        } else if (mModelItem instanceof TrackModel) {
+            key = "T_" + ((TrackModel) mModelItem).getTrackAlbumKey();
+        } else {
+            key = "G_" + mModelItem.getSectionTitle();
+        }
 
-        mCover = params[0];
+        return key + '_' + mWidth + 'x' + mHeight;
+    }
+
+    @Override
+    public Bitmap loadImage() {
         Bitmap image = null;
         // Check if model item is artist or album
-        if (mCover.modelItem instanceof ArtistModel) {
-            ArtistModel artist = (ArtistModel) mCover.modelItem;
+        if (mModelItem instanceof ArtistModel) {
+            ArtistModel artist = (ArtistModel) mModelItem;
 
             try {
                 // Check if image is available. If it is not yet fetched it will throw an exception
                 // If it was already searched for and not found, this will be null.
-                image = mCover.artworkManager.getImage(artist, mCover.imageDimension.first, mCover.imageDimension.second, false, mContext);
+                image = mArtworkManager.getImage(artist, mWidth, mHeight, false, mContext);
             } catch (ImageNotFoundException e) {
                 // Check if fetching for this item is already ongoing
                 if (!artist.getFetching()) {
                     // If not set it as ongoing and request the image fetch.
-                    mCover.artworkManager.fetchImage(artist, mContext);
+                    mArtworkManager.fetchImage(artist, mContext);
                     artist.setFetching(true);
                 }
             }
-        } else if (mCover.modelItem instanceof AlbumModel) {
-            AlbumModel album = (AlbumModel) mCover.modelItem;
+        } else if (mModelItem instanceof AlbumModel) {
+            AlbumModel album = (AlbumModel) mModelItem;
 
             try {
                 // Check if image is available. If it is not yet fetched it will throw an exception.
                 // If it was already searched for and not found, this will be null.
-                image = mCover.artworkManager.getImage(album, mCover.imageDimension.first, mCover.imageDimension.second, false, mContext);
+                image = mArtworkManager.getImage(album, mWidth, mHeight, false, mContext);
             } catch (ImageNotFoundException e) {
                 // Check if fetching for this item is already ongoing
                 if (!album.getFetching()) {
                     // If not set it as ongoing and request the image fetch.
-                    mCover.artworkManager.fetchImage(album, mContext);
+                    mArtworkManager.fetchImage(album, mContext);
                     album.setFetching(true);
                 }
             }
-        } else if (mCover.modelItem instanceof TrackModel) {
-            TrackModel track = (TrackModel) mCover.modelItem;
+        } else if (mModelItem instanceof TrackModel) {
+            TrackModel track = (TrackModel) mModelItem;
 
             try {
                 // Check if image is available. If it is not yet fetched it will throw an exception.
                 // If it was already searched for and not found, this will be null.
-                image = mCover.artworkManager.getImage(track, mCover.imageDimension.first, mCover.imageDimension.second, false, mContext);
+                image = mArtworkManager.getImage(track, mWidth, mHeight, false, mContext);
             } catch (ImageNotFoundException e) {
                 // If not set it as ongoing and request the image fetch.
-                mCover.artworkManager.fetchImage(track, mContext);
+                mArtworkManager.fetchImage(track, mContext);
             }
         }
         return image;
     }
-
-
-    @Override
-    protected void onPostExecute(Bitmap result) {
-
-        super.onPostExecute(result);
-
-        // set mCover if exists
-        if (result != null) {
-            if (mCover.mAdapter != null) {
-                mCover.mAdapter.addImageLoadTime(System.currentTimeMillis() - mStartTime);
-            }
-            mCover.coverLoadable.setImage(result);
-        }
-    }
-}
\ No newline at end of file
+}
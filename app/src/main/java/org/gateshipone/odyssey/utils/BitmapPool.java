@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.utils;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.gateshipone.odyssey.BuildConfig;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of temporary bitmaps, so that their memory can be reused by the decoding
+ * methods of {@link BitmapUtils} with {@link android.graphics.BitmapFactory.Options#inBitmap}.
+ * Bitmaps are put into the pool if they were never handed out (e.g. intermediate results of scaling) or by the
+ * {@link org.gateshipone.odyssey.artwork.BitmapCache} once they are evicted and no view references them anymore.
+ * <p>
+ * Bitmaps are grouped by their allocation size and only held by {@link SoftReference}s,
+ * so the pool never prevents the garbage collector from freeing memory.
+ */
+public class BitmapPool {
+    private static final String TAG = BitmapPool.class.getSimpleName();
+
+    /**
+     * Maximum number of bitmaps in the pool
+     */
+    private static final int MAXIMUM_POOL_SIZE = 16;
+
+    /**
+     * A pooled bitmap is only reused if its allocation is not larger than this factor times the needed size.
+     */
+    private static final int MAXIMUM_SIZE_FACTOR = 4;
+
+    private static BitmapPool mInstance;
+
+    /**
+     * Pooled bitmaps grouped by their allocation size in bytes
+     */
+    private final TreeMap<Integer, ArrayDeque<SoftReference<Bitmap>>> mBuckets = new TreeMap<>();
+
+    private int mPoolSize;
+
+    private long mHitCount;
+
+    private long mMissCount;
+
+    private BitmapPool() {
+    }
+
+    public static synchronized BitmapPool getInstance() {
+        if (mInstance == null) {
+            mInstance = new BitmapPool();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Adds a bitmap to the pool. Only mutable bitmaps can be reused for decoding.
+     * <p>
+     * The bitmap must not be used anywhere else after it was put into the pool.
+     *
+     * @param bitmap The bitmap that is not used anymore.
+     */
+    public synchronized void put(final Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+
+        if (mPoolSize >= MAXIMUM_POOL_SIZE) {
+            removeClearedReferences();
+
+            if (mPoolSize >= MAXIMUM_POOL_SIZE) {
+                return;
+            }
+        }
+
+        final int byteCount = bitmap.getAllocationByteCount();
+
+        ArrayDeque<SoftReference<Bitmap>> bucket = mBuckets.get(byteCount);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            mBuckets.put(byteCount, bucket);
+        }
+
+        bucket.push(new SoftReference<>(bitmap));
+        mPoolSize++;
+    }
+
+    /**
+     * Removes a bitmap from the pool that is large enough to decode an image of the given size.
+     *
+     * @param width  The width of the decoded image.
+     * @param height The height of the decoded image.
+     * @param config The config of the decoded image.
+     * @return A reusable bitmap or null if no suitable bitmap is pooled.
+     */
+    public synchronized Bitmap get(final int width, final int height, final Bitmap.Config config) {
+        final long neededByteCount = (long) width * height * getBytesPerPixel(config);
+
+        if (neededByteCount <= 0 || neededByteCount > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        final long maximumByteCount = neededByteCount * MAXIMUM_SIZE_FACTOR;
+
+        for (Map.Entry<Integer, ArrayDeque<SoftReference<Bitmap>>> entry : mBuckets.tailMap((int) neededByteCount).entrySet()) {
+            if (entry.getKey() > maximumByteCount) {
+                break;
+            }
+
+            final Iterator<SoftReference<Bitmap>> iterator = entry.getValue().iterator();
+            while (iterator.hasNext()) {
+                final Bitmap bitmap = iterator.next().get();
+
+                if (bitmap == null || bitmap.isRecycled()) {
+                    iterator.remove();
+                    mPoolSize--;
+                } else if (bitmap.getConfig() == config) {
+                    iterator.remove();
+                    mPoolSize--;
+                    mHitCount++;
+                    return bitmap;
+                }
+            }
+        }
+
+        mMissCount++;
+        return null;
+    }
+
+    /**
+     * Removes all bitmaps from the pool.
+     */
+    public synchronized void clear() {
+        mBuckets.clear();
+        mPoolSize = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return The percentage of decodes that could reuse a pooled bitmap.
+     */
+    public synchronized int getHitRate() {
+        final long requestCount = mHitCount + mMissCount;
+        return requestCount == 0 ? 0 : (int) ((mHitCount * 100) / requestCount);
+    }
+
+    /**
+     * Debug method to provide performance evaluation metrics
+     */
+    public synchronized void printUsage() {
+        if (BuildConfig.DEBUG) {
+            Log.v(TAG, "Pooled bitmaps: " + mPoolSize + " hit count: " + mHitCount + " miss count: " + mMissCount + " hit rate: " + getHitRate() + '%');
+        }
+    }
+
+    private void removeClearedReferences() {
+        final Iterator<ArrayDeque<SoftReference<Bitmap>>> bucketIterator = mBuckets.values().iterator();
+
+        while (bucketIterator.hasNext()) {
+            final ArrayDeque<SoftReference<Bitmap>> bucket = bucketIterator.next();
+            final Iterator<SoftReference<Bitmap>> iterator = bucket.iterator();
+
+            while (iterator.hasNext()) {
+                final Bitmap bitmap = iterator.next().get();
+
+                if (bitmap == null || bitmap.isRecycled()) {
+                    iterator.remove();
+                    mPoolSize--;
+                }
+            }
+
+            if (bucket.isEmpty()) {
+                bucketIterator.remove();
+            }
+        }
+    }
+
+    private static int getBytesPerPixel(final Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        } else if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        return 4;
+    }
+}
@@ -26,40 +26,125 @@ package org.gateshipone.odyssey.utils;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import androidx.annotation.NonNull;
+
 public class BitmapUtils {
 
+    /**
+     * Maximum size in bytes of a bitmap that is sent to another process, e.g. to the system UI or the launcher.
+     * Bitmaps are sent uncompressed through Binder, whose transaction buffer is limited to 1MB per process.
+     */
+    public static final int MAXIMUM_TRANSFER_BYTES = 512 * 1024;
+
+    /**
+     * Interface to decode a bitmap from different sources with the same options handling.
+     */
+    private interface BitmapDecoder {
+        Bitmap decode(BitmapFactory.Options options);
+    }
+
     /**
      * Resize retrieved bitmap if necessary
      */
     public static Bitmap decodeSampledBitmapFromFile(String pathName, int reqWidth, int reqHeight) {
+        return decodeSampledBitmapFromFile(pathName, reqWidth, reqHeight, Bitmap.Config.ARGB_8888);
+    }
 
-        // First decode with inJustDecodeBounds=true to check dimensions
+    /**
+     * Resize retrieved bitmap if necessary
+     *
+     * @param config The preferred config of the bitmap, e.g. {@link Bitmap.Config#RGB_565} to halve the memory usage.
+     */
+    public static Bitmap decodeSampledBitmapFromFile(String pathName, int reqWidth, int reqHeight, Bitmap.Config config) {
+        return decodeSampledBitmap(options -> BitmapFactory.decodeFile(pathName, options), reqWidth, reqHeight, config);
+    }
+
+    /**
+     * Resize retrieved bitmap if necessary
+     */
+    public static Bitmap decodeSampledBitmapFromByteArray(byte[] data, int reqWidth, int reqHeight) {
+        return decodeSampledBitmap(options -> BitmapFactory.decodeByteArray(data, 0, data.length, options), reqWidth, reqHeight, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Resize retrieved bitmap if necessary
+     * <p>
+     * The data is streamed from the buffer so a mapped buffer is not copied into the heap.
+     */
+    public static Bitmap decodeSampledBitmapFromByteBuffer(ByteBuffer data, int reqWidth, int reqHeight) {
+        return decodeSampledBitmap(options -> BitmapFactory.decodeStream(new ByteBufferInputStream(data), null, options), reqWidth, reqHeight, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Decodes a bitmap so that neither side is larger than the given size.
+     * <p>
+     * The image is subsampled and scaled by the decoder, so neither the full resolution image
+     * nor an additional scaled copy is allocated.
+     *
+     * @param maxSize The maximum size of the longest side of the bitmap.
+     * @return The decoded bitmap or null if the data could not be decoded.
+     */
+    public static Bitmap decodeScaledBitmapFromByteArray(byte[] data, int maxSize) {
+        return decodeScaledBitmap(options -> BitmapFactory.decodeByteArray(data, 0, data.length, options), maxSize);
+    }
+
+    /**
+     * Decodes a bitmap so that neither side is larger than the given size.
+     * <p>
+     * The data is streamed from the buffer so a mapped buffer is not copied into the heap.
+     *
+     * @param maxSize The maximum size of the longest side of the bitmap.
+     * @return The decoded bitmap or null if the data could not be decoded.
+     */
+    public static Bitmap decodeScaledBitmapFromByteBuffer(ByteBuffer data, int maxSize) {
+        return decodeScaledBitmap(options -> BitmapFactory.decodeStream(new ByteBufferInputStream(data), null, options), maxSize);
+    }
+
+    /**
+     * Decodes a bitmap with the largest inSampleSize that keeps the longest side at least as large as the given size.
+     * The remaining factor is applied by the decoder via the density scaling of {@link BitmapFactory.Options}.
+     */
+    private static Bitmap decodeScaledBitmap(BitmapDecoder decoder, int maxSize) {
         final BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
-        BitmapFactory.decodeFile(pathName, options);
+        decoder.decode(options);
 
-        // Calculate inSampleSize
-        if (reqWidth <= 0 && reqHeight <= 0) {
-            // check if the layout of the view already set
-            options.inSampleSize = 1;
-        } else {
-            options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        final int longestSide = Math.max(options.outWidth, options.outHeight);
+
+        int inSampleSize = 1;
+        while (longestSide / (inSampleSize * 2) >= maxSize) {
+            inSampleSize *= 2;
         }
 
-        // Decode bitmap with inSampleSize set
         options.inJustDecodeBounds = false;
-        return BitmapFactory.decodeFile(pathName, options);
+        options.inSampleSize = inSampleSize;
+
+        final int sampledSide = longestSide / inSampleSize;
+        if (sampledSide > maxSize) {
+            options.inScaled = true;
+            options.inDensity = sampledSide;
+            options.inTargetDensity = maxSize;
+        }
+
+        return decoder.decode(options);
     }
 
     /**
-     * Resize retrieved bitmap if necessary
+     * Decodes a bitmap with the needed inSampleSize. The memory of a bitmap of the {@link BitmapPool} is reused if possible.
      */
-    public static Bitmap decodeSampledBitmapFromByteArray(byte[] data, int reqWidth, int reqHeight) {
+    private static Bitmap decodeSampledBitmap(BitmapDecoder decoder, int reqWidth, int reqHeight, Bitmap.Config config) {
 
         // First decode with inJustDecodeBounds=true to check dimensions
         final BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
-        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        decoder.decode(options);
 
         // Calculate inSampleSize
         if (reqWidth <= 0 && reqHeight <= 0) {
@@ -71,7 +156,31 @@ public class BitmapUtils {
 
         // Decode bitmap with inSampleSize set
         options.inJustDecodeBounds = false;
-        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        options.inPreferredConfig = config;
+
+        // decoded bitmaps are mutable so that they can be pooled later
+        options.inMutable = true;
+
+        if (options.outWidth > 0 && options.outHeight > 0) {
+            final int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+            final int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+
+            options.inBitmap = BitmapPool.getInstance().get(width, height, config);
+        }
+
+        if (options.inBitmap != null) {
+            final Bitmap pooledBitmap = options.inBitmap;
+
+            try {
+                return decoder.decode(options);
+            } catch (IllegalArgumentException e) {
+                // the pooled bitmap could not be reused, e.g. because the decoder chose a different config
+                options.inBitmap = null;
+                BitmapPool.getInstance().put(pooledBitmap);
+            }
+        }
+
+        return decoder.decode(options);
     }
 
     /**
@@ -97,4 +206,97 @@ public class BitmapUtils {
 
         return inSampleSize;
     }
+
+    /**
+     * Returns a bitmap that fits the given surface size and the byte limit for transfers to other processes,
+     * e.g. for the notification, the MediaSession or a widget.
+     * The given bitmap is never returned or modified because it could be part of the cache, a copy is returned instead
+     * that can be held by the notification or the widget as long as needed.
+     *
+     * @param bitmap   The bitmap to transfer. Can be null.
+     * @param maxSize  The maximum size of the longest side in pixels.
+     * @param maxBytes The maximum size of the returned bitmap in bytes.
+     * @return A copy of the given bitmap that fits the given limits.
+     */
+    public static Bitmap scaleBitmapForTransfer(final Bitmap bitmap, final int maxSize, final int maxBytes) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return null;
+        }
+
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+
+        float factor = Math.min(1.0f, (float) maxSize / Math.max(width, height));
+
+        final double scaledBytes = (double) bitmap.getByteCount() * factor * factor;
+        if (scaledBytes > maxBytes) {
+            factor *= (float) Math.sqrt(maxBytes / scaledBytes);
+        }
+
+        if (factor < 1.0f) {
+            final Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, Math.max(1, (int) (width * factor)), Math.max(1, (int) (height * factor)), true);
+            if (scaledBitmap != bitmap) {
+                return scaledBitmap;
+            }
+        }
+
+        // the bitmap already fits, but the caller needs its own instance
+        final Bitmap.Config config = bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888;
+        return bitmap.copy(config, false);
+    }
+
+    /**
+     * {@link InputStream} that reads the remaining bytes of a {@link ByteBuffer} without modifying it.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            mBuffer = buffer.duplicate();
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] bytes, int offset, int length) {
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int count = Math.min(length, mBuffer.remaining());
+            mBuffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            final int skipped = (int) Math.max(0, Math.min(count, mBuffer.remaining()));
+            mBuffer.position(mBuffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            mBuffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            mBuffer.reset();
+        }
+    }
 }
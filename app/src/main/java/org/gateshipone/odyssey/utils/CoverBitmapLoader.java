@@ -48,9 +48,8 @@ public class CoverBitmapLoader {
      */
     public void getImage(final TrackModel track, final int width, final int height) {
         if (track != null && !track.getTrackAlbumKey().isEmpty()) {
-            // start the loader thread to load the image async
-            final Thread loaderThread = new Thread(new TrackAlbumImageRunner(track, width, height));
-            loaderThread.start();
+            // load the image async
+            ImageLoadScheduler.getInstance().execute(ImageLoadScheduler.PRIORITY_HIGH, new TrackAlbumImageRunner(track, width, height));
         }
     }
 
@@ -59,9 +58,8 @@ public class CoverBitmapLoader {
             return;
         }
 
-        // start the loader thread to load the image async
-        final Thread loaderThread = new Thread(new ArtistImageRunner(artist, width, height));
-        loaderThread.start();
+        // load the image async
+        ImageLoadScheduler.getInstance().execute(ImageLoadScheduler.PRIORITY_HIGH, new ArtistImageRunner(artist, width, height));
     }
 
     public void getAlbumImage(final AlbumModel album, final int width, final int height) {
@@ -69,9 +67,8 @@ public class CoverBitmapLoader {
             return;
         }
 
-        // start the loader thread to load the image async
-        final Thread loaderThread = new Thread(new AlbumImageRunner(album, width, height));
-        loaderThread.start();
+        // load the image async
+        ImageLoadScheduler.getInstance().execute(ImageLoadScheduler.PRIORITY_HIGH, new AlbumImageRunner(album, width, height));
     }
 
     public void getArtistImage(final TrackModel track, final int width, final int height) {
@@ -79,9 +76,8 @@ public class CoverBitmapLoader {
             return;
         }
 
-        // start the loader thread to load the image async
-        final Thread loaderThread = new Thread(new TrackArtistImageRunner(track, width, height));
-        loaderThread.start();
+        // load the image async
+        ImageLoadScheduler.getInstance().execute(ImageLoadScheduler.PRIORITY_HIGH, new TrackArtistImageRunner(track, width, height));
     }
 
     private class TrackAlbumImageRunner implements Runnable {
@@ -103,26 +99,29 @@ public class CoverBitmapLoader {
          */
         @Override
         public void run() {
-            // At first get image independent of resolution (can be replaced later with higher resolution)
-            final AlbumModel album = MusicLibraryHelper.createAlbumModelFromKey(mTrack.getTrackAlbumKey(), mContext);
+            final AlbumModel album = AlbumResolutionCache.getInstance(mContext).getAlbum(mTrack.getTrackAlbumKey());
             if (album == null) {
                 // No album found for track, abort
                 return;
             }
 
-            Bitmap image = BitmapCache.getInstance().requestAlbumBitmap(album);
+            // At first try to get the image in the requested resolution from the cache
+            Bitmap image = BitmapCache.getInstance().requestAlbumBitmap(album, mWidth, mHeight);
+            if (image != null) {
+                mListener.receiveAlbumBitmap(image);
+                return;
+            }
+
+            // Show an image of a different resolution until the right one is loaded
+            image = BitmapCache.getInstance().requestAlbumBitmap(album);
             if (image != null) {
                 mListener.receiveAlbumBitmap(image);
             }
 
             try {
-                // If image was to small get it in the right resolution
-                if (image == null || !(mWidth <= image.getWidth() && mHeight <= image.getHeight())) {
-                    image = ArtworkManager.getInstance(mContext.getApplicationContext()).getImage(album, mWidth, mHeight, true, mContext);
-                    mListener.receiveAlbumBitmap(image);
-                    // Replace image with higher resolution one
-                    BitmapCache.getInstance().putAlbumBitmap(album, image);
-                }
+                // Get the image in the right resolution, this will also put it in the cache
+                image = ArtworkManager.getInstance(mContext.getApplicationContext()).getImage(album, mWidth, mHeight, true, mContext);
+                mListener.receiveAlbumBitmap(image);
             } catch (ImageNotFoundException e) {
                 // Try to fetch the image here
                 ArtworkManager.getInstance(mContext.getApplicationContext()).fetchImage(mTrack, mContext);
@@ -149,20 +148,23 @@ public class CoverBitmapLoader {
          */
         @Override
         public void run() {
-            // At first get image independent of resolution (can be replaced later with higher resolution)
-            Bitmap image = BitmapCache.getInstance().requestArtistImage(mArtist);
+            // At first try to get the image in the requested resolution from the cache
+            Bitmap image = BitmapCache.getInstance().requestArtistImage(mArtist, mWidth, mHeight);
+            if (image != null) {
+                mListener.receiveArtistBitmap(image);
+                return;
+            }
+
+            // Show an image of a different resolution until the right one is loaded
+            image = BitmapCache.getInstance().requestArtistImage(mArtist);
             mListener.receiveArtistBitmap(image);
 
-            // If image was to small get it in the right resolution
-            if (image == null || !(mWidth <= image.getWidth() && mHeight <= image.getHeight())) {
-                try {
-                    image = ArtworkManager.getInstance(mContext.getApplicationContext()).getImage(mArtist, mWidth, mHeight, true, mContext);
-                    mListener.receiveArtistBitmap(image);
-                    // Replace image with higher resolution one
-                    BitmapCache.getInstance().putArtistImage(mArtist, image);
-                } catch (ImageNotFoundException e) {
-                    ArtworkManager.getInstance(mContext.getApplicationContext()).fetchImage(mArtist, mContext);
-                }
+            try {
+                // Get the image in the right resolution, this will also put it in the cache
+                image = ArtworkManager.getInstance(mContext.getApplicationContext()).getImage(mArtist, mWidth, mHeight, true, mContext);
+                mListener.receiveArtistBitmap(image);
+            } catch (ImageNotFoundException e) {
+                ArtworkManager.getInstance(mContext.getApplicationContext()).fetchImage(mArtist, mContext);
             }
         }
     }
@@ -187,20 +189,23 @@ public class CoverBitmapLoader {
          */
         @Override
         public void run() {
-            // At first get image independent of resolution (can be replaced later with higher resolution)
-            Bitmap image = BitmapCache.getInstance().requestArtistImage(mArtist);
+            // At first try to get the image in the requested resolution from the cache
+            Bitmap image = BitmapCache.getInstance().requestArtistImage(mArtist, mWidth, mHeight);
+            if (image != null) {
+                mListener.receiveArtistBitmap(image);
+                return;
+            }
+
+            // Show an image of a different resolution until the right one is loaded
+            image = BitmapCache.getInstance().requestArtistImage(mArtist);
             mListener.receiveArtistBitmap(image);
 
-            // If image was to small get it in the right resolution
-            if (image == null || !(mWidth <= image.getWidth() && mHeight <= image.getHeight())) {
-                try {
-                    image = ArtworkManager.getInstance(mContext.getApplicationContext()).getImage(mArtist, mWidth, mHeight, true, mContext);
-                    mListener.receiveArtistBitmap(image);
-                    // Replace image with higher resolution one
-                    BitmapCache.getInstance().putArtistImage(mArtist, image);
-                } catch (ImageNotFoundException e) {
-                    ArtworkManager.getInstance(mContext.getApplicationContext()).fetchImage(mArtist, mContext);
-                }
+            try {
+                // Get the image in the right resolution, this will also put it in the cache
+                image = ArtworkManager.getInstance(mContext.getApplicationContext()).getImage(mArtist, mWidth, mHeight, true, mContext);
+                mListener.receiveArtistBitmap(image);
+            } catch (ImageNotFoundException e) {
+                ArtworkManager.getInstance(mContext.getApplicationContext()).fetchImage(mArtist, mContext);
             }
         }
     }
@@ -224,20 +229,23 @@ public class CoverBitmapLoader {
          */
         @Override
         public void run() {
-            // At first get image independent of resolution (can be replaced later with higher resolution)
-            Bitmap image = BitmapCache.getInstance().requestAlbumBitmap(mAlbum);
+            // At first try to get the image in the requested resolution from the cache
+            Bitmap image = BitmapCache.getInstance().requestAlbumBitmap(mAlbum, mWidth, mHeight);
+            if (image != null) {
+                mListener.receiveAlbumBitmap(image);
+                return;
+            }
+
+            // Show an image of a different resolution until the right one is loaded
+            image = BitmapCache.getInstance().requestAlbumBitmap(mAlbum);
             if (image != null) {
                 mListener.receiveAlbumBitmap(image);
             }
 
             try {
-                // If image was to small get it in the right resolution
-                if (image == null || !(mWidth <= image.getWidth() && mHeight <= image.getHeight())) {
-                    image = ArtworkManager.getInstance(mContext.getApplicationContext()).getImage(mAlbum, mWidth, mHeight, true, mContext);
-                    mListener.receiveAlbumBitmap(image);
-                    // Replace image with higher resolution one
-                    BitmapCache.getInstance().putAlbumBitmap(mAlbum, image);
-                }
+                // Get the image in the right resolution, this will also put it in the cache
+                image = ArtworkManager.getInstance(mContext.getApplicationContext()).getImage(mAlbum, mWidth, mHeight, true, mContext);
+                mListener.receiveAlbumBitmap(image);
             } catch (ImageNotFoundException e) {
                 // Try to fetch the image here
                 ArtworkManager.getInstance(mContext.getApplicationContext()).fetchImage(mAlbum, mContext);
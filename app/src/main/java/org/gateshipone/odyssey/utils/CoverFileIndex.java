@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.utils;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.text.TextUtils;
+
+import org.gateshipone.odyssey.artwork.storage.ArtworkDatabaseManager;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import androidx.collection.LruCache;
+import androidx.core.content.ContextCompat;
+import androidx.core.util.Pair;
+
+/**
+ * Index of the local cover files with the directory path as key.
+ * <p>
+ * The index is filled whenever a directory is listed, e.g. by the file explorer or the media scanner,
+ * so that resolving the cover of an album does not need to list its directories again.
+ * Each entry is validated with the modification time of the directory, which changes if a file is added, removed or renamed.
+ * <p>
+ * The entries are persisted in the artwork database because the media scanner, the bulk downloader and the GUI
+ * run in different processes. Recently used entries are additionally kept in memory.
+ */
+public class CoverFileIndex {
+
+    /**
+     * The list of supported artwork filenames in the order of their preference.
+     */
+    private static final List<String> ALLOWED_ARTWORK_FILENAMES = Arrays.asList("cover.jpg", "cover.jpeg", "cover.png", "folder.jpg", "folder.jpeg", "folder.png", "artwork.jpg", "artwork.jpeg", "artwork.png");
+
+    /**
+     * Number of directories that are kept in the index.
+     */
+    private static final int INDEX_SIZE = 4096;
+
+    private static CoverFileIndex mInstance;
+
+    /**
+     * The recently used entries of the index with the directory path as key.
+     */
+    private final LruCache<String, Entry> mEntries;
+
+    private final ArtworkDatabaseManager mDatabaseManager;
+
+    private CoverFileIndex(final Context context) {
+        mEntries = new LruCache<>(INDEX_SIZE);
+        mDatabaseManager = ArtworkDatabaseManager.getInstance(context.getApplicationContext());
+    }
+
+    public static synchronized CoverFileIndex getInstance(final Context context) {
+        if (mInstance == null) {
+            mInstance = new CoverFileIndex(context);
+        }
+        return mInstance;
+    }
+
+    /**
+     * Updates the entry of a directory that was listed.
+     *
+     * @param directoryPath The path of the directory.
+     * @param lastModified  The modification time of the directory before it was listed.
+     * @param fileNames     The names of all files in the directory.
+     */
+    public void updateDirectory(final String directoryPath, final long lastModified, final String[] fileNames) {
+        if (lastModified == 0 || fileNames == null) {
+            return;
+        }
+
+        String coverName = null;
+        int coverPreference = ALLOWED_ARTWORK_FILENAMES.size();
+
+        for (String fileName : fileNames) {
+            final int preference = ALLOWED_ARTWORK_FILENAMES.indexOf(fileName.toLowerCase());
+
+            if (preference >= 0 && preference < coverPreference) {
+                coverName = fileName;
+                coverPreference = preference;
+            }
+        }
+
+        final Entry entry = new Entry(lastModified, coverName == null ? null : new File(directoryPath, coverName).getPath());
+        final Entry previousEntry = getEntry(directoryPath);
+
+        mEntries.put(directoryPath, entry);
+
+        // only write to the database if the directory changed since it was indexed
+        if (!entry.equals(previousEntry)) {
+            mDatabaseManager.insertCoverFile(directoryPath, entry.mLastModified, entry.mCoverPath);
+        }
+    }
+
+    /**
+     * Returns the preferred cover file of the given directory. The directory is only listed if it is
+     * not indexed or was modified since it was indexed.
+     *
+     * @param context       The application context for the permission check.
+     * @param directoryPath The path of the directory.
+     * @return The path of the cover file or null if the directory contains no cover file.
+     */
+    public String getCoverFile(final Context context, final String directoryPath) {
+        final long lastModified = new File(directoryPath).lastModified();
+
+        final Entry entry = getEntry(directoryPath);
+        if (entry != null && entry.mLastModified == lastModified) {
+            return entry.mCoverPath;
+        }
+
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_EXTERNAL_STORAGE) != PackageManager.PERMISSION_GRANTED) {
+            return null;
+        }
+
+        updateDirectory(directoryPath, lastModified, new File(directoryPath).list());
+
+        final Entry newEntry = mEntries.get(directoryPath);
+        return newEntry != null ? newEntry.mCoverPath : null;
+    }
+
+    /**
+     * Returns the entry of the directory from memory or from the database.
+     */
+    private Entry getEntry(final String directoryPath) {
+        Entry entry = mEntries.get(directoryPath);
+
+        if (entry == null) {
+            final Pair<Long, String> coverFile = mDatabaseManager.getCoverFile(directoryPath);
+
+            if (coverFile != null && coverFile.first != null) {
+                entry = new Entry(coverFile.first, coverFile.second);
+                mEntries.put(directoryPath, entry);
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * The indexed state of a single directory.
+     */
+    private static class Entry {
+
+        final long mLastModified;
+
+        /**
+         * The path of the preferred cover file or null if the directory contains no cover file.
+         */
+        final String mCoverPath;
+
+        Entry(final long lastModified, final String coverPath) {
+            mLastModified = lastModified;
+            mCoverPath = coverPath;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+
+            final Entry other = (Entry) obj;
+            return mLastModified == other.mLastModified && TextUtils.equals(mCoverPath, other.mCoverPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mLastModified, mCoverPath);
+        }
+    }
+}
@@ -24,6 +24,7 @@ package org.gateshipone.odyssey.utils;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.CancellationSignal;
 
 import org.gateshipone.odyssey.models.FileModel;
 import org.gateshipone.odyssey.models.TrackModel;
@@ -31,6 +32,7 @@ import org.gateshipone.odyssey.models.TrackModel;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -38,6 +40,13 @@ import androidx.core.content.ContextCompat;
 
 public class FileExplorerHelper {
 
+    /**
+     * Callback for tracks that were found while walking through a directory tree.
+     */
+    public interface OnTracksFoundListener {
+        void onTracksFound(List<TrackModel> tracks);
+    }
+
     private static FileExplorerHelper mInstance = null;
 
     public static synchronized FileExplorerHelper getInstance() {
@@ -121,23 +130,6 @@ public class FileExplorerHelper {
         return tracks;
     }
 
-    /**
-     * Generates a list of {@link FileModel} objects that are either in the Android DB and not on the FS
-     * or that are on the FS but not in the Android DB.
-     *
-     * @param context  Context used for DB query
-     * @param basePath Path of files to check
-     * @return List of files that need to be scanned
-     */
-    public List<FileModel> getMissingDBFiles(Context context, FileModel basePath) {
-        List<FileModel> filesDB = MusicLibraryHelper.getMediaFilesForPath(basePath.getPath(), context);
-        List<FileModel> filesFS = new ArrayList<>();
-
-        getFilesRecursive(context, basePath, filesFS);
-
-        return generateFileListDiff(filesDB, filesFS);
-    }
-
     /**
      * Helper method to create a list of {@link FileModel} objects that are part of one list but not
      * of the other.
@@ -146,7 +138,7 @@ public class FileExplorerHelper {
      * @param list2 Second list of {@link FileModel} objects.
      * @return List of {@link FileModel} that are only part of one of the two given lists.
      */
-    private List<FileModel> generateFileListDiff(List<FileModel> list1, List<FileModel> list2) {
+    public List<FileModel> generateFileListDiff(List<FileModel> list1, List<FileModel> list2) {
         List<FileModel> filesDiff = new ArrayList<>();
 
         // Sort lists so that an easy compare is possible because of given order.
@@ -214,70 +206,61 @@ public class FileExplorerHelper {
     }
 
     /**
-     * Helper method to create a list of of {@link FileModel} objects that are files for the given folder.
-     * This method will be called recursively for all subfolders.
+     * Creates TrackModel objects for the given folder and all subfolders and reports them in batches
+     * while the folders are still being walked.
      *
-     * @param context The current android context.
-     * @param folder  The current folder.
-     * @param files   List of {@link FileModel} objects that are files and in the folder.
+     * @param context            The current android context.
+     * @param folder             The folder to walk.
+     * @param filterString       A filter that is used to exclude folders/files of the given folder that didn't contain this String.
+     * @param batchSize          The number of tracks after which the listener is called.
+     * @param cancellationSignal Optional signal to abort the walk.
+     * @param listener           The {@link OnTracksFoundListener} that is called on the calling thread for each batch in sorted order.
+     * @return True if the walk was completed, false if it was cancelled.
      */
-    private void getFilesRecursive(Context context, FileModel folder, List<FileModel> files) {
+    public boolean getTrackModelsForFolderAndSubFolders(Context context, FileModel folder, String filterString, int batchSize,
+                                                        CancellationSignal cancellationSignal, OnTracksFoundListener listener) {
+        final List<FileModel> roots = new ArrayList<>();
+
+        // the filter is only applied to the given folder or its direct children
         if (folder.isFile()) {
-            // file is not a directory so add the filemodel to the list
-            files.add(folder);
+            roots.add(folder);
         } else {
-            List<FileModel> filesTmp = PermissionHelper.getFilesForDirectory(context, folder);
+            roots.addAll(PermissionHelper.getFilesForDirectory(context, folder));
+        }
 
-            for (FileModel file : filesTmp) {
-                // call method for all files found in this folder
-                getFilesRecursive(context, file, files);
+        if (filterString != null && !filterString.isEmpty()) {
+            final Iterator<FileModel> iterator = roots.iterator();
+            while (iterator.hasNext()) {
+                if (!iterator.next().getName().toLowerCase().contains(filterString)) {
+                    iterator.remove();
+                }
             }
         }
-    }
-
-    /**
-     * return a list of TrackModels created for the given folder
-     * this includes all subfolders
-     *
-     * @param filterString A filter that is used to exclude folders/files that didn't contain this String.
-     */
-    public List<TrackModel> getTrackModelsForFolderAndSubFolders(Context context, FileModel folder, String filterString) {
-        List<TrackModel> tracks = new ArrayList<>();
-        // check current folder and subfolders for music files
-        getTrackModelsForFolderAndSubFolders(context, folder, tracks, filterString);
 
-        return tracks;
-    }
-
-    /**
-     * add TrackModel objects for the current folder and all subfolders to the tracklist
-     *
-     * @param filterString A filter that is used to exclude folders/files that didn't contain this String.
-     */
-    private void getTrackModelsForFolderAndSubFolders(Context context, FileModel folder, List<TrackModel> tracks, String filterString) {
-        if (folder.isFile()) {
-            if (filterString == null || filterString.isEmpty() || folder.getName().toLowerCase().contains(filterString)) {
-                // file is not a directory so create a trackmodel for the file
-                if (folder.isPlaylist()) {
-                    // Parse the playlist file with a parser
-                    PlaylistParser parser = PlaylistParserFactory.getParser(folder);
-                    if (parser != null) {
+        final List<TrackModel> batch = new ArrayList<>();
 
-                        tracks.addAll(parser.parseList(context));
-                    }
-                } else {
-                    tracks.add(getDummyTrackModelForFile(folder));
+        final boolean completed = FolderWalker.getInstance().walk(context, roots, cancellationSignal, file -> {
+            if (file.isPlaylist()) {
+                // Parse the playlist file with a parser
+                PlaylistParser parser = PlaylistParserFactory.getParser(file);
+                if (parser != null) {
+                    batch.addAll(parser.parseList(context));
                 }
+            } else {
+                // file is not a directory so create a trackmodel for the file
+                batch.add(getDummyTrackModelForFile(file));
             }
-        } else {
-            List<FileModel> files = PermissionHelper.getFilesForDirectory(context, folder);
 
-            for (FileModel file : files) {
-                if (filterString == null || filterString.isEmpty() || file.getName().toLowerCase().contains(filterString)) {
-                    // call method for all files found in this folder
-                    getTrackModelsForFolderAndSubFolders(context, file, tracks, null);
-                }
+            if (batch.size() >= batchSize) {
+                listener.onTracksFound(new ArrayList<>(batch));
+                batch.clear();
             }
+        });
+
+        if (completed && !batch.isEmpty()) {
+            listener.onTracksFound(batch);
         }
+
+        return completed;
     }
 }
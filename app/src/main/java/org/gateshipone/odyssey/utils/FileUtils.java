@@ -29,6 +29,7 @@ import android.provider.DocumentsContract;
 import android.provider.MediaStore;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.security.MessageDigest;
@@ -75,8 +76,47 @@ public class FileUtils {
         final MessageDigest md = MessageDigest.getInstance("SHA-256");
         md.update(input.toString().getBytes());
 
-        final byte[] bytes = md.digest();
+        return toHexString(md.digest());
+    }
+
+    /**
+     * Create a SHA256 Hash for the given data.
+     *
+     * @param data The data to hash.
+     * @return The result as a hex string.
+     * @throws NoSuchAlgorithmException If SHA-256 is not available.
+     */
+    public static String createSHA256HashForBytes(final byte[] data) throws NoSuchAlgorithmException {
+        final MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(data);
+
+        return toHexString(md.digest());
+    }
 
+    /**
+     * Create a SHA256 Hash for the content of the given file. The file is read in chunks.
+     *
+     * @param file The file to hash.
+     * @return The result as a hex string.
+     * @throws IOException              If the file couldn't be read.
+     * @throws NoSuchAlgorithmException If SHA-256 is not available.
+     */
+    public static String createSHA256HashForFile(final File file) throws IOException, NoSuchAlgorithmException {
+        final MessageDigest md = MessageDigest.getInstance("SHA-256");
+
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            final byte[] buffer = new byte[8192];
+
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        }
+
+        return toHexString(md.digest());
+    }
+
+    private static String toHexString(final byte[] bytes) {
         final StringBuilder hexString = new StringBuilder();
         for (byte oneByte : bytes) {
             final String hex = Integer.toHexString(0xff & oneByte);
@@ -104,9 +144,20 @@ public class FileUtils {
 
         final File imageFile = new File(artworkDir, fileName);
 
-        final FileOutputStream outputStream = new FileOutputStream(imageFile);
-        outputStream.write(image);
-        outputStream.close();
+        // write to a temporary file first, so that a partially written image is never read
+        final File temporaryFile = new File(artworkDir, fileName + ".tmp");
+
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            outputStream.write(image);
+        } catch (IOException e) {
+            temporaryFile.delete();
+            throw e;
+        }
+
+        if (!temporaryFile.renameTo(imageFile)) {
+            temporaryFile.delete();
+            throw new IOException("Could not rename " + temporaryFile + " to " + imageFile);
+        }
     }
 
     /**
@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.utils;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+
+import org.gateshipone.odyssey.models.FileModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walks directory trees in parallel and reports the found files in a deterministic order.
+ * <p>
+ * The directories are listed by a bounded {@link ForkJoinPool} ahead of the consumer, while the files are reported
+ * on the calling thread in the same order as a depth first walk over {@link FileModel#listFilesSorted(Context)} would produce.
+ * This way the first files are available as soon as their directories are listed. Only a limited window of directories
+ * is listed ahead of the consumer, so large trees are not held in memory at once.
+ * Directories containing a .nomedia file are skipped as they are by {@link FileModel#listFilesSorted(Context)}.
+ */
+public class FolderWalker {
+
+    /**
+     * Maximum number of threads that list directories in parallel.
+     */
+    private static final int MAXIMUM_PARALLELISM = 4;
+
+    /**
+     * Maximum number of directories that are listed ahead of the consumer in walk order.
+     */
+    private static final int MAXIMUM_LISTING_WINDOW = 32;
+
+    private static FolderWalker mInstance = null;
+
+    private final ForkJoinPool mPool;
+
+    public interface FileVisitor {
+        /**
+         * Called on the thread that started the walk for each file in sorted order.
+         *
+         * @param file The found file.
+         */
+        void visitFile(FileModel file);
+    }
+
+    public interface DirectoryLister {
+        /**
+         * Called from a worker thread to list the content of a directory.
+         *
+         * @param context   The application context for the permission check.
+         * @param directory The directory to list.
+         * @return The sorted files and subdirectories that should be walked.
+         */
+        List<FileModel> listDirectory(Context context, FileModel directory);
+    }
+
+    /**
+     * Default {@link DirectoryLister} that lists all supported files and subdirectories.
+     */
+    private static final DirectoryLister DEFAULT_LISTER = PermissionHelper::getFilesForDirectory;
+
+    private FolderWalker() {
+        mPool = new ForkJoinPool(Math.max(1, Math.min(MAXIMUM_PARALLELISM, Runtime.getRuntime().availableProcessors())));
+    }
+
+    public static synchronized FolderWalker getInstance() {
+        if (mInstance == null) {
+            mInstance = new FolderWalker();
+        }
+
+        return mInstance;
+    }
+
+    /**
+     * Walks the given files and directories including all subdirectories.
+     * <p>
+     * This method blocks until all files are visited or the walk was cancelled.
+     *
+     * @param context            The application context for the permission check.
+     * @param roots              The files and directories to walk in the given order.
+     * @param cancellationSignal Optional signal to abort the walk.
+     * @param visitor            The {@link FileVisitor} that is called for each found file.
+     * @return True if the walk was completed, false if it was cancelled.
+     */
+    public boolean walk(final Context context, final List<FileModel> roots, final CancellationSignal cancellationSignal, final FileVisitor visitor) {
+        return walk(context, roots, DEFAULT_LISTER, cancellationSignal, visitor);
+    }
+
+    /**
+     * Walks the given files and directories including all subdirectories.
+     * <p>
+     * This method blocks until all files are visited or the walk was cancelled.
+     *
+     * @param context            The application context for the permission check.
+     * @param roots              The files and directories to walk in the given order.
+     * @param lister             The {@link DirectoryLister} used to list each directory.
+     * @param cancellationSignal Optional signal to abort the walk.
+     * @param visitor            The {@link FileVisitor} that is called for each found file.
+     * @return True if the walk was completed, false if it was cancelled.
+     */
+    public boolean walk(final Context context, final List<FileModel> roots, final DirectoryLister lister, final CancellationSignal cancellationSignal, final FileVisitor visitor) {
+        final List<ListingTask> rootTasks = new ArrayList<>();
+
+        for (FileModel root : roots) {
+            if (root.isDirectory()) {
+                rootTasks.add(new ListingTask(context, root, lister, cancellationSignal));
+            }
+        }
+
+        final Walk walk = new Walk(rootTasks, cancellationSignal, visitor);
+
+        for (FileModel root : roots) {
+            if (root.isDirectory()) {
+                if (!walk.visitNextRoot()) {
+                    return false;
+                }
+            } else {
+                if (isCancelled(cancellationSignal)) {
+                    walk.cancel();
+                    return false;
+                }
+                if (root.isFile()) {
+                    visitor.visitFile(root);
+                }
+            }
+        }
+
+        return !isCancelled(cancellationSignal);
+    }
+
+    /**
+     * Walks the given file or directory including all subdirectories.
+     *
+     * @see #walk(Context, List, CancellationSignal, FileVisitor)
+     */
+    public boolean walk(final Context context, final FileModel root, final CancellationSignal cancellationSignal, final FileVisitor visitor) {
+        final List<FileModel> roots = new ArrayList<>();
+        roots.add(root);
+        return walk(context, roots, cancellationSignal, visitor);
+    }
+
+    /**
+     * State of a single walk. Only accessed by the thread that started the walk.
+     */
+    private class Walk {
+
+        private final CancellationSignal mCancellationSignal;
+
+        private final FileVisitor mVisitor;
+
+        /**
+         * The listings that are currently visited, the innermost listing last.
+         */
+        private final List<Level> mLevels;
+
+        /**
+         * Number of listings that are started but not visited yet.
+         */
+        private int mStartedListings;
+
+        private Walk(final List<ListingTask> rootTasks, final CancellationSignal cancellationSignal, final FileVisitor visitor) {
+            mCancellationSignal = cancellationSignal;
+            mVisitor = visitor;
+            mLevels = new ArrayList<>();
+            mLevels.add(new Level(rootTasks));
+        }
+
+        /**
+         * Visits the next root directory and recursively its subdirectories.
+         *
+         * @return False if the walk was cancelled.
+         */
+        private boolean visitNextRoot() {
+            return visitNextListing(mLevels.get(0));
+        }
+
+        /**
+         * Visits the next subdirectory of the given level and recursively its subdirectories.
+         *
+         * @return False if the walk was cancelled.
+         */
+        private boolean visitNextListing(final Level level) {
+            final ListingTask task = level.mTasks.get(level.mNext++);
+
+            startListingsAhead(task);
+            final List<Object> entries = task.join();
+            mStartedListings--;
+
+            final Level childLevel = new Level(task.mSubdirectoryTasks);
+            mLevels.add(childLevel);
+
+            for (Object entry : entries) {
+                if (isCancelled(mCancellationSignal)) {
+                    cancel();
+                    return false;
+                }
+
+                if (entry instanceof ListingTask) {
+                    if (!visitNextListing(childLevel)) {
+                        return false;
+                    }
+                } else {
+                    mVisitor.visitFile((FileModel) entry);
+                }
+            }
+
+            mLevels.remove(mLevels.size() - 1);
+            return true;
+        }
+
+        /**
+         * Starts listing the directories that are visited next, so that at most {@link #MAXIMUM_LISTING_WINDOW}
+         * directories are listed but not visited yet.
+         *
+         * @param nextTask The task that is visited next.
+         */
+        private void startListingsAhead(final ListingTask nextTask) {
+            // the next task is joined right away, so it is started even if the window is full
+            if (!nextTask.mStarted) {
+                start(nextTask);
+            }
+
+            if (!startListing(nextTask)) {
+                return;
+            }
+
+            for (int i = mLevels.size() - 1; i >= 0; i--) {
+                final Level level = mLevels.get(i);
+
+                if (!startListings(level.mTasks, level.mNext)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Starts the given tasks and the subdirectories of already finished tasks in walk order.
+         *
+         * @return False if the listing window is full.
+         */
+        private boolean startListings(final List<ListingTask> tasks, final int start) {
+            for (int i = start; i < tasks.size(); i++) {
+                if (!startListing(tasks.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean startListing(final ListingTask task) {
+            if (!task.mStarted) {
+                if (mStartedListings >= MAXIMUM_LISTING_WINDOW) {
+                    return false;
+                }
+
+                start(task);
+            }
+
+            // the subdirectories of the task are visited before its following siblings
+            return !task.isDone() || startListings(task.mSubdirectoryTasks, 0);
+        }
+
+        private void start(final ListingTask task) {
+            task.mStarted = true;
+            mStartedListings++;
+            mPool.execute(task);
+        }
+
+        /**
+         * Cancels all started listings that are not visited yet.
+         */
+        private void cancel() {
+            for (Level level : mLevels) {
+                for (int i = level.mNext; i < level.mTasks.size(); i++) {
+                    level.mTasks.get(i).cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * The subdirectories of a listing that is visited.
+     */
+    private static class Level {
+
+        private final List<ListingTask> mTasks;
+
+        /**
+         * Index of the next subdirectory that is visited.
+         */
+        private int mNext;
+
+        private Level(final List<ListingTask> tasks) {
+            mTasks = tasks;
+        }
+    }
+
+    private static boolean isCancelled(final CancellationSignal cancellationSignal) {
+        return cancellationSignal != null && cancellationSignal.isCanceled();
+    }
+
+    /**
+     * Task that lists a single directory and creates a new task for each subdirectory.
+     * <p>
+     * The result contains the files of the directory and the tasks of the subdirectories in sorted order.
+     * The subdirectory tasks are started by the walk once they are within its listing window.
+     */
+    private static class ListingTask extends RecursiveTask<List<Object>> {
+
+        private final Context mContext;
+
+        private final FileModel mDirectory;
+
+        private final DirectoryLister mLister;
+
+        private final CancellationSignal mCancellationSignal;
+
+        /**
+         * The tasks of the subdirectories in sorted order. Written by the task before it is done.
+         */
+        private final List<ListingTask> mSubdirectoryTasks;
+
+        /**
+         * True if the task was passed to the pool. Only accessed by the thread of the walk.
+         */
+        private boolean mStarted;
+
+        ListingTask(final Context context, final FileModel directory, final DirectoryLister lister, final CancellationSignal cancellationSignal) {
+            mContext = context;
+            mDirectory = directory;
+            mLister = lister;
+            mCancellationSignal = cancellationSignal;
+            mSubdirectoryTasks = new ArrayList<>();
+        }
+
+        @Override
+        protected List<Object> compute() {
+            final List<Object> entries = new ArrayList<>();
+
+            if (FolderWalker.isCancelled(mCancellationSignal)) {
+                return entries;
+            }
+
+            for (FileModel file : mLister.listDirectory(mContext, mDirectory)) {
+                if (file.isDirectory()) {
+                    final ListingTask task = new ListingTask(mContext, file, mLister, mCancellationSignal);
+                    mSubdirectoryTasks.add(task);
+                    entries.add(task);
+                } else if (file.isFile()) {
+                    entries.add(file);
+                }
+            }
+
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.artwork.BitmapCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduler for all image loading with a limited number of worker threads.
+ * <p>
+ * Requests with a higher priority are loaded first. Requests with the same priority are loaded
+ * in the reverse order, so that the most recently shown items are loaded first while scrolling.
+ * Requests with the same key share a single load and a load is skipped if all of its requests were cancelled.
+ */
+public class ImageLoadScheduler {
+
+    private static final String TAG = ImageLoadScheduler.class.getSimpleName();
+
+    public interface ImageLoader {
+        /**
+         * Called from a worker thread to load the image.
+         *
+         * @return The loaded image or null if no image is available.
+         */
+        Bitmap loadImage();
+    }
+
+    public interface ImageLoadListener {
+        /**
+         * Called on the main thread if the image was loaded. Each listener owns one reference of the image
+         * that should be released with {@link BitmapCache#releaseBitmap(Bitmap)} once the image is not shown anymore.
+         *
+         * @param image    The loaded image or null if no image is available.
+         * @param loadTime The time in ms it took to load the image.
+         */
+        void onImageLoaded(Bitmap image, long loadTime);
+    }
+
+    /**
+     * Priority for single images that are shown prominently, e.g. the cover of the current track.
+     */
+    public static final int PRIORITY_HIGH = 0;
+
+    /**
+     * Priority for images of visible list items.
+     */
+    public static final int PRIORITY_VISIBLE = 1;
+
+    /**
+     * Priority for images that are loaded in advance.
+     */
+    public static final int PRIORITY_LOW = 2;
+
+    /**
+     * Maximum number of threads that load images in parallel.
+     */
+    private static final int MAXIMUM_WORKER_THREADS = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * Time in seconds an idle worker thread is kept alive.
+     */
+    private static final int WORKER_KEEP_ALIVE_TIME = 5;
+
+    private static ImageLoadScheduler mInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * All load tasks that are not finished yet with the request key as key.
+     */
+    private final Map<String, LoadTask> mPendingTasks;
+
+    /**
+     * Sequence number to process the most recent tasks with the same priority first.
+     */
+    private final AtomicLong mSequence;
+
+    private final Handler mMainHandler;
+
+    private ImageLoadScheduler() {
+        mPendingTasks = new HashMap<>();
+        mSequence = new AtomicLong();
+        mMainHandler = new Handler(Looper.getMainLooper());
+
+        mExecutor = new ThreadPoolExecutor(MAXIMUM_WORKER_THREADS, MAXIMUM_WORKER_THREADS, WORKER_KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "OdysseyImageLoader"));
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized ImageLoadScheduler getInstance() {
+        if (mInstance == null) {
+            mInstance = new ImageLoadScheduler();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Requests an image. If a load for the same key is already pending the request is attached to it.
+     *
+     * @param key      The key identifying the requested image, e.g. the album key and the requested size.
+     * @param priority The priority of the request.
+     * @param loader   The loader that is used if no load for the key is pending.
+     * @param listener The listener that is notified on the main thread.
+     * @return The {@link Request} that can be used to cancel or prioritize the request.
+     */
+    public synchronized Request load(final String key, final int priority, final ImageLoader loader, final ImageLoadListener listener) {
+        final Request request = new Request(key, listener);
+
+        final LoadTask task = mPendingTasks.get(key);
+
+        if (task == null) {
+            final LoadTask newTask = new LoadTask(key, loader, priority);
+            newTask.mRequests.add(request);
+            mPendingTasks.put(key, newTask);
+            mExecutor.execute(newTask);
+        } else {
+            task.mRequests.add(request);
+            prioritize(task, priority);
+        }
+
+        return request;
+    }
+
+    /**
+     * Executes a task that is not shared with other requests, e.g. because it delivers its results itself.
+     *
+     * @param priority The priority of the task.
+     * @param runnable The task to execute on a worker thread.
+     */
+    public void execute(final int priority, final Runnable runnable) {
+        mExecutor.execute(new RunnableTask(runnable, priority));
+    }
+
+    /**
+     * Moves the task to the front of all tasks with the same priority or raises its priority if it is not running yet.
+     */
+    private synchronized void prioritize(final LoadTask task, final int priority) {
+        if (mExecutor.remove(task)) {
+            task.mPriority = Math.min(task.mPriority, priority);
+            task.mSequenceNumber = mSequence.getAndIncrement();
+            mExecutor.execute(task);
+        }
+    }
+
+    private synchronized void cancel(final Request request) {
+        request.mCancelled = true;
+
+        final LoadTask task = mPendingTasks.get(request.mKey);
+
+        if (task != null && task.mRequests.remove(request) && task.mRequests.isEmpty() && !task.mRunning) {
+            // nobody is waiting for the image anymore
+            mPendingTasks.remove(request.mKey);
+            mExecutor.remove(task);
+
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "Dropped load of " + request.mKey + " because all requests were cancelled");
+            }
+        }
+    }
+
+    /**
+     * Handle of a single image request.
+     */
+    public class Request {
+
+        private final String mKey;
+
+        private final ImageLoadListener mListener;
+
+        private volatile boolean mCancelled;
+
+        private Request(final String key, final ImageLoadListener listener) {
+            mKey = key;
+            mListener = listener;
+        }
+
+        /**
+         * Cancels the request. The listener will not be notified anymore.
+         */
+        public void cancel() {
+            ImageLoadScheduler.this.cancel(this);
+        }
+
+        /**
+         * Moves the request to the front of the queue if it is not loading yet, e.g. because the requesting item is still visible.
+         *
+         * @param priority The new priority which is only used if it is higher than the current one.
+         */
+        public void prioritize(final int priority) {
+            synchronized (ImageLoadScheduler.this) {
+                final LoadTask task = mPendingTasks.get(mKey);
+
+                if (!mCancelled && task != null && task.mRequests.contains(this)) {
+                    ImageLoadScheduler.this.prioritize(task, priority);
+                }
+            }
+        }
+    }
+
+    private abstract class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+        volatile int mPriority;
+
+        volatile long mSequenceNumber;
+
+        PrioritizedTask(final int priority) {
+            mPriority = priority;
+            mSequenceNumber = mSequence.getAndIncrement();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (mPriority != other.mPriority) {
+                return Integer.compare(mPriority, other.mPriority);
+            }
+            // the most recent task first
+            return Long.compare(other.mSequenceNumber, mSequenceNumber);
+        }
+    }
+
+    private class RunnableTask extends PrioritizedTask {
+
+        private final Runnable mRunnable;
+
+        RunnableTask(final Runnable runnable, final int priority) {
+            super(priority);
+            mRunnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+    }
+
+    private class LoadTask extends PrioritizedTask {
+
+        private final String mKey;
+
+        private final ImageLoader mLoader;
+
+        /**
+         * All requests waiting for this task. Guarded by the scheduler.
+         */
+        private final List<Request> mRequests;
+
+        private boolean mRunning;
+
+        LoadTask(final String key, final ImageLoader loader, final int priority) {
+            super(priority);
+            mKey = key;
+            mLoader = loader;
+            mRequests = new ArrayList<>();
+        }
+
+        @Override
+        public void run() {
+            synchronized (ImageLoadScheduler.this) {
+                if (mRequests.isEmpty()) {
+                    if (mPendingTasks.get(mKey) == this) {
+                        mPendingTasks.remove(mKey);
+                    }
+                    return;
+                }
+                mRunning = true;
+            }
+
+            final long startTime = SystemClock.elapsedRealtime();
+
+            Bitmap image = null;
+            try {
+                image = mLoader.loadImage();
+            } finally {
+                final long loadTime = SystemClock.elapsedRealtime() - startTime;
+
+                final List<Request> requests;
+                synchronized (ImageLoadScheduler.this) {
+                    if (mPendingTasks.get(mKey) == this) {
+                        mPendingTasks.remove(mKey);
+                    }
+                    requests = new ArrayList<>(mRequests);
+                    mRequests.clear();
+                }
+
+                final Bitmap loadedImage = image;
+                mMainHandler.post(() -> {
+                    int listenerCount = 0;
+                    for (Request request : requests) {
+                        if (!request.mCancelled) {
+                            listenerCount++;
+                        }
+                    }
+
+                    // the loader returned one reference of the image, every further listener needs its own
+                    if (listenerCount == 0) {
+                        BitmapCache.getInstance().releaseBitmap(loadedImage);
+                    }
+                    for (int i = 1; i < listenerCount; i++) {
+                        BitmapCache.getInstance().acquireBitmap(loadedImage);
+                    }
+
+                    for (Request request : requests) {
+                        if (!request.mCancelled) {
+                            request.mListener.onImageLoaded(loadedImage, loadTime);
+                        }
+                    }
+                });
+            }
+        }
+    }
+}
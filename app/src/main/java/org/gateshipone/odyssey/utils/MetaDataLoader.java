@@ -25,28 +25,120 @@ package org.gateshipone.odyssey.utils;
 import android.content.Context;
 import android.media.MediaMetadataRetriever;
 import android.net.Uri;
+import android.os.Process;
 import android.text.TextUtils;
+import android.util.Log;
 
+import org.gateshipone.odyssey.BuildConfig;
+import org.gateshipone.odyssey.metadata.MetaDataCacheManager;
+import org.gateshipone.odyssey.metadata.TagReader;
+import org.gateshipone.odyssey.metadata.TrackTags;
 import org.gateshipone.odyssey.models.TrackModel;
 
+import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Helper to load meta data of tracks async.
+ * <p>
+ * The tracks are processed by a small pool of worker threads. Tracks that are marked as prioritized
+ * (e.g. the current and the next track) are processed first. Results are delivered in batches
+ * and extracted meta data is stored in the {@link MetaDataCacheManager}.
  */
 public class MetaDataLoader {
 
+    private static final String TAG = MetaDataLoader.class.getSimpleName();
+
     public interface MetaDataLoaderListener {
+        /**
+         * Called from a worker thread each time a batch of tracks was parsed.
+         *
+         * @param parsedTracks A Map of parsed tracks with the track url as key.
+         */
         void metaDataLoaderFinished(Map<String, TrackModel> parsedTracks);
     }
 
+    /**
+     * Maximum number of threads that extract meta data in parallel.
+     */
+    private static final int MAXIMUM_WORKER_THREADS = 2;
+
+    /**
+     * Time in seconds an idle worker thread is kept alive.
+     */
+    private static final int WORKER_KEEP_ALIVE_TIME = 5;
+
+    /**
+     * Number of parsed tracks after which the results are delivered.
+     */
+    private static final int RESULT_BATCH_SIZE = 25;
+
+    /**
+     * Priority for tracks that should be processed as soon as possible.
+     */
+    private static final int PRIORITY_HIGH = 0;
+
+    /**
+     * Priority for all other tracks.
+     */
+    private static final int PRIORITY_NORMAL = 1;
+
     private final MetaDataLoaderListener mMetaDataLoaderListener;
 
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * All tasks that are not finished yet with the track url as key. Declared as {@link ConcurrentMap} so that
+     * the atomic remove(key, value) of API 1 is used instead of the default method of {@link Map} added in API 24.
+     */
+    private final ConcurrentMap<String, TrackMetaDataTask> mPendingTasks;
+
+    /**
+     * Parsed tracks that are not delivered yet.
+     */
+    private final Map<String, TrackModel> mParsedTracks;
+
+    /**
+     * Extracted tracks that are not saved in the cache yet.
+     */
+    private final List<MetaDataCacheManager.CacheEntry> mNewCacheEntries;
+
+    /**
+     * Sequence number to process tracks with the same priority in the enqueued order.
+     */
+    private final AtomicLong mSequence;
+
+    /**
+     * The application context used for the last request.
+     */
+    private volatile Context mContext;
+
     public MetaDataLoader(final MetaDataLoaderListener metaDataLoaderListener) {
         mMetaDataLoaderListener = metaDataLoaderListener;
+
+        mPendingTasks = new ConcurrentHashMap<>();
+        mParsedTracks = new HashMap<>();
+        mNewCacheEntries = new ArrayList<>();
+        mSequence = new AtomicLong();
+
+        mExecutor = new ThreadPoolExecutor(MAXIMUM_WORKER_THREADS, MAXIMUM_WORKER_THREADS, WORKER_KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "OdysseyMetaDataLoader"));
+        mExecutor.allowCoreThreadTimeOut(true);
     }
 
     /**
@@ -60,24 +152,70 @@ public class MetaDataLoader {
             return;
         }
 
-        HashMap<String, String> unknownTracks = new HashMap<>();
+        mContext = context.getApplicationContext();
 
         for (TrackModel track : tracks) {
-            if (TextUtils.isEmpty(track.getTrackAlbumKey())) {
-                // add only tracks with an empty albumkey
-                unknownTracks.put(track.getTrackURL(), track.getTrackName());
+            // add only tracks with an empty albumkey
+            if (TextUtils.isEmpty(track.getTrackAlbumKey()) && !mPendingTasks.containsKey(track.getTrackURL())) {
+                final TrackMetaDataTask task = new TrackMetaDataTask(track.getTrackName(), track.getTrackURL(), PRIORITY_NORMAL);
+                mPendingTasks.put(track.getTrackURL(), task);
+                mExecutor.execute(task);
             }
         }
+    }
 
-        Thread loaderThread = new Thread(new TrackListMetaDataExtractorRunner(context, unknownTracks));
-        loaderThread.start();
+    /**
+     * Moves the tracks with the given urls to the front of the queue if they are not parsed yet.
+     * This should be used for the current and the next track.
+     *
+     * @param trackUrls The urls of the tracks that should be processed first.
+     */
+    public void prioritizeTracks(final Collection<String> trackUrls) {
+        for (String trackUrl : trackUrls) {
+            final TrackMetaDataTask task = mPendingTasks.get(trackUrl);
+
+            // requeue the task only if it is not already running
+            if (task != null && task.mPriority != PRIORITY_HIGH && mExecutor.remove(task)) {
+                task.mPriority = PRIORITY_HIGH;
+                mExecutor.execute(task);
+            }
+        }
+    }
+
+    /**
+     * Cancels the extraction for the tracks with the given urls, e.g. because they were removed from the playlist.
+     *
+     * @param trackUrls The urls of the tracks that are not needed anymore.
+     */
+    public void cancelTracks(final Collection<String> trackUrls) {
+        for (String trackUrl : trackUrls) {
+            final TrackMetaDataTask task = mPendingTasks.remove(trackUrl);
+
+            if (task != null) {
+                task.mCancelled = true;
+                mExecutor.remove(task);
+            }
+        }
+
+        // deliver the remaining results if the cancelled tracks were the last pending ones
+        if (mPendingTasks.isEmpty() && mContext != null) {
+            deliverParsedTracks(mContext, false);
+        }
+    }
+
+    /**
+     * Cancels the extraction for all tracks that are not parsed yet.
+     */
+    public void cancelAll() {
+        cancelTracks(new ArrayList<>(mPendingTasks.keySet()));
     }
 
     /**
      * Create a {@link TrackModel} for the given url.
      * <p>
-     * This method will try to retrieve the track in the mediadb or try to extract the meta data using the {@link MediaMetadataRetriever}.
-     * If both methods fail a dummy {@link TrackModel} will be created.
+     * This method will try to retrieve the track in the mediadb, the meta data cache or try to read the tags using the {@link TagReader}.
+     * If the format is not supported by the {@link TagReader} the meta data is extracted using the {@link MediaMetadataRetriever}.
+     * If all methods fail a dummy {@link TrackModel} will be created.
      *
      * @param context    The {@link Context} used to open the file and access the mediadb.
      * @param trackTitle The title for the {@link TrackModel} if a dummy track is created.
@@ -95,6 +233,76 @@ public class MetaDataLoader {
             return track;
         }
 
+        // lookup the current file in the meta data cache
+        final File file = new File(trackUrl);
+        final long fileSize = file.length();
+        final long fileModified = file.lastModified();
+
+        final MetaDataCacheManager cacheManager = MetaDataCacheManager.getInstance(context);
+
+        final TrackModel cachedTrack = cacheManager.getTrack(trackUrl, fileSize, fileModified);
+
+        if (cachedTrack != null) {
+            return cachedTrack;
+        }
+
+        TrackModel extractedTrack = readTags(file, trackUrl);
+
+        if (extractedTrack == null) {
+            extractedTrack = extractMetaData(trackUrl);
+        }
+
+        if (extractedTrack == null) {
+            // something went wrong so just create a dummy track with the given title
+            final String albumKey = "" + trackTitle.hashCode();
+            return new TrackModel(trackTitle, null, null, albumKey, 0, -1, trackUrl, -1);
+        }
+
+        // remember the extracted track, it will be saved in the cache with the next batch
+        synchronized (mParsedTracks) {
+            mNewCacheEntries.add(new MetaDataCacheManager.CacheEntry(extractedTrack, fileSize, fileModified));
+        }
+
+        return extractedTrack;
+    }
+
+    /**
+     * Reads the tags of the given file with the {@link TagReader}.
+     *
+     * @param file     The file to read.
+     * @param trackUrl The url of the track.
+     * @return The created {@link TrackModel} or null if the format is not supported or the file could not be read.
+     */
+    private TrackModel readTags(final File file, final String trackUrl) {
+        final long startTime = System.nanoTime();
+
+        try {
+            final TrackTags tags = TagReader.readTags(file);
+
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "TagReader: " + ((System.nanoTime() - startTime) / 1000) + " us for " + trackUrl);
+            }
+
+            if (tags == null) {
+                return null;
+            }
+
+            return createTrack(tags.getTitle(), tags.getArtist(), tags.getAlbum(), tags.getDuration(), tags.getTrackNumber(), trackUrl);
+        } catch (Exception e) {
+            // unexpected file content, let the retriever try again
+            return null;
+        }
+    }
+
+    /**
+     * Extracts the meta data of the given file with the {@link MediaMetadataRetriever}.
+     *
+     * @param trackUrl The url of the track.
+     * @return The created {@link TrackModel} or null if the file could not be read.
+     */
+    private TrackModel extractMetaData(final String trackUrl) {
+        final long startTime = System.nanoTime();
+
         try {
             // try to read the file metadata
             final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
@@ -140,36 +348,110 @@ public class MetaDataLoader {
             final String artist = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_ARTIST);
             final String album = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_ALBUM);
 
-            final String albumKey = "" + ((artist == null ? "" : artist) + (album == null ? "" : album)).hashCode();
+            retriever.release();
+
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "MediaMetadataRetriever: " + ((System.nanoTime() - startTime) / 1000) + " us for " + trackUrl);
+            }
 
-            return new TrackModel(title, artist, album, albumKey, duration, no, trackUrl, -1);
+            return createTrack(title, artist, album, duration, no, trackUrl);
         } catch (Exception e) {
-            // something went wrong so just create a dummy track with the given title
-            final String albumKey = "" + trackTitle.hashCode();
-            return new TrackModel(trackTitle, null, null, albumKey, 0, -1, trackUrl, -1);
+            return null;
+        }
+    }
+
+    private static TrackModel createTrack(final String title, final String artist, final String album, final long duration, final int number, final String trackUrl) {
+        final String albumKey = "" + ((artist == null ? "" : artist) + (album == null ? "" : album)).hashCode();
+
+        return new TrackModel(title, artist, album, albumKey, duration, number, trackUrl, -1);
+    }
+
+    /**
+     * Adds a parsed track to the current batch and delivers the batch if it is full,
+     * if the track was prioritized or if no more tracks are pending.
+     *
+     * @param context     The {@link Context} used to access the meta data cache.
+     * @param track       The parsed track.
+     * @param prioritized True if the track was prioritized.
+     */
+    private void onTrackParsed(final Context context, final TrackModel track, final boolean prioritized) {
+        synchronized (mParsedTracks) {
+            mParsedTracks.put(track.getTrackURL(), track);
         }
+
+        deliverParsedTracks(context, !prioritized);
     }
 
-    private class TrackListMetaDataExtractorRunner implements Runnable {
+    /**
+     * Delivers all parsed tracks to the listener and saves the newly extracted tracks in the cache.
+     *
+     * @param context        The {@link Context} used to access the meta data cache.
+     * @param onlyIfComplete If true the tracks are only delivered if the batch is full or no more tracks are pending.
+     */
+    private void deliverParsedTracks(final Context context, final boolean onlyIfComplete) {
+        final Map<String, TrackModel> batch;
+        final List<MetaDataCacheManager.CacheEntry> cacheEntries;
+
+        synchronized (mParsedTracks) {
+            if (onlyIfComplete && mParsedTracks.size() < RESULT_BATCH_SIZE && !mPendingTasks.isEmpty()) {
+                return;
+            }
 
-        private final Context mContext;
+            batch = new HashMap<>(mParsedTracks);
+            mParsedTracks.clear();
 
-        private final Map<String, String> mUnknownTracks;
+            cacheEntries = new ArrayList<>(mNewCacheEntries);
+            mNewCacheEntries.clear();
+        }
 
-        TrackListMetaDataExtractorRunner(final Context context, final Map<String, String> unknownTracks) {
-            mContext = context;
-            mUnknownTracks = unknownTracks;
+        if (!batch.isEmpty()) {
+            mMetaDataLoaderListener.metaDataLoaderFinished(batch);
+        }
+
+        MetaDataCacheManager.getInstance(context).insertTracks(cacheEntries);
+    }
+
+    private class TrackMetaDataTask implements Runnable, Comparable<TrackMetaDataTask> {
+
+        private final String mTrackTitle;
+
+        private final String mTrackUrl;
+
+        private final long mSequenceNumber;
+
+        private volatile int mPriority;
+
+        private volatile boolean mCancelled;
+
+        TrackMetaDataTask(final String trackTitle, final String trackUrl, final int priority) {
+            mTrackTitle = trackTitle;
+            mTrackUrl = trackUrl;
+            mPriority = priority;
+            mSequenceNumber = mSequence.getAndIncrement();
         }
 
         @Override
         public void run() {
-            Map<String, TrackModel> mParsedTracks = new HashMap<>();
+            if (mCancelled) {
+                return;
+            }
+
+            final Context context = mContext;
+
+            final TrackModel track = readTrackMetaData(context, mTrackTitle, mTrackUrl);
 
-            for (Map.Entry<String, String> unknownTrack : mUnknownTracks.entrySet()) {
-                mParsedTracks.put(unknownTrack.getKey(), readTrackMetaData(mContext, unknownTrack.getValue(), unknownTrack.getKey()));
+            // only deliver the result if the track was not removed in the meantime
+            if (mPendingTasks.remove(mTrackUrl, this)) {
+                onTrackParsed(context, track, mPriority == PRIORITY_HIGH);
             }
+        }
 
-            mMetaDataLoaderListener.metaDataLoaderFinished(mParsedTracks);
+        @Override
+        public int compareTo(TrackMetaDataTask other) {
+            if (mPriority != other.mPriority) {
+                return Integer.compare(mPriority, other.mPriority);
+            }
+            return Long.compare(mSequenceNumber, other.mSequenceNumber);
         }
     }
 }
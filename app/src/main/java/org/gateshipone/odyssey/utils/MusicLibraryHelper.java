@@ -46,6 +46,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -160,12 +161,22 @@ public class MusicLibraryHelper {
 
         // no album id found -> album not in MediaStore; generate fake id
         if (albumID == -1) {
-            albumID = albumKey.hashCode() + ALBUMID_HASH_OFFSET;
+            albumID = getFakeAlbumID(albumKey);
         }
 
         return albumID;
     }
 
+    /**
+     * Derives an album id for albums that are not part of the MediaStore.
+     *
+     * @param albumKey The key of the album.
+     * @return The derived id based on the albumKey hash code
+     */
+    static long getFakeAlbumID(final String albumKey) {
+        return albumKey.hashCode() + ALBUMID_HASH_OFFSET;
+    }
+
     /**
      * Return a list of all tracks of an album.
      *
@@ -854,7 +865,27 @@ public class MusicLibraryHelper {
      * @return A {@link Set} of all storage locations for each track for the given album key.
      */
     public static Set<String> getTrackStorageLocationsForAlbum(final String albumKey, final Context context) {
-        final Set<String> trackStorageLocations = new HashSet<>();
+        final Set<String> trackStorageLocations = new LinkedHashSet<>();
+
+        for (String trackPath : getTrackPathsForAlbum(albumKey, context)) {
+            final String folderPath = new File(trackPath).getParent();
+            if (folderPath != null) {
+                trackStorageLocations.add(folderPath);
+            }
+        }
+
+        return trackStorageLocations;
+    }
+
+    /**
+     * This method returns the path of each existing track file that is connected to the provided album key.
+     *
+     * @param albumKey The album key that will be used to get all tracks for this key.
+     * @param context  The application context to access the content resolver.
+     * @return A {@link List} of all track paths for the given album key ordered by the track number.
+     */
+    public static List<String> getTrackPathsForAlbum(final String albumKey, final Context context) {
+        final List<String> trackPaths = new ArrayList<>();
 
         final String[] whereVal = {albumKey};
 
@@ -870,12 +901,8 @@ public class MusicLibraryHelper {
                 do {
                     final String url = cursor.getString(cursor.getColumnIndex(ProjectionTracks.DATA));
 
-                    final File file = new File(url);
-                    if (file.exists()) {
-                        final String folderPath = file.getParent();
-                        if (folderPath != null) {
-                            trackStorageLocations.add(folderPath);
-                        }
+                    if (new File(url).exists()) {
+                        trackPaths.add(url);
                     }
                 } while (cursor.moveToNext());
             }
@@ -883,7 +910,7 @@ public class MusicLibraryHelper {
             cursor.close();
         }
 
-        return trackStorageLocations;
+        return trackPaths;
     }
 
 
@@ -954,7 +981,7 @@ public class MusicLibraryHelper {
      * @param context  The application context to access the content resolver.
      * @return The list of {@link FileModel} of all music files.
      */
-    static List<FileModel> getMediaFilesForPath(final String basePath, final Context context) {
+    public static List<FileModel> getMediaFilesForPath(final String basePath, final Context context) {
         final List<FileModel> files = new ArrayList<>();
 
         final String[] whereVal = {basePath + "%"};
@@ -139,7 +139,7 @@ public class PermissionHelper {
         List<FileModel> files = new ArrayList<>();
 
         if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_EXTERNAL_STORAGE) == PackageManager.PERMISSION_GRANTED) {
-            files = directory.listFilesSorted();
+            files = directory.listFilesSorted(context);
         }
 
         return files;
@@ -22,6 +22,7 @@
 
 package org.gateshipone.odyssey.utils;
 
+import org.gateshipone.odyssey.adapter.ArtworkPrefetchAdapter;
 import org.gateshipone.odyssey.adapter.ScrollSpeedAdapter;
 import org.gateshipone.odyssey.viewitems.GenericImageViewItem;
 
@@ -40,8 +41,15 @@ public class RecyclerScrollSpeedListener extends RecyclerView.OnScrollListener {
 
     private int mScrollSpeed = 0;
 
+    private int mDirection = ArtworkPrefetcher.DIRECTION_DOWN;
+
     private final ScrollSpeedAdapter mAdapter;
 
+    /**
+     * Prefetcher for the artwork of the next items or null if the adapter does not support it.
+     */
+    private ArtworkPrefetcher mPrefetcher;
+
     public RecyclerScrollSpeedListener(final ScrollSpeedAdapter adapter) {
         mAdapter = adapter;
     }
@@ -70,6 +78,9 @@ public class RecyclerScrollSpeedListener extends RecyclerView.OnScrollListener {
                     GenericImageViewItem item = (GenericImageViewItem) recyclerView.getChildAt(i);
                     item.startCoverImageTask();
                 }
+
+                // load the next row in the last scroll direction
+                prefetch(recyclerView, firstVisibleItemPosition, lastVisibleItemPosition);
             }
         }
     }
@@ -144,6 +155,7 @@ public class RecyclerScrollSpeedListener extends RecyclerView.OnScrollListener {
             mAdapter.setScrollSpeed(mScrollSpeed);
 
             // Save values for next comparsion
+            mDirection = firstVisibleItemPosition > mLastFirstVisibleItem ? ArtworkPrefetcher.DIRECTION_DOWN : ArtworkPrefetcher.DIRECTION_UP;
             mLastFirstVisibleItem = firstVisibleItemPosition;
             mLastTime = currentTime;
             // Start the grid image loader task only if scroll speed is slow enough:
@@ -154,6 +166,25 @@ public class RecyclerScrollSpeedListener extends RecyclerView.OnScrollListener {
                     item.startCoverImageTask();
                 }
             }
+
+            prefetch(recyclerView, firstVisibleItemPosition, lastVisibleItemPosition);
+        }
+    }
+
+    /**
+     * Loads the artwork of the items after the visible items in the scroll direction.
+     */
+    private void prefetch(final RecyclerView recyclerView, final int firstVisibleItemPosition, final int lastVisibleItemPosition) {
+        if (mPrefetcher == null) {
+            if (!(mAdapter instanceof ArtworkPrefetchAdapter)) {
+                return;
+            }
+            mPrefetcher = new ArtworkPrefetcher(recyclerView.getContext(), (ArtworkPrefetchAdapter) mAdapter, mAdapter);
         }
+
+        final RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        final int columns = layoutManager instanceof GridLayoutManager ? ((GridLayoutManager) layoutManager).getSpanCount() : 1;
+
+        mPrefetcher.prefetch(firstVisibleItemPosition, lastVisibleItemPosition, mDirection, mScrollSpeed, columns);
     }
 }
@@ -26,6 +26,7 @@ package org.gateshipone.odyssey.utils;
 import android.widget.AbsListView;
 import android.widget.GridView;
 
+import org.gateshipone.odyssey.adapter.ArtworkPrefetchAdapter;
 import org.gateshipone.odyssey.adapter.ScrollSpeedAdapter;
 import org.gateshipone.odyssey.viewitems.GenericImageViewItem;
 
@@ -37,9 +38,15 @@ public class ScrollSpeedListener implements AbsListView.OnScrollListener {
     private long mLastTime = 0;
     private int mLastFirstVisibleItem = 0;
     private int mScrollSpeed = 0;
+    private int mDirection = ArtworkPrefetcher.DIRECTION_DOWN;
 
     private final ScrollSpeedAdapter mAdapter;
 
+    /**
+     * Prefetcher for the artwork of the next items or null if the adapter does not support it.
+     */
+    private ArtworkPrefetcher mPrefetcher;
+
     public ScrollSpeedListener(ScrollSpeedAdapter adapter) {
         super();
         mAdapter = adapter;
@@ -58,6 +65,9 @@ public class ScrollSpeedListener implements AbsListView.OnScrollListener {
                 GenericImageViewItem item = (GenericImageViewItem) view.getChildAt(i);
                 item.startCoverImageTask();
             }
+
+            // load the next row in the last scroll direction
+            prefetch(view, view.getFirstVisiblePosition(), view.getLastVisiblePosition());
         }
     }
 
@@ -91,6 +101,7 @@ public class ScrollSpeedListener implements AbsListView.OnScrollListener {
             mAdapter.setScrollSpeed(mScrollSpeed);
 
             // Save values for next comparsion
+            mDirection = firstVisibleItem > mLastFirstVisibleItem ? ArtworkPrefetcher.DIRECTION_DOWN : ArtworkPrefetcher.DIRECTION_UP;
             mLastFirstVisibleItem = firstVisibleItem;
             mLastTime = currentTime;
             // Start the grid image loader task only if scroll speed is slow enough:
@@ -101,6 +112,24 @@ public class ScrollSpeedListener implements AbsListView.OnScrollListener {
                     item.startCoverImageTask();
                 }
             }
+
+            prefetch(view, firstVisibleItem, firstVisibleItem + visibleItemCount - 1);
+        }
+    }
+
+    /**
+     * Loads the artwork of the items after the visible items in the scroll direction.
+     */
+    private void prefetch(final AbsListView view, final int firstVisibleItem, final int lastVisibleItem) {
+        if (mPrefetcher == null) {
+            if (!(mAdapter instanceof ArtworkPrefetchAdapter)) {
+                return;
+            }
+            mPrefetcher = new ArtworkPrefetcher(view.getContext(), (ArtworkPrefetchAdapter) mAdapter, mAdapter);
         }
+
+        final int columns = view instanceof GridView ? ((GridView) view).getNumColumns() : 1;
+
+        mPrefetcher.prefetch(firstVisibleItem, lastVisibleItem, mDirection, mScrollSpeed, columns);
     }
 }
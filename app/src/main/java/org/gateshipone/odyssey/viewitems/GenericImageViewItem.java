@@ -33,8 +33,10 @@ import android.widget.ViewSwitcher;
 
 import org.gateshipone.odyssey.adapter.ScrollSpeedAdapter;
 import org.gateshipone.odyssey.artwork.ArtworkManager;
+import org.gateshipone.odyssey.artwork.BitmapCache;
 import org.gateshipone.odyssey.models.GenericModel;
 import org.gateshipone.odyssey.utils.AsyncLoader;
+import org.gateshipone.odyssey.utils.ImageLoadScheduler;
 
 import androidx.annotation.IdRes;
 import androidx.annotation.LayoutRes;
@@ -46,9 +48,14 @@ public abstract class GenericImageViewItem extends RelativeLayout implements Cov
     private Bitmap mBitmap = null;
     private final ViewSwitcher mSwitcher;
 
-    private AsyncLoader mLoaderTask;
+    private ImageLoadScheduler.Request mLoadRequest;
     private boolean mCoverDone = false;
 
+    /**
+     * True if the image was released while the item was detached and should be loaded again once it is attached.
+     */
+    private boolean mReloadOnAttach = false;
+
     private final AsyncLoader.CoverViewHolder mHolder;
 
     /**
@@ -88,9 +95,24 @@ public abstract class GenericImageViewItem extends RelativeLayout implements Cov
      * Starts the image retrieval task
      */
     public void startCoverImageTask() {
-        if (mLoaderTask == null && mHolder.artworkManager != null && mHolder.modelItem != null && !mCoverDone) {
-            mLoaderTask = new AsyncLoader(getContext());
-            mLoaderTask.execute(mHolder);
+        if (mHolder.artworkManager != null && mHolder.modelItem != null && !mCoverDone) {
+            if (mLoadRequest == null) {
+                final AsyncLoader loader = new AsyncLoader(getContext(), mHolder);
+                mLoadRequest = ImageLoadScheduler.getInstance().load(loader.getRequestKey(), ImageLoadScheduler.PRIORITY_VISIBLE, loader, this::onImageLoaded);
+            } else {
+                // the item is still visible so load it before items that were scrolled past
+                mLoadRequest.prioritize(ImageLoadScheduler.PRIORITY_VISIBLE);
+            }
+        }
+    }
+
+    private void onImageLoaded(final Bitmap image, final long loadTime) {
+        // set cover if exists
+        if (image != null) {
+            if (mHolder.mAdapter != null) {
+                mHolder.mAdapter.addImageLoadTime(loadTime);
+            }
+            setImage(image);
         }
     }
 
@@ -112,18 +134,38 @@ public abstract class GenericImageViewItem extends RelativeLayout implements Cov
         mHolder.modelItem = modelItem;
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mReloadOnAttach) {
+            mReloadOnAttach = false;
+            startCoverImageTask();
+        }
+    }
+
     /**
      * If this item gets detached from the parent it makes no sense to let
-     * the task for image retrieval running. (non-Javadoc)
+     * the task for image retrieval running. The image is released as well, so that the
+     * {@link BitmapCache} can reuse its memory once it is evicted. (non-Javadoc)
      *
      * @see android.view.View#onDetachedFromWindow()
      */
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        if (mLoaderTask != null) {
-            mLoaderTask.cancel(true);
-            mLoaderTask = null;
+        if (mLoadRequest != null) {
+            mLoadRequest.cancel();
+            mLoadRequest = null;
+        }
+
+        if (mBitmap != null) {
+            final Bitmap bitmap = mBitmap;
+            mBitmap = null;
+            mCoverDone = false;
+            mReloadOnAttach = true;
+
+            showPlaceholder();
+            BitmapCache.getInstance().releaseBitmap(bitmap);
         }
     }
 
@@ -135,32 +177,51 @@ public abstract class GenericImageViewItem extends RelativeLayout implements Cov
      */
     @Override
     public void setImage(final Bitmap image) {
+        final Bitmap previousBitmap = mBitmap;
         mBitmap = image;
+        mReloadOnAttach = false;
         if (image != null) {
             mCoverDone = true;
 
             mImageView.setImageBitmap(image);
             mSwitcher.setDisplayedChild(1);
         } else {
-            // Cancel old task
-            if (mLoaderTask != null) {
-                mLoaderTask.cancel(true);
+            // Cancel old request
+            if (mLoadRequest != null) {
+                mLoadRequest.cancel();
             }
-            mLoaderTask = null;
+            mLoadRequest = null;
 
             mCoverDone = false;
             mHolder.modelItem = null;
 
-            mSwitcher.setOutAnimation(null);
-            mSwitcher.setInAnimation(null);
-            mImageView.setImageDrawable(null);
-            mSwitcher.setDisplayedChild(0);
-            mSwitcher.setOutAnimation(AnimationUtils.loadAnimation(getContext(), android.R.anim.fade_out));
-            mSwitcher.setInAnimation(AnimationUtils.loadAnimation(getContext(), android.R.anim.fade_in));
+            showPlaceholder();
         }
+
+        // the previous image is not shown anymore
+        BitmapCache.getInstance().releaseBitmap(previousBitmap);
     }
 
+    /**
+     * Shows the placeholder instead of the image without an animation.
+     */
+    private void showPlaceholder() {
+        mSwitcher.setOutAnimation(null);
+        mSwitcher.setInAnimation(null);
+        mImageView.setImageDrawable(null);
+        mSwitcher.setDisplayedChild(0);
+        mSwitcher.setOutAnimation(AnimationUtils.loadAnimation(getContext(), android.R.anim.fade_out));
+        mSwitcher.setInAnimation(AnimationUtils.loadAnimation(getContext(), android.R.anim.fade_in));
+    }
+
+    /**
+     * Returns the shown image. The caller gets its own reference of the image, so it is never reused
+     * by the {@link BitmapCache} while the caller shows it, e.g. as the header of another fragment.
+     *
+     * @return The shown image or null if the placeholder is shown.
+     */
     public Bitmap getBitmap() {
+        BitmapCache.getInstance().acquireBitmap(mBitmap);
         return mBitmap;
     }
 }
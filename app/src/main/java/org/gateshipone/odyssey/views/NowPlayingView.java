@@ -36,8 +36,10 @@ import android.media.audiofx.AudioEffect;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.provider.MediaStore;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.MotionEvent;
@@ -69,8 +71,6 @@ import org.gateshipone.odyssey.utils.FormatHelper;
 import org.gateshipone.odyssey.utils.ThemeUtils;
 
 import java.util.Locale;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -151,9 +151,30 @@ public class NowPlayingView extends RelativeLayout implements SeekBar.OnSeekBarC
     private CoverBitmapLoader mCoverLoader = null;
 
     /**
-     * Timer that periodically updates the state of the view (seekbar)
+     * Frame callback that updates the state of the view (seekbar) with the interpolated position
      */
-    private Timer mRefreshTimer = null;
+    private final PositionFrameCallback mPositionFrameCallback = new PositionFrameCallback();
+
+    private boolean mRefreshRunning = false;
+
+    /**
+     * Last position snapshot of the PBS. The shown position is interpolated from it for every frame.
+     */
+    private long mSnapshotPosition;
+
+    private long mSnapshotTime;
+
+    private float mSnapshotSpeed;
+
+    /**
+     * Seconds shown in the elapsed view, used to format the time only if it changed
+     */
+    private long mShownElapsedSeconds = -1;
+
+    /**
+     * True while the user drags the seekbar, the position is not updated in that time
+     */
+    private boolean mUserSeeking = false;
 
     /**
      * Observer for information about the state of the draggable part of this view.
@@ -281,6 +302,11 @@ public class NowPlayingView extends RelativeLayout implements SeekBar.OnSeekBarC
                 // TODO Auto-generated catch block
                 e.printStackTrace();
             }
+
+            // continue the interpolation from the new position until the PBS publishes it
+            mSnapshotPosition = progress;
+            mSnapshotTime = SystemClock.elapsedRealtime();
+            updateElapsedTime(progress);
         }
     }
 
@@ -291,7 +317,7 @@ public class NowPlayingView extends RelativeLayout implements SeekBar.OnSeekBarC
      */
     @Override
     public void onStartTrackingTouch(SeekBar seekBar) {
-        // TODO Auto-generated method stub
+        mUserSeeking = true;
     }
 
     /**
@@ -301,7 +327,7 @@ public class NowPlayingView extends RelativeLayout implements SeekBar.OnSeekBarC
      */
     @Override
     public void onStopTrackingTouch(SeekBar seekBar) {
-        // TODO Auto-generated method stub
+        mUserSeeking = false;
         updateTrackPosition();
     }
 
@@ -1030,13 +1056,9 @@ public class NowPlayingView extends RelativeLayout implements SeekBar.OnSeekBarC
      * Unregister the receiver for NowPlayingInformation intends, not needed anylonger.
      */
     public void onPause() {
-        if (mRefreshTimer != null) {
-            // Cancel the running refresh timer
-            mRefreshTimer.cancel();
-            mRefreshTimer.purge();
-            // Clean the reference
-            mRefreshTimer = null;
-        }
+        // Stop the position updates
+        stopRefreshTask();
+
         if (mNowPlayingReceiver != null) {
             // Unregister the broadcast receiver
             getContext().getApplicationContext().unregisterReceiver(mNowPlayingReceiver);
@@ -1168,7 +1190,10 @@ public class NowPlayingView extends RelativeLayout implements SeekBar.OnSeekBarC
         // set up seekbar (set maximum value, track total duration)
         mPositionSeekbar.setMax((int) currentTrack.getTrackDuration());
 
-        // update seekbar and elapsedview
+        // save the position snapshot and update seekbar and elapsedview
+        mSnapshotPosition = info.getTrackPosition();
+        mSnapshotTime = info.getPositionTimestamp();
+        mSnapshotSpeed = info.getPlaybackSpeed();
         updateTrackPosition();
 
         // save the state
@@ -1231,45 +1256,60 @@ public class NowPlayingView extends RelativeLayout implements SeekBar.OnSeekBarC
     }
 
     /**
-     * Get the current trackposition from the PBS and update the seekbar and the elapsed view.
+     * Interpolate the current trackposition from the last snapshot of the PBS and update the seekbar and the elapsed view.
      */
     private void updateTrackPosition() {
+        if (mUserSeeking) {
+            // don't move the seekbar under the finger of the user
+            return;
+        }
+
         // get trackposition
-        int trackPosition = 0;
-        try {
-            trackPosition = mServiceConnection.getPBS().getTrackPosition();
-        } catch (RemoteException e) {
-            e.printStackTrace();
+        long trackPosition = mSnapshotPosition + (long) ((SystemClock.elapsedRealtime() - mSnapshotTime) * mSnapshotSpeed);
+        trackPosition = Math.max(0, Math.min(trackPosition, mPositionSeekbar.getMax()));
+
+        // update the seekbar only if the position moved at least one pixel
+        final int seekbarWidth = mPositionSeekbar.getWidth();
+        final int pixelDuration = seekbarWidth > 0 ? mPositionSeekbar.getMax() / seekbarWidth : 0;
+        if (Math.abs(trackPosition - mPositionSeekbar.getProgress()) > pixelDuration) {
+            mPositionSeekbar.setProgress((int) trackPosition);
         }
 
-        // update the seekbar
-        mPositionSeekbar.setProgress(trackPosition);
         // update the elapsed view
-        mElapsedTime.setText(FormatHelper.formatTracktimeFromMS(getContext(), trackPosition));
+        updateElapsedTime(trackPosition);
+    }
+
+    /**
+     * Update the elapsed view if the shown seconds changed.
+     *
+     * @param trackPosition The position to show in ms.
+     */
+    private void updateElapsedTime(long trackPosition) {
+        final long elapsedSeconds = trackPosition / 1000;
+        if (elapsedSeconds != mShownElapsedSeconds) {
+            mShownElapsedSeconds = elapsedSeconds;
+            mElapsedTime.setText(FormatHelper.formatTracktimeFromMS(getContext(), trackPosition));
+        }
     }
 
     /**
      * Stop the refresh task if one exists.
      */
     private void stopRefreshTask() {
-        if (mRefreshTimer != null) {
-            mRefreshTimer.cancel();
-            mRefreshTimer.purge();
-            mRefreshTimer = null;
+        if (mRefreshRunning) {
+            Choreographer.getInstance().removeFrameCallback(mPositionFrameCallback);
+            mRefreshRunning = false;
         }
     }
 
     /**
-     * Start a periodically time to update the seekbar. If one is already existing overwrite it.
+     * Start the frame callback to update the seekbar with every frame. Does nothing if it is already running.
      */
     private void startRefreshTask() {
-        if (mRefreshTimer != null) {
-            mRefreshTimer.cancel();
-            mRefreshTimer.purge();
-            mRefreshTimer = null;
+        if (!mRefreshRunning) {
+            mRefreshRunning = true;
+            Choreographer.getInstance().postFrameCallback(mPositionFrameCallback);
         }
-        mRefreshTimer = new Timer();
-        mRefreshTimer.scheduleAtFixedRate(new RefreshTask(), 0, 500);
     }
 
     /**
@@ -1520,18 +1560,16 @@ public class NowPlayingView extends RelativeLayout implements SeekBar.OnSeekBarC
     }
 
     /**
-     * Private class that handles periodically updates of the duration views (seekbar, textviews)
+     * Private class that updates the duration views (seekbar, textviews) with every frame while the track is playing
      */
-    private class RefreshTask extends TimerTask {
+    private class PositionFrameCallback implements Choreographer.FrameCallback {
 
         @Override
-        public void run() {
-            Activity activity = (Activity) getContext();
-            // Run on the UI thread because we are updating gui elements
-            if (activity != null) {
-                activity.runOnUiThread(NowPlayingView.this::updateTrackPosition);
+        public void doFrame(long frameTimeNanos) {
+            if (mRefreshRunning) {
+                updateTrackPosition();
+                Choreographer.getInstance().postFrameCallback(this);
             }
-
         }
     }
 
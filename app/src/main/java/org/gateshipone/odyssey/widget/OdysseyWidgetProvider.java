@@ -36,10 +36,12 @@ import org.gateshipone.odyssey.R;
 import org.gateshipone.odyssey.activities.OdysseyMainActivity;
 import org.gateshipone.odyssey.activities.OdysseySplashActivity;
 import org.gateshipone.odyssey.artwork.ArtworkManager;
+import org.gateshipone.odyssey.artwork.BitmapCache;
 import org.gateshipone.odyssey.models.TrackModel;
 import org.gateshipone.odyssey.playbackservice.NowPlayingInformation;
 import org.gateshipone.odyssey.playbackservice.PlaybackService;
 import org.gateshipone.odyssey.playbackservice.managers.PlaybackServiceStatusHelper;
+import org.gateshipone.odyssey.utils.BitmapUtils;
 import org.gateshipone.odyssey.utils.CoverBitmapLoader;
 
 import androidx.annotation.NonNull;
@@ -117,8 +119,9 @@ OdysseyWidgetProvider extends AppWidgetProvider {
             // Check if the new artwork matches the currently playing track. If so reload the artwork because it is now available.
             String albumKey = intent.getStringExtra(ArtworkManager.INTENT_EXTRA_KEY_ALBUM_KEY);
             if (!mHideArtwork && mLastInfo.getCurrentTrack().getTrackAlbumKey().equals(albumKey)) {
+                final int coverSize = getCoverSize(context);
                 CoverBitmapLoader coverLoader = new CoverBitmapLoader(context, new CoverReceiver(context));
-                coverLoader.getImage(mLastInfo.getCurrentTrack(), -1, -1);
+                coverLoader.getImage(mLastInfo.getCurrentTrack(), coverSize, coverSize);
                 mLastCover = null;
             }
         }
@@ -151,8 +154,9 @@ OdysseyWidgetProvider extends AppWidgetProvider {
 
                         mLastCover = null;
 
+                        final int coverSize = getCoverSize(context);
                         CoverBitmapLoader coverLoader = new CoverBitmapLoader(context, new CoverReceiver(context));
-                        coverLoader.getImage(item, -1, -1);
+                        coverLoader.getImage(item, coverSize, coverSize);
                     } else if (mLastCover != null) {
                         // Reuse the image from last calls because the album is the same
                         views.setImageViewBitmap(R.id.widget_big_cover, mLastCover);
@@ -231,6 +235,13 @@ OdysseyWidgetProvider extends AppWidgetProvider {
         AppWidgetManager.getInstance(context).updateAppWidget(new ComponentName(context, OdysseyWidgetProvider.class), views);
     }
 
+    /**
+     * @return The size of the cover in pixels.
+     */
+    private static int getCoverSize(final Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.artwork_size_widget);
+    }
+
     private class CoverReceiver implements CoverBitmapLoader.CoverBitmapReceiver {
         private Context mContext;
 
@@ -248,8 +259,11 @@ OdysseyWidgetProvider extends AppWidgetProvider {
         public void receiveAlbumBitmap(Bitmap bm) {
             // Check if a valid image was found.
             if (bm != null) {
-                // Set the globally used variable
-                mLastCover = bm;
+                // Set the globally used variable, the bitmap is sent to the launcher with every update
+                mLastCover = BitmapUtils.scaleBitmapForTransfer(bm, getCoverSize(mContext), BitmapUtils.MAXIMUM_TRANSFER_BYTES);
+
+                // the widget only keeps its own copy
+                BitmapCache.getInstance().releaseBitmap(bm);
 
                 // Call the update method to refresh the view
                 setWidgetContent(mLastInfo, mContext);
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.Response;
+
+import org.junit.Test;
+
+import java.util.PriorityQueue;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PendingRequestTest {
+
+    private static class TestRequest extends Request<Void> {
+
+        private final Priority mPriority;
+
+        TestRequest(final Priority priority) {
+            super(Method.GET, "https://musicbrainz.org/ws/2/", null);
+            mPriority = priority;
+        }
+
+        @Override
+        public Priority getPriority() {
+            return mPriority;
+        }
+
+        @Override
+        protected Response<Void> parseNetworkResponse(NetworkResponse response) {
+            return null;
+        }
+
+        @Override
+        protected void deliverResponse(Void response) {
+        }
+    }
+
+    private long mSequence;
+
+    private void add(final PriorityQueue<LimitingRequestQueue.PendingRequest> queue, final Request<?> request) {
+        queue.add(new LimitingRequestQueue.PendingRequest(request, mSequence++));
+    }
+
+    @Test
+    public void ordersByPriority() {
+        final PriorityQueue<LimitingRequestQueue.PendingRequest> queue = new PriorityQueue<>();
+
+        final Request<?> low = new TestRequest(Request.Priority.LOW);
+        final Request<?> normal = new TestRequest(Request.Priority.NORMAL);
+        final Request<?> high = new TestRequest(Request.Priority.HIGH);
+        final Request<?> immediate = new TestRequest(Request.Priority.IMMEDIATE);
+
+        add(queue, low);
+        add(queue, normal);
+        add(queue, immediate);
+        add(queue, high);
+
+        assertSame(immediate, queue.poll().getRequest());
+        assertSame(high, queue.poll().getRequest());
+        assertSame(normal, queue.poll().getRequest());
+        assertSame(low, queue.poll().getRequest());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void keepsFifoOrderWithinPriority() {
+        final PriorityQueue<LimitingRequestQueue.PendingRequest> queue = new PriorityQueue<>();
+
+        final Request<?>[] bulk = new Request<?>[5];
+        for (int i = 0; i < bulk.length; i++) {
+            bulk[i] = new TestRequest(Request.Priority.LOW);
+            add(queue, bulk[i]);
+        }
+
+        final Request<?> first = new TestRequest(Request.Priority.HIGH);
+        final Request<?> second = new TestRequest(Request.Priority.HIGH);
+        add(queue, first);
+        add(queue, second);
+
+        // interactive requests overtake the waiting bulk requests but keep their own order
+        assertSame(first, queue.poll().getRequest());
+        assertSame(second, queue.poll().getRequest());
+
+        for (Request<?> request : bulk) {
+            assertSame(request, queue.poll().getRequest());
+        }
+        assertNull(queue.poll());
+    }
+}
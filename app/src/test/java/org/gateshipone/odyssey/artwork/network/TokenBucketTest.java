@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void startsWithFullBurst() {
+        final TokenBucket bucket = new TokenBucket(2.0, 3, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        // empty, the next token is available after half a second
+        assertEquals(SECOND / 2, bucket.tryAcquire(0));
+    }
+
+    @Test
+    public void returnsRemainingTimeUntilNextToken() {
+        final TokenBucket bucket = new TokenBucket(1.0, 1, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+        assertEquals(SECOND / 4, bucket.tryAcquire(SECOND * 3 / 4));
+        assertEquals(0, bucket.tryAcquire(SECOND));
+    }
+
+    @Test
+    public void refillIsLimitedByBurst() {
+        final TokenBucket bucket = new TokenBucket(1.0, 2, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+
+        // a long idle time must not allow more than the burst size
+        final long now = 100 * SECOND;
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(SECOND, bucket.tryAcquire(now));
+    }
+
+    @Test
+    public void keepsFractionalTokens() {
+        final TokenBucket bucket = new TokenBucket(4.0, 1, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        // three partial refills add up to 3/4 of a token
+        bucket.tryAcquire(SECOND / 16);
+        bucket.tryAcquire(SECOND / 8);
+        assertEquals(SECOND / 16, bucket.tryAcquire(SECOND * 3 / 16));
+        assertEquals(0, bucket.tryAcquire(SECOND / 4));
+    }
+
+    @Test
+    public void ignoresTimeGoingBackwards() {
+        final TokenBucket bucket = new TokenBucket(1.0, 1, SECOND);
+
+        assertEquals(0, bucket.tryAcquire(SECOND));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(2 * SECOND));
+    }
+
+    @Test
+    public void setRateLimitsAvailableTokens() {
+        final TokenBucket bucket = new TokenBucket(4.0, 4, 0);
+
+        bucket.setRate(1.0, 1);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+    }
+}
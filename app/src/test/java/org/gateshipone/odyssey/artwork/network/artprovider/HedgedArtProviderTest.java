@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.artwork.network.artprovider;
+
+import android.content.Context;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.NoCache;
+
+import org.gateshipone.odyssey.artwork.network.ArtworkRequestModel;
+import org.gateshipone.odyssey.artwork.network.ImageResponse;
+import org.gateshipone.odyssey.models.AlbumModel;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedArtProviderTest {
+
+    /**
+     * Default delay in ms before the next provider is queried.
+     */
+    private static final long HEDGE_DELAY = 3000;
+
+    /**
+     * Runs the tasks on the calling thread when the time is advanced.
+     */
+    private static class ManualScheduler implements HedgedArtProvider.Scheduler {
+
+        private static class Task {
+            private final Runnable mTask;
+            private final long mTime;
+
+            private Task(final Runnable task, final long time) {
+                mTask = task;
+                mTime = time;
+            }
+        }
+
+        private final List<Task> mTasks = new ArrayList<>();
+
+        private long mNow;
+
+        @Override
+        public long now() {
+            return mNow;
+        }
+
+        @Override
+        public void post(final Runnable task) {
+            postDelayed(task, 0);
+        }
+
+        @Override
+        public void postDelayed(final Runnable task, final long delay) {
+            mTasks.add(new Task(task, mNow + delay));
+        }
+
+        @Override
+        public void removeCallbacks(final Runnable task) {
+            final Iterator<Task> iterator = mTasks.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().mTask == task) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        void advance(final long time) {
+            final long end = mNow + time;
+
+            Task next;
+            while ((next = nextTask(end)) != null) {
+                mTasks.remove(next);
+                mNow = next.mTime;
+                next.mTask.run();
+            }
+            mNow = end;
+        }
+
+        private Task nextTask(final long end) {
+            Task next = null;
+            for (Task task : mTasks) {
+                if (task.mTime <= end && (next == null || task.mTime < next.mTime)) {
+                    next = task;
+                }
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Provider that keeps all queries until the test answers them.
+     */
+    private static class StubProvider extends ArtProvider {
+
+        private static class Query {
+            private final ArtworkRequestModel mModel;
+            private final Response.Listener<ImageResponse> mListener;
+            private final ArtFetchError mErrorListener;
+
+            private Query(final ArtworkRequestModel model, final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+                mModel = model;
+                mListener = listener;
+                mErrorListener = errorListener;
+            }
+        }
+
+        private final List<Query> mQueries = new ArrayList<>();
+
+        @Override
+        public void fetchImage(final ArtworkRequestModel model, final Context context, final Response.Listener<ImageResponse> listener, final ArtFetchError errorListener) {
+            mQueries.add(new Query(model, listener, errorListener));
+        }
+
+        int getQueryCount() {
+            return mQueries.size();
+        }
+
+        ArtworkRequestModel getModel(final int query) {
+            return mQueries.get(query).mModel;
+        }
+
+        void dispatch(final int query, final long now) {
+            mQueries.get(query).mModel.onRequestDispatched(now, 0);
+        }
+
+        void found(final int query) {
+            final ImageResponse response = new ImageResponse();
+            response.image = new byte[]{1};
+            mQueries.get(query).mListener.onResponse(response);
+        }
+
+        void missing(final int query) {
+            final Query pending = mQueries.get(query);
+            pending.mErrorListener.fetchError(pending.mModel, null);
+        }
+    }
+
+    /**
+     * Queue that only counts the cancel calls for the requests of canceled attempts.
+     */
+    private static class CountingRequestQueue extends RequestQueue {
+
+        private int mCancelCount;
+
+        CountingRequestQueue() {
+            super(new NoCache(), request -> null);
+        }
+
+        @Override
+        public void cancelAll(final RequestFilter filter) {
+            mCancelCount++;
+        }
+    }
+
+    private final List<ImageResponse> mResponses = new ArrayList<>();
+
+    private final List<ArtworkRequestModel> mErrors = new ArrayList<>();
+
+    private final ArtProvider.ArtFetchError mErrorListener = new ArtProvider.ArtFetchError() {
+        @Override
+        public void fetchJSONException(ArtworkRequestModel model, Context context, JSONException exception) {
+            mErrors.add(model);
+        }
+
+        @Override
+        public void fetchVolleyError(ArtworkRequestModel model, Context context, VolleyError error) {
+            mErrors.add(model);
+        }
+
+        @Override
+        public void fetchError(ArtworkRequestModel model, Context context) {
+            mErrors.add(model);
+        }
+    };
+
+    private ManualScheduler mScheduler;
+
+    private CountingRequestQueue mRequestQueue;
+
+    private StubProvider mFirst;
+
+    private StubProvider mSecond;
+
+    private HedgedArtProvider mChain;
+
+    @Before
+    public void setUp() {
+        mScheduler = new ManualScheduler();
+        mRequestQueue = new CountingRequestQueue();
+        mFirst = new StubProvider();
+        mSecond = new StubProvider();
+        mChain = new HedgedArtProvider(Arrays.asList(mFirst, mSecond), mRequestQueue, mScheduler);
+    }
+
+    private ArtworkRequestModel fetch(final Request.Priority priority) {
+        final ArtworkRequestModel model = new ArtworkRequestModel(new AlbumModel("Album", null, "Artist", null, 1));
+        model.setPriority(priority);
+
+        mChain.fetchImage(model, null, mResponses::add, mErrorListener);
+        mScheduler.advance(0);
+        return model;
+    }
+
+    @Test
+    public void fastProviderIsNotHedged() {
+        final ArtworkRequestModel model = fetch(Request.Priority.HIGH);
+        assertEquals(1, mFirst.getQueryCount());
+
+        mFirst.dispatch(0, mScheduler.now());
+        mScheduler.advance(HEDGE_DELAY - 1);
+        mFirst.found(0);
+        mScheduler.advance(HEDGE_DELAY);
+
+        assertEquals(0, mSecond.getQueryCount());
+        assertEquals(1, mResponses.size());
+        assertSame(model, mResponses.get(0).model);
+        assertEquals(0, mRequestQueue.mCancelCount);
+    }
+
+    @Test
+    public void slowProviderIsHedged() {
+        fetch(Request.Priority.HIGH);
+
+        mFirst.dispatch(0, mScheduler.now());
+        mScheduler.advance(HEDGE_DELAY - 1);
+        assertEquals(0, mSecond.getQueryCount());
+
+        mScheduler.advance(1);
+        assertEquals(1, mSecond.getQueryCount());
+        // the first provider keeps running
+        assertFalse(mFirst.getModel(0).isCanceled());
+    }
+
+    @Test
+    public void hedgeDelayStartsAtDispatch() {
+        fetch(Request.Priority.HIGH);
+
+        // waiting in the rate limiter does not start the next provider
+        mScheduler.advance(10 * HEDGE_DELAY);
+        assertEquals(0, mSecond.getQueryCount());
+
+        mFirst.dispatch(0, mScheduler.now());
+        mScheduler.advance(HEDGE_DELAY - 1);
+        assertEquals(0, mSecond.getQueryCount());
+
+        mScheduler.advance(1);
+        assertEquals(1, mSecond.getQueryCount());
+    }
+
+    @Test
+    public void firstImageWinsAndCancelsOtherProviders() {
+        final ArtworkRequestModel model = fetch(Request.Priority.HIGH);
+        mFirst.dispatch(0, mScheduler.now());
+        mScheduler.advance(HEDGE_DELAY);
+
+        mSecond.found(0);
+
+        assertEquals(1, mResponses.size());
+        assertSame(model, mResponses.get(0).model);
+        assertTrue(mFirst.getModel(0).isCanceled());
+        assertFalse(mSecond.getModel(0).isCanceled());
+        assertEquals(1, mRequestQueue.mCancelCount);
+
+        // late answers of the canceled provider are dropped
+        mFirst.found(0);
+        mFirst.missing(0);
+        assertEquals(1, mResponses.size());
+        assertEquals(0, mErrors.size());
+    }
+
+    @Test
+    public void onlyTheWinnerSetsTheMBID() {
+        final ArtworkRequestModel model = fetch(Request.Priority.HIGH);
+        mFirst.dispatch(0, mScheduler.now());
+        mScheduler.advance(HEDGE_DELAY);
+
+        assertNotSame(mFirst.getModel(0).getGenericModel(), mSecond.getModel(0).getGenericModel());
+
+        mSecond.getModel(0).setMBID("winner");
+        mFirst.getModel(0).setMBID("loser");
+        mSecond.found(0);
+
+        assertEquals("winner", model.getMBID());
+
+        // the canceled provider can not overwrite the MBID anymore
+        mFirst.getModel(0).setMBID("late");
+        assertEquals("winner", model.getMBID());
+    }
+
+    @Test
+    public void missingImageQueriesNextProviderImmediately() {
+        final ArtworkRequestModel model = fetch(Request.Priority.HIGH);
+
+        mFirst.missing(0);
+        assertEquals(1, mSecond.getQueryCount());
+        assertEquals(0, mErrors.size());
+
+        mSecond.missing(0);
+        assertEquals(1, mErrors.size());
+        assertSame(model, mErrors.get(0));
+
+        // no hedge is left that could query a provider again
+        mScheduler.advance(10 * HEDGE_DELAY);
+        assertEquals(1, mFirst.getQueryCount());
+        assertEquals(1, mSecond.getQueryCount());
+    }
+
+    @Test
+    public void lowPriorityRequestsAreNotHedged() {
+        fetch(Request.Priority.LOW);
+
+        mScheduler.advance(10 * HEDGE_DELAY);
+        assertEquals(0, mSecond.getQueryCount());
+
+        mFirst.missing(0);
+        assertEquals(1, mSecond.getQueryCount());
+    }
+
+    @Test
+    public void statisticsOrderTheChain() {
+        // the first provider never finds an image, the second one finds all
+        for (int i = 0; i < 10; i++) {
+            fetch(Request.Priority.HIGH);
+            mFirst.dispatch(i, mScheduler.now());
+            mScheduler.advance(100);
+            mFirst.missing(i);
+
+            mSecond.dispatch(i, mScheduler.now());
+            mScheduler.advance(100);
+            mSecond.found(i);
+        }
+
+        fetch(Request.Priority.HIGH);
+
+        assertEquals(10, mFirst.getQueryCount());
+        assertEquals(11, mSecond.getQueryCount());
+    }
+
+    @Test
+    public void latencyIsMeasuredFromDispatch() {
+        mChain.setPreferredProvider(mSecond);
+
+        // the second provider waits 20 s in the rate limiter but answers 200 ms after the dispatch
+        for (int i = 0; i < 10; i++) {
+            fetch(Request.Priority.LOW);
+            assertEquals(0, mFirst.getQueryCount());
+
+            mScheduler.advance(20000);
+            mSecond.dispatch(i, mScheduler.now());
+            mScheduler.advance(200);
+            mSecond.found(i);
+        }
+
+        // the hedge delay is derived from the network time only and limited to the minimum of 1 s
+        fetch(Request.Priority.HIGH);
+        assertEquals(11, mSecond.getQueryCount());
+
+        mSecond.dispatch(10, mScheduler.now());
+        mScheduler.advance(999);
+        assertEquals(0, mFirst.getQueryCount());
+
+        mScheduler.advance(1);
+        assertEquals(1, mFirst.getQueryCount());
+    }
+}
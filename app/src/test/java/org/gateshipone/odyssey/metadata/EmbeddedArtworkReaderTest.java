@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class EmbeddedArtworkReaderTest {
+
+    /**
+     * The picture data embedded in all fixtures: a PNG signature followed by the bytes 0 to 39.
+     */
+    private static final byte[] COVER;
+
+    static {
+        COVER = new byte[48];
+        final byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+        System.arraycopy(signature, 0, COVER, 0, signature.length);
+        for (int i = 0; i < 40; i++) {
+            COVER[signature.length + i] = (byte) i;
+        }
+    }
+
+    private static void assertCover(final String name) throws Exception {
+        final ByteBuffer artwork = EmbeddedArtworkReader.readArtwork(TagReaderTest.getFixture(name));
+        assertNotNull(artwork);
+
+        final byte[] data = new byte[artwork.remaining()];
+        artwork.get(data);
+        assertArrayEquals(COVER, data);
+    }
+
+    @Test
+    public void readsID3v2PictureFrame() throws Exception {
+        assertCover("id3v23_cbr.mp3");
+    }
+
+    @Test
+    public void readsFlacPictureBlock() throws Exception {
+        assertCover("vorbis_comment.flac");
+    }
+
+    @Test
+    public void readsFlacPictureBlockBehindID3v2Tag() throws Exception {
+        assertCover("id3v2_prepended.flac");
+    }
+
+    @Test
+    public void readsMP4CoverItem() throws Exception {
+        assertCover("itunes.m4a");
+    }
+
+    @Test
+    public void returnsNullWithoutArtwork() throws Exception {
+        assertNull(EmbeddedArtworkReader.readArtwork(TagReaderTest.getFixture("id3v1.mp3")));
+        assertNull(EmbeddedArtworkReader.readArtwork(TagReaderTest.getFixture("unsupported.txt")));
+    }
+}
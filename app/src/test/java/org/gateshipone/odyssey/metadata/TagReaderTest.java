@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/odyssey/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.odyssey.metadata;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TagReaderTest {
+
+    static File getFixture(final String name) throws URISyntaxException {
+        final URL url = TagReaderTest.class.getClassLoader().getResource("metadata/" + name);
+        assertNotNull("missing fixture " + name, url);
+        return new File(url.toURI());
+    }
+
+    private static TrackTags readFixture(final String name) throws IOException, URISyntaxException {
+        final TrackTags tags = TagReader.readTags(getFixture(name));
+        assertNotNull(tags);
+        return tags;
+    }
+
+    @Test
+    public void readsID3v23TagOfConstantBitrateStream() throws Exception {
+        final TrackTags tags = readFixture("id3v23_cbr.mp3");
+
+        assertEquals("Unicode \u00C4\u00F6\u00FC", tags.getTitle());
+        assertEquals("ID3 Artist", tags.getArtist());
+        assertEquals("ID3 Album", tags.getAlbum());
+        assertEquals(3, tags.getTrackNumber());
+        // 100 frames of 417 bytes at 128 kbit/s
+        assertEquals(2606, tags.getDuration());
+    }
+
+    @Test
+    public void readsID3v24TagAndXingFrameCount() throws Exception {
+        final TrackTags tags = readFixture("id3v24_xing.mp3");
+
+        assertEquals("Xing Title", tags.getTitle());
+        assertEquals("Xing Artist", tags.getArtist());
+        assertNull(tags.getAlbum());
+        assertEquals(5, tags.getTrackNumber());
+        // 1000 frames of 1152 samples at 44.1 kHz
+        assertEquals(26122, tags.getDuration());
+    }
+
+    @Test
+    public void readsID3v1TagWithoutID3v2Tag() throws Exception {
+        final TrackTags tags = readFixture("id3v1.mp3");
+
+        assertEquals("V1 Title", tags.getTitle());
+        assertEquals("V1 Artist", tags.getArtist());
+        assertEquals("V1 Album", tags.getAlbum());
+        assertEquals(7, tags.getTrackNumber());
+        // the ID3v1 tag is not part of the stream
+        assertEquals(1303, tags.getDuration());
+    }
+
+    @Test
+    public void readsFlacVorbisComment() throws Exception {
+        final TrackTags tags = readFixture("vorbis_comment.flac");
+
+        assertEquals("Vorbis Title", tags.getTitle());
+        assertEquals("Vorbis Artist", tags.getArtist());
+        assertEquals("Vorbis Album", tags.getAlbum());
+        assertEquals(9, tags.getTrackNumber());
+        assertEquals(10000, tags.getDuration());
+    }
+
+    @Test
+    public void prefersFlacMetadataOverPrependedID3v2Tag() throws Exception {
+        final TrackTags tags = readFixture("id3v2_prepended.flac");
+
+        assertEquals("Vorbis Title", tags.getTitle());
+        assertEquals("Vorbis Artist", tags.getArtist());
+        assertEquals(10000, tags.getDuration());
+    }
+
+    @Test
+    public void readsOggVorbisComment() throws Exception {
+        final TrackTags tags = readFixture("vorbis.ogg");
+
+        assertEquals("Vorbis Title", tags.getTitle());
+        assertEquals("Vorbis Artist", tags.getArtist());
+        assertEquals("Vorbis Album", tags.getAlbum());
+        assertEquals(9, tags.getTrackNumber());
+        // last granule position of 88200 samples at 44.1 kHz
+        assertEquals(2000, tags.getDuration());
+    }
+
+    @Test
+    public void readsOpusTagsAndSubtractsPreSkip() throws Exception {
+        final TrackTags tags = readFixture("opus.opus");
+
+        assertEquals("Opus Title", tags.getTitle());
+        assertEquals("Opus Artist", tags.getArtist());
+        assertNull(tags.getAlbum());
+        assertEquals(2, tags.getTrackNumber());
+        assertEquals(3000, tags.getDuration());
+    }
+
+    @Test
+    public void readsMP4ItemList() throws Exception {
+        final TrackTags tags = readFixture("itunes.m4a");
+
+        assertEquals("MP4 Title", tags.getTitle());
+        assertEquals("MP4 Artist", tags.getArtist());
+        assertEquals("MP4 Album", tags.getAlbum());
+        assertEquals(4, tags.getTrackNumber());
+        assertEquals(4500, tags.getDuration());
+    }
+
+    @Test
+    public void returnsNullForUnsupportedFiles() throws Exception {
+        assertNull(TagReader.readTags(getFixture("unsupported.txt")));
+    }
+}